@@ -0,0 +1,80 @@
+package me.xidentified.archgpt.benchmarks;
+
+import me.xidentified.archgpt.utils.PlayerLocks;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many chat events arriving at once from different players, each doing a chat handler's worth of
+ * work on its own conversation state: one global monitor, as the chat listener used to hold,
+ * against the per-player lock stripes. The global lock's throughput stays flat as threads are
+ * added; the stripes' should scale until players start sharing stripes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class ChatLockBenchmark {
+    // CPU spent inside the lock per event, roughly the listener's checks and map updates
+    private static final long HANDLER_WORK = 200;
+
+    @Param({"16", "1000"})
+    public int players;
+
+    private final Object globalMonitor = new Object();
+    private PlayerLocks playerLocks;
+    private UUID[] playerIds;
+    private Map<UUID, List<String>> chatStates;
+
+    @State(Scope.Thread)
+    public static class Chatter {
+        private final SplittableRandom random = new SplittableRandom();
+
+        UUID next(ChatLockBenchmark benchmark) {
+            return benchmark.playerIds[random.nextInt(benchmark.players)];
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        playerLocks = new PlayerLocks();
+        playerIds = new UUID[players];
+        chatStates = new ConcurrentHashMap<>();
+        SplittableRandom random = new SplittableRandom(Datasets.SEED);
+        for (int i = 0; i < players; i++) {
+            playerIds[i] = new UUID(random.nextLong(), random.nextLong());
+            chatStates.put(playerIds[i], List.of("system"));
+        }
+    }
+
+    @Benchmark
+    public void globalLock(Chatter chatter, Blackhole blackhole) {
+        UUID playerUUID = chatter.next(this);
+        synchronized (globalMonitor) {
+            handle(playerUUID, blackhole);
+        }
+    }
+
+    @Benchmark
+    public void playerLocks(Chatter chatter, Blackhole blackhole) {
+        UUID playerUUID = chatter.next(this);
+        playerLocks.withLock(playerUUID, () -> {
+            handle(playerUUID, blackhole);
+        });
+    }
+
+    private void handle(UUID playerUUID, Blackhole blackhole) {
+        blackhole.consume(chatStates.get(playerUUID));
+        Blackhole.consumeCPU(HANDLER_WORK);
+    }
+}
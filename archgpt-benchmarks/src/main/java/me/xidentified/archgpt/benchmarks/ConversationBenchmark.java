@@ -0,0 +1,85 @@
+package me.xidentified.archgpt.benchmarks;
+
+import me.xidentified.archgpt.storage.dao.ConversationDAO;
+import me.xidentified.archgpt.storage.model.Conversation;
+import me.xidentified.archgpt.storage.model.ConversationKey;
+import me.xidentified.archgpt.utils.ArchGPTConstants;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The conversation DAO operations on the chat path, measured against a seeded dataset. Each
+ * storage engine is a subclass, so their results line up in one report.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public abstract class ConversationBenchmark {
+    // Matches the write-behind queue's default batch size
+    private static final int BATCH_SIZE = 50;
+    private static final int RECENT_LIMIT = 10;
+
+    // 10000000 also works (-p rows=10000000), but takes a long time to seed
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    protected ConversationDAO dao;
+
+    // Each thread inserts its own rows and picks its own keys, from a fixed seed
+    @State(Scope.Thread)
+    public static class Cursor {
+        final SplittableRandom random = new SplittableRandom(Datasets.SEED + 1);
+        long inserted;
+    }
+
+    protected abstract ConversationDAO open() throws Exception;
+
+    protected abstract void close() throws Exception;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dao = open();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        close();
+    }
+
+    @Benchmark
+    public void singleInsert(Cursor cursor) {
+        dao.saveConversation(Datasets.conversation(rows, rows + cursor.inserted++, cursor.random));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void batchedInsert(Cursor cursor) {
+        List<Conversation> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(Datasets.conversation(rows, rows + cursor.inserted++, cursor.random));
+        }
+        dao.saveConversations(batch);
+    }
+
+    // What every chat turn reads to build the prompt
+    @Benchmark
+    public List<Conversation> recentConversations(Cursor cursor) {
+        ConversationKey key = Datasets.key(rows, cursor.random.nextLong(rows));
+        return dao.getRecentConversations(key.playerUUID(), key.npcName(), Datasets.MEMORY, RECENT_LIMIT);
+    }
+
+    // Memory recall when a player asks about an earlier conversation
+    @Benchmark
+    public List<Conversation> searchConversations(Cursor cursor) {
+        ConversationKey key = Datasets.key(rows, cursor.random.nextLong(rows));
+        return dao.searchConversations(key.playerUUID(), key.npcName(), Datasets.MEMORY,
+                Datasets.searchTerms(cursor.random), ArchGPTConstants.MEMORY_RECALL_LIMIT);
+    }
+}
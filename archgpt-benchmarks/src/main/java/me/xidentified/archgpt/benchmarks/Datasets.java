@@ -0,0 +1,169 @@
+package me.xidentified.archgpt.benchmarks;
+
+import me.xidentified.archgpt.storage.dao.ConversationDAO;
+import me.xidentified.archgpt.storage.dao.ReportDAO;
+import me.xidentified.archgpt.storage.model.Conversation;
+import me.xidentified.archgpt.storage.model.ConversationKey;
+import me.xidentified.archgpt.storage.model.Report;
+import net.kyori.adventure.text.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Seeded, deterministic test data shaped like a live server: a few NPCs, many players, and
+ * NPC-style messages from a fixed vocabulary. The same row count always produces the same rows,
+ * so seeded databases can be kept between runs and results compared across machines.
+ */
+public final class Datasets {
+    public static final long SEED = 42;
+    public static final int NPCS = 20;
+    // Messages per player and NPC pair, so players = rows / MESSAGES_PER_PAIR / NPCS
+    public static final int MESSAGES_PER_PAIR = 50;
+    // Seeded rows are a year old at most, so queries use a memory duration that covers all of them
+    public static final Duration MEMORY = Duration.ofDays(3650);
+    public static final int SEED_BATCH = 1000;
+    private static final long BASE_TIMESTAMP = 1_700_000_000_000L;
+
+    private static final String[] WORDS = (
+            "the village blacksmith sword iron diamond creeper zombie night forest temple jungle emerald " +
+            "trade wheat carrot potato nether portal obsidian flint steel pickaxe mine cave lava river " +
+            "mountain castle king queen dragon quest reward gold treasure map north south east west " +
+            "friend traveler adventurer journey safe danger help remember again thank you welcome know " +
+            "librarian enchant book potion brew farm animal cow sheep wool bed shelter build house door"
+    ).split(" ");
+    private static final String[] REPORT_TYPES = {"Inappropriate", "Off-topic", "Inaccurate", "Other"};
+
+    private Datasets() {}
+
+    public static String npcName(int npc) {
+        return "Npc" + npc;
+    }
+
+    public static UUID player(int player) {
+        return new UUID(SEED, player);
+    }
+
+    public static int players(int rows) {
+        return Math.max(1, rows / MESSAGES_PER_PAIR / NPCS);
+    }
+
+    // The pair that the i-th seeded message belongs to, spreading every pair across the whole time range
+    public static ConversationKey key(int rows, long index) {
+        int pairs = players(rows) * NPCS;
+        int pair = (int) (index % pairs);
+        return new ConversationKey(player(pair / NPCS), npcName(pair % NPCS));
+    }
+
+    public static String message(SplittableRandom random) {
+        int words = 5 + random.nextInt(36);
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) message.append(' ');
+            message.append(WORDS[random.nextInt(WORDS.length)]);
+            if (random.nextInt(8) == 0) message.append('.');
+        }
+        return message.append('.').toString();
+    }
+
+    public static List<String> searchTerms(SplittableRandom random) {
+        return List.of(WORDS[random.nextInt(WORDS.length)], WORDS[random.nextInt(WORDS.length)]);
+    }
+
+    public static Conversation conversation(int rows, long index, SplittableRandom random) {
+        ConversationKey key = key(rows, index);
+        return new Conversation(key.playerUUID(), key.npcName(), message(random),
+                BASE_TIMESTAMP + index * 1000, index % 2 == 1);
+    }
+
+    public static void seedConversations(ConversationDAO dao, int rows) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Conversation> batch = new ArrayList<>(SEED_BATCH);
+        for (long i = 0; i < rows; i++) {
+            batch.add(conversation(rows, i, random));
+            if (batch.size() == SEED_BATCH) {
+                dao.saveConversations(batch);
+                batch = new ArrayList<>(SEED_BATCH);
+            }
+        }
+        if (!batch.isEmpty()) dao.saveConversations(batch);
+    }
+
+    public static Report report(long index, SplittableRandom random) {
+        return new Report(0, "Player" + random.nextInt(10_000), npcName(random.nextInt(NPCS)),
+                REPORT_TYPES[random.nextInt(REPORT_TYPES.length)], Component.text(message(random)), message(random),
+                LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(index * 60));
+    }
+
+    public static void seedReports(ReportDAO dao, int rows) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Report> batch = new ArrayList<>(SEED_BATCH);
+        for (long i = 0; i < rows; i++) {
+            batch.add(report(i, random));
+            if (batch.size() == SEED_BATCH) {
+                dao.saveReports(batch);
+                batch = new ArrayList<>(SEED_BATCH);
+            }
+        }
+        if (!batch.isEmpty()) dao.saveReports(batch);
+    }
+
+    @FunctionalInterface
+    public interface Seeder {
+        void seed(File directory) throws Exception;
+    }
+
+    /**
+     * Seeded files live under target/benchmark-data/name and are kept between runs while their
+     * marker file exists; a run that stops while seeding leaves no marker, so the next one starts
+     * over. Benchmarks get a fresh copy every trial, so rows they insert never leak into the next.
+     */
+    public static File workingCopy(String name, Seeder seeder) throws Exception {
+        File seeded = new File("target/benchmark-data", name);
+        File marker = new File(seeded, "seeded");
+        if (!marker.isFile()) {
+            delete(seeded);
+            Files.createDirectories(seeded.toPath());
+            seeder.seed(seeded);
+            Files.writeString(marker.toPath(), "");
+        }
+        File work = new File("target/benchmark-data", name + "-work");
+        delete(work);
+        copy(seeded, work);
+        return work;
+    }
+
+    private static void copy(File source, File target) throws IOException {
+        Files.createDirectories(target.toPath());
+        File[] files = source.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                copy(file, new File(target, file.getName()));
+            } else {
+                Files.copy(file.toPath(), new File(target, file.getName()).toPath());
+            }
+        }
+    }
+
+    public static void delete(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    delete(file);
+                } else {
+                    Files.delete(file.toPath());
+                }
+            }
+        }
+        Files.deleteIfExists(directory.toPath());
+    }
+}
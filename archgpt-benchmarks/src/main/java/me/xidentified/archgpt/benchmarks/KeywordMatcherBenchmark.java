@@ -0,0 +1,77 @@
+package me.xidentified.archgpt.benchmarks;
+
+import me.xidentified.archgpt.context.KeywordMatcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Scoring the sentences of one summary's worth of messages: KeywordMatcher against the regex
+ * approach it replaced, which compiled a keyword alternation per summary and re-split every
+ * matching sentence to count keywords. Both build their matcher inside the benchmark, as
+ * production does once per summary.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeywordMatcherBenchmark {
+    private static final int MESSAGES = 50;
+
+    @Param({"3", "10"})
+    public int keywordCount;
+
+    private List<String> messages;
+    private List<String> keywords;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(Datasets.SEED);
+        messages = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            messages.add(Datasets.message(random));
+        }
+        Set<String> unique = new HashSet<>();
+        while (unique.size() < keywordCount) {
+            unique.addAll(Datasets.searchTerms(random));
+        }
+        keywords = new ArrayList<>(unique).subList(0, keywordCount);
+    }
+
+    @Benchmark
+    public int ahoCorasick() {
+        KeywordMatcher matcher = new KeywordMatcher(keywords);
+        int[] total = new int[1];
+        for (String message : messages) {
+            matcher.scoreSentences(message, (sentence, score) -> total[0] += score);
+        }
+        return total[0];
+    }
+
+    @Benchmark
+    public int regex() {
+        String alternation = keywords.stream().map(Pattern::quote).collect(Collectors.joining("|"));
+        Pattern sentencePattern = Pattern.compile("[^.!?]*\\b(" + alternation + ")\\b[^.!?]*[.!?]");
+        Set<String> keywordSet = new HashSet<>(keywords);
+        int total = 0;
+        for (String message : messages) {
+            Matcher matcher = sentencePattern.matcher(message);
+            while (matcher.find()) {
+                for (String word : matcher.group().toLowerCase().split("\\s+")) {
+                    if (keywordSet.contains(word)) total++;
+                }
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,42 @@
+package me.xidentified.archgpt.benchmarks;
+
+import me.xidentified.archgpt.storage.MessageCodec;
+import me.xidentified.archgpt.storage.dao.ConversationDAO;
+import me.xidentified.archgpt.storage.dao.LogConversationDAO;
+
+import java.io.File;
+import java.util.logging.Logger;
+
+// The append-only log engine on the same dataset as SQLite, with the config.yml defaults.
+// Compaction is pushed past the end of any run so it never lands inside a measurement.
+public class LogConversationBenchmark extends ConversationBenchmark {
+    private static final Logger LOGGER = Logger.getLogger("ArchGPT-Benchmarks");
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final long COMPACTION_INTERVAL_MINUTES = 24 * 60;
+
+    private LogConversationDAO log;
+
+    @Override
+    protected ConversationDAO open() throws Exception {
+        File directory = Datasets.workingCopy("log-conversations-" + rows, seeded -> {
+            LogConversationDAO seeding = openLog(seeded);
+            try {
+                Datasets.seedConversations(seeding, rows);
+            } finally {
+                seeding.close(60_000);
+            }
+        });
+        log = openLog(directory);
+        return log;
+    }
+
+    private static LogConversationDAO openLog(File directory) throws Exception {
+        return new LogConversationDAO(directory, SEGMENT_SIZE, true, COMPACTION_INTERVAL_MINUTES, () -> Datasets.MEMORY,
+                new MessageCodec(MessageCodec.Mode.NONE, 64, 1000), LOGGER);
+    }
+
+    @Override
+    protected void close() {
+        log.close(60_000);
+    }
+}
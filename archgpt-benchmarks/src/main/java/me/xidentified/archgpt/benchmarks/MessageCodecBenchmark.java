@@ -0,0 +1,61 @@
+package me.xidentified.archgpt.benchmarks;
+
+import me.xidentified.archgpt.storage.MessageCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of compressing and decompressing one message in each storage.compression mode. The
+ * compression ratio is printed once per trial; the seeded messages reuse a small vocabulary, so
+ * real chat compresses somewhat worse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageCodecBenchmark {
+    private static final int MESSAGES = 1024;
+
+    @Param({"NONE", "DEFLATE", "DICTIONARY"})
+    public String mode;
+
+    private MessageCodec codec;
+    private String[] messages;
+    private byte[][] stored;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        codec = new MessageCodec(MessageCodec.parseMode(mode), 64, 0);
+        SplittableRandom random = new SplittableRandom(Datasets.SEED);
+        messages = new String[MESSAGES];
+        stored = new byte[MESSAGES][];
+        long original = 0;
+        long compressed = 0;
+        for (int i = 0; i < MESSAGES; i++) {
+            messages[i] = Datasets.message(random);
+            stored[i] = codec.encode(messages[i]);
+            original += messages[i].getBytes(StandardCharsets.UTF_8).length;
+            compressed += stored[i].length;
+        }
+        System.out.printf("%n%s: stored at %.1f%% of the original size%n", mode, compressed * 100.0 / original);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        next = (next + 1) % MESSAGES;
+        return codec.encode(messages[next]);
+    }
+
+    // Bypasses the codec's message cache, as a cold read would
+    @Benchmark
+    public String decode() {
+        next = (next + 1) % MESSAGES;
+        return MessageCodec.decode(stored[next]);
+    }
+}
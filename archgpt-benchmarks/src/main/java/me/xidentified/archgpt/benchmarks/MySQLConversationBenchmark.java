@@ -0,0 +1,59 @@
+package me.xidentified.archgpt.benchmarks;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import me.xidentified.archgpt.storage.MessageCodec;
+import me.xidentified.archgpt.storage.dao.ConversationDAO;
+import me.xidentified.archgpt.storage.dao.MySQLConversationDAO;
+
+import java.io.File;
+import java.util.logging.Logger;
+
+/**
+ * Runs against an embedded MariaDB server started for the trial, so the suite needs no database
+ * server and no network. The server is seeded afresh every trial rather than kept between runs.
+ * Pool settings match those in ConnectionPools.
+ */
+public class MySQLConversationBenchmark extends ConversationBenchmark {
+    private static final Logger LOGGER = Logger.getLogger("ArchGPT-Benchmarks");
+
+    private DB db;
+    private HikariDataSource dataSource;
+
+    @Override
+    protected ConversationDAO open() throws Exception {
+        File dataDir = new File("target/benchmark-data", "mariadb-" + rows);
+        Datasets.delete(dataDir);
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+        config.setPort(0); // Any free port
+        config.setDataDir(dataDir.getAbsolutePath());
+        db = DB.newEmbeddedDB(config.build());
+        db.start();
+        db.createDB("archgpt");
+
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName("archgpt-benchmark");
+        hikariConfig.setJdbcUrl("jdbc:mysql://localhost:" + db.getConfiguration().getPort() + "/archgpt?useSSL=false");
+        hikariConfig.setUsername("root");
+        hikariConfig.setMaximumPoolSize(10);
+        hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
+        hikariConfig.addDataSourceProperty("prepStmtCacheSize", "250");
+        hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        hikariConfig.addDataSourceProperty("useServerPrepStmts", "true");
+        hikariConfig.addDataSourceProperty("rewriteBatchedStatements", "true");
+        hikariConfig.addDataSourceProperty("useCursorFetch", "true");
+        dataSource = new HikariDataSource(hikariConfig);
+
+        MySQLConversationDAO dao = new MySQLConversationDAO(dataSource, new MessageCodec(MessageCodec.Mode.NONE, 64, 1000), LOGGER);
+        Datasets.seedConversations(dao, rows);
+        return dao;
+    }
+
+    @Override
+    protected void close() throws Exception {
+        dataSource.close();
+        db.stop();
+    }
+}
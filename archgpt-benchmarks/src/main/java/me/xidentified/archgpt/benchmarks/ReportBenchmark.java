@@ -0,0 +1,83 @@
+package me.xidentified.archgpt.benchmarks;
+
+import me.xidentified.archgpt.storage.SQLiteEngine;
+import me.xidentified.archgpt.storage.dao.SQLiteReportDAO;
+import me.xidentified.archgpt.storage.model.Report;
+import me.xidentified.archgpt.storage.model.ReportFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// What the report GUI runs for each page it shows, plus saving a report
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReportBenchmark {
+    private static final Logger LOGGER = Logger.getLogger("ArchGPT-Benchmarks");
+    private static final int PAGE_SIZE = 45; // Slots on a report GUI page
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private SQLiteEngine engine;
+    private SQLiteReportDAO dao;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        final SplittableRandom random = new SplittableRandom(Datasets.SEED + 1);
+        long saved;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        File directory = Datasets.workingCopy("sqlite-reports-" + rows, seeded -> {
+            SQLiteEngine seeding = SQLiteConversationBenchmark.openEngine(seeded);
+            try {
+                Datasets.seedReports(new SQLiteReportDAO(seeding, LOGGER), rows);
+            } finally {
+                seeding.close();
+            }
+        });
+        engine = SQLiteConversationBenchmark.openEngine(directory);
+        dao = new SQLiteReportDAO(engine, LOGGER);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public void saveReport(Cursor cursor) {
+        dao.saveReport(Datasets.report(rows + cursor.saved++, cursor.random));
+    }
+
+    @Benchmark
+    public List<Report> firstPage() {
+        return dao.getReports(ReportFilter.ALL, null, PAGE_SIZE);
+    }
+
+    // Keyset paging: a page deep in the list costs the same as the first
+    @Benchmark
+    public List<Report> deepPage(Cursor cursor) {
+        return dao.getReports(ReportFilter.ALL, 1 + cursor.random.nextInt(rows), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Report> filteredPage(Cursor cursor) {
+        return dao.getReports(new ReportFilter(Datasets.npcName(cursor.random.nextInt(Datasets.NPCS)), null, null), null, PAGE_SIZE);
+    }
+
+    // The GUI's page count, uncached
+    @Benchmark
+    public int countFiltered(Cursor cursor) {
+        return dao.countReports(new ReportFilter(Datasets.npcName(cursor.random.nextInt(Datasets.NPCS)), null, null));
+    }
+}
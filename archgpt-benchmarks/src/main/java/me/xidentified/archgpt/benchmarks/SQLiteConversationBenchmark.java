@@ -0,0 +1,38 @@
+package me.xidentified.archgpt.benchmarks;
+
+import me.xidentified.archgpt.storage.SQLiteEngine;
+import me.xidentified.archgpt.storage.dao.ConversationDAO;
+import me.xidentified.archgpt.storage.dao.SQLiteConversationDAO;
+
+import java.io.File;
+import java.util.logging.Logger;
+
+// Same engine settings as the defaults in config.yml
+public class SQLiteConversationBenchmark extends ConversationBenchmark {
+    private static final Logger LOGGER = Logger.getLogger("ArchGPT-Benchmarks");
+
+    private SQLiteEngine engine;
+
+    @Override
+    protected ConversationDAO open() throws Exception {
+        File directory = Datasets.workingCopy("sqlite-conversations-" + rows, seeded -> {
+            SQLiteEngine seeding = openEngine(seeded);
+            try {
+                Datasets.seedConversations(new SQLiteConversationDAO(seeding, LOGGER), rows);
+            } finally {
+                seeding.close();
+            }
+        });
+        engine = openEngine(directory);
+        return new SQLiteConversationDAO(engine, LOGGER);
+    }
+
+    static SQLiteEngine openEngine(File directory) throws Exception {
+        return new SQLiteEngine(new File(directory, "conversations.db"), 3, 16384, 256L * 1024 * 1024);
+    }
+
+    @Override
+    protected void close() {
+        engine.close();
+    }
+}
@@ -7,14 +7,30 @@ import de.cubbossa.tinytranslations.persistent.YamlMessageStorage;
 import de.cubbossa.tinytranslations.persistent.YamlStyleStorage;
 import lombok.Getter;
 import me.xidentified.archgpt.context.ContextManager;
+import me.xidentified.archgpt.context.MemoryCompactor;
+import me.xidentified.archgpt.context.MemorySummarizer;
 import me.xidentified.archgpt.commands.AdminReportCommandExecutor;
 import me.xidentified.archgpt.commands.ArchGPTCommand;
 import me.xidentified.archgpt.commands.ReportTypeCommandExecutor;
 import me.xidentified.archgpt.listeners.NPCEventListener;
 import me.xidentified.archgpt.reports.*;
+import me.xidentified.archgpt.scheduler.TaskScheduler;
+import me.xidentified.archgpt.scheduler.ProviderScheduler;
+import me.xidentified.archgpt.scheduler.TickBudgetExecutor;
+import me.xidentified.archgpt.storage.ConnectionPools;
+import me.xidentified.archgpt.storage.DataTransfer;
+import me.xidentified.archgpt.storage.MessageCodec;
+import me.xidentified.archgpt.storage.MySQLPartitioner;
+import me.xidentified.archgpt.storage.RetentionJob;
+import me.xidentified.archgpt.storage.SharedSessionStore;
+import me.xidentified.archgpt.storage.dao.AsyncConversationDAO;
 import me.xidentified.archgpt.storage.dao.ConversationDAO;
+import me.xidentified.archgpt.storage.dao.LogConversationDAO;
 import me.xidentified.archgpt.storage.dao.MySQLConversationDAO;
+import me.xidentified.archgpt.storage.dao.MySQLSessionDAO;
 import me.xidentified.archgpt.storage.dao.SQLiteConversationDAO;
+import me.xidentified.archgpt.storage.dao.TieredConversationDAO;
+import me.xidentified.archgpt.storage.dao.WriteBehindConversationDAO;
 import me.xidentified.archgpt.utils.*;
 import net.citizensnpcs.api.npc.NPC;
 import net.kyori.adventure.identity.Identity;
@@ -27,28 +43,18 @@ import org.bukkit.entity.ArmorStand;
 import org.bukkit.event.HandlerList;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import javax.sql.DataSource;
 import java.io.File;
+import java.io.IOException;
 import java.net.http.HttpClient;
 import java.time.Duration;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.*;
 import java.util.concurrent.*;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 
 import java.util.logging.Level;
 
 @Getter
 public class ArchGPT extends JavaPlugin {
-    // Maps
-    private final Cache<UUID, List<String>> npcChatStatesCache = CacheBuilder.newBuilder()
-            .expireAfterWrite(ArchGPTConstants.CACHE_EXPIRATION_MINUTES, TimeUnit.MINUTES)
-            .build();
-    private final Map<UUID, Boolean> activeConversations = new ConcurrentHashMap<>();
-    private final Map<UUID, Long> playerCooldowns = new ConcurrentHashMap<>();
-    public final ConcurrentHashMap<UUID, Semaphore> playerSemaphores = new ConcurrentHashMap<>();
-    private final Map<UUID, AtomicInteger> conversationTokenCounters = new ConcurrentHashMap<>();
-
     private final HttpClient httpClient = HttpClient.newBuilder()
             .version(HttpClient.Version.HTTP_2)
             .connectTimeout(Duration.ofSeconds(10))
@@ -59,10 +65,25 @@ public class ArchGPT extends JavaPlugin {
     private ContextManager contextManager;
     private HologramManager hologramManager;
     private ReportManager reportManager;
+    private Placeholders placeholders; // Null unless PlaceholderAPI is installed
     private TranslationService translationService;
     private NPCConversationManager conversationManager;
     private NPCEventListener npcEventListener;
     private ConversationDAO conversationDAO;
+    private ConnectionPools connectionPools;
+    private WriteBehindConversationDAO conversationWriter;
+    private AsyncConversationDAO asyncConversationDAO;
+    private TaskScheduler taskScheduler;
+    private TickBudgetExecutor tickBudgetExecutor;
+    private ProviderScheduler providerScheduler;
+    private MemoryCompactor memoryCompactor;
+    private MemorySummarizer memorySummarizer;
+    private RetentionJob retentionJob;
+    private DataTransfer dataTransfer;
+    private MySQLPartitioner mysqlPartitioner;
+    private LogConversationDAO conversationLog;
+    private MessageCodec messageCodec; // Only with MySQL or log storage
+    private SharedSessionStore sessionStore; // Only with MySQL storage and session sharing enabled
     private BukkitAudiences audiences;
     Translator translations;
 
@@ -77,8 +98,13 @@ public class ArchGPT extends JavaPlugin {
             }
 
             this.configHandler = new ArchGPTConfig(this);
+            this.taskScheduler = TaskScheduler.create(this);
+            this.tickBudgetExecutor = new TickBudgetExecutor(this, configHandler.getMainThreadBudgetNanos());
+            this.tickBudgetExecutor.start();
+            this.providerScheduler = new ProviderScheduler(configHandler.getProviderLimits());
             this.contextManager = new ContextManager(this);
             this.hologramManager = new HologramManager(this);
+            this.connectionPools = new ConnectionPools(this);
             this.reportManager = new ReportManager(this);
             this.audiences = BukkitAudiences.create(this);
             
@@ -131,21 +157,15 @@ public class ArchGPT extends JavaPlugin {
             Objects.requireNonNull(getCommand("archgpt")).setTabCompleter(new ArchGPTCommand(this));
 
             // Set storage type
-            String storageType = getConfig().getString("storage.type", "sqlite");
-            switch (storageType.toLowerCase()) {
-                case "sqlite":
-                    File sqliteFile = new File(getDataFolder(), "storage/conversations.db");
-                    conversationDAO = new SQLiteConversationDAO(sqliteFile);
-                    break;
-                case "mysql":
-                    String host = getConfig().getString("storage.mysql.host");
-                    int port = getConfig().getInt("storage.mysql.port");
-                    String database = getConfig().getString("storage.mysql.database");
-                    String username = getConfig().getString("storage.mysql.username");
-                    String password = getConfig().getString("storage.mysql.password");
-                    conversationDAO = new MySQLConversationDAO(host, port, database, username, password);
-                    break;
-            }
+            conversationDAO = createConversationDAO();
+            this.asyncConversationDAO = new AsyncConversationDAO(this::getConversationDAO, getConfig().getInt("storage.async_threads", 2));
+            this.memoryCompactor = new MemoryCompactor(this);
+            this.memoryCompactor.start();
+            this.memorySummarizer = new MemorySummarizer(this);
+            this.memorySummarizer.start();
+            this.retentionJob = new RetentionJob(this);
+            this.retentionJob.start();
+            this.dataTransfer = new DataTransfer(this);
 
             // Set the logger level based on debugMode
             Level loggerLevel = configHandler.isDebugMode() ? Level.INFO : Level.WARNING;
@@ -153,7 +173,8 @@ public class ArchGPT extends JavaPlugin {
 
             // Register PlaceholderAPI expansion
             if(Bukkit.getPluginManager().getPlugin("PlaceholderAPI") != null) {
-                new Placeholders(this).register();
+                this.placeholders = new Placeholders(this);
+                this.placeholders.register();
                 debugLog("PlaceholderAPI expansion enabled!");
             }
 
@@ -198,6 +219,16 @@ public class ArchGPT extends JavaPlugin {
         // 2) Rebuild config handler (re-computes compiled knowledge and all settings)
         this.configHandler = new ArchGPTConfig(this);
 
+        // 2b) Restart the main-thread work queue with the (possibly changed) tick budget
+        if (this.tickBudgetExecutor != null) {
+            this.tickBudgetExecutor.stop();
+        }
+        this.tickBudgetExecutor = new TickBudgetExecutor(this, configHandler.getMainThreadBudgetNanos());
+        this.tickBudgetExecutor.start();
+
+        // 2c) Apply new provider weights and caps; queued requests keep their place
+        this.providerScheduler.configure(configHandler.getProviderLimits());
+
         // 3) Update logger level based on (possibly changed) debug mode
         Level loggerLevel = configHandler.isDebugMode() ? Level.INFO : Level.WARNING;
         getLogger().setLevel(loggerLevel);
@@ -211,54 +242,189 @@ public class ArchGPT extends JavaPlugin {
             HandlerList.unregisterAll(this.npcEventListener);
         }
 
-        // 6) Recreate conversation manager and event listener with new config
+        // 6) Recreate conversation manager and event listener with new config. Open conversations end here,
+        //    since their sessions belong to the old manager.
+        if (this.conversationManager != null) {
+            this.conversationManager.shutdown(false);
+        }
         this.conversationManager = new NPCConversationManager(this, configHandler);
         this.npcEventListener = new NPCEventListener(this, conversationManager, configHandler);
         getServer().getPluginManager().registerEvents(npcEventListener, this);
 
         // 7) Optionally rebuild DAO based on storage settings (allows switching without restart)
         try {
-            String storageType = getConfig().getString("storage.type", "sqlite");
-            switch (storageType.toLowerCase()) {
-                case "sqlite":
-                    File sqliteFile = new File(getDataFolder(), "storage/conversations.db");
-                    conversationDAO = new SQLiteConversationDAO(sqliteFile);
-                    break;
-                case "mysql":
-                    String host = getConfig().getString("storage.mysql.host");
-                    int port = getConfig().getInt("storage.mysql.port");
-                    String database = getConfig().getString("storage.mysql.database");
-                    String username = getConfig().getString("storage.mysql.username");
-                    String password = getConfig().getString("storage.mysql.password");
-                    conversationDAO = new MySQLConversationDAO(host, port, database, username, password);
-                    break;
+            WriteBehindConversationDAO previousWriter = conversationWriter;
+            LogConversationDAO previousLog = conversationLog;
+            ConversationDAO reloaded = createConversationDAO();
+            if (reloaded != null) {
+                conversationDAO = reloaded;
+                if (previousWriter != null) {
+                    previousWriter.shutdown(getWriteBehindShutdownTimeout());
+                }
+                if (previousLog != null && previousLog != conversationLog) {
+                    previousLog.close(getWriteBehindShutdownTimeout());
+                }
             }
         } catch (Exception e) {
             getLogger().warning("Failed to reinitialize storage on reload. Using existing DAO. Error: " + e.getMessage());
         }
 
+        // 7b) Restart memory compaction, summarization and retention with the (possibly changed) settings
+        if (this.memoryCompactor != null) {
+            this.memoryCompactor.stop();
+        }
+        this.memoryCompactor = new MemoryCompactor(this);
+        this.memoryCompactor.start();
+        if (this.memorySummarizer != null) {
+            this.memorySummarizer.stop();
+        }
+        this.memorySummarizer = new MemorySummarizer(this);
+        this.memorySummarizer.start();
+        if (this.retentionJob != null) {
+            this.retentionJob.stop();
+        }
+        this.retentionJob = new RetentionJob(this);
+        this.retentionJob.start();
+
         // 8) Clear transient runtime caches that may depend on old knowledge/config
         try {
-            playerSemaphores.clear();
             if (contextManager != null) contextManager.clearAllContexts();
-            conversationTokenCounters.clear();
-            playerCooldowns.clear();
-            npcChatStatesCache.invalidateAll();
         } catch (Throwable ignored) {}
 
         // 9) Print current configuration overview to console for visibility
         configHandler.printConfigToConsole();
     }
 
+    // Builds the configured database DAO behind the write-behind queue and the in-memory recall tier
+    private ConversationDAO createConversationDAO() {
+        ConversationDAO storage = null;
+        mysqlPartitioner = null;
+        messageCodec = null;
+        if (sessionStore != null) {
+            sessionStore.shutdown(getWriteBehindShutdownTimeout());
+            sessionStore = null;
+        }
+        String storageType = getConfig().getString("storage.type", "sqlite");
+        switch (storageType.toLowerCase()) {
+            case "sqlite":
+                File sqliteFile = new File(getDataFolder(), "storage/conversations.db");
+                storage = new SQLiteConversationDAO(connectionPools.sqlite(sqliteFile), getLogger());
+                break;
+            case "mysql":
+                String host = getConfig().getString("storage.mysql.host");
+                int port = getConfig().getInt("storage.mysql.port");
+                String database = getConfig().getString("storage.mysql.database");
+                String username = getConfig().getString("storage.mysql.username");
+                String password = getConfig().getString("storage.mysql.password");
+                DataSource dataSource = connectionPools.mysql(host, port, database, username, password);
+                messageCodec = createMessageCodec();
+                storage = new MySQLConversationDAO(dataSource, messageCodec, getLogger());
+                if (getConfig().getBoolean("storage.retention.mysql_partitioning", false)) {
+                    mysqlPartitioner = new MySQLPartitioner(dataSource, getLogger());
+                }
+                if (getConfig().getBoolean("storage.session_sharing.enabled", false)) {
+                    String serverName = getConfig().getString("storage.session_sharing.server_name", "");
+                    if (serverName == null || serverName.isBlank()) {
+                        serverName = "server-" + getServer().getPort();
+                    }
+                    sessionStore = new SharedSessionStore(this, new MySQLSessionDAO(dataSource, getLogger()), serverName);
+                }
+                break;
+            case "log":
+                // The log holds its index in memory, so a reload keeps the open one; its settings apply after a restart
+                if (conversationLog == null) {
+                    try {
+                        conversationLog = new LogConversationDAO(new File(getDataFolder(), "storage/log"),
+                                Math.max(1, getConfig().getInt("storage.log.segment_size_mb", 64)) * 1024 * 1024,
+                                getConfig().getBoolean("storage.log.fsync", true),
+                                getConfig().getLong("storage.log.compaction_interval_minutes", 10),
+                                configHandler::getNpcMemoryDuration, createMessageCodec(), getLogger());
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Could not open the conversation log: " + e.getMessage(), e);
+                    }
+                }
+                storage = conversationLog;
+                messageCodec = conversationLog.getCodec();
+                break;
+        }
+        if (sessionStore == null && getConfig().getBoolean("storage.session_sharing.enabled", false)) {
+            getLogger().warning("Session sharing needs storage type mysql; conversations will stay on this server.");
+        }
+        if (storage == null) {
+            return null;
+        }
+        if (!(storage instanceof LogConversationDAO)) {
+            conversationLog = null;
+        }
+        conversationWriter = new WriteBehindConversationDAO(storage, getLogger(),
+                Math.max(1, getConfig().getInt("storage.write_behind.batch_size", 50)),
+                Math.max(10, getConfig().getLong("storage.write_behind.flush_interval_ms", 500)));
+        return new TieredConversationDAO(conversationWriter, configHandler.getMemoryHotTurns(), configHandler.getMemoryHotCacheSize());
+    }
+
+    // SQLite keeps message bodies as text, since its full-text index reads them straight from the table
+    private MessageCodec createMessageCodec() {
+        return new MessageCodec(MessageCodec.parseMode(getConfig().getString("storage.compression.type", "none")),
+                getConfig().getInt("storage.compression.min_length", 64),
+                Math.max(0, getConfig().getInt("storage.compression.cache_size", 1000)));
+    }
+
+    private long getWriteBehindShutdownTimeout() {
+        return Math.max(0, getConfig().getLong("storage.write_behind.shutdown_timeout_ms", 5000));
+    }
+
     public void sendMessage(CommandSender sender, ComponentLike componentLike) {
         TinyTranslationsBukkit.sendMessage(sender, componentLike);
     }
 
     @Override
     public void onDisable() {
-        // Close database connection
-        if (this.reportManager != null) {
-            this.reportManager.closeResources();
+        // Drop open conversations; their holograms are removed below
+        if (this.conversationManager != null) {
+            this.conversationManager.shutdown(true);
+        }
+
+        // Flush queued main-thread work
+        if (this.tickBudgetExecutor != null) {
+            this.tickBudgetExecutor.stop();
+        }
+
+        // Give up on queued and in-flight AI requests
+        if (this.providerScheduler != null) {
+            this.providerScheduler.shutdown();
+        }
+
+        if (this.memoryCompactor != null) {
+            this.memoryCompactor.stop();
+        }
+        if (this.memorySummarizer != null) {
+            this.memorySummarizer.stop();
+        }
+        if (this.retentionJob != null) {
+            this.retentionJob.stop();
+        }
+        // An unfinished export is deleted; an import keeps what it has written so far
+        if (this.dataTransfer != null) {
+            this.dataTransfer.shutdown();
+        }
+
+        // Let in-flight reads finish, then write out queued conversation messages before the pools go away
+        if (this.asyncConversationDAO != null) {
+            this.asyncConversationDAO.shutdown(getWriteBehindShutdownTimeout());
+        }
+        if (this.conversationWriter != null) {
+            this.conversationWriter.shutdown(getWriteBehindShutdownTimeout());
+        }
+        if (this.conversationLog != null) {
+            this.conversationLog.close(getWriteBehindShutdownTimeout());
+        }
+        if (this.sessionStore != null) {
+            this.sessionStore.shutdown(getWriteBehindShutdownTimeout());
+        }
+
+        // Close database connection pools
+        if (this.connectionPools != null) {
+            this.connectionPools.closeAll();
         }
 
         // Remove all holograms
@@ -278,10 +444,7 @@ public class ArchGPT extends JavaPlugin {
         // Unregister events
         HandlerList.unregisterAll();
 
-        playerSemaphores.clear();
         contextManager.clearAllContexts();
-        conversationTokenCounters.clear();
-        playerCooldowns.clear();
     }
 
     public void debugLog(String message) {
@@ -3,6 +3,8 @@ package me.xidentified.archgpt;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import me.xidentified.archgpt.context.ContextManager;
+import me.xidentified.archgpt.context.MemorySummarizer;
+import me.xidentified.archgpt.scheduler.ProviderScheduler;
 
 import org.bukkit.Bukkit;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -12,6 +14,8 @@ import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.event.EventPriority;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -31,6 +35,8 @@ public class ArchGPTConfig {
     private int minCharLength;
     private int maxResponseLength;
     private long chatCooldownMillis;
+    private int mailboxSize; // Messages a player can queue while the NPC is still answering
+    private ConversationMailbox.OverflowPolicy mailboxOverflow;
     private boolean shouldSplitLongMsg;
     private ContextManager contextManager;
     private String mcpServerUrl;
@@ -40,6 +46,18 @@ public class ArchGPTConfig {
     private EventPriority chatListenerPriority;
     private boolean useMcp;
     private String knowledge; // Long-form server knowledge compiled from config
+    private long mainThreadBudgetNanos; // Per-tick time ArchGPT may spend on queued main-thread work
+    private ProviderScheduler.Limits providerLimits; // Provider concurrency, and each NPC's weight and cap
+    private int memoryHotTurns; // Recent turns per player/NPC kept in memory
+    private int memoryHotCacheSize; // Player/NPC pairs kept in the in-memory tier
+    private Duration memoryCompactAfter; // Age after which messages are folded into the stored summary
+    private long memoryCompactionIntervalMinutes;
+    private boolean memorySummarizationEnabled; // Background LLM summaries of each player/NPC transcript
+    private long memorySummarizationTokensPerHour;
+    private int memorySummarizationMaxActiveConversations; // Above this the server isn't considered idle
+    private long memorySummarizationIntervalMinutes;
+    private int memorySummarizationBatchSize;
+    private boolean memorySummarizationUseBatchApi;
 
     public ArchGPTConfig(JavaPlugin plugin) {
         this.plugin = plugin;
@@ -59,6 +77,12 @@ public class ArchGPTConfig {
         minCharLength = config.getInt("min_char_length", 10);
         maxResponseLength = config.getInt("max_response_length", 200); // in tokens
         chatCooldownMillis = config.getLong("chat_cooldown", 3000);
+        mailboxSize = Math.max(1, config.getInt("mailbox_size", 3));
+        String overflow = config.getString("mailbox_overflow", "drop_oldest");
+        mailboxOverflow = ConversationMailbox.OverflowPolicy.parse(overflow, ConversationMailbox.OverflowPolicy.DROP_OLDEST);
+        if (!mailboxOverflow.name().equalsIgnoreCase(overflow.trim().replace('-', '_'))) {
+            logger.warning("Unknown mailbox_overflow '" + overflow + "', using drop_oldest");
+        }
         String durationString = config.getString("npc_memory_duration", "7d");
         npcMemoryDuration = parseMinecraftDuration(durationString);
         shouldSplitLongMsg = config.getBoolean("split_long_messages", false);
@@ -73,6 +97,40 @@ public class ArchGPTConfig {
         mcpModel = config.getString("mcp.model", "gpt-3.5-turbo");
         mcpMaxTokens = config.getInt("mcp.max_tokens", 200);
 
+        // Main-thread time budget (config is in milliseconds, may be fractional)
+        double budgetMillis = config.getDouble("performance.main_thread_budget_ms", 2.0);
+        mainThreadBudgetNanos = (long) (Math.max(0.1, budgetMillis) * 1_000_000L);
+
+        // Provider scheduling; NPCs not listed under performance.provider.npcs get the defaults
+        ProviderScheduler.Share defaultShare = new ProviderScheduler.Share(
+                Math.max(1, config.getInt("performance.provider.default_weight", 1)),
+                Math.max(1, config.getInt("performance.provider.default_max_concurrent", 2)));
+        Map<String, ProviderScheduler.Share> npcShares = new HashMap<>();
+        ConfigurationSection npcSection = config.getConfigurationSection("performance.provider.npcs");
+        if (npcSection != null) {
+            for (String npcName : npcSection.getKeys(false)) {
+                npcShares.put(npcName, new ProviderScheduler.Share(
+                        Math.max(1, npcSection.getInt(npcName + ".weight", defaultShare.weight())),
+                        Math.max(1, npcSection.getInt(npcName + ".max_concurrent", defaultShare.maxConcurrent()))));
+            }
+        }
+        // Memory summaries take turns with the NPCs at the lowest weight, one at a time
+        npcShares.put(MemorySummarizer.PROVIDER_FLOW, new ProviderScheduler.Share(1, 1));
+        providerLimits = new ProviderScheduler.Limits(
+                Math.max(1, config.getInt("performance.provider.max_concurrent", 8)), defaultShare, npcShares);
+
+        // Tiered memory
+        memoryHotTurns = Math.max(1, config.getInt("memory.hot_turns", 10));
+        memoryHotCacheSize = Math.max(1, config.getInt("memory.hot_cache_size", 500));
+        memoryCompactAfter = parseMinecraftDuration(config.getString("memory.compact_after", "2d"));
+        memoryCompactionIntervalMinutes = Math.max(1, config.getLong("memory.compaction_interval_minutes", 5));
+        memorySummarizationEnabled = config.getBoolean("memory.summarization.enabled", false);
+        memorySummarizationTokensPerHour = Math.max(0, config.getLong("memory.summarization.tokens_per_hour", 20000));
+        memorySummarizationMaxActiveConversations = Math.max(0, config.getInt("memory.summarization.max_active_conversations", 2));
+        memorySummarizationIntervalMinutes = Math.max(1, config.getLong("memory.summarization.interval_minutes", 10));
+        memorySummarizationBatchSize = Math.max(1, config.getInt("memory.summarization.batch_size", 10));
+        memorySummarizationUseBatchApi = config.getBoolean("memory.summarization.use_batch_api", true);
+
         // Chat listener priority
         String priorityStr = config.getString("chat_listener_priority", "LOWEST");
         chatListenerPriority = parsePriority(priorityStr);
@@ -3,8 +3,11 @@ package me.xidentified.archgpt;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
 
 import me.xidentified.archgpt.context.ContextManager;
+import me.xidentified.archgpt.context.ContextSnapshot;
+import me.xidentified.archgpt.scheduler.TickBudgetExecutor;
 import me.xidentified.archgpt.utils.ArchGPTConstants;
 import me.xidentified.archgpt.utils.LocaleUtils;
 import net.citizensnpcs.api.npc.NPC;
@@ -17,9 +20,7 @@ import java.net.http.HttpResponse;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Semaphore;
 
 public class ChatRequestHandler {
     private final ArchGPT plugin;
@@ -27,7 +28,7 @@ public class ChatRequestHandler {
 
     public ChatRequestHandler(ArchGPT plugin) {
         this.plugin = plugin;
-        this.contextManager = new ContextManager(plugin);
+        this.contextManager = plugin.getContextManager();
     }
 
     public enum RequestType {
@@ -35,34 +36,52 @@ public class ChatRequestHandler {
         CONVERSATION
     }
 
+    // Rough token count of a request (about four characters per token, plus the reply allowance), used to charge NPCs fairly
+    private int estimateTokens(ContextSnapshot context, String message, List<JsonObject> conversationState) {
+        long chars = message != null ? message.length() : 0;
+        for (JsonPrimitive value : context.values().values()) {
+            chars += value.getAsString().length();
+        }
+        for (JsonObject entry : conversationState) {
+            chars += entry.toString().length();
+        }
+        int replyTokens = plugin.getConfigHandler().isUseMcp()
+                ? plugin.getConfigHandler().getMcpMaxTokens()
+                : plugin.getConfigHandler().getMaxResponseLength();
+        return (int) Math.min(Integer.MAX_VALUE, chars / 4 + replyTokens);
+    }
+
     public CompletableFuture<Object> processMCPRequest(Player player, NPC npc, String message, 
                                                     RequestType requestType, List<JsonObject> conversationState) {
-        UUID playerUUID = player.getUniqueId();
+        return processMCPRequest(player, npc, message, requestType, conversationState, CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * @param memoryFuture Recalled memory for this message, or a future completing with null if there is none.
+     *                     The request is only sent once both the context and the memory are available.
+     */
+    public CompletableFuture<Object> processMCPRequest(Player player, NPC npc, String message,
+                                                    RequestType requestType, List<JsonObject> conversationState,
+                                                    CompletableFuture<String> memoryFuture) {
         final String playerMessageFinal = message;
         final List<JsonObject> convoStateFinal = (conversationState != null) ? conversationState : new java.util.ArrayList<>();
         
-        // Use a CompletableFuture to handle the async operation
-        CompletableFuture<JsonObject> contextFuture = new CompletableFuture<>();
-        
-        // Schedule context gathering on the main thread
-        plugin.getServer().getScheduler().runTask(plugin, () -> {
-            try {
-                JsonObject context = contextManager.getOrganizedContext(player, npc, requestType);
-                contextFuture.complete(context);
-            } catch (Exception e) {
-                contextFuture.completeExceptionally(e);
-            }
-        });
+        // Queue context gathering on the main thread, within the per-tick time budget
+        TickBudgetExecutor.Priority priority = requestType == RequestType.GREETING
+                ? TickBudgetExecutor.Priority.LOW
+                : TickBudgetExecutor.Priority.HIGH;
+        CompletableFuture<ContextSnapshot> contextFuture = plugin.getTickBudgetExecutor().submit(priority, player,
+                () -> contextManager.getOrganizedContext(player, npc, requestType))
+                .thenCombine(memoryFuture.exceptionally(ex -> null),
+                        (context, memory) -> memory != null ? context.with("conversation_summary", memory) : context);
 
         return contextFuture.thenCompose(context -> {
-            plugin.playerSemaphores.putIfAbsent(playerUUID, new Semaphore(1));
-
-            return CompletableFuture.supplyAsync(() -> {
+            // A player's conversation messages are sent one at a time by their mailbox, so nothing is held here.
+            // The NPC's requests take turns with other NPCs' for provider capacity.
+            String npcName = npc != null ? npc.getName() : "";
+            int estimatedTokens = estimateTokens(context, playerMessageFinal, convoStateFinal);
+            return plugin.getProviderScheduler().submit(npcName, estimatedTokens, () -> {
                 try {
-                    // Acquire the semaphore for this specific player
-                    Semaphore semaphore = plugin.playerSemaphores.get(playerUUID);
-                    semaphore.acquire();
-                    
                     // Branch by mode: MCP or direct OpenAI
                     if (plugin.getConfigHandler().isUseMcp()) {
                         // Build MCP request using the context gathered on the main thread
@@ -111,12 +130,6 @@ public class ChatRequestHandler {
                     String msg = e.getMessage();
                     plugin.getLogger().severe("Request Failed [" + errClass + "]: " + msg);
                     throw new RuntimeException("Request Failed: " + (msg != null ? msg : errClass));
-                } finally {
-                    // Ensure the semaphore is released for this player
-                    Semaphore semaphore = plugin.playerSemaphores.get(playerUUID);
-                    if (semaphore != null) {
-                        semaphore.release();
-                    }
                 }
             }).thenCompose(assistantResponseText -> {
                 // Check if translation is needed, but be defensive about locale formatting
@@ -177,12 +190,12 @@ public class ChatRequestHandler {
         });
     }
 
-    private JsonObject buildMCPRequest(JsonObject context, String message, 
+    private JsonObject buildMCPRequest(ContextSnapshot context, String message, 
                                      List<JsonObject> conversationState, RequestType requestType) {
         JsonObject mcpRequest = new JsonObject();
         
         // Add context
-        mcpRequest.add("context", context);
+        mcpRequest.add("context", context.toJson());
         
         // Add message
         mcpRequest.addProperty("message", message);
@@ -190,10 +203,11 @@ public class ChatRequestHandler {
         // Build a system message from context so MCP providers that ignore `context` still get the info
         StringBuilder sys = new StringBuilder();
         sys.append("Context -> ");
-        if (context.has("environment")) sys.append("Environment: ").append(context.get("environment").getAsString()).append(" | ");
-        if (context.has("player")) sys.append("Player: ").append(context.get("player").getAsString()).append(" | ");
-        if (context.has("npc")) sys.append("NPC: ").append(context.get("npc").getAsString()).append(" | ");
-        if (context.has("knowledge")) sys.append("Knowledge: ").append(context.get("knowledge").getAsString()).append(" | ");
+        if (context.has("environment")) sys.append("Environment: ").append(context.get("environment")).append(" | ");
+        if (context.has("player")) sys.append("Player: ").append(context.get("player")).append(" | ");
+        if (context.has("npc")) sys.append("NPC: ").append(context.get("npc")).append(" | ");
+        if (context.has("knowledge")) sys.append("Knowledge: ").append(context.get("knowledge")).append(" | ");
+        if (context.has("conversation_summary")) sys.append("Memory: ").append(context.get("conversation_summary")).append(" | ");
 
         String systemContent = sys.toString();
         // Basic safety cap to avoid overlong system messages
@@ -248,7 +262,7 @@ public class ChatRequestHandler {
         return mcpRequest;
     }
 
-    private String buildOpenAIChatRequestBody(JsonObject context, String message,
+    private String buildOpenAIChatRequestBody(ContextSnapshot context, String message,
                                               List<JsonObject> conversationState, RequestType requestType) {
         JsonObject root = new JsonObject();
         root.addProperty("model", plugin.getConfigHandler().getChatGptEngine());
@@ -268,10 +282,11 @@ public class ChatRequestHandler {
 
         // 1) Append contextual fields
         sys.append("Context -> ");
-        if (context.has("environment")) sys.append("Environment: ").append(context.get("environment").getAsString()).append(" | ");
-        if (context.has("player")) sys.append("Player: ").append(context.get("player").getAsString()).append(" | ");
-        if (context.has("npc")) sys.append("NPC: ").append(context.get("npc").getAsString()).append(" | ");
-        if (context.has("knowledge")) sys.append("Knowledge: ").append(context.get("knowledge").getAsString()).append(" | ");
+        if (context.has("environment")) sys.append("Environment: ").append(context.get("environment")).append(" | ");
+        if (context.has("player")) sys.append("Player: ").append(context.get("player")).append(" | ");
+        if (context.has("npc")) sys.append("NPC: ").append(context.get("npc")).append(" | ");
+        if (context.has("knowledge")) sys.append("Knowledge: ").append(context.get("knowledge")).append(" | ");
+        if (context.has("conversation_summary")) sys.append("Memory: ").append(context.get("conversation_summary")).append(" | ");
         JsonObject sysMsg = new JsonObject();
         sysMsg.addProperty("role", "system");
         sysMsg.addProperty("content", sys.toString());
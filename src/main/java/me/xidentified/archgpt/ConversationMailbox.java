@@ -0,0 +1,170 @@
+package me.xidentified.archgpt;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+
+/**
+ * Messages a player has sent in one conversation, answered strictly one at a time and in order.
+ * <p>
+ * No thread sits behind a mailbox. Whoever offers a message to an idle mailbox becomes its consumer
+ * and takes the message; when it has been answered, the consumer takes the next one, until the
+ * mailbox runs dry and goes idle again. While a message is in flight, new ones wait in a bounded
+ * queue, and a full queue applies the {@link OverflowPolicy} instead of blocking the chat thread.
+ * All methods are quick and only synchronize on this mailbox, so players never wait on each other.
+ */
+public class ConversationMailbox {
+
+    public enum OverflowPolicy {
+        DROP_OLDEST, // Forget the oldest waiting message to make room
+        MERGE,       // Append the new message to the newest waiting one
+        REJECT;      // Refuse the new message and tell the player to wait
+
+        public static OverflowPolicy parse(String value, OverflowPolicy fallback) {
+            if (value == null) return fallback;
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                return fallback;
+            }
+        }
+    }
+
+    public enum Outcome {
+        STARTED,        // The mailbox was idle; the caller is now its consumer and should take()
+        QUEUED,
+        DROPPED_OLDEST,
+        MERGED,
+        REJECTED
+    }
+
+    private record Pending(String message, long queuedAt) {}
+
+    // A message to process now or, to keep requests chat_cooldown apart, after a delay
+    public record Next(String message, long delayMillis) {}
+
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final long minIntervalMillis;
+    private final Deque<Pending> queue = new ArrayDeque<>();
+    private Pending starting; // Offered to an idle mailbox, kept out of the queue so overflow can't drop it
+    private boolean busy;
+    private long lastStartAt;
+
+    // Metrics
+    private long received;
+    private long started;
+    private long processed;
+    private long dropped;
+    private long merged;
+    private long rejected;
+    private int maxDepth;
+    private long totalWaitMillis;
+
+    public ConversationMailbox(int capacity, OverflowPolicy overflowPolicy, long minIntervalMillis) {
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.minIntervalMillis = Math.max(0, minIntervalMillis);
+    }
+
+    public synchronized Outcome offer(String message) {
+        received++;
+        Pending pending = new Pending(message, System.currentTimeMillis());
+        if (!busy) {
+            busy = true;
+            starting = pending;
+            return Outcome.STARTED;
+        }
+
+        Outcome outcome = Outcome.QUEUED;
+        if (queue.size() >= capacity) {
+            switch (overflowPolicy) {
+                case DROP_OLDEST -> {
+                    queue.pollFirst();
+                    dropped++;
+                    outcome = Outcome.DROPPED_OLDEST;
+                }
+                case MERGE -> {
+                    // The merged message keeps its place and queue time
+                    Pending newest = queue.pollLast();
+                    queue.addLast(new Pending(newest.message() + " " + message, newest.queuedAt()));
+                    merged++;
+                    return Outcome.MERGED;
+                }
+                case REJECT -> {
+                    rejected++;
+                    return Outcome.REJECTED;
+                }
+            }
+        }
+        queue.addLast(pending);
+        maxDepth = Math.max(maxDepth, queue.size());
+        return outcome;
+    }
+
+    /**
+     * Hands the consumer the message to process next: the one that found the mailbox idle, or the
+     * oldest waiting one.
+     *
+     * @return The next message, or null if there is none and the mailbox is now idle.
+     */
+    public synchronized Next take() {
+        Pending next = starting != null ? starting : queue.pollFirst();
+        starting = null;
+        if (next == null) {
+            busy = false;
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        long startAt = Math.max(now, lastStartAt + minIntervalMillis);
+        lastStartAt = startAt;
+        started++;
+        totalWaitMillis += startAt - next.queuedAt();
+        return new Next(next.message(), startAt - now);
+    }
+
+    // Called once the message in flight has been answered (or given up on)
+    public synchronized Next complete() {
+        processed++;
+        return take();
+    }
+
+    // Forgets waiting messages; the one in flight still finishes but nothing follows it
+    public synchronized void clear() {
+        queue.clear();
+        starting = null;
+    }
+
+    public synchronized int getDepth() {
+        return queue.size();
+    }
+
+    public synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public synchronized long getReceived() {
+        return received;
+    }
+
+    public synchronized long getProcessed() {
+        return processed;
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    public synchronized long getMerged() {
+        return merged;
+    }
+
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    // Average time from a message arriving to its request starting, counting the ones started at once
+    public synchronized double getAverageWaitMillis() {
+        return started == 0 ? 0 : (double) totalWaitMillis / started;
+    }
+}
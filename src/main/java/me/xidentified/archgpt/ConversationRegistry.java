@@ -0,0 +1,71 @@
+package me.xidentified.archgpt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The open conversations, one {@link ConversationSession} per player. Opening and closing are
+ * single atomic map operations: a player can't get two sessions, and exactly one caller gets
+ * a closed session back to clean up, however many end it at once.
+ */
+public class ConversationRegistry {
+    private final Map<UUID, ConversationSession> sessions = new ConcurrentHashMap<>();
+
+    public ConversationSession get(UUID playerUUID) {
+        return sessions.get(playerUUID);
+    }
+
+    public boolean contains(UUID playerUUID) {
+        return sessions.containsKey(playerUUID);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public Collection<ConversationSession> getAll() {
+        return sessions.values();
+    }
+
+    // False if the player already has a session, which is then left as it is
+    public boolean open(ConversationSession session) {
+        return sessions.putIfAbsent(session.getPlayerUUID(), session) == null;
+    }
+
+    /**
+     * Removes the player's session and marks it closed.
+     *
+     * @return The session, or null if there was none or another caller already closed it.
+     */
+    public ConversationSession close(UUID playerUUID) {
+        ConversationSession session = sessions.remove(playerUUID);
+        if (session != null) {
+            session.close();
+        }
+        return session;
+    }
+
+    // Closes only this session, not one the player opened after it
+    public boolean close(ConversationSession session) {
+        if (sessions.remove(session.getPlayerUUID(), session)) {
+            session.close();
+            return true;
+        }
+        return false;
+    }
+
+    public List<ConversationSession> closeAll() {
+        List<ConversationSession> closed = new ArrayList<>();
+        for (UUID playerUUID : new ArrayList<>(sessions.keySet())) {
+            ConversationSession session = close(playerUUID);
+            if (session != null) {
+                closed.add(session);
+            }
+        }
+        return closed;
+    }
+}
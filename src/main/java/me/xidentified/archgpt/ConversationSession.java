@@ -0,0 +1,65 @@
+package me.xidentified.archgpt;
+
+import com.google.gson.JsonObject;
+import lombok.Getter;
+import me.xidentified.archgpt.scheduler.TaskHandle;
+import net.citizensnpcs.api.npc.NPC;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Everything the plugin holds for one player's conversation with an NPC. A session is created when
+ * the conversation starts and lives in the {@link ConversationRegistry} until it ends; ending it is
+ * the only place its resources are released, so nothing about the player outlives the session.
+ */
+public class ConversationSession {
+    @Getter private final UUID playerUUID;
+    @Getter private final NPC npc;
+    @Getter private final ConversationMailbox mailbox;
+    @Getter private final long startedAt = System.currentTimeMillis();
+    private volatile List<JsonObject> chatState; // Replaced as a whole after each answer, never edited in place by readers
+    private final AtomicReference<TaskHandle> thinkingTask = new AtomicReference<>();
+    private final AtomicReference<ScheduledFuture<?>> timeoutTask = new AtomicReference<>();
+    private volatile boolean closed;
+
+    public ConversationSession(UUID playerUUID, NPC npc, List<JsonObject> chatState, ConversationMailbox mailbox) {
+        this.playerUUID = playerUUID;
+        this.npc = npc;
+        this.chatState = chatState;
+        this.mailbox = mailbox;
+    }
+
+    public List<JsonObject> getChatState() {
+        return chatState;
+    }
+
+    public void setChatState(List<JsonObject> chatState) {
+        this.chatState = chatState;
+    }
+
+    // Returns the task it replaces, for the caller to cancel
+    public TaskHandle swapThinkingTask(TaskHandle task) {
+        return thinkingTask.getAndSet(task);
+    }
+
+    public ScheduledFuture<?> swapTimeoutTask(ScheduledFuture<?> task) {
+        return timeoutTask.getAndSet(task);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // Called once, by whoever removed the session from the registry
+    void close() {
+        closed = true;
+        mailbox.clear();
+        ScheduledFuture<?> timeout = timeoutTask.getAndSet(null);
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+    }
+}
@@ -1,16 +1,15 @@
 package me.xidentified.archgpt;
 
 import lombok.Getter;
+import me.xidentified.archgpt.scheduler.TaskHandle;
+import me.xidentified.archgpt.scheduler.TaskScheduler;
 import me.xidentified.archgpt.utils.ArchGPTConstants;
 import net.citizensnpcs.api.npc.NPC;
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.ArmorStand;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
-import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.util.Vector;
 
 import java.util.*;
@@ -20,19 +19,20 @@ import java.util.concurrent.CopyOnWriteArrayList;
 @Getter
 public class HologramManager {
 
-    private final JavaPlugin plugin;
-    private ArmorStand armorStand;
-    private int animationState = 0;
-    private BukkitRunnable animationTask;
+    private final ArchGPT plugin;
     private final List<ArmorStand> allHolograms = new CopyOnWriteArrayList<>();
     private final Map<UUID, ArmorStand> playerHolograms = new ConcurrentHashMap<>();
-    private final Map<UUID, BukkitRunnable> animationTasks = new ConcurrentHashMap<>();
+    private final Map<UUID, TaskHandle> animationTasks = new ConcurrentHashMap<>();
 
-    public HologramManager(JavaPlugin plugin) {
+    public HologramManager(ArchGPT plugin) {
         this.plugin = plugin;
         startCleanupTask();
     }
 
+    private TaskScheduler scheduler() {
+        return plugin.getTaskScheduler();
+    }
+
     /**
      * Displays a hologram for first time players instructing them on how to interact with an NPC
      *
@@ -57,7 +57,7 @@ public class HologramManager {
             }
 
             // Remove the hologram after a delay
-            Bukkit.getScheduler().runTaskLater(plugin, () -> removePlayerHologram(playerUUID), 200L); // 10s delay
+            scheduler().runAtEntityLater(npc.getEntity(), () -> removePlayerHologram(playerUUID), 200L); // 10s delay
         }
     }
 
@@ -80,13 +80,14 @@ public class HologramManager {
         return hologramLocation;
     }
 
-    public void createHologram(UUID playerUUID, Location location, String text) {
+    // Must be called from the thread owning the location's region
+    public ArmorStand createHologram(UUID playerUUID, Location location, String text) {
         World world = location.getWorld();
 
         // Spawn the armor stand 10 blocks below the intended location
         Location spawnLocation = location.clone().add(0, -10, 0);
 
-        armorStand = (ArmorStand) world.spawnEntity(spawnLocation, EntityType.ARMOR_STAND);
+        ArmorStand armorStand = (ArmorStand) world.spawnEntity(spawnLocation, EntityType.ARMOR_STAND);
         armorStand.setVisible(false);
         armorStand.setGravity(false);
         armorStand.setCustomName(text);
@@ -94,10 +95,11 @@ public class HologramManager {
         armorStand.setMarker(true);
 
         // Move the armor stand to the intended location after a delay of 5 ticks
-        Bukkit.getScheduler().runTaskLater(plugin, () -> armorStand.teleport(location.add(0, 1.2, 0)), 5L);
+        scheduler().runAtEntityLater(armorStand, () -> armorStand.teleportAsync(location.add(0, 1.2, 0)), 5L);
 
         allHolograms.add(armorStand);
         playerHolograms.put(playerUUID, armorStand);
+        return armorStand;
     }
 
     /**
@@ -114,11 +116,11 @@ public class HologramManager {
         // Create a looped text by appending the full text to itself
         String loopedText = fullText + " " + fullText;
 
-        BukkitRunnable scrollingTask = new BukkitRunnable() {
+        TaskHandle scrollingTask = scheduler().runAtEntityTimer(hologram, new java.util.function.Consumer<>() {
             int startIndex = 0;
 
             @Override
-            public void run() {
+            public void accept(TaskHandle handle) {
                 // Calculate endIndex, ensuring it doesn't exceed the length of loopedText
                 int endIndex = startIndex + characterLimit;
                 if (endIndex > loopedText.length()) {
@@ -133,23 +135,32 @@ public class HologramManager {
                 // Update startIndex for the next iteration
                 startIndex = (startIndex + 1) % fullText.length(); // Reset after one full cycle
             }
-        };
+        }, 1L, 5L);
 
-        scrollingTask.runTaskTimer(plugin, 0L, 5L);
         animationTasks.put(playerUUID, scrollingTask);
     }
 
-    public void animateHologram() {
+    /**
+     * Animates the "thinking" dots on the player's current hologram, on the hologram's own region.
+     *
+     * @param playerUUID The UUID of the player whose hologram should be animated.
+     */
+    public void animateHologram(UUID playerUUID) {
+        ArmorStand hologram = playerHolograms.get(playerUUID);
+        if (hologram == null) return;
+
         String[] animations = {".", "..", "..."};
 
-        animationTask = new BukkitRunnable() {
+        TaskHandle animationTask = scheduler().runAtEntityTimer(hologram, new java.util.function.Consumer<>() {
+            int animationState = 0;
+
             @Override
-            public void run() {
-                armorStand.setCustomName((animations[animationState]));
+            public void accept(TaskHandle handle) {
+                hologram.setCustomName((animations[animationState]));
                 animationState = (animationState + 1) % animations.length;
             }
-        };
-        animationTask.runTaskTimer(plugin, 0L, 20L);
+        }, 1L, 20L);
+        animationTasks.put(playerUUID, animationTask);
     }
 
     /**
@@ -158,10 +169,9 @@ public class HologramManager {
      * @param playerUUID The UUID of the player whose hologram animation should be stopped.
      */
     public void stopAnimation(UUID playerUUID) {
-        BukkitRunnable task = animationTasks.get(playerUUID);
+        TaskHandle task = animationTasks.remove(playerUUID);
         if (task != null) {
             task.cancel();
-            animationTasks.remove(playerUUID);
         }
     }
 
@@ -173,7 +183,7 @@ public class HologramManager {
     public void removePlayerHologram(UUID playerUUID) {
         ArmorStand hologram = playerHolograms.get(playerUUID);
         if (hologram != null && hologram.isValid()) {
-            Bukkit.getScheduler().runTask(plugin, () -> {
+            scheduler().runAtEntity(hologram, () -> {
                 stopAnimation(playerUUID);
                 hologram.remove();
                 playerHolograms.remove(playerUUID);
@@ -183,14 +193,18 @@ public class HologramManager {
     }
 
     // Starts a cleanup task that periodically checks for and removes expired holograms.
+    // Each hologram is checked on its own region, since it may live on a different thread.
     private void startCleanupTask() {
-        Bukkit.getScheduler().runTaskTimer(plugin, () -> allHolograms.removeIf(hologram -> {
-            if (hologram.getTicksLived() > ArchGPTConstants.MAX_HOLOGRAM_LIFETIME) {
-                hologram.remove();
-                return true;
+        scheduler().runGlobalTimer(handle -> {
+            for (ArmorStand hologram : allHolograms) {
+                scheduler().runAtEntity(hologram, () -> {
+                    if (!hologram.isValid() || hologram.getTicksLived() > ArchGPTConstants.MAX_HOLOGRAM_LIFETIME) {
+                        hologram.remove();
+                        allHolograms.remove(hologram);
+                    }
+                });
             }
-            return false;
-        }), 600L, 600L);
+        }, 600L, 600L);
     }
 
 }
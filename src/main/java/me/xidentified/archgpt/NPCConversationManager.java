@@ -3,23 +3,31 @@ package me.xidentified.archgpt;
 import lombok.Getter;
 import me.xidentified.archgpt.context.MemoryContext;
 import me.xidentified.archgpt.events.PlayerToNPCMessageEvent;
+import me.xidentified.archgpt.scheduler.TaskHandle;
+import me.xidentified.archgpt.scheduler.TickBudgetExecutor;
+import me.xidentified.archgpt.storage.SharedSessionStore;
+import me.xidentified.archgpt.storage.model.SharedSession;
 import me.xidentified.archgpt.storage.model.Conversation;
 import me.xidentified.archgpt.utils.*;
+import net.citizensnpcs.api.CitizensAPI;
 import net.citizensnpcs.api.npc.NPC;
 import net.kyori.adventure.text.Component;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 public class NPCConversationManager {
 
@@ -30,19 +38,15 @@ public class NPCConversationManager {
     @Getter private final ChatRequestHandler chatRequestHandler; //Handles requests sent to ChatGPT
     @Getter private final ConversationTimeoutManager conversationTimeoutManager; //Handles conversation timeout logic
     public final Map<UUID, Long> npcCommentCooldown = new ConcurrentHashMap<>(); //Stores cooldown for NPC greeting to passing player
-    public final Map<UUID, NPC> playerNPCMap = new ConcurrentHashMap<>(); //Stores the NPC the player is talking to
-    public final ConcurrentHashMap<UUID, List<JsonObject>> npcChatStatesCache;
-    private final ConcurrentHashMap<UUID, Long> playerCooldowns; //Stores if the player is in a cooldown, which would cancel their sent message
-    private final Map<UUID, BukkitTask> npcThinkingTasks = new ConcurrentHashMap<>(); // Repeating tasks to animate NPC while thinking
+    @Getter private final ConversationRegistry sessions = new ConversationRegistry(); // Every open conversation and all of its state
+    @Getter private final PlayerLocks playerLocks = new PlayerLocks(); // Guards each player's chat state without blocking other players
 
     public NPCConversationManager(ArchGPT plugin, ArchGPTConfig configHandler) {
         this.plugin = plugin;
         this.configHandler = configHandler;
         this.memoryContext = new MemoryContext(plugin);
         this.chatRequestHandler = new ChatRequestHandler(plugin);
-        this.npcChatStatesCache = new ConcurrentHashMap<>();
-        this.playerCooldowns = new ConcurrentHashMap<>();
-        this.conversationTimeoutManager = new ConversationTimeoutManager(plugin);
+        this.conversationTimeoutManager = new ConversationTimeoutManager(plugin, this);
         this.conversationUtils = new ConversationUtils(plugin, configHandler, this);
     }
 
@@ -92,21 +96,69 @@ public class NPCConversationManager {
         ).thenApply(responseObject -> (String) responseObject);
     }
 
-    public void processPlayerMessage(Player player, Component playerMessage, HologramManager hologramManager) {
-        // This method should only be called from the main thread
-        if (!Bukkit.isPrimaryThread()) {
+    public ConversationSession getSession(UUID playerUUID) {
+        return sessions.get(playerUUID);
+    }
+
+    // Adds a chat message to the session's mailbox; it is answered after any messages already waiting
+    public void queuePlayerMessage(Player player, ConversationSession session, String message, HologramManager hologramManager) {
+        ConversationMailbox mailbox = session.getMailbox();
+        switch (mailbox.offer(message)) {
+            case STARTED -> runMailbox(player, session, mailbox.take(), hologramManager);
+            case DROPPED_OLDEST -> plugin.debugLog("Mailbox of " + player.getName() + " full, dropped its oldest message");
+            case MERGED -> plugin.debugLog("Mailbox of " + player.getName() + " full, merged the message into the last one waiting");
+            case REJECTED -> plugin.sendMessage(player, Messages.GENERAL_CHAT_COOLDOWN);
+            default -> {}
+        }
+    }
+
+    // Processes one message, then the next, until the mailbox is empty. Nothing blocks between messages.
+    private void runMailbox(Player player, ConversationSession session, ConversationMailbox.Next next, HologramManager hologramManager) {
+        if (next == null) return;
+        CompletableFuture<Void> answered = new CompletableFuture<>();
+        Runnable start = () -> plugin.getTickBudgetExecutor()
+                .submit(TickBudgetExecutor.Priority.NORMAL, player, () -> processPlayerMessage(player, session, Component.text(next.message()), hologramManager))
+                .thenCompose(reply -> reply)
+                .whenComplete((ignored, e) -> answered.complete(null));
+        if (next.delayMillis() > 0) {
+            // Waits out chat_cooldown since the previous request
+            plugin.getTaskScheduler().runAtEntityLater(player, start, () -> answered.complete(null), (next.delayMillis() + 49) / 50);
+        } else {
+            start.run();
+        }
+        answered.thenRun(() -> {
+            // An ended session's mailbox has been cleared; nothing follows the message in flight
+            if (!session.isClosed() && player.isOnline()) {
+                runMailbox(player, session, session.getMailbox().complete(), hologramManager);
+            }
+        });
+    }
+
+    /**
+     * Sends one player message to the NPC. Call {@link #queuePlayerMessage} instead, which keeps a
+     * player's messages in order.
+     *
+     * @return A future completing once the NPC's answer has been shown, or the message was refused.
+     */
+    public CompletableFuture<Void> processPlayerMessage(Player player, ConversationSession session, Component playerMessage, HologramManager hologramManager) {
+        // This method should only be called from the thread owning the player (main thread, or region thread on Folia)
+        if (!plugin.getTaskScheduler().isOwnedByCurrentThread(player)) {
             plugin.getLogger().warning("processPlayerMessage called from async thread! Scheduling on main thread.");
-            Bukkit.getScheduler().runTask(plugin, () -> processPlayerMessage(player, playerMessage, hologramManager));
-            return;
+            return plugin.getTickBudgetExecutor()
+                    .submit(TickBudgetExecutor.Priority.NORMAL, player, () -> processPlayerMessage(player, session, playerMessage, hologramManager))
+                    .thenCompose(reply -> reply);
         }
-        
+        if (session.isClosed()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
         UUID playerUUID = player.getUniqueId();
-        NPC npc = playerNPCMap.get(playerUUID);
+        NPC npc = session.getNpc();
 
         // Check if player message is too short
         if (PlainTextComponentSerializer.plainText().serialize(playerMessage).length() < configHandler.getMinCharLength()) {
             plugin.sendMessage(player, Messages.MSG_TOO_SHORT.insertNumber("size", configHandler.getMinCharLength()));
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
         // Send player message
@@ -133,49 +185,39 @@ public class NPCConversationManager {
             Bukkit.getPluginManager().callEvent(event);
         } catch (Throwable ignored) {}
 
-        // Cooldown logic
-        long currentTimeMillis = System.currentTimeMillis();
-        if (playerCooldowns.containsKey(playerUUID)) {
-            long lastTriggerTimeMillis = playerCooldowns.get(playerUUID);
-            long cooldownMillis = configHandler.getChatCooldownMillis();
-            if (currentTimeMillis - lastTriggerTimeMillis < cooldownMillis) {
-                return;
-            }
-        }
-        playerCooldowns.put(playerUUID, currentTimeMillis);
-
         // Start animation over NPC head while it processes response
         displayHologramOverNPC(playerUUID, npc, hologramManager);
 
         // Start a simple NPC animation (crouch/uncrouch and hand swing) while generating a response
-        startNpcThinkingAnimation(playerUUID, npc);
+        startNpcThinkingAnimation(session);
 
         // Process chat request
-        List<JsonObject> conversationState = npcChatStatesCache.get(playerUUID);
+        List<JsonObject> conversationState = session.getChatState();
         String playerMessageText = PlainTextComponentSerializer.plainText().serialize(playerMessage);
 
-        // Handle summary of past conversations if needed
-        String conversationSummary = memoryContext.getConversationSummary(playerMessage, playerUUID, npc.getName());
-        if (conversationSummary != null) {
-            // Update context with conversation summary
-            plugin.getContextManager().updateContextElement(player, "conversation_summary", conversationSummary);
-        }
+        // Recall past conversations (if asked about) on the database executor; the request waits for it
+        CompletableFuture<String> memoryFuture = memoryContext.getConversationSummary(playerMessage, playerUUID, npc.getName())
+                .thenApply(conversationSummary -> {
+                    if (conversationSummary != null) {
+                        // Keep the summary in the cached context for follow-up messages
+                        plugin.getContextManager().updateContextElement(player, "conversation_summary", conversationSummary);
+                    }
+                    return conversationSummary;
+                });
 
         // Send the request and process the response using the new MCP approach
         CompletableFuture<Object> future = getChatRequestHandler().processMCPRequest(
             player, npc, playerMessageText, 
             ChatRequestHandler.RequestType.CONVERSATION, 
-            conversationState
+            conversationState,
+            memoryFuture
         );
         
-        processNpcResponse(future, player, npc, hologramManager);
+        return processNpcResponse(future, player, session, hologramManager);
     }
 
     public void startConversation(Player player, NPC npc) {
         UUID playerUUID = player.getUniqueId();
-
-        // Store conversation state
-        playerNPCMap.put(playerUUID, npc);
         List<JsonObject> initialConversationState = new ArrayList<>();
 
         // Add the system message with NPC's context
@@ -183,38 +225,92 @@ public class NPCConversationManager {
         initialConversationState.add(systemMessageJson);
 
         // Store the initial conversation state
-        npcChatStatesCache.put(playerUUID, initialConversationState);
-        plugin.getActiveConversations().put(playerUUID, true);
+        ConversationSession session = newSession(playerUUID, npc, initialConversationState);
+        if (!sessions.open(session)) {
+            return;
+        }
+        shareConversationState(playerUUID, npc, initialConversationState);
 
         plugin.sendMessage(player, Messages.CONVERSATION_STARTED
                 .insertObject("npc", npc)
                 .insertString("cancel", Objects.requireNonNull(plugin.getConfig().getString("conversation_end_phrase"))));
 
-        conversationTimeoutManager.startConversationTimeout(playerUUID);
+        conversationTimeoutManager.startConversationTimeout(session);
     }
 
+    private ConversationSession newSession(UUID playerUUID, NPC npc, List<JsonObject> chatState) {
+        return new ConversationSession(playerUUID, npc, chatState, new ConversationMailbox(
+                configHandler.getMailboxSize(), configHandler.getMailboxOverflow(), configHandler.getChatCooldownMillis()));
+    }
 
     public void endConversation(UUID playerUUID) {
+        ConversationSession session = playerLocks.withLock(playerUUID, () -> sessions.close(playerUUID));
+        if (session != null) {
+            releaseSession(session, true);
+        }
+    }
+
+    // Called by the timeout task; does nothing if the session already ended or was replaced
+    public void expireConversation(ConversationSession session) {
+        boolean expired = playerLocks.withLock(session.getPlayerUUID(), () -> sessions.close(session));
+        if (expired) {
+            Player player = Bukkit.getPlayer(session.getPlayerUUID());
+            if (player != null) {
+                plugin.sendMessage(player, Messages.CONVERSATION_ENDED_INACTIVITY);
+            }
+            releaseSession(session, true);
+        }
+    }
+
+    // Releases what a closed session held outside the registry. The shared copy is kept when the player only moved server.
+    private void releaseSession(ConversationSession session, boolean deleteShared) {
+        UUID playerUUID = session.getPlayerUUID();
         Player p = Bukkit.getPlayer(playerUUID);
         String playerName = (p != null ? p.getName() : "UnknownPlayer");
         plugin.debugLog("Conversation ended for player " + playerName);
 
-        synchronized (npcChatStatesCache) {
-            npcChatStatesCache.remove(playerUUID);
-        }
-
-        synchronized (plugin.getActiveConversations()){
-            plugin.getActiveConversations().remove(playerUUID);
+        SharedSessionStore sessionStore = plugin.getSessionStore();
+        if (sessionStore != null) {
+            if (deleteShared) {
+                sessionStore.delete(playerUUID);
+            } else {
+                sessionStore.evict(playerUUID);
+            }
         }
 
-        conversationTimeoutManager.cancelConversationTimeout(playerUUID);
         plugin.getHologramManager().removePlayerHologram(playerUUID);
+        plugin.getContextManager().clearPlayerContext(playerUUID);
 
         // Stop any ongoing NPC thinking animation for this player
-        NPC npc = playerNPCMap.get(playerUUID);
-        if (npc != null) {
-            stopNpcThinkingAnimation(playerUUID, npc);
+        stopNpcThinkingAnimation(session);
+
+        ConversationMailbox mailbox = session.getMailbox();
+        plugin.debugLog(String.format("Mailbox of %s closed: %d received, %d answered, %d dropped, %d merged, %d rejected, max depth %d, avg wait %.0fms",
+                playerName, mailbox.getReceived(), mailbox.getProcessed(), mailbox.getDropped(), mailbox.getMerged(),
+                mailbox.getRejected(), mailbox.getMaxDepth(), mailbox.getAverageWaitMillis()));
+    }
+
+    /**
+     * Ends every open conversation, for a reload or shutdown. On reload the players are told and
+     * everything is released as usual; while the plugin disables, no tasks can be scheduled, so only
+     * the sessions' own tasks are cancelled and the caller removes the holograms.
+     */
+    public void shutdown(boolean disabling) {
+        for (ConversationSession session : sessions.closeAll()) {
+            if (disabling) {
+                TaskHandle thinking = session.swapThinkingTask(null);
+                if (thinking != null) {
+                    thinking.cancel();
+                }
+                continue;
+            }
+            Player player = Bukkit.getPlayer(session.getPlayerUUID());
+            if (player != null) {
+                plugin.sendMessage(player, Messages.CONVERSATION_ENDED);
+            }
+            releaseSession(session, true);
         }
+        conversationTimeoutManager.shutdown();
     }
 
     public boolean handleCancelCommand(Player player, String message) {
@@ -227,94 +323,103 @@ public class NPCConversationManager {
     }
 
     private void displayHologramOverNPC(UUID playerUUID, NPC npc, HologramManager hologramManager) {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (npc == null || !npc.isSpawned()) return;
-                hologramManager.removePlayerHologram(playerUUID);
-                Location npcLocation = npc.getEntity().getLocation();
-                hologramManager.createHologram(playerUUID, npcLocation.add(0, 1, 0), "...");
-                hologramManager.animateHologram();
-            }
-        }.runTask(plugin);
+        if (npc == null || !npc.isSpawned()) return;
+        // Pinned to the NPC so the hologram is spawned on the region that owns it
+        plugin.getTickBudgetExecutor().submit(TickBudgetExecutor.Priority.LOW, npc.getEntity(), () -> {
+            if (!npc.isSpawned()) return;
+            hologramManager.removePlayerHologram(playerUUID);
+            Location npcLocation = npc.getEntity().getLocation();
+            hologramManager.createHologram(playerUUID, npcLocation.add(0, 1, 0), "...");
+            hologramManager.animateHologram(playerUUID);
+        });
     }
 
-    private void processNpcResponse(CompletableFuture<Object> future, Player player, NPC npc, HologramManager hologramManager) {
+    // The returned future completes when the answer has been shown, or was discarded
+    private CompletableFuture<Void> processNpcResponse(CompletableFuture<Object> future, Player player, ConversationSession session, HologramManager hologramManager) {
         UUID playerUUID = player.getUniqueId();
-        future.thenAccept(responseObject -> {
-            synchronized (npcChatStatesCache) {
-                if (!plugin.getActiveConversations().containsKey(playerUUID)) return;
-                if (responseObject instanceof Pair<?, ?> rawPair) {
-
-                    Object leftObject = rawPair.getLeft();
-                    Object rightObject = rawPair.getRight();
-
-                    if (leftObject instanceof String response && rightObject instanceof List<?>) {
-                        // Check if the list contains JsonObjects
-                        if (((List<?>) rawPair.getRight()).stream().allMatch(item -> item instanceof JsonObject)) {
-                            @SuppressWarnings("unchecked") // Safe after checking all elements
-                            List<JsonObject> updatedConversationState = (List<JsonObject>) rawPair.getRight();
-
-                            npcChatStatesCache.put(playerUUID, updatedConversationState);
-
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    if (plugin.getActiveConversations().containsKey(playerUUID)) {
-                                        conversationUtils.sendNPCMessage(player, npc, response);
-
-                                        // Log the NPC/AI response to console using player name (not UUID)
-                                        try {
-                                            String npcNameForLog = (npc != null ? npc.getName() : "Unknown");
-                                            plugin.debugLog("NPC -> Player | " + npcNameForLog + " -> " + player.getName() + ": " + response);
-                                        } catch (Throwable ignored) {}
-
-                                        // Save the message if the response is a significant length
-                                        List<String> relevantSentences = conversationUtils.filterShortSentences(response, ArchGPTConstants.MINIMUM_SAVED_SENTENCE_LENGTH);
-
-                                        if (!relevantSentences.isEmpty()) {
-                                            String filteredResponseText = String.join(" ", relevantSentences);
-                                            Conversation conversation = new Conversation(
-                                                    player.getUniqueId(),
-                                                    npc.getName(),
-                                                    filteredResponseText,
-                                                    System.currentTimeMillis(),
-                                                    true
-                                            );
-                                            plugin.getConversationDAO().saveConversation(conversation);
-                                        }
-
-                                        hologramManager.removePlayerHologram(playerUUID);
-
-                                        // Stop the NPC thinking animation once we have a response
-                                        stopNpcThinkingAnimation(playerUUID, npc);
+        NPC npc = session.getNpc();
+        CompletableFuture<Void> shown = new CompletableFuture<>();
+        AtomicBoolean scheduled = new AtomicBoolean();
+        future.thenAccept(responseObject -> playerLocks.withLock(playerUUID, () -> {
+            if (session.isClosed()) return;
+            if (responseObject instanceof Pair<?, ?> rawPair) {
+
+                Object leftObject = rawPair.getLeft();
+                Object rightObject = rawPair.getRight();
+
+                if (leftObject instanceof String response && rightObject instanceof List<?>) {
+                    // Check if the list contains JsonObjects
+                    if (((List<?>) rawPair.getRight()).stream().allMatch(item -> item instanceof JsonObject)) {
+                        @SuppressWarnings("unchecked") // Safe after checking all elements
+                        List<JsonObject> updatedConversationState = (List<JsonObject>) rawPair.getRight();
+
+                        session.setChatState(updatedConversationState);
+                        shareConversationState(playerUUID, npc, updatedConversationState);
+
+                        scheduled.set(true);
+                        plugin.getTaskScheduler().runAtEntityLater(player, () -> {
+                            try {
+                                if (!session.isClosed()) {
+                                    conversationUtils.sendNPCMessage(player, npc, response);
+
+                                    // Log the NPC/AI response to console using player name (not UUID)
+                                    try {
+                                        String npcNameForLog = (npc != null ? npc.getName() : "Unknown");
+                                        plugin.debugLog("NPC -> Player | " + npcNameForLog + " -> " + player.getName() + ": " + response);
+                                    } catch (Throwable ignored) {}
+
+                                    // Save the message if the response is a significant length
+                                    List<String> relevantSentences = conversationUtils.filterShortSentences(response, ArchGPTConstants.MINIMUM_SAVED_SENTENCE_LENGTH);
+
+                                    if (!relevantSentences.isEmpty()) {
+                                        String filteredResponseText = String.join(" ", relevantSentences);
+                                        Conversation conversation = new Conversation(
+                                                player.getUniqueId(),
+                                                npc.getName(),
+                                                filteredResponseText,
+                                                System.currentTimeMillis(),
+                                                true
+                                        );
+                                        plugin.getConversationDAO().saveConversation(conversation);
                                     }
+
+                                    hologramManager.removePlayerHologram(playerUUID);
+
+                                    // Stop the NPC thinking animation once we have a response
+                                    stopNpcThinkingAnimation(session);
                                 }
-                            }.runTaskLater(plugin, 20L);
-                            getConversationTimeoutManager().resetConversationTimeout(playerUUID);
-                        }
+                            } finally {
+                                shown.complete(null);
+                            }
+                        }, () -> shown.complete(null), 20L);
+                        getConversationTimeoutManager().resetConversationTimeout(session);
                     }
                 }
             }
+        })).whenComplete((ignored, e) -> {
+            if (!scheduled.get()) shown.complete(null);
         });
+        return shown;
     }
 
     // Starts a repeating task that makes the NPC crouch/uncrouch and swing their hand while "thinking"
-    private void startNpcThinkingAnimation(UUID playerUUID, NPC npc) {
+    private void startNpcThinkingAnimation(ConversationSession session) {
+        NPC npc = session.getNpc();
         try {
             if (npc == null || !npc.isSpawned()) return;
 
             // If there's already a task running for this player, cancel it first
-            stopNpcThinkingAnimation(playerUUID, npc);
+            stopNpcThinkingAnimation(session);
 
-            BukkitTask task = new BukkitRunnable() {
+            // Pinned to the NPC entity so the animation runs on the region that owns it
+            TaskHandle task = plugin.getTaskScheduler().runAtEntityTimer(npc.getEntity(), new Consumer<>() {
                 private boolean sneaking = false;
                 private int ticks = 0;
 
                 @Override
-                public void run() {
-                    if (npc == null || !npc.isSpawned()) {
-                        cancel();
+                public void accept(TaskHandle handle) {
+                    if (!npc.isSpawned()) {
+                        handle.cancel();
                         return;
                     }
 
@@ -336,31 +441,100 @@ public class NPCConversationManager {
                     }
                     ticks++;
                 }
-            }.runTaskTimer(plugin, 0L, 10L); // every 10 ticks (0.5s)
+            }, 1L, 10L); // every 10 ticks (0.5s)
 
-            npcThinkingTasks.put(playerUUID, task);
+            session.swapThinkingTask(task);
+            // Ending the session only stops the task it finds; this one may have started after that
+            if (session.isClosed()) {
+                stopNpcThinkingAnimation(session);
+            }
         } catch (Throwable t) {
             plugin.getLogger().warning("Failed to start NPC thinking animation: " + t.getMessage());
         }
     }
 
     // Stops the repeating animation task and ensures the NPC is not left sneaking
-    private void stopNpcThinkingAnimation(UUID playerUUID, NPC npc) {
+    private void stopNpcThinkingAnimation(ConversationSession session) {
+        NPC npc = session.getNpc();
         try {
-            BukkitTask existing = npcThinkingTasks.remove(playerUUID);
+            TaskHandle existing = session.swapThinkingTask(null);
             if (existing != null) {
                 existing.cancel();
             }
             if (npc != null && npc.isSpawned() && npc.getEntity() instanceof org.bukkit.entity.Player npcPlayer) {
-                npcPlayer.setSneaking(false);
+                if (plugin.getTaskScheduler().isOwnedByCurrentThread(npcPlayer)) {
+                    npcPlayer.setSneaking(false);
+                } else {
+                    plugin.getTaskScheduler().runAtEntity(npcPlayer, () -> npcPlayer.setSneaking(false));
+                }
             }
         } catch (Throwable t) {
             plugin.getLogger().warning("Failed to stop NPC thinking animation: " + t.getMessage());
         }
     }
 
+    // Publishes the chat history so another server of the network can pick up the conversation
+    private void shareConversationState(UUID playerUUID, NPC npc, List<JsonObject> conversationState) {
+        SharedSessionStore sessionStore = plugin.getSessionStore();
+        if (sessionStore == null || npc == null) return;
+        JsonArray state = new JsonArray();
+        conversationState.forEach(state::add);
+        sessionStore.save(playerUUID, npc.getId(), npc.getName(), state.toString());
+    }
+
+    // The player moved to another server: drop the local state but keep the shared session for that server
+    public void suspendConversation(UUID playerUUID) {
+        ConversationSession session = playerLocks.withLock(playerUUID, () -> sessions.close(playerUUID));
+        if (session != null) {
+            releaseSession(session, false);
+        }
+    }
+
+    // Continues a conversation the player started on another server, if this server has the same NPC
+    public void resumeConversation(Player player) {
+        UUID playerUUID = player.getUniqueId();
+        plugin.getSessionStore().load(playerUUID).thenAccept(session -> {
+            if (session == null) return;
+            plugin.getTaskScheduler().runAtEntity(player, () -> {
+                if (!player.isOnline() || playerInConversation(playerUUID)) return;
+                NPC npc = findSharedNpc(session);
+                if (npc == null) {
+                    plugin.debugLog("Shared conversation with NPC '" + session.npcName() + "' not resumed; it doesn't exist on this server");
+                    return;
+                }
+
+                List<JsonObject> conversationState = new ArrayList<>();
+                for (JsonElement element : JsonParser.parseString(session.state()).getAsJsonArray()) {
+                    conversationState.add(element.getAsJsonObject());
+                }
+                ConversationSession resumed = newSession(playerUUID, npc, conversationState);
+                if (!sessions.open(resumed)) return;
+                plugin.debugLog("Resumed conversation of " + player.getName() + " with " + npc.getName() + " from " + session.server());
+
+                plugin.sendMessage(player, Messages.CONVERSATION_STARTED
+                        .insertObject("npc", npc)
+                        .insertString("cancel", Objects.requireNonNull(plugin.getConfig().getString("conversation_end_phrase"))));
+                conversationTimeoutManager.startConversationTimeout(resumed);
+            });
+        });
+    }
+
+    // Citizens ids are per server, so the id only counts if the name matches too. Only spawned NPCs can keep talking.
+    private NPC findSharedNpc(SharedSession session) {
+        NPC npc = CitizensAPI.getNPCRegistry().getById(session.npcId());
+        if (npc != null && npc.isSpawned() && npc.getName().equals(session.npcName())) {
+            return npc;
+        }
+        for (NPC candidate : CitizensAPI.getNPCRegistry()) {
+            if (candidate.isSpawned() && candidate.getName().equals(session.npcName())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
     public boolean playerInConversation(UUID playerUUID) {
-        return plugin.getActiveConversations().containsKey(playerUUID);
+        return sessions.contains(playerUUID);
     }
 
 }
@@ -2,6 +2,7 @@ package me.xidentified.archgpt.commands;
 
 import me.xidentified.archgpt.ArchGPT;
 import me.xidentified.archgpt.reports.ReportGUI;
+import me.xidentified.archgpt.storage.model.ReportFilter;
 import me.xidentified.archgpt.utils.Messages;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -9,6 +10,9 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
 public class AdminReportCommandExecutor implements CommandExecutor {
     private final ArchGPT plugin;
 
@@ -28,8 +32,32 @@ public class AdminReportCommandExecutor implements CommandExecutor {
             return true;
         }
 
-        new ReportGUI(plugin).openGUI(admin);
+        new ReportGUI(plugin, parseFilter(args)).openGUI(admin);
 
         return true;
     }
+
+    // Optional filters, e.g. /npcreports npc:Guide type:Inappropriate days:7
+    private ReportFilter parseFilter(String[] args) {
+        String npcName = null;
+        String reportType = null;
+        LocalDateTime since = null;
+        for (String arg : args) {
+            int separator = arg.indexOf(':');
+            if (separator <= 0) continue;
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(0, separator).toLowerCase()) {
+                case "npc" -> npcName = value;
+                case "type" -> reportType = value;
+                case "days" -> {
+                    try {
+                        // Whole days, so repeated lookups share the cached report count
+                        since = LocalDate.now().minusDays(Integer.parseInt(value)).atStartOfDay();
+                    } catch (NumberFormatException ignored) {}
+                }
+                default -> {}
+            }
+        }
+        return new ReportFilter(npcName, reportType, since);
+    }
 }
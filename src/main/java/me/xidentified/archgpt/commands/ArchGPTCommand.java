@@ -1,7 +1,21 @@
 package me.xidentified.archgpt.commands;
 
 import me.xidentified.archgpt.ArchGPT;
+import me.xidentified.archgpt.ConversationMailbox;
+import me.xidentified.archgpt.ConversationSession;
+import me.xidentified.archgpt.context.MemorySummarizer;
+import me.xidentified.archgpt.scheduler.ProviderScheduler;
+import me.xidentified.archgpt.scheduler.TickBudgetExecutor;
+import me.xidentified.archgpt.storage.DataTransfer;
+import me.xidentified.archgpt.storage.MessageCodec;
+import me.xidentified.archgpt.storage.PoolMetrics;
+import me.xidentified.archgpt.storage.RetentionJob;
+import me.xidentified.archgpt.storage.SQLiteEngine;
+import me.xidentified.archgpt.storage.SharedSessionStore;
+import me.xidentified.archgpt.storage.dao.LogConversationDAO;
+import me.xidentified.archgpt.storage.dao.WriteBehindConversationDAO;
 import me.xidentified.archgpt.utils.Messages;
+import me.xidentified.archgpt.utils.PlayerLocks;
 import net.citizensnpcs.api.CitizensAPI;
 import net.citizensnpcs.api.npc.NPC;
 import net.kyori.adventure.text.Component;
@@ -18,12 +32,15 @@ import org.jetbrains.annotations.NotNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
+import java.io.File;
 import java.net.URI;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public class ArchGPTCommand implements CommandExecutor, TabCompleter {
     private final ArchGPT plugin;
@@ -84,6 +101,28 @@ public class ArchGPTCommand implements CommandExecutor, TabCompleter {
             case "debug":
                 toggleDebugMode(sender);
                 break;
+
+            case "stats":
+                displayStats(sender);
+                break;
+
+            case "export":
+                startTransfer(sender, "Export", plugin.getDataTransfer().newExportFile(), true);
+                break;
+
+            case "import":
+                if (args.length < 2) {
+                    plugin.sendMessage(sender, Messages.IMPORT_CMD_USAGE);
+                    return true;
+                }
+                File importFile = plugin.getDataTransfer().findExport(args[1]);
+                if (importFile == null) {
+                    plugin.sendMessage(sender, Messages.IMPORT_FILE_NOT_FOUND.insertString("file", args[1]));
+                    return true;
+                }
+                startTransfer(sender, "Import", importFile, false);
+                break;
+
             case "checkprovider":
                 if (args.length < 2) {
                     plugin.sendMessage(sender, Messages.CHECKPROVIDER_CMD_USAGE);
@@ -142,8 +181,51 @@ public class ArchGPTCommand implements CommandExecutor, TabCompleter {
             return;
         }
 
-        plugin.getConversationDAO().clearConversationsForNpc(npcName);
-        plugin.sendMessage(sender, Messages.NPC_MEMORY_RESET.insertObject("npc", npc));
+        plugin.getRetentionJob().clearNpc(npcName)
+                .thenRun(() -> plugin.getTaskScheduler().runGlobal(() ->
+                        plugin.sendMessage(sender, Messages.NPC_MEMORY_RESET.insertObject("npc", npc))));
+    }
+
+    // Progress and the outcome go to whoever started the transfer, on the main thread
+    private void startTransfer(CommandSender sender, String action, File file, boolean export) {
+        DataTransfer transfer = plugin.getDataTransfer();
+        Consumer<DataTransfer.Progress> onProgress = progress -> plugin.getTaskScheduler().runGlobal(() ->
+                plugin.sendMessage(sender, Messages.TRANSFER_PROGRESS
+                        .insertString("action", action)
+                        .insertString("rows", String.valueOf(progress.rows()))
+                        .insertString("size", formatSize(progress.bytes()))));
+        CompletableFuture<DataTransfer.Progress> result = export
+                ? transfer.export(file, onProgress)
+                : transfer.importFile(file, onProgress);
+        if (result == null) {
+            plugin.sendMessage(sender, Messages.TRANSFER_BUSY);
+            return;
+        }
+        plugin.sendMessage(sender, Messages.TRANSFER_STARTED.insertString("action", action).insertString("file", file.getName()));
+
+        result.whenComplete((progress, e) -> plugin.getTaskScheduler().runGlobal(() -> {
+            if (e == null) {
+                plugin.sendMessage(sender, Messages.TRANSFER_DONE
+                        .insertString("action", action)
+                        .insertString("file", file.getName())
+                        .insertString("time", String.format("%.1fs", progress.elapsedMillis() / 1000.0))
+                        .insertString("conversations", String.valueOf(progress.conversations()))
+                        .insertString("summaries", String.valueOf(progress.summaries()))
+                        .insertString("reports", String.valueOf(progress.reports()))
+                        .insertString("skipped", String.valueOf(progress.skipped()))
+                        .insertString("duplicates", String.valueOf(progress.duplicates())));
+            } else {
+                plugin.getLogger().warning(action + " of " + file.getName() + " failed: " + e.getMessage());
+                plugin.sendMessage(sender, Messages.TRANSFER_FAILED
+                        .insertString("action", action)
+                        .insertString("file", file.getName())
+                        .insertString("error", String.valueOf(e.getMessage())));
+            }
+        }));
+    }
+
+    private static String formatSize(long bytes) {
+        return bytes < 1024 * 1024 ? (bytes / 1024) + " KB" : String.format("%.1f MB", bytes / (1024.0 * 1024.0));
     }
 
     private void toggleDebugMode(CommandSender sender) {
@@ -159,10 +241,14 @@ public class ArchGPTCommand implements CommandExecutor, TabCompleter {
 
         if (command.getName().equalsIgnoreCase("archgpt") && args.length == 1) {
             if (sender.hasPermission("archgpt.admin")) {
-                completions.addAll(Arrays.asList("broadcast", "checkprovider", "version", "reload", "setnpc", "reset-npc-memory", "clear-all-conversations", "debug"));
+                completions.addAll(Arrays.asList("broadcast", "checkprovider", "version", "reload", "setnpc", "reset-npc-memory", "clear-all-conversations", "debug", "stats", "export", "import"));
             }
         }
 
+        if (args.length == 2 && "import".equalsIgnoreCase(args[0]) && sender.hasPermission("archgpt.admin")) {
+            completions.addAll(plugin.getDataTransfer().listExports());
+        }
+
         if (args.length == 2 && "checkprovider".equalsIgnoreCase(args[0])) {
             completions.addAll(Arrays.asList("openai", "deepseek", "anthropic", "openrouter", "google_ai_studio", "huggingface", "all"));
         }
@@ -184,15 +270,174 @@ public class ArchGPTCommand implements CommandExecutor, TabCompleter {
         ));
     }
 
+    private void displayStats(CommandSender sender) {
+        TickBudgetExecutor executor = plugin.getTickBudgetExecutor();
+        plugin.sendMessage(sender, Messages.STATS_HEADER);
+        plugin.sendMessage(sender, Component.text(String.format(
+                "Main thread: budget %.2fms, last tick %.3fms (%d jobs), max tick %.3fms, queued %d, %d of %d jobs deferred",
+                executor.getBudgetNanos() / 1_000_000.0,
+                executor.getLastTickNanos() / 1_000_000.0,
+                executor.getLastTickJobs(),
+                executor.getMaxTickNanos() / 1_000_000.0,
+                executor.getQueueDepth(),
+                executor.getTotalDeferrals(),
+                executor.getTotalJobs())));
+
+        PlayerLocks locks = plugin.getConversationManager().getPlayerLocks();
+        plugin.sendMessage(sender, Component.text(String.format(
+                "Chat locks: %d stripes, %d acquisitions, %d contended",
+                locks.getStripeCount(),
+                locks.getAcquisitions(),
+                locks.getContended())));
+
+        int mailboxes = 0;
+        int waiting = 0;
+        int maxDepth = 0;
+        long dropped = 0;
+        long merged = 0;
+        long rejected = 0;
+        double totalWait = 0;
+        for (ConversationSession session : plugin.getConversationManager().getSessions().getAll()) {
+            ConversationMailbox mailbox = session.getMailbox();
+            mailboxes++;
+            waiting += mailbox.getDepth();
+            maxDepth = Math.max(maxDepth, mailbox.getMaxDepth());
+            dropped += mailbox.getDropped();
+            merged += mailbox.getMerged();
+            rejected += mailbox.getRejected();
+            totalWait += mailbox.getAverageWaitMillis();
+        }
+        plugin.sendMessage(sender, Component.text(String.format(
+                "Conversations: %d open, %d messages waiting (deepest %d), avg wait %.0fms, dropped %d, merged %d, rejected %d",
+                mailboxes,
+                waiting,
+                maxDepth,
+                mailboxes == 0 ? 0 : totalWait / mailboxes,
+                dropped,
+                merged,
+                rejected)));
+
+        ProviderScheduler provider = plugin.getProviderScheduler();
+        plugin.sendMessage(sender, Component.text(String.format(
+                "Provider: %d/%d requests in flight",
+                provider.getRunning(),
+                provider.getMaxConcurrent())));
+        for (ProviderScheduler.NpcStats npc : provider.getNpcStats()) {
+            plugin.sendMessage(sender, Component.text(String.format(
+                    "  %s: weight %d, running %d/%d, queued %d, started %d, wait avg %.0fms max %.0fms",
+                    npc.npcName(),
+                    npc.weight(),
+                    npc.running(),
+                    npc.maxConcurrent(),
+                    npc.queued(),
+                    npc.started(),
+                    npc.averageWaitMillis(),
+                    npc.maxWaitMillis())));
+        }
+
+        WriteBehindConversationDAO writer = plugin.getConversationWriter();
+        if (writer != null) {
+            plugin.sendMessage(sender, Component.text(String.format(
+                    "Conversation writes: queued %d, written %d in %d batches (last %d, max %d), %d failed, flush last %.3fms avg %.3fms max %.3fms",
+                    writer.getQueueDepth(),
+                    writer.getWritten(),
+                    writer.getFlushes(),
+                    writer.getLastBatchSize(),
+                    writer.getMaxBatchSize(),
+                    writer.getFailedFlushes(),
+                    writer.getLastFlushMillis(),
+                    writer.getAverageFlushMillis(),
+                    writer.getMaxFlushMillis())));
+        }
+
+        for (PoolMetrics pool : plugin.getConnectionPools().getMetrics()) {
+            plugin.sendMessage(sender, Component.text(String.format(
+                    "Pool %s: active %d, idle %d, total %d, pending %d, acquire avg %.3fms max %.3fms (%d), timeouts %d",
+                    pool.getPoolName(),
+                    pool.getActive(),
+                    pool.getIdle(),
+                    pool.getTotal(),
+                    pool.getPending(),
+                    pool.getAverageAcquireMillis(),
+                    pool.getMaxAcquireMillis(),
+                    pool.getAcquisitions(),
+                    pool.getTimeouts())));
+        }
+
+        for (SQLiteEngine engine : plugin.getConnectionPools().getSqliteEngines()) {
+            plugin.sendMessage(sender, Component.text(String.format(
+                    "SQLite %s: readers idle %d/%d, pending reads %d, pending writes %d, wait avg read %.3fms write %.3fms, reads %d, writes %d",
+                    engine.getName(),
+                    engine.getIdleReaders(),
+                    engine.getReaderCount(),
+                    engine.getPendingReads(),
+                    engine.getPendingWrites(),
+                    engine.getAverageReadWaitMillis(),
+                    engine.getAverageWriteWaitMillis(),
+                    engine.getReads(),
+                    engine.getWrites())));
+        }
+
+        MemorySummarizer summarizer = plugin.getMemorySummarizer();
+        if (summarizer != null && summarizer.isEnabled()) {
+            plugin.sendMessage(sender, Component.text(String.format(
+                    "Memory summaries: %d tokens used this hour of %d, %d written, batch pending: %s",
+                    summarizer.getTokensThisHour(),
+                    plugin.getConfigHandler().getMemorySummarizationTokensPerHour(),
+                    summarizer.getSummariesWritten(),
+                    summarizer.hasPendingBatch() ? "yes" : "no")));
+        }
+
+        RetentionJob retention = plugin.getRetentionJob();
+        if (retention != null) {
+            plugin.sendMessage(sender, Component.text(String.format(
+                    "Retention: %d expired messages deleted, %d partitions dropped",
+                    retention.getPurgedRows(),
+                    retention.getDroppedPartitions())));
+        }
+
+        SharedSessionStore sessions = plugin.getSessionStore();
+        if (sessions != null) {
+            plugin.sendMessage(sender, Component.text(String.format(
+                    "Shared sessions: %d cached, %d write conflicts",
+                    sessions.getCachedSessions(),
+                    sessions.getConflicts())));
+        }
+
+        LogConversationDAO log = plugin.getConversationLog();
+        if (log != null) {
+            plugin.sendMessage(sender, Component.text(String.format(
+                    "Conversation log: %d segment(s), %d KB written, %d KB live, %d compaction(s)",
+                    log.getSegmentCount(),
+                    log.getTotalBytes() / 1024,
+                    log.getLiveBytes() / 1024,
+                    log.getCompactions())));
+        }
+
+        MessageCodec codec = plugin.getMessageCodec();
+        if (codec != null && codec.getMode() != MessageCodec.Mode.NONE) {
+            plugin.sendMessage(sender, Component.text(String.format(
+                    "Compression (%s): %d message(s) at %.0f%% of their size, %.1fus to compress, %.1fus to decompress, %.0f%% cache hits",
+                    codec.getMode().name().toLowerCase(),
+                    codec.getCompressed(),
+                    codec.getCompressionRatio() * 100,
+                    codec.getAverageCompressMicros(),
+                    codec.getAverageDecompressMicros(),
+                    codec.getCacheHitRate() * 100)));
+        }
+    }
+
     private void clearConversationStorage(CommandSender sender) {
         // Implement logic to clear conversation storage
-        try {
-            plugin.getConversationDAO().clearAllConversations();
-            plugin.sendMessage(sender, Messages.CLEAR_STORAGE_SUCCESS);
-        } catch (Exception e) {
-            plugin.getLogger().severe("Error clearing conversation storage: " + e.getMessage());
-            plugin.sendMessage(sender, Messages.CLEAR_STORAGE_ERROR);
-        }
+        plugin.getRetentionJob().clearAll().whenComplete((ignored, e) ->
+                plugin.getTaskScheduler().runGlobal(() -> {
+                    if (e == null) {
+                        plugin.sendMessage(sender, Messages.CLEAR_STORAGE_SUCCESS);
+                    } else {
+                        plugin.getLogger().severe("Error clearing conversation storage: " + e.getMessage());
+                        plugin.sendMessage(sender, Messages.CLEAR_STORAGE_ERROR);
+                    }
+                }));
     }
 
     private void setNpcPrompt(CommandSender sender, String npcName, String prompt) {
@@ -234,10 +479,10 @@ public class ArchGPTCommand implements CommandExecutor, TabCompleter {
     plugin.sendMessage(sender, Component.text("Testing " + (providersToTest.size() > 1 ? "all providers" : providerArg) + "..."));
     
     // Run the tests asynchronously to avoid blocking the server
-    Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+    plugin.getTaskScheduler().runAsync(() -> {
         for (String provider : providersToTest) {
             // Send message on the main thread
-            Bukkit.getScheduler().runTask(plugin, () -> {
+            plugin.getTaskScheduler().runGlobal(() -> {
                 plugin.sendMessage(sender, Messages.CHECKPROVIDER_TESTING.insertString("provider", provider));
             });
             
@@ -245,7 +490,7 @@ public class ArchGPTCommand implements CommandExecutor, TabCompleter {
                 boolean success = testProvider(provider);
                 
                 // Send result on the main thread
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                plugin.getTaskScheduler().runGlobal(() -> {
                     if (success) {
                         plugin.sendMessage(sender, Messages.CHECKPROVIDER_SUCCESS.insertString("provider", provider));
                     } else {
@@ -255,7 +500,7 @@ public class ArchGPTCommand implements CommandExecutor, TabCompleter {
                     }
                 });
             } catch (Exception e) {
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                plugin.getTaskScheduler().runGlobal(() -> {
                     plugin.sendMessage(sender, Messages.CHECKPROVIDER_ERROR
                         .insertString("provider", provider)
                         .insertString("error", e.getMessage()));
@@ -271,7 +516,7 @@ public class ArchGPTCommand implements CommandExecutor, TabCompleter {
         }
         
         // Send completion message
-        Bukkit.getScheduler().runTask(plugin, () -> {
+        plugin.getTaskScheduler().runGlobal(() -> {
             if (providersToTest.size() > 1) {
                 plugin.sendMessage(sender, Messages.CHECKPROVIDER_ALL_COMPLETE);
             }
@@ -1,6 +1,5 @@
 package me.xidentified.archgpt.context;
 
-import com.google.gson.JsonObject;
 import me.xidentified.archgpt.ArchGPT;
 import me.xidentified.archgpt.ChatRequestHandler;
 import net.citizensnpcs.api.npc.NPC;
@@ -12,7 +11,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public class ContextManager {
     private final ArchGPT plugin;
-    private final Map<UUID, JsonObject> playerContextCache = new ConcurrentHashMap<>();
+    private final Map<UUID, ContextSnapshot> playerContextCache = new ConcurrentHashMap<>();
     private final Map<UUID, Long> lastContextUpdate = new ConcurrentHashMap<>();
     private static final long CONTEXT_UPDATE_INTERVAL = 30000; // 30 seconds
     
@@ -20,7 +19,7 @@ public class ContextManager {
         this.plugin = plugin;
     }
     
-    public JsonObject getOrganizedContext(Player player, NPC npc, ChatRequestHandler.RequestType requestType) {
+    public ContextSnapshot getOrganizedContext(Player player, NPC npc, ChatRequestHandler.RequestType requestType) {
         UUID playerUUID = player.getUniqueId();
         long currentTime = System.currentTimeMillis();
         
@@ -28,37 +27,44 @@ public class ContextManager {
         if (!playerContextCache.containsKey(playerUUID) || 
             currentTime - lastContextUpdate.getOrDefault(playerUUID, 0L) > CONTEXT_UPDATE_INTERVAL) {
             
-            JsonObject context = new JsonObject();
+            ContextSnapshot.Builder context = ContextSnapshot.builder();
             
             // Add environmental context
             EnvironmentalContextProvider envProvider = new EnvironmentalContextProvider(plugin, player);
             String envContext = envProvider.getFormattedContext("");
-            context.addProperty("environment", envContext != null ? envContext : "");
+            context.put("environment", envContext != null ? envContext : "");
             
             // Add player context
             PlayerContextProvider playerProvider = new PlayerContextProvider(player);
             String playerContext = playerProvider.getFormattedContext("");
-            context.addProperty("player", playerContext != null ? playerContext : "");
+            context.put("player", playerContext != null ? playerContext : "");
             
             // Add NPC context
-            context.addProperty("npc", npc.getName());
-            context.addProperty("npc_id", npc.getId());
+            context.put("npc", npc.getName());
+            context.put("npc_id", npc.getId());
             
             // Add server knowledge from config (rules, staff, FAQs, etc.)
             String knowledge = plugin.getConfigHandler().getKnowledge();
             if (knowledge != null && !knowledge.isBlank()) {
-                context.addProperty("knowledge", knowledge);
+                context.put("knowledge", knowledge);
             }
             
             // Add request type
-            context.addProperty("request_type", requestType.name());
+            context.put("request_type", requestType.name());
+            
+            // Carry over elements added since the last rebuild (e.g. conversation_summary)
+            ContextSnapshot previous = playerContextCache.get(playerUUID);
+            if (previous != null && previous.has("conversation_summary")) {
+                context.put("conversation_summary", previous.get("conversation_summary"));
+            }
             
             // Cache the context
-            playerContextCache.put(playerUUID, context);
+            ContextSnapshot snapshot = context.build();
+            playerContextCache.put(playerUUID, snapshot);
             lastContextUpdate.put(playerUUID, currentTime);
             
             plugin.debugLog("Context updated for player: " + player.getName());
-            return context;
+            return snapshot;
         }
         
         // Return cached context
@@ -68,8 +74,8 @@ public class ContextManager {
     
     public void updateContextElement(Player player, String key, String value) {
         UUID playerUUID = player.getUniqueId();
-        if (playerContextCache.containsKey(playerUUID)) {
-            playerContextCache.get(playerUUID).addProperty(key, value);
+        // Swap in a new snapshot; readers holding the old one are unaffected
+        if (playerContextCache.computeIfPresent(playerUUID, (uuid, snapshot) -> snapshot.with(key, value)) != null) {
             lastContextUpdate.put(playerUUID, System.currentTimeMillis());
         }
     }
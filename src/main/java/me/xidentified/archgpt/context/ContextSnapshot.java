@@ -0,0 +1,88 @@
+package me.xidentified.archgpt.context;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable view of the context gathered for a player/NPC pair.
+ * <p>
+ * Snapshots are never modified once built, so request builders can read them from any thread
+ * without locking. {@link #with(String, String)} returns a new snapshot; the (potentially large)
+ * values are shared between the old and new snapshot, only the small key table is copied.
+ * Values keep their JSON type, so a number such as {@code npc_id} is sent as a number.
+ */
+public final class ContextSnapshot {
+
+    public static final ContextSnapshot EMPTY = new ContextSnapshot(Map.of());
+
+    private final Map<String, JsonPrimitive> values;
+    // Built once; toJson hands out copies
+    private final JsonObject json;
+
+    private ContextSnapshot(Map<String, JsonPrimitive> values) {
+        this.values = Collections.unmodifiableMap(new LinkedHashMap<>(values));
+        this.json = new JsonObject();
+        this.values.forEach(json::add);
+    }
+
+    public Map<String, JsonPrimitive> values() {
+        return values;
+    }
+
+    public boolean has(String key) {
+        return values.containsKey(key);
+    }
+
+    public String get(String key) {
+        JsonPrimitive value = values.get(key);
+        return value != null ? value.getAsString() : null;
+    }
+
+    public ContextSnapshot with(String key, String value) {
+        return value != null ? with(key, new JsonPrimitive(value)) : this;
+    }
+
+    private ContextSnapshot with(String key, JsonPrimitive value) {
+        if (value.equals(values.get(key))) {
+            return this;
+        }
+        Map<String, JsonPrimitive> copy = new LinkedHashMap<>(values);
+        copy.put(key, value);
+        return new ContextSnapshot(copy);
+    }
+
+    // A copy of the cached object, so the caller owns it and can embed it in a request
+    public JsonObject toJson() {
+        return json.deepCopy();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private final Map<String, JsonPrimitive> values = new LinkedHashMap<>();
+
+        public Builder put(String key, String value) {
+            if (value != null) {
+                values.put(key, new JsonPrimitive(value));
+            }
+            return this;
+        }
+
+        public Builder put(String key, Number value) {
+            if (value != null) {
+                values.put(key, new JsonPrimitive(value));
+            }
+            return this;
+        }
+
+        public ContextSnapshot build() {
+            return new ContextSnapshot(values);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package me.xidentified.archgpt.context;
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton over a fixed set of keywords, combined with a sentence segmenter.
+ * A single left-to-right pass over the text splits it into sentences and counts whole-word,
+ * case-insensitive keyword hits in each one. Build once per keyword set and reuse it.
+ */
+public final class KeywordMatcher {
+
+    @FunctionalInterface
+    public interface SentenceConsumer {
+        void accept(String sentence, int score);
+    }
+
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final List<Integer> failure = new ArrayList<>();
+    // Lengths of every keyword ending at a node, including those reached through failure links
+    private final List<int[]> outputs = new ArrayList<>();
+
+    public KeywordMatcher(Collection<String> keywords) {
+        newNode();
+        for (String keyword : keywords) {
+            if (keyword != null && !keyword.isEmpty()) {
+                insert(keyword.toLowerCase());
+            }
+        }
+        buildFailureLinks();
+    }
+
+    /**
+     * Splits the text into sentences terminated by '.', '!' or '?' and reports each sentence
+     * together with the number of keyword occurrences in it. Trailing text without a terminator
+     * is not a sentence and is skipped.
+     */
+    public void scoreSentences(String text, SentenceConsumer consumer) {
+        int state = 0;
+        int sentenceStart = 0;
+        int score = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            state = step(state, Character.toLowerCase(c));
+
+            for (int length : outputs.get(state)) {
+                if (isWholeWord(text, i - length + 1, i)) {
+                    score++;
+                }
+            }
+
+            if (c == '.' || c == '!' || c == '?') {
+                String sentence = text.substring(sentenceStart, i + 1).trim();
+                if (!sentence.isEmpty()) {
+                    consumer.accept(sentence, score);
+                }
+                sentenceStart = i + 1;
+                score = 0;
+                state = 0;
+            }
+        }
+    }
+
+    // Number of whole-word keyword occurrences in the text
+    public int count(String text) {
+        int state = 0;
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, Character.toLowerCase(text.charAt(i)));
+            for (int length : outputs.get(state)) {
+                if (isWholeWord(text, i - length + 1, i)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private int step(int state, char c) {
+        while (true) {
+            Integer next = transitions.get(state).get(c);
+            if (next != null) {
+                return next;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failure.get(state);
+        }
+    }
+
+    private static boolean isWholeWord(String text, int start, int end) {
+        boolean boundaryBefore = start == 0 || !isWordChar(text.charAt(start - 1));
+        boolean boundaryAfter = end == text.length() - 1 || !isWordChar(text.charAt(end + 1));
+        return boundaryBefore && boundaryAfter;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private int newNode() {
+        transitions.add(new HashMap<>());
+        failure.add(0);
+        outputs.add(new int[0]);
+        return transitions.size() - 1;
+    }
+
+    private void insert(String keyword) {
+        int node = 0;
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = keyword.charAt(i);
+            Integer next = transitions.get(node).get(c);
+            if (next == null) {
+                next = newNode();
+                transitions.get(node).put(c, next);
+            }
+            node = next;
+        }
+        outputs.set(node, append(outputs.get(node), keyword.length()));
+    }
+
+    private void buildFailureLinks() {
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : transitions.get(0).values()) {
+            failure.set(child, 0);
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(node).entrySet()) {
+                int child = edge.getValue();
+                int fallback = failure.get(node);
+                while (fallback != 0 && !transitions.get(fallback).containsKey(edge.getKey())) {
+                    fallback = failure.get(fallback);
+                }
+                Integer target = transitions.get(fallback).get(edge.getKey());
+                int childFailure = (target != null && target != child) ? target : 0;
+                failure.set(child, childFailure);
+
+                // Inherit matches that end at the failure target
+                int[] inherited = outputs.get(childFailure);
+                int[] own = outputs.get(child);
+                if (inherited.length > 0) {
+                    int[] merged = new int[own.length + inherited.length];
+                    System.arraycopy(own, 0, merged, 0, own.length);
+                    System.arraycopy(inherited, 0, merged, own.length, inherited.length);
+                    outputs.set(child, merged);
+                }
+                queue.add(child);
+            }
+        }
+    }
+
+    private static int[] append(int[] values, int value) {
+        int[] copy = new int[values.length + 1];
+        System.arraycopy(values, 0, copy, 0, values.length);
+        copy[values.length] = value;
+        return copy;
+    }
+}
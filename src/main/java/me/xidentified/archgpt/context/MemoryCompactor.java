@@ -0,0 +1,97 @@
+package me.xidentified.archgpt.context;
+
+import me.xidentified.archgpt.ArchGPT;
+import me.xidentified.archgpt.storage.dao.ConversationDAO;
+import me.xidentified.archgpt.storage.model.Conversation;
+import me.xidentified.archgpt.storage.model.ConversationKey;
+import me.xidentified.archgpt.storage.model.MemorySummary;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically folds messages older than the compaction threshold into a single summary row per
+ * (player, NPC) and deletes them, so the conversations table only holds recent history.
+ * The previous summary is fed back in, so older memories fade gradually instead of vanishing.
+ * When LLM summarization is enabled, its summary is kept as-is once it covers the compacted messages.
+ */
+public class MemoryCompactor {
+    private static final int BATCH_SIZE = 50; // Conversations compacted per run
+
+    private final ArchGPT plugin;
+    private final MemoryContext memoryContext;
+    private final ScheduledExecutorService executorService;
+
+    public MemoryCompactor(ArchGPT plugin) {
+        this.plugin = plugin;
+        this.memoryContext = new MemoryContext(plugin);
+        this.executorService = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    public void start() {
+        long interval = plugin.getConfigHandler().getMemoryCompactionIntervalMinutes();
+        executorService.scheduleWithFixedDelay(this::compact, interval, interval, TimeUnit.MINUTES);
+    }
+
+    public void stop() {
+        executorService.shutdownNow();
+    }
+
+    private void compact() {
+        try {
+            ConversationDAO dao = plugin.getConversationDAO();
+            Duration memoryDuration = plugin.getConfigHandler().getNpcMemoryDuration();
+            long cutoffTimestamp = Instant.now().toEpochMilli() - plugin.getConfigHandler().getMemoryCompactAfter().toMillis();
+            long forgetTimestamp = Instant.now().toEpochMilli() - memoryDuration.toMillis();
+
+            // With the summarizer on, conversations it hasn't summarized yet aren't returned until they reach the end
+            // of the memory duration, so the ones that can be compacted now are never stuck behind them
+            MemorySummarizer summarizer = plugin.getMemorySummarizer();
+            boolean summarizing = summarizer != null && summarizer.isEnabled();
+            List<ConversationKey> keys = dao.findConversationsToCompact(cutoffTimestamp,
+                    summarizing ? forgetTimestamp : Long.MAX_VALUE, BATCH_SIZE);
+            for (ConversationKey key : keys) {
+                List<Conversation> old = dao.getConversationsBefore(key, cutoffTimestamp);
+                if (old.isEmpty()) continue;
+                long newestOld = old.get(old.size() - 1).getTimestamp();
+                MemorySummary previous = dao.getMemorySummary(key.playerUUID(), key.npcName(), memoryDuration);
+
+                if (summarizing) {
+                    if (previous != null && previous.updatedAt() >= newestOld) {
+                        // The background summary already covers these messages, just drop them
+                        dao.replaceWithSummary(key, cutoffTimestamp, previous);
+                        continue;
+                    }
+                    if (old.get(0).getTimestamp() > forgetTimestamp) {
+                        continue; // More messages aged past the cutoff since the query; the summarizer covers them first
+                    }
+                }
+
+                List<Conversation> input = new ArrayList<>(old.size() + 1);
+                if (previous != null && previous.summary() != null && !previous.summary().isEmpty()) {
+                    input.add(new Conversation(key.playerUUID(), key.npcName(), previous.summary(), 0L, false));
+                }
+                input.addAll(old);
+
+                String summary = memoryContext.summarizeConversations(input);
+                if (summary.isEmpty()) {
+                    // No complete sentences to extract, keep what we had or the last thing said
+                    summary = previous != null ? previous.summary() : old.get(old.size() - 1).getMessage();
+                }
+                long coveredUpTo = previous != null ? Math.max(previous.updatedAt(), newestOld) : newestOld;
+                dao.replaceWithSummary(key, cutoffTimestamp, new MemorySummary(summary, coveredUpTo));
+            }
+
+            if (!keys.isEmpty()) {
+                plugin.debugLog("Compacted old messages of " + keys.size() + " conversation(s) into summaries");
+            }
+        } catch (Exception e) {
+            plugin.getLogger().warning("Memory compaction failed: " + e.getMessage());
+        }
+    }
+}
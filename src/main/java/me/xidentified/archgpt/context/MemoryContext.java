@@ -2,12 +2,16 @@ package me.xidentified.archgpt.context;
 
 import lombok.Getter;
 import me.xidentified.archgpt.ArchGPT;
+import me.xidentified.archgpt.storage.dao.ConversationDAO;
 import me.xidentified.archgpt.storage.model.Conversation;
+import me.xidentified.archgpt.storage.model.MemorySummary;
+import me.xidentified.archgpt.utils.ArchGPTConstants;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 
+import java.time.Duration;
 import java.util.*;
-import java.util.regex.Matcher;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -30,6 +34,9 @@ public class MemoryContext {
             "only", "own", "same", "so", "than", "too", "very", "s", "t", "can", "will", "just", "don",
             "should", "now", "ah", "ahoy"
     );
+    private static final Set<String> INQUIRY_WORDS = Set.of( // Words that ask about memory rather than a topic
+            "earlier", "before", "previously", "past", "said", "say", "told", "tell", "remember", "talked", "spoke"
+    );
 
     public MemoryContext(ArchGPT plugin) {
         this.recentConversations = new LinkedList<>();
@@ -38,19 +45,65 @@ public class MemoryContext {
         inquiryPattern = Pattern.compile("\\b(" + inquiryKeywords + ")\\b", Pattern.CASE_INSENSITIVE);
     }
 
-    // Returns past conversation summary IF player is inquiring about them
-    public String getConversationSummary(Component playerMessage, UUID playerUUID, String npcName) {
-        if (isAskingAboutPastConversation(playerMessage)) {
-            List<Conversation> pastConversations = plugin.getConversationDAO().getConversations(playerUUID, npcName, plugin.getConfigHandler().getNpcMemoryDuration());
+    // Completes with the past messages most relevant to what the player asked IF player is inquiring about them, else null.
+    // The lookups run on the database executor, never on the calling thread.
+    public CompletableFuture<String> getConversationSummary(Component playerMessage, UUID playerUUID, String npcName) {
+        if (!isAskingAboutPastConversation(playerMessage)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String messageText = PlainTextComponentSerializer.plainText().serialize(playerMessage);
+        return plugin.getAsyncConversationDAO().supply(() -> recall(messageText, playerUUID, npcName));
+    }
+
+    private String recall(String playerMessage, UUID playerUUID, String npcName) {
+        ConversationDAO dao = plugin.getConversationDAO();
+        Duration memoryDuration = plugin.getConfigHandler().getNpcMemoryDuration();
+
+        // Prefer the summary written in the background, no searching needed
+        MemorySummarizer summarizer = plugin.getMemorySummarizer();
+        if (summarizer != null && summarizer.isEnabled()) {
+            MemorySummary remembered = dao.getMemorySummary(playerUUID, npcName, memoryDuration);
+            if (remembered != null && remembered.summary() != null && !remembered.summary().isEmpty()) {
+                return "Here's what " + npcName + " remembers about you: " + remembered.summary();
+            }
+        }
+
+        List<String> terms = extractSearchTerms(playerMessage);
+
+        List<Conversation> relevant = dao.searchConversations(playerUUID, npcName, memoryDuration, terms, ArchGPTConstants.MEMORY_RECALL_LIMIT);
+        if (relevant.isEmpty() && !terms.isEmpty()) {
+            // Nothing matched the player's words, fall back to the latest exchanges
+            relevant = dao.searchConversations(playerUUID, npcName, memoryDuration, List.of(), ArchGPTConstants.MEMORY_RECALL_LIMIT);
+        }
 
-            if (pastConversations.isEmpty()) {
-                return "We haven't spoken before.";
-            } else {
-                String conversationSummary = summarizeConversations(pastConversations);
-                return "Here's a summary of your previous conversation with " + npcName + ": " + conversationSummary;
+        // Older history only survives as the compacted summary
+        MemorySummary compacted = dao.getMemorySummary(playerUUID, npcName, memoryDuration);
+        String olderSummary = compacted != null ? compacted.summary() : null;
+
+        if (relevant.isEmpty() && (olderSummary == null || olderSummary.isEmpty())) {
+            return "We haven't spoken before.";
+        } else {
+            String recalled = relevant.stream()
+                    .sorted(Comparator.comparingLong(Conversation::getTimestamp))
+                    .map(Conversation::getMessage)
+                    .collect(Collectors.joining(" "));
+            if (olderSummary != null && !olderSummary.isEmpty()) {
+                recalled = recalled.isEmpty() ? olderSummary : olderSummary + " " + recalled;
             }
+            return "Here's a summary of your previous conversation with " + npcName + ": " + recalled;
         }
-        return null;
+    }
+
+    // Distinct, meaningful words from the player's message to search past conversations with
+    public List<String> extractSearchTerms(String message) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String word : message.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() >= 3 && !STOP_WORDS.contains(word) && !INQUIRY_WORDS.contains(word)) {
+                terms.add(word);
+                if (terms.size() == 8) break;
+            }
+        }
+        return new ArrayList<>(terms);
     }
 
     public boolean isAskingAboutPastConversation(Component playerMessage) {
@@ -58,55 +111,46 @@ public class MemoryContext {
         return inquiryPattern.matcher(normalizedMessage).find();
     }
 
+    // Extractive summary: the sentences that mention the most frequent keywords, in their original order
     public String summarizeConversations(List<Conversation> conversations) {
         List<String> conversationTexts = conversations.stream()
                 .map(Conversation::getMessage)
                 .collect(Collectors.toList());
 
-        Set<String> topKeywords = extractKeywords(conversationTexts);
-        String keywordPattern = topKeywords.stream()
-                .map(Pattern::quote)
-                .collect(Collectors.joining("|"));
-        Pattern sentencePattern = Pattern.compile("[^.!?]*\\b(" + keywordPattern + ")\\b[^.!?]*[.!?]");
+        KeywordMatcher matcher = new KeywordMatcher(extractKeywords(conversationTexts));
 
-        PriorityQueue<String> summarySentences = new PriorityQueue<>(
-                Comparator.comparingInt((String s) -> -countKeywords(s, topKeywords))
+        // Min-heap on score so the weakest of the current top 3 is evicted first; ties keep the earlier sentence
+        PriorityQueue<ScoredSentence> topSentences = new PriorityQueue<>(
+                Comparator.comparingInt(ScoredSentence::score).thenComparing(ScoredSentence::position, Comparator.reverseOrder())
         );
+        int[] position = {0};
 
         for (String conversation : conversationTexts) {
-            Matcher matcher = sentencePattern.matcher(conversation);
-            while (matcher.find()) {
-                summarySentences.add(matcher.group());
-                if (summarySentences.size() > 3) { // Keep only top 3 sentences
-                    summarySentences.poll();
+            matcher.scoreSentences(conversation, (sentence, score) -> {
+                if (score > 0) {
+                    topSentences.add(new ScoredSentence(sentence, score, position[0]));
+                    if (topSentences.size() > 3) { // Keep only top 3 sentences
+                        topSentences.poll();
+                    }
                 }
-            }
+                position[0]++;
+            });
         }
 
-        // Convert the priority queue to a list and reverse it to get the sentences in the original order
-        List<String> sortedSentences = new ArrayList<>(summarySentences);
-        Collections.reverse(sortedSentences);
-
-        return String.join(" ", sortedSentences);
+        return topSentences.stream()
+                .sorted(Comparator.comparingInt(ScoredSentence::position))
+                .map(ScoredSentence::sentence)
+                .collect(Collectors.joining(" "));
     }
 
-    private int countKeywords(String sentence, Set<String> keywords) {
-        String[] words = sentence.toLowerCase().split("\\s+");
-        int count = 0;
-        for (String word : words) {
-            if (keywords.contains(word)) {
-                count++;
-            }
-        }
-        return count;
-    }
+    private record ScoredSentence(String sentence, int score, int position) {}
 
     private Set<String> extractKeywords(List<String> conversationTexts) {
         Map<String, Integer> keywordFrequency = new HashMap<>();
         for (String conversation : conversationTexts) {
-            String[] words = conversation.toLowerCase().split("\\s+");
+            String[] words = conversation.toLowerCase().split("[^\\p{L}\\p{N}]+");
             for (String word : words) {
-                if (!STOP_WORDS.contains(word)) {
+                if (!word.isEmpty() && !STOP_WORDS.contains(word)) {
                     keywordFrequency.put(word, keywordFrequency.getOrDefault(word, 0) + 1);
                 }
             }
@@ -0,0 +1,439 @@
+package me.xidentified.archgpt.context;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import me.xidentified.archgpt.ArchGPT;
+import me.xidentified.archgpt.ArchGPTConfig;
+import me.xidentified.archgpt.storage.dao.ConversationDAO;
+import me.xidentified.archgpt.storage.model.Conversation;
+import me.xidentified.archgpt.storage.model.ConversationKey;
+import me.xidentified.archgpt.storage.model.MemorySummary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background job that asks the LLM to condense each (player, NPC) transcript into a short
+ * "what this NPC remembers about you" summary, so recall at inquiry time is a single lookup.
+ * <p>
+ * It only runs while the server is quiet (few active conversations, nothing queued on the main
+ * thread) and never spends more than the configured tokens per hour. In direct OpenAI mode it can
+ * hand the work to the Batch API and pick up the results on a later run. A submitted batch is kept
+ * in a file until it ends, so its results are still applied after a restart or reload.
+ */
+public class MemorySummarizer {
+    private static final int TRANSCRIPT_MESSAGES = 40; // Most recent messages sent for summarization
+    private static final int TRANSCRIPT_MAX_CHARS = 6000;
+    private static final int SUMMARY_MAX_TOKENS = 150;
+    // Provider scheduler flow for summary requests, named so it stands apart from NPCs in /archgpt stats
+    public static final String PROVIDER_FLOW = "#memory-summaries";
+
+    private final ArchGPT plugin;
+    private final OpenAIBatchClient batchClient;
+    private final File pendingBatchFile;
+    private final ScheduledExecutorService executorService;
+
+    // Hourly token budget, only written from the executor thread
+    private long hourStartMillis;
+    private final AtomicLong tokensThisHour = new AtomicLong();
+    private final AtomicLong summariesWritten = new AtomicLong();
+
+    // Batch waiting for results, keyed by custom_id. Kept until the batch reaches a final status.
+    private String pendingBatchId;
+    private final Map<String, PendingSummary> pendingSummaries = new HashMap<>();
+
+    public MemorySummarizer(ArchGPT plugin) {
+        this.plugin = plugin;
+        this.batchClient = new OpenAIBatchClient(plugin);
+        this.pendingBatchFile = new File(plugin.getDataFolder(), "storage/memory-batch.json");
+        this.executorService = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    public boolean isEnabled() {
+        return plugin.getConfigHandler().isMemorySummarizationEnabled();
+    }
+
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        long interval = plugin.getConfigHandler().getMemorySummarizationIntervalMinutes();
+        executorService.execute(this::loadPendingBatch);
+        executorService.scheduleWithFixedDelay(this::run, 1, interval, TimeUnit.MINUTES);
+    }
+
+    public void stop() {
+        executorService.shutdownNow();
+    }
+
+    public long getTokensThisHour() {
+        return tokensThisHour.get();
+    }
+
+    public long getSummariesWritten() {
+        return summariesWritten.get();
+    }
+
+    public boolean hasPendingBatch() {
+        return pendingBatchId != null;
+    }
+
+    private void run() {
+        try {
+            resetBudgetIfNewHour();
+            if (pendingBatchId != null) {
+                // A poll that fails is tried again on the next run
+                pollBatch();
+                return;
+            }
+            if (!isLowLoad()) {
+                plugin.debugLog("Skipping memory summarization, server is busy");
+                return;
+            }
+
+            ArchGPTConfig config = plugin.getConfigHandler();
+            ConversationDAO dao = plugin.getConversationDAO();
+            List<ConversationKey> keys = dao.findConversationsToSummarize(config.getMemorySummarizationBatchSize());
+            boolean useBatchApi = !config.isUseMcp() && config.isMemorySummarizationUseBatchApi();
+
+            Map<String, PendingSummary> batch = new HashMap<>();
+            List<String> batchLines = new ArrayList<>();
+            for (ConversationKey key : keys) {
+                PendingSummary pending = buildPendingSummary(dao, key);
+                if (pending == null) continue;
+                if (!reserveTokens(pending.estimatedTokens)) {
+                    plugin.debugLog("Memory summarization token budget for this hour is used up");
+                    break;
+                }
+
+                if (useBatchApi) {
+                    String customId = "memory-" + batchLines.size();
+                    batch.put(customId, pending);
+                    batchLines.add(buildBatchLine(customId, pending.prompt));
+                } else {
+                    String summary;
+                    try {
+                        summary = summarize(pending, config.isUseMcp());
+                    } catch (IOException | RuntimeException e) {
+                        releaseTokens(pending.estimatedTokens);
+                        throw e;
+                    }
+                    saveSummary(dao, pending, summary);
+                }
+            }
+
+            if (!batchLines.isEmpty()) {
+                submitBatch(batch, batchLines);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            plugin.getLogger().warning("Memory summarization failed: " + e.getMessage());
+        }
+    }
+
+    // Nothing is submitted if the upload or the batch creation fails, so the reserved tokens are given back
+    private void submitBatch(Map<String, PendingSummary> batch, List<String> batchLines) throws IOException, InterruptedException {
+        String batchId;
+        try {
+            String fileId = batchClient.uploadBatchFile(String.join("\n", batchLines));
+            batchId = batchClient.createBatch(fileId);
+        } catch (IOException | RuntimeException e) {
+            batch.values().forEach(pending -> releaseTokens(pending.estimatedTokens));
+            throw e;
+        }
+        pendingBatchId = batchId;
+        pendingSummaries.putAll(batch);
+        savePendingBatch();
+        plugin.debugLog("Submitted memory summary batch " + pendingBatchId + " with " + batchLines.size() + " request(s)");
+    }
+
+    private boolean isLowLoad() {
+        ArchGPTConfig config = plugin.getConfigHandler();
+        return plugin.getConversationManager().getSessions().size() <= config.getMemorySummarizationMaxActiveConversations()
+                && plugin.getTickBudgetExecutor().getQueueDepth() == 0
+                && tokensThisHour.get() < config.getMemorySummarizationTokensPerHour();
+    }
+
+    private void resetBudgetIfNewHour() {
+        long now = System.currentTimeMillis();
+        if (now - hourStartMillis >= TimeUnit.HOURS.toMillis(1)) {
+            hourStartMillis = now;
+            tokensThisHour.set(0);
+        }
+    }
+
+    private boolean reserveTokens(long tokens) {
+        if (tokensThisHour.get() + tokens > plugin.getConfigHandler().getMemorySummarizationTokensPerHour()) {
+            return false;
+        }
+        tokensThisHour.addAndGet(tokens);
+        return true;
+    }
+
+    private void releaseTokens(long tokens) {
+        tokensThisHour.updateAndGet(used -> Math.max(0, used - tokens));
+    }
+
+    private PendingSummary buildPendingSummary(ConversationDAO dao, ConversationKey key) {
+        List<Conversation> recent = dao.searchConversations(key.playerUUID(), key.npcName(),
+                plugin.getConfigHandler().getNpcMemoryDuration(), List.of(), TRANSCRIPT_MESSAGES);
+        if (recent.isEmpty()) {
+            return null;
+        }
+
+        // Newest first from the DAO; keep the newest messages that fit, then restore chronological order
+        Deque<String> lines = new ArrayDeque<>();
+        int length = 0;
+        for (Conversation conversation : recent) {
+            String line = (conversation.isFromNPC() ? key.npcName() : "Player") + ": " + conversation.getMessage();
+            if (length + line.length() > TRANSCRIPT_MAX_CHARS) break;
+            lines.addFirst(line);
+            length += line.length() + 1;
+        }
+
+        MemorySummary previous = dao.getMemorySummary(key.playerUUID(), key.npcName(), plugin.getConfigHandler().getNpcMemoryDuration());
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("You are ").append(key.npcName()).append(", an NPC in a Minecraft server. ")
+                .append("In at most three short sentences, written in first person, summarize what you remember about this player ")
+                .append("from your conversations: who they are, what they asked about and anything they told you. ")
+                .append("Only include facts from the text below.\n\n");
+        if (previous != null && previous.summary() != null && !previous.summary().isEmpty()) {
+            prompt.append("What you remembered before: ").append(previous.summary()).append("\n\n");
+        }
+        prompt.append("Conversation:\n").append(String.join("\n", lines));
+
+        long coveredUpTo = recent.get(0).getTimestamp();
+        long estimatedTokens = prompt.length() / 4 + SUMMARY_MAX_TOKENS; // ~4 characters per token
+        return new PendingSummary(key, prompt.toString(), coveredUpTo, estimatedTokens);
+    }
+
+    // Waits its turn for the provider alongside the NPCs' requests, under its own low-weight flow
+    private String summarize(PendingSummary pending, boolean useMcp) throws IOException, InterruptedException {
+        int cost = (int) Math.min(Integer.MAX_VALUE, pending.estimatedTokens);
+        CompletableFuture<String> future = plugin.getProviderScheduler().submit(PROVIDER_FLOW, cost, () -> {
+            try {
+                return useMcp ? summarizeWithMcp(pending) : summarizeWithOpenAI(pending);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Memory summary request was interrupted", e);
+            }
+        });
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException io) throw io.getCause();
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private String summarizeWithOpenAI(PendingSummary pending) throws IOException, InterruptedException {
+        String apiKey = plugin.getConfigHandler().getApiKey();
+        if (apiKey == null || apiKey.isBlank()) {
+            throw new IllegalStateException("Missing OpenAI API key. Set 'api_key' in config.yml or enable MCP.");
+        }
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("https://api.openai.com/v1/chat/completions"))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + apiKey)
+                .POST(HttpRequest.BodyPublishers.ofString(buildChatBody(pending.prompt).toString(), StandardCharsets.UTF_8))
+                .build();
+        HttpResponse<String> response = plugin.getHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("OpenAI API Error: Status Code " + response.statusCode());
+        }
+        JsonObject body = JsonParser.parseString(response.body()).getAsJsonObject();
+        settleTokens(pending, body);
+        return extractChatContent(body);
+    }
+
+    private String summarizeWithMcp(PendingSummary pending) throws IOException, InterruptedException {
+        ArchGPTConfig config = plugin.getConfigHandler();
+        JsonObject mcpRequest = new JsonObject();
+        mcpRequest.addProperty("message", pending.prompt);
+        mcpRequest.addProperty("request_type", "MEMORY_SUMMARY");
+        mcpRequest.addProperty("provider", config.getMcpProvider());
+        mcpRequest.addProperty("model", config.getMcpModel());
+        mcpRequest.addProperty("max_tokens", SUMMARY_MAX_TOKENS);
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(config.getMcpServerUrl()))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(mcpRequest.toString(), StandardCharsets.UTF_8))
+                .build();
+        HttpResponse<String> response = plugin.getHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("MCP Server Error: Status Code " + response.statusCode());
+        }
+        JsonObject body = JsonParser.parseString(response.body()).getAsJsonObject();
+        return body.has("output") ? body.get("output").getAsString().trim() : null;
+    }
+
+    private void pollBatch() throws IOException, InterruptedException {
+        JsonObject batch = batchClient.getBatch(pendingBatchId);
+        String status = batch.get("status").getAsString();
+        switch (status) {
+            case "completed" -> {
+                JsonElement outputFile = batch.get("output_file_id");
+                if (outputFile != null && !outputFile.isJsonNull()) {
+                    applyBatchOutput(batchClient.getFileContent(outputFile.getAsString()));
+                }
+                plugin.debugLog("Memory summary batch " + pendingBatchId + " completed");
+                clearPendingBatch();
+            }
+            case "failed", "expired", "cancelled" -> {
+                plugin.getLogger().warning("Memory summary batch " + pendingBatchId + " ended with status " + status);
+                clearPendingBatch();
+            }
+            default -> plugin.debugLog("Memory summary batch " + pendingBatchId + " is " + status);
+        }
+    }
+
+    private void applyBatchOutput(String jsonl) {
+        ConversationDAO dao = plugin.getConversationDAO();
+        for (String line : jsonl.split("\n")) {
+            if (line.isBlank()) continue;
+            JsonObject result = JsonParser.parseString(line).getAsJsonObject();
+            PendingSummary pending = pendingSummaries.get(result.get("custom_id").getAsString());
+            JsonElement response = result.get("response");
+            if (pending == null || response == null || response.isJsonNull()) continue;
+
+            JsonObject responseObject = response.getAsJsonObject();
+            if (responseObject.get("status_code").getAsInt() == 200) {
+                saveSummary(dao, pending, extractChatContent(responseObject.getAsJsonObject("body")));
+            }
+        }
+    }
+
+    private void clearPendingBatch() {
+        pendingBatchId = null;
+        pendingSummaries.clear();
+        try {
+            Files.deleteIfExists(pendingBatchFile.toPath());
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not delete " + pendingBatchFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    // Prompts are not kept; applying the results only needs each summary's conversation and coverage
+    private void savePendingBatch() {
+        JsonObject root = new JsonObject();
+        root.addProperty("batch_id", pendingBatchId);
+        JsonObject summaries = new JsonObject();
+        pendingSummaries.forEach((customId, pending) -> {
+            JsonObject summary = new JsonObject();
+            summary.addProperty("player", pending.key.playerUUID().toString());
+            summary.addProperty("npc", pending.key.npcName());
+            summary.addProperty("covered_up_to", pending.coveredUpTo);
+            summary.addProperty("estimated_tokens", pending.estimatedTokens);
+            summaries.add(customId, summary);
+        });
+        root.add("summaries", summaries);
+
+        File temp = new File(pendingBatchFile.getParentFile(), pendingBatchFile.getName() + ".tmp");
+        try {
+            Files.createDirectories(temp.getParentFile().toPath());
+            try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(root.toString());
+            }
+            Files.move(temp.toPath(), pendingBatchFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not save memory summary batch " + pendingBatchId + "; its results are lost on restart: " + e.getMessage());
+        }
+    }
+
+    private void loadPendingBatch() {
+        if (!pendingBatchFile.exists()) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(pendingBatchFile.toPath(), StandardCharsets.UTF_8)) {
+            JsonObject root = JsonParser.parseReader(reader).getAsJsonObject();
+            Map<String, PendingSummary> summaries = new HashMap<>();
+            for (Map.Entry<String, JsonElement> entry : root.getAsJsonObject("summaries").entrySet()) {
+                JsonObject summary = entry.getValue().getAsJsonObject();
+                ConversationKey key = new ConversationKey(UUID.fromString(summary.get("player").getAsString()), summary.get("npc").getAsString());
+                summaries.put(entry.getKey(), new PendingSummary(key, null,
+                        summary.get("covered_up_to").getAsLong(), summary.get("estimated_tokens").getAsLong()));
+            }
+            pendingBatchId = root.get("batch_id").getAsString();
+            pendingSummaries.putAll(summaries);
+            plugin.debugLog("Resuming memory summary batch " + pendingBatchId + " with " + summaries.size() + " request(s)");
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().warning("Could not read " + pendingBatchFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private void saveSummary(ConversationDAO dao, PendingSummary pending, String summary) {
+        if (summary == null || summary.isBlank()) {
+            return;
+        }
+        dao.saveMemorySummary(pending.key, new MemorySummary(summary.trim(), pending.coveredUpTo));
+        summariesWritten.incrementAndGet();
+    }
+
+    private String buildBatchLine(String customId, String prompt) {
+        JsonObject line = new JsonObject();
+        line.addProperty("custom_id", customId);
+        line.addProperty("method", "POST");
+        line.addProperty("url", "/v1/chat/completions");
+        line.add("body", buildChatBody(prompt));
+        return line.toString();
+    }
+
+    private JsonObject buildChatBody(String prompt) {
+        JsonObject root = new JsonObject();
+        root.addProperty("model", plugin.getConfigHandler().getChatGptEngine());
+        root.addProperty("max_tokens", SUMMARY_MAX_TOKENS);
+        JsonArray messages = new JsonArray();
+        JsonObject userMsg = new JsonObject();
+        userMsg.addProperty("role", "user");
+        userMsg.addProperty("content", prompt);
+        messages.add(userMsg);
+        root.add("messages", messages);
+        return root;
+    }
+
+    private String extractChatContent(JsonObject body) {
+        try {
+            JsonArray choices = body.getAsJsonArray("choices");
+            if (choices != null && choices.size() > 0) {
+                return choices.get(0).getAsJsonObject().getAsJsonObject("message").get("content").getAsString().trim();
+            }
+        } catch (Exception e) {
+            plugin.getLogger().warning("Failed to parse memory summary response: " + e.getMessage());
+        }
+        return null;
+    }
+
+    // Replace the estimate with what the provider actually reports
+    private void settleTokens(PendingSummary pending, JsonObject body) {
+        JsonObject usage = body.getAsJsonObject("usage");
+        if (usage != null && usage.has("total_tokens")) {
+            tokensThisHour.addAndGet(usage.get("total_tokens").getAsLong() - pending.estimatedTokens);
+        }
+    }
+
+    private record PendingSummary(ConversationKey key, String prompt, long coveredUpTo, long estimatedTokens) {}
+}
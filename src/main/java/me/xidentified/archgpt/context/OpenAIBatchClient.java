@@ -0,0 +1,94 @@
+package me.xidentified.archgpt.context;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import me.xidentified.archgpt.ArchGPT;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Minimal client for OpenAI's asynchronous Batch API: upload a JSONL file of chat completion
+ * requests, start a batch over it, poll the batch and download its output file.
+ * Batches are billed at a discount and complete within the completion window, which suits
+ * memory summaries that nobody is waiting for.
+ */
+public class OpenAIBatchClient {
+    private static final String API_BASE = "https://api.openai.com/v1";
+
+    private final ArchGPT plugin;
+
+    public OpenAIBatchClient(ArchGPT plugin) {
+        this.plugin = plugin;
+    }
+
+    // Uploads the request lines and returns the file id
+    public String uploadBatchFile(String jsonl) throws IOException, InterruptedException {
+        String boundary = "----ArchGPTBatch" + UUID.randomUUID().toString().replace("-", "");
+        String body = "--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"purpose\"\r\n\r\n" +
+                "batch\r\n" +
+                "--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"file\"; filename=\"archgpt-memory.jsonl\"\r\n" +
+                "Content-Type: application/jsonl\r\n\r\n" +
+                jsonl + "\r\n" +
+                "--" + boundary + "--\r\n";
+
+        HttpRequest request = authorized(URI.create(API_BASE + "/files"))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+        return send(request).get("id").getAsString();
+    }
+
+    // Starts a batch of chat completion requests and returns the batch id
+    public String createBatch(String inputFileId) throws IOException, InterruptedException {
+        JsonObject root = new JsonObject();
+        root.addProperty("input_file_id", inputFileId);
+        root.addProperty("endpoint", "/v1/chat/completions");
+        root.addProperty("completion_window", "24h");
+
+        HttpRequest request = authorized(URI.create(API_BASE + "/batches"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(root.toString(), StandardCharsets.UTF_8))
+                .build();
+        return send(request).get("id").getAsString();
+    }
+
+    public JsonObject getBatch(String batchId) throws IOException, InterruptedException {
+        HttpRequest request = authorized(URI.create(API_BASE + "/batches/" + batchId)).GET().build();
+        return send(request);
+    }
+
+    // Raw JSONL content of a batch output file
+    public String getFileContent(String fileId) throws IOException, InterruptedException {
+        HttpRequest request = authorized(URI.create(API_BASE + "/files/" + fileId + "/content")).GET().build();
+        HttpResponse<String> response = plugin.getHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("OpenAI Batch API Error: Status Code " + response.statusCode() + " - " + response.body());
+        }
+        return response.body();
+    }
+
+    private HttpRequest.Builder authorized(URI uri) {
+        String apiKey = plugin.getConfigHandler().getApiKey();
+        if (apiKey == null || apiKey.isBlank()) {
+            throw new IllegalStateException("Missing OpenAI API key. Set 'api_key' in config.yml or enable MCP.");
+        }
+        return HttpRequest.newBuilder()
+                .uri(uri)
+                .header("Authorization", "Bearer " + apiKey);
+    }
+
+    private JsonObject send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = plugin.getHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("OpenAI Batch API Error: Status Code " + response.statusCode() + " - " + response.body());
+        }
+        return JsonParser.parseString(response.body()).getAsJsonObject();
+    }
+}
@@ -4,11 +4,9 @@ import me.xidentified.archgpt.*;
 import me.xidentified.archgpt.utils.ArchGPTConstants;
 import me.xidentified.archgpt.utils.Messages;
 import net.citizensnpcs.api.CitizensAPI;
+import net.citizensnpcs.api.event.NPCRenameEvent;
 import net.citizensnpcs.api.event.NPCRightClickEvent;
 import net.citizensnpcs.api.npc.NPC;
-import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
@@ -26,7 +24,6 @@ public class NPCEventListener implements Listener {
     private final NPCConversationManager conversationManager;
     private final ArchGPTConfig configHandler;
     private final Set<UUID> npcsProcessingGreeting = ConcurrentHashMap.newKeySet();
-    private final Map<UUID, Long> lastChatTimestamps = new ConcurrentHashMap<>();
 
     public NPCEventListener(ArchGPT plugin, NPCConversationManager conversationManager, ArchGPTConfig configHandler) {
         this.plugin = plugin;
@@ -37,8 +34,8 @@ public class NPCEventListener implements Listener {
     // Event listener for right-clicking an NPC
     @EventHandler
     public void onNPCRightClick(NPCRightClickEvent event) {
-        synchronized (conversationManager.npcChatStatesCache) {
-            Player player = event.getClicker();
+        Player player = event.getClicker();
+        conversationManager.getPlayerLocks().withLock(player.getUniqueId(), () -> {
             NPC npc = event.getNPC();
 
             // Check if the NPC is configured in config.yml
@@ -59,7 +56,7 @@ public class NPCEventListener implements Listener {
 
             // Start a new conversation if not already in one
             conversationManager.startConversation(player, npc);
-        }
+        });
     }
 
     // Dynamic priority routing: register handlers at all priorities but only act on the configured one
@@ -87,49 +84,35 @@ public class NPCEventListener implements Listener {
             return;
         }
 
-        synchronized (conversationManager.npcChatStatesCache) {
-            Player player = event.getPlayer();
-            UUID playerUUID = player.getUniqueId();
+        Player player = event.getPlayer();
+        UUID playerUUID = player.getUniqueId();
+        // Only this player's stripe is held, so chat from other players is never blocked
+        conversationManager.getPlayerLocks().withLock(playerUUID, () -> {
             String message = event.getMessage();
-
-            Component playerMessageComponent = Component.text(message);
             HologramManager hologramManager = plugin.getHologramManager(); // Use plugin's instance
-            long now = System.currentTimeMillis();
-            long lastChatTimestamp = lastChatTimestamps.getOrDefault(playerUUID, 0L);
-
-            if (now - lastChatTimestamp < ArchGPTConstants.CHAT_COOLDOWN_MS) {
-                // If the player is trying to chat during the cooldown period
-                plugin.sendMessage(player, Messages.GENERAL_CHAT_COOLDOWN);
-                event.setCancelled(true);
-                return;
-            }
 
             // Check if player is already in conversation
-            if (!conversationManager.playerInConversation(playerUUID)) {
+            ConversationSession session = conversationManager.getSession(playerUUID);
+            if (session == null) {
                 return;
             }
 
             event.setCancelled(true); // Prevent chat messages from going out to everyone
 
             // Handle player reporting state
-            if (conversationManager.getConversationUtils().handleReportingState(player, event)) {
+            if (conversationManager.getConversationUtils().handleReportingState(player, session, event)) {
                 return;
             }
 
             // If the player types 'cancel', end the conversation
-            if (conversationManager.handleCancelCommand(player, PlainTextComponentSerializer.plainText().serialize(playerMessageComponent))) {
+            if (conversationManager.handleCancelCommand(player, message)) {
                 event.setCancelled(true);
                 return;
             }
 
-            // Schedule the message processing on the main thread
-            Bukkit.getScheduler().runTask(plugin, () -> {
-                // Process the player's message on the main thread
-                conversationManager.processPlayerMessage(player, playerMessageComponent, hologramManager);
-            });
-
-            lastChatTimestamps.put(playerUUID, now);
-        }
+            // Messages sent while the NPC is still answering wait their turn in the player's mailbox
+            conversationManager.queuePlayerMessage(player, session, message, hologramManager);
+        });
     }
 
     //Listener for player movement for NPC greetings, and to end conversation if player walks away
@@ -160,7 +143,7 @@ public class NPCEventListener implements Listener {
                     // Get the greeting for the NPC asynchronously
                     conversationManager.getGreeting(player, npc).thenAccept(greeting -> {
                         if (greeting != null) {
-                            Bukkit.getScheduler().runTask(plugin, () -> {
+                            plugin.getTaskScheduler().runAtEntity(player, () -> {
                                 // Utilize the sendNPCMessage method to send the greeting
                                 conversationManager.getConversationUtils().sendNPCMessage(player, npc, greeting);
 
@@ -183,13 +166,14 @@ public class NPCEventListener implements Listener {
     public void onPlayerLeavesConversation(PlayerMoveEvent event) {
         Player player = event.getPlayer();
         UUID playerUUID = player.getUniqueId();
-        NPC npc = conversationManager.playerNPCMap.get(playerUUID);
         Location to = event.getTo();
 
         // Check if the player is in an active conversation
-        if (!this.plugin.getActiveConversations().containsKey(playerUUID)) {
+        ConversationSession session = conversationManager.getSession(playerUUID);
+        if (session == null) {
             return;
         }
+        NPC npc = session.getNpc();
 
         // Handle world change
         if (player.getWorld() != npc.getEntity().getWorld()) {
@@ -211,7 +195,42 @@ public class NPCEventListener implements Listener {
     public void onPlayerLeave(PlayerQuitEvent event) {
         UUID playerUUID = event.getPlayer().getUniqueId();
         npcsProcessingGreeting.remove(playerUUID);
-        plugin.playerSemaphores.remove(playerUUID);
+        // With session sharing, the player may be switching servers rather than leaving the network
+        if (plugin.getSessionStore() != null) {
+            conversationManager.suspendConversation(playerUUID);
+        } else {
+            conversationManager.endConversation(playerUUID);
+        }
+        // Greeting context is cached for players outside conversations too
+        plugin.getContextManager().clearPlayerContext(playerUUID);
+        plugin.getReportManager().forgetPlayer(playerUUID);
+        if (plugin.getPlaceholders() != null) {
+            plugin.getPlaceholders().forgetPlayer(playerUUID);
+        }
+    }
+
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        if (plugin.getSessionStore() != null) {
+            conversationManager.resumeConversation(event.getPlayer());
+        }
+    }
+
+    // Conversation memory follows the NPC to its new name
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onNPCRename(NPCRenameEvent event) {
+        String oldName = event.getOldName();
+        String newName = event.getNewName();
+        if (oldName == null || oldName.equals(newName)) {
+            return;
+        }
+        plugin.getAsyncConversationDAO().renameNpc(oldName, newName, event.getNPC().getId()).thenAccept(renamed -> {
+            if (renamed) {
+                plugin.debugLog("Moved conversation memory of NPC '" + oldName + "' to '" + newName + "'.");
+            } else {
+                plugin.debugLog("Kept conversation memory of NPC '" + oldName + "': nothing stored or '" + newName + "' already has memory.");
+            }
+        });
     }
 
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package me.xidentified.archgpt.reports;
 import lombok.Getter;
 import me.xidentified.archgpt.ArchGPT;
 import me.xidentified.archgpt.storage.model.Report;
+import me.xidentified.archgpt.storage.model.ReportFilter;
 import me.xidentified.archgpt.utils.Messages;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -25,43 +26,78 @@ import java.util.List;
 import java.util.Map;
 
 public class ReportGUI implements InventoryHolder, Listener {
+    private static final int SLOTS_PER_PAGE = 45; // The last row is reserved for navigation
     private final ArchGPT plugin;
     private final Inventory inventory;
+    private final ReportFilter filter;
     @Getter private Map<Integer, Integer> slotToReportIdMap = new HashMap<>();
+    // Keyset cursor of each page reached so far: reports on page n have ids below pageCursors.get(n)
+    private final List<Integer> pageCursors = new ArrayList<>();
     private int currentPage = 0;
-    private final int totalPages;
+    private int totalPages;
+    private boolean loading;
 
     public ReportGUI(ArchGPT plugin) {
+        this(plugin, ReportFilter.ALL);
+    }
+
+    public ReportGUI(ArchGPT plugin, ReportFilter filter) {
         this.plugin = plugin;
-        List<Report> reports = plugin.getReportManager().listReports();
-        int slotsPerPage = 45; // Assuming the last row is reserved for navigation
-        this.totalPages = (int) Math.ceil((double) reports.size() / slotsPerPage);
-        int size = Math.min(54, (slotsPerPage + 9)); // 54 is max inventory size with 9 slots for navigation
+        this.filter = filter;
+        this.pageCursors.add(null);
+        int size = Math.min(54, (SLOTS_PER_PAGE + 9)); // 54 is max inventory size with 9 slots for navigation
         this.inventory = Bukkit.createInventory(this, size, Component.text("Reports"));
     }
 
     public void openGUI(Player admin) {
-        List<Report> reports = plugin.getReportManager().listReports();
-
-        if (reports.isEmpty()) {
-            admin.closeInventory();
-            plugin.sendMessage(admin, Messages.REPORT_NONE_TO_DISPLAY);
-            return;
-        }
+        showPage(admin, currentPage);
+    }
 
-        populateInventoryWithReports(reports);
-        admin.openInventory(this.inventory);
+    // Fetches the page and the total off the main thread and fills the inventory once both arrive
+    private void showPage(Player admin, int page) {
+        if (loading) return;
+        loading = true;
+
+        ReportManager reportManager = plugin.getReportManager();
+        reportManager.countReports(filter)
+                .thenCombine(reportManager.getReportPage(filter, pageCursors.get(page), SLOTS_PER_PAGE), ReportPage::new)
+                .whenComplete((result, e) -> plugin.getTaskScheduler().runAtEntity(admin, () -> {
+                    loading = false;
+                    if (e != null) {
+                        plugin.getLogger().warning("Could not load reports: " + e.getMessage());
+                        return;
+                    }
+                    if (result.reports().isEmpty()) {
+                        if (page > 0) {
+                            // The last report on this page was removed, step back
+                            showPage(admin, page - 1);
+                            return;
+                        }
+                        admin.closeInventory();
+                        plugin.sendMessage(admin, Messages.REPORT_NONE_TO_DISPLAY);
+                        return;
+                    }
+
+                    List<Report> reports = result.reports();
+                    currentPage = page;
+                    totalPages = (int) Math.ceil((double) result.total() / SLOTS_PER_PAGE);
+                    // Later cursors may be stale after deletions, the next page starts below this one
+                    pageCursors.subList(page + 1, pageCursors.size()).clear();
+                    pageCursors.add(reports.get(reports.size() - 1).getId());
+
+                    populateInventoryWithReports(reports);
+                    if (admin.getOpenInventory().getTopInventory() != this.inventory) {
+                        admin.openInventory(this.inventory);
+                    }
+                }));
     }
 
     private void populateInventoryWithReports(List<Report> reports) {
-        int start = this.currentPage * 45;
-        int end = Math.min(start + 45, reports.size());
-
         this.inventory.clear();
         slotToReportIdMap.clear();
 
-        for (int i = start, slot = 0; i < end; i++, slot++) {
-            Report report = reports.get(i);
+        for (int slot = 0; slot < reports.size(); slot++) {
+            Report report = reports.get(slot);
             ItemStack reportItem = createReportItem(report);
             this.inventory.setItem(slot, reportItem);
             slotToReportIdMap.put(slot, report.getId());
@@ -109,15 +145,12 @@ public class ReportGUI implements InventoryHolder, Listener {
             // Handle report deletion
             Integer reportId = reportGUI.getSlotToReportIdMap().get(clickedSlot);
             if (reportId != null) {
-                plugin.getReportManager().deleteReport(reportId);
-                List<Report> updatedReports = plugin.getReportManager().listReports();
-                if (updatedReports.isEmpty()) {
-                    event.getWhoClicked().closeInventory();
-                    plugin.sendMessage(event.getWhoClicked(), Messages.REPORT_NONE_TO_DISPLAY);
-                } else {
-                    reportGUI.openGUI((Player) event.getWhoClicked());
-                    plugin.sendMessage(event.getWhoClicked(), Messages.REPORT_DELETED);
-                }
+                Player admin = (Player) event.getWhoClicked();
+                plugin.getReportManager().deleteReport(reportId).thenRun(() ->
+                        plugin.getTaskScheduler().runAtEntity(admin, () -> {
+                            plugin.sendMessage(admin, Messages.REPORT_DELETED);
+                            reportGUI.showPage(admin, reportGUI.currentPage);
+                        }));
             }
         }
     }
@@ -129,11 +162,14 @@ public class ReportGUI implements InventoryHolder, Listener {
 
     private void handleNavigationClick(ReportGUI reportGUI, int clickedSlot, Player player) {
         if (clickedSlot == this.inventory.getSize() - 2) { // Previous page button slot
-            reportGUI.currentPage = Math.max(0, reportGUI.currentPage - 1);
+            if (reportGUI.currentPage > 0) {
+                reportGUI.showPage(player, reportGUI.currentPage - 1);
+            }
         } else if (clickedSlot == this.inventory.getSize() - 1) { // Next page button slot
-            reportGUI.currentPage = Math.min(reportGUI.totalPages - 1, reportGUI.currentPage + 1);
+            if (reportGUI.currentPage + 1 < reportGUI.totalPages) {
+                reportGUI.showPage(player, reportGUI.currentPage + 1);
+            }
         }
-        reportGUI.openGUI(player);
     }
 
     private void addFormattedLore(List<Component> lore, String fieldName, String content) {
@@ -195,4 +231,5 @@ public class ReportGUI implements InventoryHolder, Listener {
         return this.inventory;
     }
 
-}
\ No newline at end of file
+    private record ReportPage(int total, List<Report> reports) {}
+}
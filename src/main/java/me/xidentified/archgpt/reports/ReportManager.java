@@ -1,25 +1,38 @@
 package me.xidentified.archgpt.reports;
+import java.io.File;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import me.xidentified.archgpt.ArchGPT;
 import me.xidentified.archgpt.storage.dao.MySQLReportDAO;
 import me.xidentified.archgpt.storage.dao.ReportDAO;
 import me.xidentified.archgpt.storage.dao.SQLiteReportDAO;
 import me.xidentified.archgpt.storage.model.Report;
+import me.xidentified.archgpt.storage.model.ReportFilter;
 import org.bukkit.configuration.ConfigurationSection;
 
 public class ReportManager {
+    private static final int MAX_CACHED_COUNTS = 64;
+
+    private final ArchGPT plugin;
     private final ReportDAO reportDAO;
+    // Report totals per filter for the GUI's page count, dropped whenever a report is added or removed
+    private final Map<ReportFilter, Integer> reportCounts = new ConcurrentHashMap<>();
+    // Bumped on every add or remove, so a count taken before the change is not cached after it
+    private final AtomicLong countsGeneration = new AtomicLong();
     public Set<UUID> reportingPlayers = new HashSet<>();
     public Set<UUID> selectingReportTypePlayers = new HashSet<>();
     private final Map<UUID, String> selectedReportTypes = new ConcurrentHashMap<>();
 
     public ReportManager(ArchGPT plugin) {
+        this.plugin = plugin;
         String storageType = plugin.getConfig().getString("storage.type", "sqlite");
         switch (storageType.toLowerCase()) {
             case "sqlite":
-                this.reportDAO = new SQLiteReportDAO(plugin.getDataFolder());
+                this.reportDAO = createSQLiteReportDAO(plugin);
                 break;
             case "mysql":
                 ConfigurationSection dbConfig = plugin.getConfig().getConfigurationSection("storage.mysql");
@@ -28,25 +41,83 @@ public class ReportManager {
                 String database = dbConfig.getString("database");
                 String username = dbConfig.getString("username");
                 String password = dbConfig.getString("password");
-                this.reportDAO = new MySQLReportDAO(host, port, database, username, password);
+                this.reportDAO = new MySQLReportDAO(plugin.getConnectionPools().mysql(host, port, database, username, password),
+                        plugin.getLogger());
                 break;
             default:
                 // Default to SQLite if the specified storage type is not recognized
-                this.reportDAO = new SQLiteReportDAO(plugin.getDataFolder());
+                this.reportDAO = createSQLiteReportDAO(plugin);
                 break;
         }
     }
 
-    public void addReport(Report report) {
-        reportDAO.saveReport(report);
+    // Reports share the conversations database; older installs kept them in a separate reports.db
+    private static ReportDAO createSQLiteReportDAO(ArchGPT plugin) {
+        File databaseFile = new File(plugin.getDataFolder(), "storage/conversations.db");
+        SQLiteReportDAO dao = new SQLiteReportDAO(plugin.getConnectionPools().sqlite(databaseFile), plugin.getLogger());
+        dao.importLegacyDatabase(new File(plugin.getDataFolder(), "storage/reports.db"));
+        return dao;
+    }
+
+    // Saved on the database executor; reports are filed from the chat thread, which must not wait on the insert
+    public CompletableFuture<Void> addReport(Report report) {
+        return plugin.getAsyncConversationDAO().supply(() -> {
+            reportDAO.saveReport(report);
+            invalidateCounts();
+            return null;
+        });
+    }
+
+    // Bulk export and import run on their own thread and call these directly
+    public void forEachReport(int fetchSize, Consumer<Report> consumer) {
+        reportDAO.forEachReport(fetchSize, consumer);
+    }
+
+    // Returns how many were new
+    public int importReports(List<Report> reports) {
+        int inserted = reportDAO.importReports(reports);
+        invalidateCounts();
+        return inserted;
+    }
+
+    // Report queries share the conversation database executor
+    public CompletableFuture<List<Report>> getReportPage(ReportFilter filter, Integer beforeId, int limit) {
+        return plugin.getAsyncConversationDAO().supply(() -> reportDAO.getReports(filter, beforeId, limit));
     }
 
-    public List<Report> listReports() {
-        return reportDAO.getAllReports();
+    public CompletableFuture<Integer> countReports(ReportFilter filter) {
+        Integer cached = reportCounts.get(filter);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return plugin.getAsyncConversationDAO().supply(() -> {
+            long generation = countsGeneration.get();
+            int count = reportDAO.countReports(filter);
+            if (countsGeneration.get() == generation) {
+                if (reportCounts.size() >= MAX_CACHED_COUNTS) {
+                    reportCounts.clear();
+                }
+                reportCounts.put(filter, count);
+                // A change that slipped in before the put may have cleared the cache already
+                if (countsGeneration.get() != generation) {
+                    reportCounts.remove(filter, count);
+                }
+            }
+            return count;
+        });
+    }
+
+    private void invalidateCounts() {
+        countsGeneration.incrementAndGet();
+        reportCounts.clear();
     }
 
-    public void deleteReport(int reportId) {
-        reportDAO.deleteReport(reportId);
+    public CompletableFuture<Void> deleteReport(int reportId) {
+        return plugin.getAsyncConversationDAO().supply(() -> {
+            reportDAO.deleteReport(reportId);
+            invalidateCounts();
+            return null;
+        });
     }
 
     public void enterReportingState(UUID playerUUID) {
@@ -61,6 +132,13 @@ public class ReportManager {
         return reportingPlayers.contains(playerUUID);
     }
 
+    // Drops a player's unfinished report when they leave
+    public void forgetPlayer(UUID playerUUID) {
+        reportingPlayers.remove(playerUUID);
+        selectingReportTypePlayers.remove(playerUUID);
+        selectedReportTypes.remove(playerUUID);
+    }
+
     public String getSelectedReportType(UUID playerUUID) {
         return selectedReportTypes.get(playerUUID);
     }
@@ -69,10 +147,4 @@ public class ReportManager {
         selectedReportTypes.put(playerUUID, reportType);
     }
 
-    public void closeResources() {
-        if (this.reportDAO instanceof MySQLReportDAO) {
-            ((MySQLReportDAO)this.reportDAO).closeConnectionPool();
-        }
-    }
-
 }
@@ -0,0 +1,93 @@
+package me.xidentified.archgpt.scheduler;
+
+import me.xidentified.archgpt.ArchGPT;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.function.Consumer;
+
+// Single main thread: every "region" is the main thread, so everything goes through the BukkitScheduler
+public class BukkitTaskScheduler implements TaskScheduler {
+    private final ArchGPT plugin;
+    private final BukkitScheduler scheduler;
+
+    public BukkitTaskScheduler(ArchGPT plugin) {
+        this.plugin = plugin;
+        this.scheduler = plugin.getServer().getScheduler();
+    }
+
+    @Override
+    public boolean isRegionThreaded() {
+        return false;
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(Entity entity) {
+        return Bukkit.isPrimaryThread();
+    }
+
+    @Override
+    public TaskHandle runGlobal(Runnable task) {
+        return wrap(scheduler.runTask(plugin, task));
+    }
+
+    @Override
+    public TaskHandle runGlobalTimer(Consumer<TaskHandle> task, long delayTicks, long periodTicks) {
+        TaskHandle[] handle = new TaskHandle[1];
+        handle[0] = wrap(scheduler.runTaskTimer(plugin, () -> task.accept(handle[0]), delayTicks, periodTicks));
+        return handle[0];
+    }
+
+    @Override
+    public TaskHandle runAtLocation(Location location, Runnable task) {
+        return runGlobal(task);
+    }
+
+    @Override
+    public TaskHandle runAtEntity(Entity entity, Runnable task) {
+        return runGlobal(task);
+    }
+
+    @Override
+    public TaskHandle runAtEntityLater(Entity entity, Runnable task, long delayTicks) {
+        return wrap(scheduler.runTaskLater(plugin, task, delayTicks));
+    }
+
+    // Main-thread tasks run whether or not the entity is still there, so retired is never needed
+    @Override
+    public TaskHandle runAtEntity(Entity entity, Runnable task, Runnable retired) {
+        return runAtEntity(entity, task);
+    }
+
+    @Override
+    public TaskHandle runAtEntityLater(Entity entity, Runnable task, Runnable retired, long delayTicks) {
+        return runAtEntityLater(entity, task, delayTicks);
+    }
+
+    @Override
+    public TaskHandle runAtEntityTimer(Entity entity, Consumer<TaskHandle> task, long delayTicks, long periodTicks) {
+        return runGlobalTimer(task, delayTicks, periodTicks);
+    }
+
+    @Override
+    public TaskHandle runAsync(Runnable task) {
+        return wrap(scheduler.runTaskAsynchronously(plugin, task));
+    }
+
+    private static TaskHandle wrap(BukkitTask task) {
+        return new TaskHandle() {
+            @Override
+            public void cancel() {
+                task.cancel();
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return task.isCancelled();
+            }
+        };
+    }
+}
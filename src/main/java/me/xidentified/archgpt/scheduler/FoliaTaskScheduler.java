@@ -0,0 +1,117 @@
+package me.xidentified.archgpt.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import me.xidentified.archgpt.ArchGPT;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+
+import java.util.function.Consumer;
+
+// Region-threaded servers: pin work to the entity/region that owns the data it touches
+public class FoliaTaskScheduler implements TaskScheduler {
+    private final ArchGPT plugin;
+
+    public FoliaTaskScheduler(ArchGPT plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean isRegionThreaded() {
+        return true;
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(Entity entity) {
+        return entity != null && Bukkit.isOwnedByCurrentRegion(entity);
+    }
+
+    @Override
+    public TaskHandle runGlobal(Runnable task) {
+        return wrap(Bukkit.getGlobalRegionScheduler().run(plugin, scheduled -> task.run()));
+    }
+
+    @Override
+    public TaskHandle runGlobalTimer(Consumer<TaskHandle> task, long delayTicks, long periodTicks) {
+        return wrap(Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin,
+                scheduled -> task.accept(wrap(scheduled)), Math.max(1L, delayTicks), Math.max(1L, periodTicks)));
+    }
+
+    @Override
+    public TaskHandle runAtLocation(Location location, Runnable task) {
+        return wrap(Bukkit.getRegionScheduler().run(plugin, location, scheduled -> task.run()));
+    }
+
+    @Override
+    public TaskHandle runAtEntity(Entity entity, Runnable task) {
+        if (entity == null) {
+            return runGlobal(task);
+        }
+        // Returns null if the entity was already removed; the task is simply dropped then
+        return wrap(entity.getScheduler().run(plugin, scheduled -> task.run(), null));
+    }
+
+    @Override
+    public TaskHandle runAtEntityLater(Entity entity, Runnable task, long delayTicks) {
+        if (entity == null) {
+            return wrap(Bukkit.getGlobalRegionScheduler().runDelayed(plugin, scheduled -> task.run(), Math.max(1L, delayTicks)));
+        }
+        return wrap(entity.getScheduler().runDelayed(plugin, scheduled -> task.run(), null, Math.max(1L, delayTicks)));
+    }
+
+    @Override
+    public TaskHandle runAtEntity(Entity entity, Runnable task, Runnable retired) {
+        if (entity == null) {
+            return runGlobal(task);
+        }
+        return retireIfMissing(entity.getScheduler().run(plugin, scheduled -> task.run(), retired), retired);
+    }
+
+    @Override
+    public TaskHandle runAtEntityLater(Entity entity, Runnable task, Runnable retired, long delayTicks) {
+        if (entity == null) {
+            return runAtEntityLater(null, task, delayTicks);
+        }
+        return retireIfMissing(entity.getScheduler().runDelayed(plugin, scheduled -> task.run(), retired, Math.max(1L, delayTicks)), retired);
+    }
+
+    @Override
+    public TaskHandle runAtEntityTimer(Entity entity, Consumer<TaskHandle> task, long delayTicks, long periodTicks) {
+        if (entity == null) {
+            return runGlobalTimer(task, delayTicks, periodTicks);
+        }
+        return wrap(entity.getScheduler().runAtFixedRate(plugin,
+                scheduled -> task.accept(wrap(scheduled)), null, Math.max(1L, delayTicks), Math.max(1L, periodTicks)));
+    }
+
+    @Override
+    public TaskHandle runAsync(Runnable task) {
+        return wrap(Bukkit.getAsyncScheduler().runNow(plugin, scheduled -> task.run()));
+    }
+
+    // An entity removed before scheduling gets neither the task nor the retired callback, so run it here
+    private static TaskHandle retireIfMissing(ScheduledTask task, Runnable retired) {
+        if (task == null) {
+            retired.run();
+            return TaskHandle.NONE;
+        }
+        return wrap(task);
+    }
+
+    private static TaskHandle wrap(ScheduledTask task) {
+        if (task == null) {
+            return TaskHandle.NONE;
+        }
+        return new TaskHandle() {
+            @Override
+            public void cancel() {
+                task.cancel();
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return task.isCancelled();
+            }
+        };
+    }
+}
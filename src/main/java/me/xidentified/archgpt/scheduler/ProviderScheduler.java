@@ -0,0 +1,226 @@
+package me.xidentified.archgpt.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Shares the AI provider between NPCs. Requests wait in one queue per NPC and are started, at most
+ * {@code max_concurrent} at a time, by deficit round robin: an NPC with waiting requests is served
+ * while its credit covers the estimated token cost of its next request, then earns
+ * {@link #QUANTUM} x its weight in credit and the next NPC takes its turn. A crowded NPC's backlog
+ * therefore only delays that NPC, and while several are busy each gets provider time in proportion
+ * to its weight. Each NPC is also held to its own concurrency cap.
+ * <p>
+ * Requests run on daemon threads, so the blocking HTTP call never holds a server thread.
+ */
+public class ProviderScheduler {
+    // Credit a weight-1 NPC earns per turn, in estimated tokens (a short exchange or two)
+    public static final int QUANTUM = 1000;
+
+    public record Share(int weight, int maxConcurrent) {}
+
+    public record Limits(int maxConcurrent, Share defaultShare, Map<String, Share> npcShares) {
+        public Limits {
+            npcShares = Map.copyOf(npcShares);
+        }
+
+        public Share shareFor(String npcName) {
+            return npcShares.getOrDefault(npcName, defaultShare);
+        }
+    }
+
+    public record NpcStats(String npcName, int weight, int maxConcurrent, int queued, int running,
+                           long started, double averageWaitMillis, double maxWaitMillis) {}
+
+    private final ExecutorService executor;
+    private final Map<String, Flow> flows = new HashMap<>(); // Every NPC seen so far, kept for its metrics
+    private final List<Flow> active = new ArrayList<>();     // NPCs with waiting requests, in turn order
+    private int cursor;
+    private int running;
+    private Limits limits;
+    private boolean shutdown;
+
+    public ProviderScheduler(Limits limits) {
+        this.limits = limits;
+        // Threads are only created up to max_concurrent, since that is all that ever runs at once
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "ArchGPT-Provider");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Applies reloaded weights and caps; requests already queued keep their place
+    public synchronized void configure(Limits limits) {
+        this.limits = limits;
+        dispatch();
+    }
+
+    /**
+     * Queues a provider request for an NPC.
+     *
+     * @param cost Estimated tokens the request will use, charged against the NPC's credit.
+     * @return Completes with the request's result once it has had its turn and run.
+     */
+    public <T> CompletableFuture<T> submit(String npcName, int cost, Supplier<T> work) {
+        Job<T> job = new Job<>(Math.max(1, cost), work);
+        synchronized (this) {
+            if (shutdown) {
+                job.future.completeExceptionally(new RejectedExecutionException("Provider scheduler is shut down"));
+                return job.future;
+            }
+            Flow flow = flows.computeIfAbsent(npcName, Flow::new);
+            if (flow.queue.isEmpty()) {
+                active.add(flow);
+            }
+            flow.queue.addLast(job);
+            dispatch();
+        }
+        return job.future;
+    }
+
+    // Fails whatever is still queued and interrupts requests in flight
+    public void shutdown() {
+        List<Job<?>> abandoned = new ArrayList<>();
+        synchronized (this) {
+            shutdown = true;
+            for (Flow flow : active) {
+                abandoned.addAll(flow.queue);
+                flow.queue.clear();
+            }
+            active.clear();
+        }
+        executor.shutdownNow();
+        for (Job<?> job : abandoned) {
+            job.future.completeExceptionally(new RejectedExecutionException("Provider scheduler is shut down"));
+        }
+    }
+
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    public synchronized int getMaxConcurrent() {
+        return limits.maxConcurrent();
+    }
+
+    public synchronized List<NpcStats> getNpcStats() {
+        List<NpcStats> stats = new ArrayList<>();
+        for (Flow flow : flows.values()) {
+            Share share = limits.shareFor(flow.npcName);
+            stats.add(new NpcStats(flow.npcName, share.weight(), share.maxConcurrent(), flow.queue.size(),
+                    flow.running, flow.started,
+                    flow.started == 0 ? 0 : flow.totalWaitNanos / 1_000_000.0 / flow.started,
+                    flow.maxWaitNanos / 1_000_000.0));
+        }
+        stats.sort((a, b) -> a.npcName().compareToIgnoreCase(b.npcName()));
+        return stats;
+    }
+
+    // Starts queued requests until the provider is at capacity or every waiting NPC is at its cap
+    private void dispatch() {
+        while (!shutdown && running < limits.maxConcurrent()) {
+            Flow flow = nextFlow();
+            if (flow == null) {
+                return;
+            }
+            Job<?> job = flow.queue.pollFirst();
+            flow.deficit -= job.cost;
+            if (flow.queue.isEmpty()) {
+                // An NPC with nothing waiting doesn't bank credit; the cursor now points at the next NPC
+                flow.deficit = 0;
+                active.remove(cursor);
+            }
+
+            long waited = System.nanoTime() - job.queuedAt;
+            flow.started++;
+            flow.totalWaitNanos += waited;
+            flow.maxWaitNanos = Math.max(flow.maxWaitNanos, waited);
+            flow.running++;
+            running++;
+            executor.execute(() -> job.run(() -> finished(flow)));
+        }
+    }
+
+    // The NPC whose request goes next, left under the cursor, or null if none may start one now
+    private Flow nextFlow() {
+        int capped = 0;
+        while (capped < active.size()) {
+            if (cursor >= active.size()) {
+                cursor = 0;
+            }
+            Flow flow = active.get(cursor);
+            Share share = limits.shareFor(flow.npcName);
+            if (flow.running >= share.maxConcurrent()) {
+                capped++;
+                cursor++;
+                continue;
+            }
+            if (flow.deficit >= flow.queue.peekFirst().cost) {
+                return flow;
+            }
+            // Out of credit: this NPC's turn ends with its next turn's credit
+            flow.deficit += (long) QUANTUM * share.weight();
+            capped = 0;
+            cursor++;
+        }
+        return null;
+    }
+
+    private synchronized void finished(Flow flow) {
+        flow.running--;
+        running--;
+        dispatch();
+    }
+
+    private static final class Flow {
+        private final String npcName;
+        private final Deque<Job<?>> queue = new ArrayDeque<>();
+        private long deficit;
+        private int running;
+
+        // Metrics
+        private long started;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+
+        private Flow(String npcName) {
+            this.npcName = npcName;
+        }
+    }
+
+    private static final class Job<T> {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long queuedAt = System.nanoTime();
+        private final int cost;
+        private final Supplier<T> work;
+
+        private Job(int cost, Supplier<T> work) {
+            this.cost = cost;
+            this.work = work;
+        }
+
+        // Frees the slot before completing, so callbacks on the result don't hold up the next request
+        private void run(Runnable release) {
+            T result;
+            try {
+                result = work.get();
+            } catch (Throwable t) {
+                release.run();
+                future.completeExceptionally(t);
+                return;
+            }
+            release.run();
+            future.complete(result);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package me.xidentified.archgpt.scheduler;
+
+/**
+ * Platform-neutral handle to a scheduled task, so callers can cancel work without caring
+ * whether it was scheduled on the Bukkit scheduler or a Folia region/entity scheduler.
+ */
+public interface TaskHandle {
+
+    TaskHandle NONE = new TaskHandle() {
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return true;
+        }
+    };
+
+    void cancel();
+
+    boolean isCancelled();
+}
@@ -0,0 +1,59 @@
+package me.xidentified.archgpt.scheduler;
+
+import me.xidentified.archgpt.ArchGPT;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+
+import java.util.function.Consumer;
+
+/**
+ * Schedules work on the thread that owns the world state it touches. On a regular server that is
+ * always the main thread; on Folia it is the region thread owning the entity or location.
+ */
+public interface TaskScheduler {
+
+    static TaskScheduler create(ArchGPT plugin) {
+        if (isFolia()) {
+            return new FoliaTaskScheduler(plugin);
+        }
+        return new BukkitTaskScheduler(plugin);
+    }
+
+    static boolean isFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    // True when there is no single main thread and work must be pinned to regions
+    boolean isRegionThreaded();
+
+    // True if the current thread may safely access the given entity
+    boolean isOwnedByCurrentThread(Entity entity);
+
+    TaskHandle runGlobal(Runnable task);
+
+    TaskHandle runGlobalTimer(Consumer<TaskHandle> task, long delayTicks, long periodTicks);
+
+    TaskHandle runAtLocation(Location location, Runnable task);
+
+    TaskHandle runAtEntity(Entity entity, Runnable task);
+
+    TaskHandle runAtEntityLater(Entity entity, Runnable task, long delayTicks);
+
+    /**
+     * Like {@link #runAtEntity(Entity, Runnable)}, but if the entity is removed (a player logging out,
+     * an NPC despawning) before the task gets to run, {@code retired} runs instead. Use this when
+     * something waits on the task, so it isn't left waiting forever.
+     */
+    TaskHandle runAtEntity(Entity entity, Runnable task, Runnable retired);
+
+    TaskHandle runAtEntityLater(Entity entity, Runnable task, Runnable retired, long delayTicks);
+
+    TaskHandle runAtEntityTimer(Entity entity, Consumer<TaskHandle> task, long delayTicks, long periodTicks);
+
+    TaskHandle runAsync(Runnable task);
+}
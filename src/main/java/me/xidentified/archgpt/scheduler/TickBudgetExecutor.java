@@ -0,0 +1,174 @@
+package me.xidentified.archgpt.scheduler;
+
+import lombok.Getter;
+import me.xidentified.archgpt.ArchGPT;
+import org.bukkit.entity.Entity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Main-thread work queue that spends at most a fixed number of nanoseconds per tick.
+ * Jobs are drained in priority order (FIFO within a priority); whatever does not fit in
+ * the budget stays queued for the next tick instead of piling onto the current one.
+ * <p>
+ * On region-threaded servers there is no single tick to protect, so jobs are handed straight
+ * to the owning entity's region thread instead.
+ */
+public class TickBudgetExecutor {
+
+    public enum Priority {
+        HIGH,   // Context capture for an active conversation
+        NORMAL, // Player message handling
+        LOW     // Greetings and other cosmetic work
+    }
+
+    private final ArchGPT plugin;
+    private final PriorityBlockingQueue<Job<?>> queue = new PriorityBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final long budgetNanos;
+    private TaskHandle drainTask;
+
+    // Metrics
+    @Getter private volatile long lastTickNanos;
+    @Getter private volatile long maxTickNanos;
+    @Getter private volatile int lastTickJobs;
+    private final AtomicLong totalDeferrals = new AtomicLong(); // Jobs that waited past their first tick, each counted once
+    private final AtomicLong totalJobs = new AtomicLong();
+
+    public TickBudgetExecutor(ArchGPT plugin, long budgetNanos) {
+        this.plugin = plugin;
+        this.budgetNanos = budgetNanos;
+    }
+
+    public void start() {
+        if (drainTask == null && !plugin.getTaskScheduler().isRegionThreaded()) {
+            drainTask = plugin.getTaskScheduler().runGlobalTimer(handle -> drain(), 1L, 1L);
+        }
+    }
+
+    public void stop() {
+        if (drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+        // Run anything left so pending futures don't hang forever
+        Job<?> job;
+        while ((job = queue.poll()) != null) {
+            job.run();
+        }
+    }
+
+    /**
+     * Queues work that touches the given entity (player or NPC) and must run on its owning thread.
+     *
+     * @param priority Drain order relative to other queued jobs.
+     * @param owner    The entity the job reads or modifies, or null for world-independent work.
+     * @param work     The job itself.
+     * @return A future completed with the job's result on the thread that ran it.
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, Entity owner, Supplier<T> work) {
+        Job<T> job = new Job<>(priority, sequence.getAndIncrement(), work);
+        if (plugin.getTaskScheduler().isRegionThreaded()) {
+            plugin.getTaskScheduler().runAtEntity(owner, job::run, job::retire);
+            totalJobs.incrementAndGet();
+        } else {
+            queue.add(job);
+        }
+        return job.future;
+    }
+
+    public CompletableFuture<Void> submit(Priority priority, Entity owner, Runnable work) {
+        return submit(priority, owner, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    private void drain() {
+        long start = System.nanoTime();
+        long queuedBefore = sequence.get(); // Jobs submitted during this tick haven't missed one yet
+        int ran = 0;
+        Job<?> job;
+        // Always run at least one job so a single oversized job can't starve the queue
+        while ((job = queue.poll()) != null) {
+            job.run();
+            ran++;
+            if (System.nanoTime() - start >= budgetNanos) {
+                break;
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        lastTickNanos = elapsed;
+        lastTickJobs = ran;
+        if (elapsed > maxTickNanos) {
+            maxTickNanos = elapsed;
+        }
+        totalJobs.addAndGet(ran);
+
+        int deferred = 0;
+        for (Job<?> waiting : queue) {
+            if (waiting.sequence >= queuedBefore) continue;
+            deferred++;
+            if (!waiting.deferred) {
+                waiting.deferred = true;
+                totalDeferrals.incrementAndGet();
+            }
+        }
+        if (deferred > 0) {
+            plugin.debugLog("Tick budget exhausted after " + ran + " jobs (" + elapsed / 1000 + "us), deferred " + deferred + " to next tick");
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getTotalDeferrals() {
+        return totalDeferrals.get();
+    }
+
+    public long getTotalJobs() {
+        return totalJobs.get();
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    private static final class Job<T> implements Comparable<Job<?>> {
+        private final Priority priority;
+        private final long sequence;
+        private final Supplier<T> work;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private boolean deferred; // Only read and set by drain, on the main thread
+
+        private Job(Priority priority, long sequence, Supplier<T> work) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.work = work;
+        }
+
+        private void run() {
+            try {
+                future.complete(work.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+
+        // The owner was removed before the job could run on its region
+        private void retire() {
+            future.completeExceptionally(new IllegalStateException("Entity removed before the job could run"));
+        }
+
+        @Override
+        public int compareTo(Job<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package me.xidentified.archgpt.storage;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import me.xidentified.archgpt.ArchGPT;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One connection pool per database, shared by every DAO that talks to it: a HikariCP pool for
+ * MySQL and a {@link SQLiteEngine} for SQLite files. Settings come from {@code storage.pool.*}
+ * and {@code storage.sqlite.*} and are applied when a database is first opened, so changing
+ * them requires a restart.
+ */
+public class ConnectionPools {
+    private final ArchGPT plugin;
+    private final Map<String, HikariDataSource> pools = new ConcurrentHashMap<>();
+    private final Map<String, PoolMetrics> metrics = new ConcurrentHashMap<>();
+    private final Map<String, SQLiteEngine> sqliteEngines = new ConcurrentHashMap<>();
+
+    public ConnectionPools(ArchGPT plugin) {
+        this.plugin = plugin;
+    }
+
+    public DataSource mysql(String host, int port, String database, String username, String password) {
+        String jdbcUrl = "jdbc:mysql://" + host + ":" + port + "/" + database + "?useSSL=false";
+        return pools.computeIfAbsent(jdbcUrl, url -> {
+            FileConfiguration config = plugin.getConfig();
+            HikariConfig hikariConfig = baseConfig("archgpt-mysql-" + database, url);
+            hikariConfig.setUsername(username);
+            hikariConfig.setPassword(password);
+            hikariConfig.setMaximumPoolSize(Math.max(1, config.getInt("storage.pool.maximum_pool_size", 10)));
+            hikariConfig.setMinimumIdle(Math.max(0, config.getInt("storage.pool.minimum_idle", 2)));
+
+            // Reuse prepared statements across calls instead of re-parsing them on every query
+            hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
+            hikariConfig.addDataSourceProperty("prepStmtCacheSize", "250");
+            hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            hikariConfig.addDataSourceProperty("useServerPrepStmts", "true");
+            hikariConfig.addDataSourceProperty("rewriteBatchedStatements", "true");
+            // Lets forEachConversation stream with a fetch size instead of buffering the whole result
+            hikariConfig.addDataSourceProperty("useCursorFetch", "true");
+            return open(hikariConfig);
+        });
+    }
+
+    // SQLite gets one managed engine per file rather than a generic pool, see SQLiteEngine
+    public SQLiteEngine sqlite(File databaseFile) {
+        return sqliteEngines.computeIfAbsent(databaseFile.getAbsolutePath(), path -> {
+            FileConfiguration config = plugin.getConfig();
+            try {
+                return new SQLiteEngine(databaseFile,
+                        config.getInt("storage.sqlite.readers", 3),
+                        config.getInt("storage.sqlite.cache_size_kb", 16384),
+                        config.getLong("storage.sqlite.mmap_size_mb", 256) * 1024L * 1024L);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not open SQLite database " + databaseFile.getName() + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    public List<PoolMetrics> getMetrics() {
+        return new ArrayList<>(metrics.values());
+    }
+
+    public List<SQLiteEngine> getSqliteEngines() {
+        return new ArrayList<>(sqliteEngines.values());
+    }
+
+    public void closeAll() {
+        pools.values().forEach(HikariDataSource::close);
+        pools.clear();
+        sqliteEngines.values().forEach(SQLiteEngine::close);
+        sqliteEngines.clear();
+        metrics.clear();
+    }
+
+    private HikariConfig baseConfig(String poolName, String jdbcUrl) {
+        FileConfiguration config = plugin.getConfig();
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName(poolName);
+        hikariConfig.setJdbcUrl(jdbcUrl);
+        hikariConfig.setConnectionTimeout(Math.max(250, config.getLong("storage.pool.connection_timeout_ms", 5000)));
+        hikariConfig.setMaxLifetime(Math.max(30000, config.getLong("storage.pool.max_lifetime_ms", 1800000)));
+        return hikariConfig;
+    }
+
+    private HikariDataSource open(HikariConfig hikariConfig) {
+        PoolMetrics poolMetrics = new PoolMetrics(hikariConfig.getPoolName());
+        hikariConfig.setMetricsTrackerFactory((poolName, poolStats) -> poolMetrics);
+        HikariDataSource dataSource = new HikariDataSource(hikariConfig);
+        poolMetrics.bind(dataSource);
+        metrics.put(hikariConfig.getPoolName(), poolMetrics);
+        return dataSource;
+    }
+}
@@ -0,0 +1,400 @@
+package me.xidentified.archgpt.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import me.xidentified.archgpt.ArchGPT;
+import me.xidentified.archgpt.storage.dao.WriteBehindConversationDAO;
+import me.xidentified.archgpt.storage.model.Conversation;
+import me.xidentified.archgpt.storage.model.ConversationKey;
+import me.xidentified.archgpt.storage.model.MemorySummary;
+import me.xidentified.archgpt.storage.model.Report;
+import net.kyori.adventure.text.Component;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports and imports every conversation message, memory summary and report as gzip-compressed
+ * JSON lines: a header line, then one object per row. Export walks database cursors straight into
+ * the file and import reads it back a line at a time, writing in batches, so memory use does not
+ * grow with the size of the history. Exports are written next to their final name and only moved
+ * there once complete; a read error discards the partial file. Import skips messages and reports
+ * that are already stored, so a file can be imported again safely. One transfer runs at a time, on
+ * its own thread.
+ */
+public class DataTransfer {
+    public static final String EXTENSION = ".jsonl.gz";
+    private static final String FORMAT = "archgpt-export";
+    private static final int FORMAT_VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long PROGRESS_INTERVAL_MILLIS = 5000;
+    private static final DateTimeFormatter FILE_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ArchGPT plugin;
+    private final File directory;
+    private final int fetchSize;
+    private final int batchSize;
+    private final ExecutorService executorService;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+
+    // Rows handled so far; bytes is the position in the compressed file. duplicates counts imported rows already stored.
+    public record Progress(long conversations, long summaries, long reports, long skipped, long duplicates, long bytes, long elapsedMillis) {
+        public long rows() {
+            return conversations + summaries + reports;
+        }
+    }
+
+    private static final class Counter {
+        final long start = System.currentTimeMillis();
+        long lastReport = start;
+        long conversations;
+        long summaries;
+        long reports;
+        long skipped;
+        long duplicates;
+
+        Progress snapshot(long bytes) {
+            return new Progress(conversations, summaries, reports, skipped, duplicates, bytes, System.currentTimeMillis() - start);
+        }
+    }
+
+    public DataTransfer(ArchGPT plugin) {
+        this.plugin = plugin;
+        this.directory = new File(plugin.getDataFolder(), "exports");
+        this.fetchSize = Math.max(1, plugin.getConfig().getInt("storage.transfer.fetch_size", 1000));
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("storage.transfer.batch_size", 1000));
+        this.executorService = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ArchGPT-Transfer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public File newExportFile() {
+        return new File(directory, "archgpt-" + LocalDateTime.now().format(FILE_NAME_FORMAT) + EXTENSION);
+    }
+
+    // Only plain file names inside the exports folder, so a command can't read files elsewhere
+    public File findExport(String name) {
+        if (name.contains("/") || name.contains("\\") || name.startsWith(".")) return null;
+        File file = new File(directory, name.endsWith(EXTENSION) ? name : name + EXTENSION);
+        return file.isFile() ? file : null;
+    }
+
+    public List<String> listExports() {
+        List<String> names = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files != null) {
+            for (File file : files) {
+                names.add(file.getName());
+            }
+        }
+        return names;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    // Both return null without starting if another transfer is still running.
+    // onProgress is called on the transfer thread every few seconds.
+    public CompletableFuture<Progress> export(File file, Consumer<Progress> onProgress) {
+        return start(() -> runExport(file, onProgress));
+    }
+
+    public CompletableFuture<Progress> importFile(File file, Consumer<Progress> onProgress) {
+        return start(() -> runImport(file, onProgress));
+    }
+
+    private interface Transfer {
+        Progress run() throws IOException;
+    }
+
+    private CompletableFuture<Progress> start(Transfer transfer) {
+        if (!running.compareAndSet(false, true)) return null;
+        CompletableFuture<Progress> result = new CompletableFuture<>();
+        try {
+            executorService.execute(() -> {
+                try {
+                    result.complete(transfer.run());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            running.set(false);
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private Progress runExport(File file, Consumer<Progress> onProgress) throws IOException {
+        Files.createDirectories(directory.toPath());
+        File partial = new File(directory, file.getName() + ".part");
+        Counter counter = new Counter();
+        try (FileChannel channel = FileChannel.open(partial.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             GZIPOutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            JsonObject header = new JsonObject();
+            header.addProperty("type", "header");
+            header.addProperty("format", FORMAT);
+            header.addProperty("version", FORMAT_VERSION);
+            header.addProperty("created", System.currentTimeMillis());
+            writeLine(writer, header);
+
+            // The DAOs call back while their cursor is open, so writes surface as unchecked exceptions.
+            // A DAO that can't read its rows to the end throws too, and the partial file is deleted below.
+            try {
+                plugin.getConversationDAO().forEachConversation(0, fetchSize, conversation -> {
+                    writeLine(writer, toJson(conversation));
+                    counter.conversations++;
+                    tick(counter, channel, onProgress);
+                });
+                plugin.getConversationDAO().forEachMemorySummary(fetchSize, (key, summary) -> {
+                    writeLine(writer, toJson(key, summary));
+                    counter.summaries++;
+                    tick(counter, channel, onProgress);
+                });
+                plugin.getReportManager().forEachReport(fetchSize, report -> {
+                    writeLine(writer, toJson(report));
+                    counter.reports++;
+                    tick(counter, channel, onProgress);
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+            gzip.finish();
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial.toPath());
+            throw e;
+        }
+        Files.move(partial.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return counter.snapshot(file.length());
+    }
+
+    private Progress runImport(File file, Consumer<Progress> onProgress) throws IOException {
+        Counter counter = new Counter();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(
+                     new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            if (!isHeader(reader.readLine())) {
+                throw new IOException(file.getName() + " is not an ArchGPT export");
+            }
+
+            List<Conversation> conversations = new ArrayList<>(batchSize);
+            List<Report> reports = new ArrayList<>(batchSize);
+            long lineNumber = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                try {
+                    JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+                    switch (json.get("type").getAsString()) {
+                        case "conversation" -> conversations.add(readConversation(json));
+                        case "summary" -> {
+                            plugin.getConversationDAO().saveMemorySummary(
+                                    new ConversationKey(UUID.fromString(json.get("player").getAsString()), json.get("npc").getAsString()),
+                                    new MemorySummary(json.get("summary").getAsString(), json.get("updated_at").getAsLong()));
+                            counter.summaries++;
+                        }
+                        case "report" -> reports.add(readReport(json));
+                        default -> throw new IllegalArgumentException("unknown type " + json.get("type"));
+                    }
+                } catch (RuntimeException e) {
+                    counter.skipped++;
+                    plugin.debugLog("Skipped line " + lineNumber + " of " + file.getName() + ": " + e.getMessage());
+                }
+
+                if (conversations.size() >= batchSize) {
+                    saveConversations(conversations, counter);
+                }
+                if (reports.size() >= batchSize) {
+                    saveReports(reports, counter);
+                }
+                tick(counter, channel, onProgress);
+            }
+            saveConversations(conversations, counter);
+            saveReports(reports, counter);
+            return counter.snapshot(channel.size());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private boolean isHeader(String line) {
+        if (line == null) return false;
+        try {
+            JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+            return FORMAT.equals(json.get("format").getAsString()) && json.get("version").getAsInt() <= FORMAT_VERSION;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    // Straight to storage: the write-behind queue is unbounded, and the hot tier only ever appends newer turns
+    private void saveConversations(List<Conversation> batch, Counter counter) {
+        if (batch.isEmpty()) return;
+        List<Conversation> fresh = withoutStored(batch);
+        if (!fresh.isEmpty()) {
+            WriteBehindConversationDAO writer = plugin.getConversationWriter();
+            if (writer != null) {
+                writer.saveConversationsDirectly(fresh);
+            } else {
+                plugin.getConversationDAO().saveConversations(fresh);
+            }
+        }
+        counter.conversations += fresh.size();
+        counter.duplicates += batch.size() - fresh.size();
+        batch.clear();
+    }
+
+    // Drops messages already stored with the same player, NPC, timestamp, sender and text, or repeated in the batch.
+    // Each conversation in the batch is checked with one read over the batch's time range.
+    private List<Conversation> withoutStored(List<Conversation> batch) {
+        Map<ConversationKey, List<Conversation>> byConversation = new LinkedHashMap<>();
+        for (Conversation conversation : batch) {
+            byConversation.computeIfAbsent(new ConversationKey(conversation.getPlayerUUID(), conversation.getNpcName()),
+                    key -> new ArrayList<>()).add(conversation);
+        }
+
+        List<Conversation> fresh = new ArrayList<>(batch.size());
+        for (Map.Entry<ConversationKey, List<Conversation>> conversation : byConversation.entrySet()) {
+            long from = Long.MAX_VALUE;
+            long to = Long.MIN_VALUE;
+            for (Conversation message : conversation.getValue()) {
+                from = Math.min(from, message.getTimestamp());
+                to = Math.max(to, message.getTimestamp());
+            }
+            Set<String> seen = new HashSet<>();
+            for (Conversation stored : plugin.getConversationDAO().getConversationsBetween(conversation.getKey(), from, to)) {
+                seen.add(fingerprint(stored));
+            }
+            for (Conversation message : conversation.getValue()) {
+                if (seen.add(fingerprint(message))) {
+                    fresh.add(message);
+                }
+            }
+        }
+        return fresh;
+    }
+
+    private static String fingerprint(Conversation conversation) {
+        return conversation.getTimestamp() + (conversation.isFromNPC() ? "N" : "P") + conversation.getMessage();
+    }
+
+    private void saveReports(List<Report> batch, Counter counter) {
+        if (batch.isEmpty()) return;
+        int inserted = plugin.getReportManager().importReports(batch);
+        counter.reports += inserted;
+        counter.duplicates += batch.size() - inserted;
+        batch.clear();
+    }
+
+    private void tick(Counter counter, FileChannel channel, Consumer<Progress> onProgress) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Transfer cancelled");
+        }
+        long now = System.currentTimeMillis();
+        if (now - counter.lastReport < PROGRESS_INTERVAL_MILLIS) return;
+        counter.lastReport = now;
+        try {
+            onProgress.accept(counter.snapshot(channel.position()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLine(Writer writer, JsonObject json) {
+        try {
+            gson.toJson(json, writer);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static JsonObject toJson(Conversation conversation) {
+        JsonObject json = new JsonObject();
+        json.addProperty("type", "conversation");
+        json.addProperty("player", conversation.getPlayerUUID().toString());
+        json.addProperty("npc", conversation.getNpcName());
+        json.addProperty("message", conversation.getMessage());
+        json.addProperty("timestamp", conversation.getTimestamp());
+        json.addProperty("from_npc", conversation.isFromNPC());
+        return json;
+    }
+
+    private static JsonObject toJson(ConversationKey key, MemorySummary summary) {
+        JsonObject json = new JsonObject();
+        json.addProperty("type", "summary");
+        json.addProperty("player", key.playerUUID().toString());
+        json.addProperty("npc", key.npcName());
+        json.addProperty("summary", summary.summary());
+        json.addProperty("updated_at", summary.updatedAt());
+        return json;
+    }
+
+    private static JsonObject toJson(Report report) {
+        JsonObject json = new JsonObject();
+        json.addProperty("type", "report");
+        json.addProperty("player", report.getPlayerName());
+        json.addProperty("npc", report.getNpcName());
+        json.addProperty("report_type", report.getReportType());
+        json.addProperty("feedback", report.getFeedback());
+        json.addProperty("npc_response", report.getNpcResponse());
+        json.addProperty("timestamp", report.getFormattedTimestamp());
+        return json;
+    }
+
+    private static Conversation readConversation(JsonObject json) {
+        return new Conversation(UUID.fromString(json.get("player").getAsString()), json.get("npc").getAsString(),
+                json.get("message").getAsString(), json.get("timestamp").getAsLong(), json.get("from_npc").getAsBoolean());
+    }
+
+    // Ids are not kept; the database assigns new ones
+    private static Report readReport(JsonObject json) {
+        return new Report(0, json.get("player").getAsString(), json.get("npc").getAsString(), json.get("report_type").getAsString(),
+                Component.text(optString(json, "feedback")), optString(json, "npc_response"),
+                LocalDateTime.parse(json.get("timestamp").getAsString(), TIMESTAMP_FORMAT));
+    }
+
+    private static String optString(JsonObject json, String name) {
+        return json.has(name) && !json.get(name).isJsonNull() ? json.get(name).getAsString() : "";
+    }
+
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+}
@@ -0,0 +1,208 @@
+package me.xidentified.archgpt.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses message bodies before they are stored.
+ * <p>
+ * A stored body is either plain UTF-8 or a zero byte, a format byte and a raw Deflate stream.
+ * Text never starts with a zero byte, so rows written before compression existed, or while it is
+ * off, still read as they are. The dictionary format primes Deflate with phrases typical of NPC
+ * replies, which is what makes short messages worth compressing. Its bytes are part of the stored
+ * format: change them only together with a new format byte.
+ * <p>
+ * Decompressed bodies are kept in a small LRU keyed by message id, since the same recent messages
+ * are read again on every turn of a conversation.
+ */
+public class MessageCodec {
+    public enum Mode { NONE, DEFLATE, DICTIONARY }
+
+    private static final byte MARKER = 0;
+    private static final byte FORMAT_DEFLATE = 1;
+    private static final byte FORMAT_DICTIONARY = 2;
+
+    // Most frequent phrases last: Deflate reaches the end of the dictionary with the shortest distances
+    private static final byte[] DICTIONARY = (
+            "Greetings, traveler! Welcome to our village. How can I help you today? " +
+            "I'm afraid I don't know much about that, but you might ask the blacksmith or the librarian. " +
+            "Be careful out there at night, the zombies, skeletons and creepers come out after dark. " +
+            "You'll need a pickaxe to mine iron ore, and diamonds are found deep underground near lava. " +
+            "If you bring me some wheat, carrots or potatoes, I can trade you emeralds in return. " +
+            "The nether portal is made of obsidian, and you can light it with flint and steel. " +
+            "Have you explored the forest to the north? There is an old temple hidden in the jungle. " +
+            "I remember you! It's good to see you again, my friend. What brings you back here? " +
+            "Thank you for your help, adventurer. May your journey be safe and your inventory full. " +
+            "Of course! Let me tell you what I know. Is there anything else you would like to know? " +
+            "I'm sorry, I don't understand. Could you tell me more about what you are looking for? "
+    ).getBytes(StandardCharsets.UTF_8);
+
+    private final Mode mode;
+    private final int minLength;
+    private final Map<Long, String> cache;
+    private final ThreadLocal<Deflater> deflaters;
+
+    // Metrics
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong compressed = new AtomicLong();
+    private final AtomicLong inputBytes = new AtomicLong();
+    private final AtomicLong outputBytes = new AtomicLong();
+    private final AtomicLong compressNanos = new AtomicLong();
+    private final AtomicLong decompressed = new AtomicLong();
+    private final AtomicLong decompressNanos = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    public MessageCodec(Mode mode, int minLength, int cacheSize) {
+        this.mode = mode;
+        this.minLength = Math.max(0, minLength);
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    }
+
+    // Unknown names fall back to no compression
+    public static Mode parseMode(String name) {
+        try {
+            return Mode.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return Mode.NONE;
+        }
+    }
+
+    public byte[] encode(String message) {
+        byte[] text = message.getBytes(StandardCharsets.UTF_8);
+        boolean mustCompress = text.length > 0 && text[0] == MARKER;
+        if ((mode == Mode.NONE || text.length < minLength) && !mustCompress) {
+            return text;
+        }
+
+        long start = System.nanoTime();
+        byte format = mode == Mode.DICTIONARY ? FORMAT_DICTIONARY : FORMAT_DEFLATE;
+        byte[] body = deflate(text, format);
+        compressNanos.addAndGet(System.nanoTime() - start);
+        attempts.incrementAndGet();
+        // Text that doesn't shrink is stored as it is
+        if (body.length >= text.length && !mustCompress) {
+            return text;
+        }
+        compressed.incrementAndGet();
+        inputBytes.addAndGet(text.length);
+        outputBytes.addAndGet(body.length);
+        return body;
+    }
+
+    // id identifies the stored message for the cache; bodies that were stored uncompressed are not cached
+    public String decode(long id, byte[] stored) {
+        if (stored == null) return null;
+        if (!isCompressed(stored)) {
+            return new String(stored, StandardCharsets.UTF_8);
+        }
+        String cached = cache.get(id);
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return cached;
+        }
+        long start = System.nanoTime();
+        String message = decode(stored);
+        decompressNanos.addAndGet(System.nanoTime() - start);
+        decompressed.incrementAndGet();
+        cache.put(id, message);
+        return message;
+    }
+
+    // Reads any stored body, whatever mode wrote it
+    public static String decode(byte[] stored) {
+        if (!isCompressed(stored)) {
+            return new String(stored, StandardCharsets.UTF_8);
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(stored, 2, stored.length - 2);
+            if (stored[1] == FORMAT_DICTIONARY) {
+                inflater.setDictionary(DICTIONARY);
+            } else if (stored[1] != FORMAT_DEFLATE) {
+                throw new IllegalStateException("Unknown message format " + stored[1]);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(stored.length * 3);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(buffer);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed message");
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed message", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static boolean isCompressed(byte[] stored) {
+        return stored.length >= 2 && stored[0] == MARKER;
+    }
+
+    private byte[] deflate(byte[] text, byte format) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        if (format == FORMAT_DICTIONARY) {
+            deflater.setDictionary(DICTIONARY);
+        }
+        deflater.setInput(text);
+        deflater.finish();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(text.length / 2 + 16);
+        out.write(MARKER);
+        out.write(format);
+        byte[] buffer = new byte[1024];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return out.toByteArray();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getCompressed() {
+        return compressed.get();
+    }
+
+    // Stored size as a fraction of the original, over every message compressed since startup
+    public double getCompressionRatio() {
+        long input = inputBytes.get();
+        return input == 0 ? 1.0 : outputBytes.get() / (double) input;
+    }
+
+    // Includes messages that didn't shrink and were stored as they are
+    public double getAverageCompressMicros() {
+        long count = attempts.get();
+        return count == 0 ? 0 : compressNanos.get() / (double) count / 1000.0;
+    }
+
+    public double getAverageDecompressMicros() {
+        long count = decompressed.get();
+        return count == 0 ? 0 : decompressNanos.get() / (double) count / 1000.0;
+    }
+
+    public double getCacheHitRate() {
+        long hits = cacheHits.get();
+        long total = hits + decompressed.get();
+        return total == 0 ? 0 : hits / (double) total;
+    }
+}
@@ -0,0 +1,129 @@
+package me.xidentified.archgpt.storage;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the MySQL conversations table split into daily RANGE partitions on timestamp, so the
+ * retention job can drop whole days with a metadata change instead of deleting row by row.
+ * The table's primary key becomes (id, timestamp), as MySQL requires the partition column in it.
+ * Any failure (old server, missing privileges) turns partitioning off and leaves chunked deletes to do the work.
+ */
+public class MySQLPartitioner {
+    private static final int DAYS_AHEAD = 3;
+    private static final String FUTURE_PARTITION = "p_future";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+
+    private final DataSource dataSource;
+    private final Logger logger;
+    private volatile boolean available = true;
+
+    public MySQLPartitioner(DataSource dataSource, Logger logger) {
+        this.dataSource = dataSource;
+        this.logger = logger;
+    }
+
+    // Partitions the table if needed, adds upcoming days and drops days entirely before the cutoff.
+    // Returns the number of partitions dropped.
+    public int dropPartitionsBefore(long cutoffTimestamp) {
+        if (!available) return 0;
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            List<Partition> partitions = getPartitions(conn);
+            if (partitions.isEmpty()) {
+                partitionTable(stmt);
+                partitions = getPartitions(conn);
+            }
+            addUpcomingPartitions(stmt, partitions);
+
+            List<String> expired = new ArrayList<>();
+            for (Partition partition : partitions) {
+                if (partition.upperBound() != null && partition.upperBound() <= cutoffTimestamp) {
+                    expired.add(partition.name());
+                }
+            }
+            if (!expired.isEmpty()) {
+                stmt.execute("ALTER TABLE conversations DROP PARTITION " + String.join(", ", expired));
+            }
+            return expired.size();
+        } catch (SQLException e) {
+            available = false;
+            logger.warning("MySQL partitioning disabled, falling back to chunked deletes: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    private void partitionTable(Statement stmt) throws SQLException {
+        logger.info("Partitioning the conversations table by day, this may take a while on large tables");
+        stmt.execute("ALTER TABLE conversations MODIFY timestamp BIGINT NOT NULL, " +
+                "DROP PRIMARY KEY, ADD PRIMARY KEY (id, timestamp)");
+
+        // Everything before today lands in one partition, which is dropped once today is past the cutoff
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        StringBuilder sql = new StringBuilder("ALTER TABLE conversations PARTITION BY RANGE (timestamp) (");
+        sql.append("PARTITION p_history VALUES LESS THAN (").append(startOf(today)).append("), ");
+        for (int i = 0; i <= DAYS_AHEAD; i++) {
+            sql.append(partitionDefinition(today.plusDays(i))).append(", ");
+        }
+        sql.append("PARTITION ").append(FUTURE_PARTITION).append(" VALUES LESS THAN MAXVALUE)");
+        stmt.execute(sql.toString());
+    }
+
+    // Splits upcoming days off the catch-all partition, which is normally empty so this is cheap
+    private void addUpcomingPartitions(Statement stmt, List<Partition> partitions) throws SQLException {
+        long highestBound = partitions.stream()
+                .filter(partition -> partition.upperBound() != null)
+                .mapToLong(Partition::upperBound)
+                .max()
+                .orElse(0L);
+
+        LocalDate lastDay = LocalDate.now(ZoneOffset.UTC).plusDays(DAYS_AHEAD);
+        List<String> definitions = new ArrayList<>();
+        for (LocalDate day = LocalDate.now(ZoneOffset.UTC); !day.isAfter(lastDay); day = day.plusDays(1)) {
+            if (startOf(day.plusDays(1)) > highestBound) {
+                definitions.add(partitionDefinition(day));
+            }
+        }
+        if (definitions.isEmpty()) return;
+
+        stmt.execute("ALTER TABLE conversations REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO (" +
+                String.join(", ", definitions) + ", PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN MAXVALUE)");
+    }
+
+    private static List<Partition> getPartitions(Connection conn) throws SQLException {
+        List<Partition> partitions = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'conversations' AND PARTITION_NAME IS NOT NULL " +
+                        "ORDER BY PARTITION_ORDINAL_POSITION");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                String description = rs.getString("PARTITION_DESCRIPTION");
+                Long upperBound = "MAXVALUE".equalsIgnoreCase(description) ? null : Long.parseLong(description);
+                partitions.add(new Partition(rs.getString("PARTITION_NAME"), upperBound));
+            }
+        }
+        return partitions;
+    }
+
+    // A day's partition holds rows up to the start of the next day
+    private static String partitionDefinition(LocalDate day) {
+        return "PARTITION " + PARTITION_NAME.format(day) + " VALUES LESS THAN (" + startOf(day.plusDays(1)) + ")";
+    }
+
+    private static long startOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    private record Partition(String name, Long upperBound) {}
+}
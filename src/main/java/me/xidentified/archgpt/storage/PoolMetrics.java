@@ -0,0 +1,84 @@
+package me.xidentified.archgpt.storage;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Connection pool statistics: live counts come from the pool itself, acquire times and timeouts
+ * are recorded by Hikari through this tracker.
+ */
+public class PoolMetrics implements IMetricsTracker {
+    @Getter private final String poolName;
+    private HikariDataSource dataSource;
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong totalAcquireNanos = new AtomicLong();
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLong timeouts = new AtomicLong();
+
+    PoolMetrics(String poolName) {
+        this.poolName = poolName;
+    }
+
+    void bind(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        acquisitions.incrementAndGet();
+        totalAcquireNanos.addAndGet(elapsedAcquiredNanos);
+        maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeouts.incrementAndGet();
+    }
+
+    public int getActive() {
+        HikariPoolMXBean pool = pool();
+        return pool != null ? pool.getActiveConnections() : 0;
+    }
+
+    public int getIdle() {
+        HikariPoolMXBean pool = pool();
+        return pool != null ? pool.getIdleConnections() : 0;
+    }
+
+    public int getTotal() {
+        HikariPoolMXBean pool = pool();
+        return pool != null ? pool.getTotalConnections() : 0;
+    }
+
+    // Threads currently waiting for a connection
+    public int getPending() {
+        HikariPoolMXBean pool = pool();
+        return pool != null ? pool.getThreadsAwaitingConnection() : 0;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.get();
+    }
+
+    public double getAverageAcquireMillis() {
+        long count = acquisitions.get();
+        return count == 0 ? 0 : totalAcquireNanos.get() / (double) count / 1_000_000.0;
+    }
+
+    public double getMaxAcquireMillis() {
+        return maxAcquireNanos.get() / 1_000_000.0;
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    private HikariPoolMXBean pool() {
+        return dataSource != null && !dataSource.isClosed() ? dataSource.getHikariPoolMXBean() : null;
+    }
+}
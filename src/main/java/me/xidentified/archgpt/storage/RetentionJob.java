@@ -0,0 +1,120 @@
+package me.xidentified.archgpt.storage;
+
+import me.xidentified.archgpt.ArchGPT;
+import me.xidentified.archgpt.storage.dao.ConversationDAO;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Deletes conversation history older than the NPC memory duration. Those messages are already
+ * ignored on read, so this only keeps the table and its indexes from growing forever.
+ * Rows go in small chunks, each its own short transaction, with a pause in between so chat
+ * writes never wait behind one long delete. Clearing conversations from commands takes the
+ * same path on the same thread.
+ */
+public class RetentionJob {
+    private final ArchGPT plugin;
+    private final ScheduledExecutorService executorService;
+    private final int chunkSize;
+    private final long chunkPauseMillis;
+    private final AtomicLong purgedRows = new AtomicLong();
+    private final AtomicLong droppedPartitions = new AtomicLong();
+
+    public RetentionJob(ArchGPT plugin) {
+        this.plugin = plugin;
+        this.chunkSize = Math.max(1, plugin.getConfig().getInt("storage.retention.chunk_size", 1000));
+        this.chunkPauseMillis = Math.max(0, plugin.getConfig().getLong("storage.retention.chunk_pause_ms", 50));
+        this.executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ArchGPT-Retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        if (!plugin.getConfig().getBoolean("storage.retention.enabled", true)) return;
+        long interval = Math.max(1, plugin.getConfig().getLong("storage.retention.interval_minutes", 60));
+        executorService.scheduleWithFixedDelay(this::purgeExpired, 1, interval, TimeUnit.MINUTES);
+    }
+
+    public void stop() {
+        executorService.shutdownNow();
+    }
+
+    // Completes with the number of messages deleted
+    public CompletableFuture<Integer> clearAll() {
+        return CompletableFuture.supplyAsync(() -> {
+            ConversationDAO dao = plugin.getConversationDAO();
+            int deleted = deleteInChunks(limit -> dao.deleteConversations(null, limit));
+            dao.clearAllConversations(); // Summaries and anything written meanwhile
+            return deleted;
+        }, executorService);
+    }
+
+    public CompletableFuture<Integer> clearNpc(String npcName) {
+        return CompletableFuture.supplyAsync(() -> {
+            ConversationDAO dao = plugin.getConversationDAO();
+            int deleted = deleteInChunks(limit -> dao.deleteConversations(npcName, limit));
+            dao.clearConversationsForNpc(npcName);
+            return deleted;
+        }, executorService);
+    }
+
+    private void purgeExpired() {
+        try {
+            ConversationDAO dao = plugin.getConversationDAO();
+            long cutoffTimestamp = Instant.now().toEpochMilli() - plugin.getConfigHandler().getNpcMemoryDuration().toMillis();
+
+            MySQLPartitioner partitioner = plugin.getMysqlPartitioner();
+            if (partitioner != null) {
+                droppedPartitions.addAndGet(partitioner.dropPartitionsBefore(cutoffTimestamp));
+            }
+
+            int deleted = deleteInChunks(limit -> dao.deleteConversationsBefore(cutoffTimestamp, limit));
+            dao.deleteMemorySummariesBefore(cutoffTimestamp);
+            purgedRows.addAndGet(deleted);
+
+            SharedSessionStore sessions = plugin.getSessionStore();
+            if (sessions != null) {
+                sessions.purgeExpired();
+            }
+
+            if (deleted > 0) {
+                plugin.debugLog("Retention removed " + deleted + " expired conversation message(s)");
+            }
+        } catch (Exception e) {
+            plugin.getLogger().warning("Conversation retention failed: " + e.getMessage());
+        }
+    }
+
+    private int deleteInChunks(IntUnaryOperator deleteChunk) {
+        int total = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            int deleted = deleteChunk.applyAsInt(chunkSize);
+            total += deleted;
+            if (deleted < chunkSize) break;
+            if (chunkPauseMillis > 0) {
+                try {
+                    Thread.sleep(chunkPauseMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        return total;
+    }
+
+    public long getPurgedRows() {
+        return purgedRows.get();
+    }
+
+    public long getDroppedPartitions() {
+        return droppedPartitions.get();
+    }
+}
@@ -0,0 +1,235 @@
+package me.xidentified.archgpt.storage;
+
+import lombok.Getter;
+
+import java.io.File;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Managed access to one SQLite database file.
+ * <p>
+ * The database runs in WAL mode with {@code synchronous=NORMAL}, so readers never block the writer
+ * and commits don't fsync. All writes go through a single dedicated connection (SQLite only allows
+ * one writer at a time anyway, this just queues them in Java instead of on busy retries); reads
+ * use a small fixed set of query-only connections. Every connection caches its prepared statements.
+ */
+public class SQLiteEngine {
+
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T apply(Session session) throws SQLException;
+    }
+
+    private static final long ACQUIRE_TIMEOUT_MILLIS = 5000;
+
+    @Getter private final String name;
+    private final Session writer;
+    private final ReentrantLock writeLock = new ReentrantLock(true);
+    private final BlockingQueue<Session> readers;
+    private final List<Session> allReaders = new ArrayList<>();
+
+    // Metrics
+    private final AtomicInteger pendingReads = new AtomicInteger();
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong readWaitNanos = new AtomicLong();
+    private final AtomicLong writeWaitNanos = new AtomicLong();
+
+    public SQLiteEngine(File databaseFile, int readerCount, int cacheSizeKb, long mmapSizeBytes) throws SQLException {
+        File parent = databaseFile.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        this.name = databaseFile.getName();
+        String url = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+
+        // The writer switches the file to WAL first; the setting is persistent for the database
+        Connection writerConnection = DriverManager.getConnection(url);
+        try (Statement stmt = writerConnection.createStatement()) {
+            stmt.execute("PRAGMA journal_mode=WAL");
+        }
+        applyPragmas(writerConnection, cacheSizeKb, mmapSizeBytes);
+        this.writer = new Session(writerConnection);
+
+        this.readers = new ArrayBlockingQueue<>(Math.max(1, readerCount));
+        for (int i = 0; i < Math.max(1, readerCount); i++) {
+            Connection readerConnection = DriverManager.getConnection(url);
+            applyPragmas(readerConnection, cacheSizeKb, mmapSizeBytes);
+            try (Statement stmt = readerConnection.createStatement()) {
+                stmt.execute("PRAGMA query_only=ON");
+            }
+            Session reader = new Session(readerConnection);
+            allReaders.add(reader);
+            readers.add(reader);
+        }
+    }
+
+    private static void applyPragmas(Connection connection, int cacheSizeKb, long mmapSizeBytes) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA synchronous=NORMAL");
+            stmt.execute("PRAGMA cache_size=-" + Math.max(0, cacheSizeKb)); // Negative means KiB rather than pages
+            stmt.execute("PRAGMA mmap_size=" + Math.max(0, mmapSizeBytes));
+            stmt.execute("PRAGMA busy_timeout=" + ACQUIRE_TIMEOUT_MILLIS);
+            stmt.execute("PRAGMA temp_store=MEMORY");
+        }
+    }
+
+    /**
+     * Runs read-only work on one of the reader connections.
+     */
+    public <T> T read(SqlWork<T> work) throws SQLException {
+        long start = System.nanoTime();
+        pendingReads.incrementAndGet();
+        Session session;
+        try {
+            session = readers.poll(ACQUIRE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a SQLite reader", e);
+        } finally {
+            pendingReads.decrementAndGet();
+        }
+        if (session == null) {
+            throw new SQLTimeoutException("No SQLite reader available after " + ACQUIRE_TIMEOUT_MILLIS + "ms");
+        }
+        readWaitNanos.addAndGet(System.nanoTime() - start);
+        reads.incrementAndGet();
+        try {
+            return work.apply(session);
+        } finally {
+            readers.offer(session);
+        }
+    }
+
+    /**
+     * Runs work on the writer connection inside one transaction, committed if the work returns
+     * normally and rolled back if it throws.
+     */
+    public <T> T write(SqlWork<T> work) throws SQLException {
+        long start = System.nanoTime();
+        pendingWrites.incrementAndGet();
+        writeLock.lock();
+        try {
+            pendingWrites.decrementAndGet();
+            writeWaitNanos.addAndGet(System.nanoTime() - start);
+            writes.incrementAndGet();
+
+            Connection connection = writer.connection;
+            connection.setAutoCommit(false);
+            try {
+                T result = work.apply(writer);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void close() {
+        writeLock.lock();
+        try {
+            writer.close();
+            allReaders.forEach(Session::close);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int getIdleReaders() {
+        return readers.size();
+    }
+
+    public int getReaderCount() {
+        return allReaders.size();
+    }
+
+    public int getPendingReads() {
+        return pendingReads.get();
+    }
+
+    public int getPendingWrites() {
+        return pendingWrites.get();
+    }
+
+    public long getReads() {
+        return reads.get();
+    }
+
+    public long getWrites() {
+        return writes.get();
+    }
+
+    public double getAverageReadWaitMillis() {
+        long count = reads.get();
+        return count == 0 ? 0 : readWaitNanos.get() / (double) count / 1_000_000.0;
+    }
+
+    public double getAverageWriteWaitMillis() {
+        long count = writes.get();
+        return count == 0 ? 0 : writeWaitNanos.get() / (double) count / 1_000_000.0;
+    }
+
+    /**
+     * A connection handed to {@link SqlWork}. Statements from {@link #prepare(String)} are cached
+     * per connection and must not be closed by the caller; result sets still should be.
+     */
+    public static final class Session {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private Session(Connection connection) {
+            this.connection = connection;
+        }
+
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement stmt = statements.get(sql);
+            if (stmt == null || stmt.isClosed()) {
+                stmt = connection.prepareStatement(sql);
+                statements.put(sql, stmt);
+            } else {
+                stmt.clearParameters();
+                stmt.clearBatch();
+            }
+            return stmt;
+        }
+
+        // Raw connection for schema migrations and id lookups; don't close it or change its transaction state
+        public Connection getConnection() {
+            return connection;
+        }
+
+        // Uncached statement for DDL and one-off queries; close it after use
+        public Statement createStatement() throws SQLException {
+            return connection.createStatement();
+        }
+
+        private void close() {
+            statements.values().forEach(stmt -> {
+                try {
+                    stmt.close();
+                } catch (SQLException ignored) {}
+            });
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException ignored) {}
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package me.xidentified.archgpt.storage;
+
+import me.xidentified.archgpt.ArchGPT;
+import me.xidentified.archgpt.storage.dao.SessionDAO;
+import me.xidentified.archgpt.storage.model.SharedSession;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares live conversations between the servers of a proxy network, so a player who switches
+ * server keeps talking to the same NPC. Every change is written through to the database, and the
+ * cache remembers the version this server last wrote. A write only succeeds if the row still has
+ * that version. If another server got there first, the write is dropped and the cache takes the
+ * stored row instead. All database work and cache changes run in order on one thread.
+ */
+public class SharedSessionStore {
+    private final ArchGPT plugin;
+    private final SessionDAO dao;
+    private final String serverName;
+    private final Map<UUID, SharedSession> cache = new ConcurrentHashMap<>();
+    private final ExecutorService executorService;
+    private final AtomicLong conflicts = new AtomicLong();
+
+    public SharedSessionStore(ArchGPT plugin, SessionDAO dao, String serverName) {
+        this.plugin = plugin;
+        this.dao = dao;
+        this.serverName = serverName;
+        this.executorService = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ArchGPT-Sessions");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Completes with the player's session, or null if there is none that is still within the chat timeout
+    public CompletableFuture<SharedSession> load(UUID playerUUID) {
+        return CompletableFuture.supplyAsync(() -> {
+            SharedSession session = cache.get(playerUUID);
+            if (session == null) {
+                session = dao.loadSession(playerUUID);
+            }
+            if (session == null) return null;
+            if (isExpired(session)) {
+                cache.remove(playerUUID);
+                dao.deleteSession(playerUUID);
+                return null;
+            }
+            cache.put(playerUUID, session);
+            return session;
+        }, executorService);
+    }
+
+    // Completes with false if another server changed the session since this one last read or wrote it
+    public CompletableFuture<Boolean> save(UUID playerUUID, int npcId, String npcName, String state) {
+        return CompletableFuture.supplyAsync(() -> {
+            long now = System.currentTimeMillis();
+            SharedSession current = cache.get(playerUUID);
+            if (current == null) {
+                SharedSession created = new SharedSession(playerUUID, npcId, npcName, state, 1, now, serverName);
+                if (dao.insertSession(created)) {
+                    cache.put(playerUUID, created);
+                    return true;
+                }
+                // A row left from an earlier conversation; a new conversation replaces it
+                current = dao.loadSession(playerUUID);
+                if (current == null) return false;
+            }
+
+            SharedSession updated = new SharedSession(playerUUID, npcId, npcName, state, current.version() + 1, now, serverName);
+            if (dao.updateSession(updated, current.version())) {
+                cache.put(playerUUID, updated);
+                return true;
+            }
+
+            conflicts.incrementAndGet();
+            SharedSession stored = dao.loadSession(playerUUID);
+            if (stored != null) {
+                cache.put(playerUUID, stored);
+            } else {
+                cache.remove(playerUUID);
+            }
+            plugin.debugLog("Conversation session of " + playerUUID + " was changed by "
+                    + (stored != null ? stored.server() : "another server") + "; dropped the write from " + serverName);
+            return false;
+        }, executorService);
+    }
+
+    // The conversation is over on every server
+    public void delete(UUID playerUUID) {
+        executorService.execute(() -> {
+            cache.remove(playerUUID);
+            dao.deleteSession(playerUUID);
+        });
+    }
+
+    // The player left this server; the row stays for the server they join next
+    public void evict(UUID playerUUID) {
+        executorService.execute(() -> cache.remove(playerUUID));
+    }
+
+    // Removes sessions nobody has written to within the chat timeout, e.g. left behind by a crashed server
+    public int purgeExpired() {
+        return dao.deleteSessionsBefore(System.currentTimeMillis() - plugin.getConfigHandler().getNpcChatTimeoutMillis());
+    }
+
+    private boolean isExpired(SharedSession session) {
+        return session.updatedAt() < System.currentTimeMillis() - plugin.getConfigHandler().getNpcChatTimeoutMillis();
+    }
+
+    public void shutdown(long timeoutMillis) {
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                plugin.getLogger().warning("Timed out writing shared conversation sessions");
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getConflicts() {
+        return conflicts.get();
+    }
+
+    public int getCachedSessions() {
+        return cache.size();
+    }
+}
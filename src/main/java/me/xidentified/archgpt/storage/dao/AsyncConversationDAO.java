@@ -0,0 +1,81 @@
+package me.xidentified.archgpt.storage.dao;
+
+import me.xidentified.archgpt.storage.model.Conversation;
+import me.xidentified.archgpt.storage.model.MemorySummary;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking facade over the active {@link ConversationDAO}. Every call runs on a small
+ * dedicated database executor and completes a future, so game threads never wait on JDBC.
+ * The DAO is looked up per call, so a storage switch on reload is picked up automatically.
+ */
+public class AsyncConversationDAO {
+    private final Supplier<ConversationDAO> dao;
+    private final ExecutorService executor;
+
+    public AsyncConversationDAO(Supplier<ConversationDAO> dao, int threads) {
+        this.dao = dao;
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "ArchGPT-DB-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), threadFactory);
+    }
+
+    public CompletableFuture<Void> saveConversation(Conversation conversation) {
+        return CompletableFuture.runAsync(() -> dao.get().saveConversation(conversation), executor);
+    }
+
+    public CompletableFuture<List<Conversation>> getRecentConversations(UUID playerUUID, String npcName, Duration memoryDuration, int limit) {
+        return CompletableFuture.supplyAsync(() -> dao.get().getRecentConversations(playerUUID, npcName, memoryDuration, limit), executor);
+    }
+
+    public CompletableFuture<Conversation> getLatestConversation(UUID playerUUID, String npcName, Duration memoryDuration) {
+        return CompletableFuture.supplyAsync(() -> dao.get().getLatestConversation(playerUUID, npcName, memoryDuration), executor);
+    }
+
+    public CompletableFuture<List<Conversation>> getConversationPage(UUID playerUUID, String npcName, Duration memoryDuration, Conversation after, int limit) {
+        return CompletableFuture.supplyAsync(() -> dao.get().getConversationPage(playerUUID, npcName, memoryDuration, after, limit), executor);
+    }
+
+    public CompletableFuture<List<Conversation>> searchConversations(UUID playerUUID, String npcName, Duration memoryDuration, List<String> terms, int limit) {
+        return CompletableFuture.supplyAsync(() -> dao.get().searchConversations(playerUUID, npcName, memoryDuration, terms, limit), executor);
+    }
+
+    public CompletableFuture<MemorySummary> getMemorySummary(UUID playerUUID, String npcName, Duration memoryDuration) {
+        return CompletableFuture.supplyAsync(() -> dao.get().getMemorySummary(playerUUID, npcName, memoryDuration), executor);
+    }
+
+    public CompletableFuture<Boolean> renameNpc(String oldName, String newName, int citizensId) {
+        return CompletableFuture.supplyAsync(() -> dao.get().renameNpc(oldName, newName, citizensId), executor);
+    }
+
+    // Runs arbitrary DAO work on the database executor, for multi-step lookups
+    public <T> CompletableFuture<T> supply(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, executor);
+    }
+
+    public void shutdown(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
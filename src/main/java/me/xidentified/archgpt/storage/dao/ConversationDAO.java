@@ -1,14 +1,63 @@
 package me.xidentified.archgpt.storage.dao;
 
 import me.xidentified.archgpt.storage.model.Conversation;
+import me.xidentified.archgpt.storage.model.ConversationKey;
+import me.xidentified.archgpt.storage.model.MemorySummary;
 
 import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface ConversationDAO {
+    // Both throw if the messages could not be stored. A batch is written all or nothing, so it can be retried whole.
     void saveConversation(Conversation conversation);
-    List<Conversation> getConversations(UUID playerUUID, String npcName, Duration memoryDuration);
+    void saveConversations(List<Conversation> conversations);
+    // Newest first, at most limit rows
+    List<Conversation> getRecentConversations(UUID playerUUID, String npcName, Duration memoryDuration, int limit);
+    // Keyset pagination in the same order: pass the last row of the previous page as after, or null for the first page.
+    // Messages from the same millisecond come oldest first, matching the index order.
+    List<Conversation> getConversationPage(UUID playerUUID, String npcName, Duration memoryDuration, Conversation after, int limit);
+    // Streams every stored message since the timestamp in insertion order, fetchSize rows at a time.
+    // The consumer runs while the cursor is open, so it should not block. Throws if the rows can't be read to the end.
+    void forEachConversation(long sinceTimestamp, int fetchSize, Consumer<Conversation> consumer);
+    // Streams every stored summary the same way, whatever its age
+    void forEachMemorySummary(int fetchSize, BiConsumer<ConversationKey, MemorySummary> consumer);
+    // Every stored message of one conversation from fromTimestamp to toTimestamp inclusive, whatever its age,
+    // oldest first. Throws if they can't be read.
+    List<Conversation> getConversationsBetween(ConversationKey key, long fromTimestamp, long toTimestamp);
+    // Most relevant messages for the given search terms, best match first; most recent messages if terms is empty
+    List<Conversation> searchConversations(UUID playerUUID, String npcName, Duration memoryDuration, List<String> terms, int limit);
+    // Removes every message and summary, or only those of one NPC
     void clearAllConversations();
     void clearConversationsForNpc(String npcName);
+    // Moves every message and summary of an NPC to its new name. Returns false if nothing is stored under the
+    // old name or the new name already has memory of its own, in which case nothing changes.
+    boolean renameNpc(String oldName, String newName, int citizensId);
+
+    // Retention: each call deletes at most limit rows in one short transaction and returns how many it deleted.
+    // deleteConversations covers every NPC when npcName is null.
+    int deleteConversationsBefore(long cutoffTimestamp, int limit);
+    int deleteConversations(String npcName, int limit);
+    int deleteMemorySummariesBefore(long cutoffTimestamp);
+
+    // Cold tier: one summary per (player, NPC) replacing messages older than the compaction threshold.
+    // A summary's updatedAt is the timestamp of the newest message it covers.
+    MemorySummary getMemorySummary(UUID playerUUID, String npcName, Duration memoryDuration);
+    // Conversations with messages older than cutoffTimestamp, the one with the oldest message first. A conversation
+    // whose oldest such message is after summaryDeadline is left out until its summary covers those messages, so
+    // the background summarizer gets to it first; pass Long.MAX_VALUE to include every conversation.
+    List<ConversationKey> findConversationsToCompact(long cutoffTimestamp, long summaryDeadline, int limit);
+    List<Conversation> getConversationsBefore(ConversationKey key, long cutoffTimestamp);
+    void replaceWithSummary(ConversationKey key, long cutoffTimestamp, MemorySummary summary);
+
+    // Conversations with messages newer than their summary, for the background summarization job
+    List<ConversationKey> findConversationsToSummarize(int limit);
+    void saveMemorySummary(ConversationKey key, MemorySummary summary);
+
+    default Conversation getLatestConversation(UUID playerUUID, String npcName, Duration memoryDuration) {
+        List<Conversation> latest = getRecentConversations(playerUUID, npcName, memoryDuration, 1);
+        return latest.isEmpty() ? null : latest.get(0);
+    }
 }
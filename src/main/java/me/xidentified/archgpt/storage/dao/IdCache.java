@@ -0,0 +1,99 @@
+package me.xidentified.archgpt.storage.dao;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps player UUIDs and NPC names to the integer ids of the players and npcs tables, which the
+ * conversation tables are keyed by. An id never changes once assigned, so every lookup is cached
+ * for the lifetime of the DAO; only renaming an NPC moves its id to a new name.
+ * Ids are cached as soon as they are created, so callers must {@link #invalidate()} the cache
+ * when a transaction that may have created some rolls back.
+ */
+final class IdCache {
+    private final String insertIgnore;
+    private final Map<UUID, Integer> players = new ConcurrentHashMap<>();
+    private final Map<String, Integer> npcs = new ConcurrentHashMap<>();
+
+    // insertIgnore is the dialect's insert that skips duplicates: "INSERT OR IGNORE" or "INSERT IGNORE"
+    IdCache(String insertIgnore) {
+        this.insertIgnore = insertIgnore;
+    }
+
+    // Returns 0 for a player with nothing stored, unless create is set
+    int playerId(Connection connection, UUID playerUUID, boolean create) throws SQLException {
+        Integer cached = players.get(playerUUID);
+        if (cached != null) return cached;
+        byte[] uuid = toBytes(playerUUID);
+        int id = selectId(connection, "SELECT id FROM players WHERE uuid = ?", uuid);
+        if (id == 0 && create) {
+            try (PreparedStatement stmt = connection.prepareStatement(insertIgnore + " INTO players (uuid) VALUES (?)")) {
+                stmt.setBytes(1, uuid);
+                stmt.executeUpdate();
+            }
+            id = selectId(connection, "SELECT id FROM players WHERE uuid = ?", uuid);
+        }
+        if (id != 0) players.put(playerUUID, id);
+        return id;
+    }
+
+    int npcId(Connection connection, String npcName, boolean create) throws SQLException {
+        Integer cached = npcs.get(npcName);
+        if (cached != null) return cached;
+        int id = selectId(connection, "SELECT id FROM npcs WHERE name = ?", npcName);
+        if (id == 0 && create) {
+            try (PreparedStatement stmt = connection.prepareStatement(insertIgnore + " INTO npcs (name) VALUES (?)")) {
+                stmt.setString(1, npcName);
+                stmt.executeUpdate();
+            }
+            id = selectId(connection, "SELECT id FROM npcs WHERE name = ?", npcName);
+        }
+        if (id != 0) npcs.put(npcName, id);
+        return id;
+    }
+
+    // One-row update: every message and summary follows the id. False if the old name has nothing stored
+    // or the new name already has memory of its own.
+    boolean renameNpc(Connection connection, String oldName, String newName, int citizensId) throws SQLException {
+        int id = npcId(connection, oldName, false);
+        if (id == 0 || npcId(connection, newName, false) != 0) return false;
+        try (PreparedStatement stmt = connection.prepareStatement("UPDATE npcs SET name = ?, citizens_id = ? WHERE id = ?")) {
+            stmt.setString(1, newName);
+            stmt.setInt(2, citizensId);
+            stmt.setInt(3, id);
+            if (stmt.executeUpdate() == 0) return false;
+        }
+        npcs.remove(oldName);
+        npcs.put(newName, id);
+        return true;
+    }
+
+    void invalidate() {
+        players.clear();
+        npcs.clear();
+    }
+
+    private static int selectId(Connection connection, String sql, Object key) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setObject(1, key);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }
+
+    static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
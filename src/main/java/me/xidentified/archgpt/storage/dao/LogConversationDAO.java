@@ -0,0 +1,867 @@
+package me.xidentified.archgpt.storage.dao;
+
+import me.xidentified.archgpt.context.KeywordMatcher;
+import me.xidentified.archgpt.storage.MessageCodec;
+import me.xidentified.archgpt.storage.log.LogRecord;
+import me.xidentified.archgpt.storage.log.LogSegment;
+import me.xidentified.archgpt.storage.model.Conversation;
+import me.xidentified.archgpt.storage.model.ConversationKey;
+import me.xidentified.archgpt.storage.model.MemorySummary;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Conversation storage without a database: every change is appended to a log of fixed-size
+ * segment files and an in-memory index maps each (player, NPC) pair to where its messages sit
+ * in the log. Reads go straight to the memory-mapped segments.
+ *
+ * <p>All writes go through one thread, which takes whatever has queued up since its last write,
+ * appends it with a single gather write and, when fsync is on, forces the file once for the whole
+ * group. Deletes are appended as records too; a background compaction drops expired history and,
+ * once more than half the log is dead, rewrites the live records into a fresh segment.
+ */
+public class LogConversationDAO implements ConversationDAO {
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAX_GROUP_SIZE = 256;
+
+    // Ascending by timestamp, same-millisecond messages newest first, so walking backwards gives page order
+    private static final Comparator<Entry> ENTRY_ORDER = Comparator.comparingLong(Entry::timestamp)
+            .thenComparing(Comparator.comparingLong(Entry::id).reversed());
+
+    private final File directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final Supplier<Duration> memoryDuration;
+    private final MessageCodec codec;
+    private final Logger logger;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicLong compactions = new AtomicLong();
+    private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final ScheduledExecutorService compactionScheduler;
+    private volatile boolean running = true;
+
+    // Only the writer thread changes these, always under the write lock
+    private final List<LogSegment> segments = new ArrayList<>();
+    private volatile State state = new State();
+
+    private record Entry(long id, long timestamp, LogSegment segment, int position, int size) {}
+
+    private record StoredSummary(String summary, long updatedAt, int size) {}
+
+    private record Placement(LogRecord record, LogSegment segment, int position, int size) {}
+
+    // records == null asks the writer to compact
+    private record Task(List<LogRecord> records, CompletableFuture<Integer> result) {}
+
+    private static class State {
+        final Map<ConversationKey, List<Entry>> index = new HashMap<>();
+        final Map<ConversationKey, StoredSummary> summaries = new HashMap<>();
+        long liveBytes;
+    }
+
+    public LogConversationDAO(File directory, int segmentSize, boolean fsync, long compactionIntervalMinutes,
+                              Supplier<Duration> memoryDuration, MessageCodec codec, Logger logger) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        this.memoryDuration = memoryDuration;
+        this.codec = codec;
+        this.logger = logger;
+
+        recover();
+
+        this.writer = new Thread(this::runWriter, "ArchGPT-ConversationLog");
+        this.writer.setDaemon(true);
+        this.writer.start();
+
+        this.compactionScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ArchGPT-ConversationLog-Compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, compactionIntervalMinutes);
+        compactionScheduler.scheduleWithFixedDelay(() -> submit(null), interval, interval, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void saveConversation(Conversation conversation) {
+        append(List.of(toMessage(conversation)));
+    }
+
+    @Override
+    public void saveConversations(List<Conversation> conversations) {
+        if (conversations.isEmpty()) return;
+        List<LogRecord> records = new ArrayList<>(conversations.size());
+        for (Conversation conversation : conversations) {
+            records.add(toMessage(conversation));
+        }
+        append(records);
+    }
+
+    // Like write, but a failure is passed on so the caller can keep the messages and retry
+    private void append(List<LogRecord> records) {
+        try {
+            submit(records).join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Error saving conversations: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private LogRecord.Message toMessage(Conversation conversation) {
+        return new LogRecord.Message(nextId.getAndIncrement(), conversation.getPlayerUUID(), conversation.getNpcName(),
+                conversation.getTimestamp(), conversation.isFromNPC(), conversation.getMessage());
+    }
+
+    @Override
+    public List<Conversation> getRecentConversations(UUID playerUUID, String npcName, Duration memoryDuration, int limit) {
+        return getConversationPage(playerUUID, npcName, memoryDuration, null, limit);
+    }
+
+    @Override
+    public List<Conversation> getConversationPage(UUID playerUUID, String npcName, Duration memoryDuration, Conversation after, int limit) {
+        long cutoffTimestamp = Instant.now().toEpochMilli() - memoryDuration.toMillis();
+        ConversationKey key = new ConversationKey(playerUUID, npcName);
+        List<Conversation> conversations = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<Entry> entries = state.index.get(key);
+            if (entries == null) return conversations;
+
+            int start = entries.size() - 1;
+            if (after != null) {
+                int found = Collections.binarySearch(entries, new Entry(after.getId(), after.getTimestamp(), null, 0, 0), ENTRY_ORDER);
+                start = (found >= 0 ? found : -found - 1) - 1;
+            }
+            for (int i = start; i >= 0 && conversations.size() < limit; i--) {
+                Entry entry = entries.get(i);
+                if (entry.timestamp() <= cutoffTimestamp) break;
+                conversations.add(read(entry, key));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return conversations;
+    }
+
+    @Override
+    public void forEachConversation(long sinceTimestamp, int fetchSize, Consumer<Conversation> consumer) {
+        List<Map.Entry<ConversationKey, Entry>> matching = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<ConversationKey, List<Entry>> conversation : state.index.entrySet()) {
+                for (Entry entry : conversation.getValue()) {
+                    if (entry.timestamp() >= sinceTimestamp) {
+                        matching.add(Map.entry(conversation.getKey(), entry));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // Segments stay mapped after compaction replaces them, so the messages can be read without the lock
+        matching.sort(Comparator.comparingLong(match -> match.getValue().id()));
+        for (Map.Entry<ConversationKey, Entry> match : matching) {
+            consumer.accept(read(match.getValue(), match.getKey()));
+        }
+    }
+
+    @Override
+    public void forEachMemorySummary(int fetchSize, BiConsumer<ConversationKey, MemorySummary> consumer) {
+        Map<ConversationKey, MemorySummary> snapshot = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            state.summaries.forEach((key, stored) -> snapshot.put(key, new MemorySummary(stored.summary(), stored.updatedAt())));
+        } finally {
+            lock.readLock().unlock();
+        }
+        snapshot.forEach(consumer);
+    }
+
+    @Override
+    public List<Conversation> searchConversations(UUID playerUUID, String npcName, Duration memoryDuration, List<String> terms, int limit) {
+        if (terms.isEmpty()) {
+            return getRecentConversations(playerUUID, npcName, memoryDuration, limit);
+        }
+        long cutoffTimestamp = Instant.now().toEpochMilli() - memoryDuration.toMillis();
+        ConversationKey key = new ConversationKey(playerUUID, npcName);
+        KeywordMatcher matcher = new KeywordMatcher(terms);
+
+        // Newest first, so ties in the score keep the more recent message
+        List<Conversation> matches = new ArrayList<>();
+        Map<Conversation, Integer> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            List<Entry> entries = state.index.get(key);
+            if (entries == null) return matches;
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                Entry entry = entries.get(i);
+                if (entry.timestamp() <= cutoffTimestamp) break;
+                Conversation conversation = read(entry, key);
+                int score = matcher.count(conversation.getMessage());
+                if (score > 0) {
+                    matches.add(conversation);
+                    scores.put(conversation, score);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparingInt((Conversation conversation) -> scores.get(conversation)).reversed());
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    @Override
+    public void clearAllConversations() {
+        write(List.of(new LogRecord.Delete(true, true, null, null, Long.MAX_VALUE)));
+    }
+
+    @Override
+    public void clearConversationsForNpc(String npcName) {
+        write(List.of(new LogRecord.Delete(true, true, null, npcName, Long.MAX_VALUE)));
+    }
+
+    // A delete is a single record however many messages it covers, so limit does not apply
+    @Override
+    public int deleteConversationsBefore(long cutoffTimestamp, int limit) {
+        if (!hasMessagesBefore(null, cutoffTimestamp)) return 0;
+        return write(List.of(new LogRecord.Delete(true, false, null, null, cutoffTimestamp)));
+    }
+
+    @Override
+    public int deleteConversations(String npcName, int limit) {
+        if (!hasMessagesBefore(npcName, Long.MAX_VALUE)) return 0;
+        return write(List.of(new LogRecord.Delete(true, false, null, npcName, Long.MAX_VALUE)));
+    }
+
+    @Override
+    public int deleteMemorySummariesBefore(long cutoffTimestamp) {
+        lock.readLock().lock();
+        try {
+            if (state.summaries.values().stream().noneMatch(summary -> summary.updatedAt() < cutoffTimestamp)) return 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+        return write(List.of(new LogRecord.Delete(false, true, null, null, cutoffTimestamp)));
+    }
+
+    private boolean hasMessagesBefore(String npcName, long cutoffTimestamp) {
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<ConversationKey, List<Entry>> conversation : state.index.entrySet()) {
+                if ((npcName == null || npcName.equals(conversation.getKey().npcName()))
+                        && conversation.getValue().get(0).timestamp() < cutoffTimestamp) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The old name's history is moved by one small record; citizensId is not needed without a database
+    @Override
+    public boolean renameNpc(String oldName, String newName, int citizensId) {
+        lock.readLock().lock();
+        try {
+            boolean hasOld = false;
+            for (ConversationKey key : state.index.keySet()) {
+                if (key.npcName().equals(newName)) return false;
+                hasOld |= key.npcName().equals(oldName);
+            }
+            for (ConversationKey key : state.summaries.keySet()) {
+                if (key.npcName().equals(newName)) return false;
+                hasOld |= key.npcName().equals(oldName);
+            }
+            if (!hasOld) return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+        write(List.of(new LogRecord.Rename(oldName, newName)));
+        return true;
+    }
+
+    @Override
+    public MemorySummary getMemorySummary(UUID playerUUID, String npcName, Duration memoryDuration) {
+        long cutoffTimestamp = Instant.now().toEpochMilli() - memoryDuration.toMillis();
+        lock.readLock().lock();
+        try {
+            StoredSummary stored = state.summaries.get(new ConversationKey(playerUUID, npcName));
+            return stored != null && stored.updatedAt() > cutoffTimestamp ? new MemorySummary(stored.summary(), stored.updatedAt()) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ConversationKey> findConversationsToCompact(long cutoffTimestamp, long summaryDeadline, int limit) {
+        List<Map.Entry<ConversationKey, Long>> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<ConversationKey, List<Entry>> conversation : state.index.entrySet()) {
+                long oldest = conversation.getValue().get(0).timestamp();
+                if (oldest >= cutoffTimestamp) continue;
+                if (oldest > summaryDeadline) {
+                    long newestOld = oldest;
+                    for (Entry entry : conversation.getValue()) {
+                        if (entry.timestamp() < cutoffTimestamp) newestOld = Math.max(newestOld, entry.timestamp());
+                    }
+                    StoredSummary summary = state.summaries.get(conversation.getKey());
+                    if (summary == null || summary.updatedAt() < newestOld) continue;
+                }
+                candidates.add(Map.entry(conversation.getKey(), oldest));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        candidates.sort(Map.Entry.comparingByValue());
+        List<ConversationKey> keys = new ArrayList<>();
+        for (int i = 0; i < candidates.size() && i < limit; i++) {
+            keys.add(candidates.get(i).getKey());
+        }
+        return keys;
+    }
+
+    @Override
+    public List<Conversation> getConversationsBetween(ConversationKey key, long fromTimestamp, long toTimestamp) {
+        List<Conversation> conversations = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<Entry> entries = state.index.get(key);
+            if (entries == null) return conversations;
+            for (Entry entry : entries) {
+                if (entry.timestamp() > toTimestamp) break;
+                if (entry.timestamp() >= fromTimestamp) {
+                    conversations.add(read(entry, key));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return conversations;
+    }
+
+    @Override
+    public List<Conversation> getConversationsBefore(ConversationKey key, long cutoffTimestamp) {
+        List<Conversation> conversations = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<Entry> entries = state.index.get(key);
+            if (entries == null) return conversations;
+            for (Entry entry : entries) {
+                if (entry.timestamp() >= cutoffTimestamp) break;
+                conversations.add(read(entry, key));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return conversations;
+    }
+
+    @Override
+    public void replaceWithSummary(ConversationKey key, long cutoffTimestamp, MemorySummary summary) {
+        write(List.of(new LogRecord.Summary(key.playerUUID(), key.npcName(), summary.updatedAt(), summary.summary()),
+                new LogRecord.Delete(true, false, key.playerUUID(), key.npcName(), cutoffTimestamp)));
+    }
+
+    @Override
+    public List<ConversationKey> findConversationsToSummarize(int limit) {
+        List<Map.Entry<ConversationKey, Long>> pending = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<ConversationKey, List<Entry>> conversation : state.index.entrySet()) {
+                long newest = conversation.getValue().get(conversation.getValue().size() - 1).timestamp();
+                StoredSummary summary = state.summaries.get(conversation.getKey());
+                if (newest > (summary != null ? summary.updatedAt() : 0)) {
+                    pending.add(Map.entry(conversation.getKey(), newest));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        pending.sort(Map.Entry.<ConversationKey, Long>comparingByValue().reversed());
+        List<ConversationKey> keys = new ArrayList<>();
+        for (int i = 0; i < pending.size() && i < limit; i++) {
+            keys.add(pending.get(i).getKey());
+        }
+        return keys;
+    }
+
+    @Override
+    public void saveMemorySummary(ConversationKey key, MemorySummary summary) {
+        write(List.of(new LogRecord.Summary(key.playerUUID(), key.npcName(), summary.updatedAt(), summary.summary())));
+    }
+
+    private Conversation read(Entry entry, ConversationKey key) {
+        LogRecord.Decoded decoded = LogRecord.decode(entry.segment().view(), entry.position(), codec);
+        if (decoded == null || !(decoded.record() instanceof LogRecord.Message message)) {
+            throw new IllegalStateException("Conversation log entry " + entry.id() + " is unreadable");
+        }
+        return new Conversation(message.id(), key.playerUUID(), key.npcName(), message.message(), message.timestamp(), message.fromNpc());
+    }
+
+    // Blocks until the records are on disk and visible to readers; returns how many messages a delete removed
+    private int write(List<LogRecord> records) {
+        try {
+            return submit(records).join();
+        } catch (CompletionException e) {
+            logger.severe("Failed to write to the conversation log: " + e.getCause().getMessage());
+            return 0;
+        }
+    }
+
+    private CompletableFuture<Integer> submit(List<LogRecord> records) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        if (!running) {
+            result.completeExceptionally(new IllegalStateException("conversation log is closed"));
+        } else {
+            queue.add(new Task(records, result));
+        }
+        return result;
+    }
+
+    // Compacts now rather than at the next scheduled run, and waits for it to finish
+    void compactNow() {
+        submit(null).join();
+    }
+
+    // Writer thread
+
+    private void runWriter() {
+        List<Task> group = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Task first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                group.add(first);
+                queue.drainTo(group, MAX_GROUP_SIZE - 1);
+
+                List<Task> appends = new ArrayList<>();
+                for (Task task : group) {
+                    if (task.records() != null) {
+                        appends.add(task);
+                        continue;
+                    }
+                    appendGroup(appends);
+                    appends.clear();
+                    compact();
+                    task.result().complete(0);
+                }
+                appendGroup(appends);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.severe("Conversation log writer failed: " + e.getMessage());
+                for (Task task : group) {
+                    task.result().completeExceptionally(e);
+                }
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void appendGroup(List<Task> tasks) throws IOException {
+        if (tasks.isEmpty()) return;
+
+        List<List<Placement>> placements = new ArrayList<>(tasks.size());
+        Set<LogSegment> written = new LinkedHashSet<>();
+        List<ByteBuffer> pending = new ArrayList<>();
+        int pendingBytes = 0;
+        LogSegment active = segments.get(segments.size() - 1);
+
+        for (Task task : tasks) {
+            List<Placement> taskPlacements = new ArrayList<>(task.records().size());
+            for (LogRecord record : task.records()) {
+                ByteBuffer frame = LogRecord.encode(record, codec);
+                int size = frame.remaining();
+                if (!active.hasRoom(pendingBytes + size)) {
+                    if (!pending.isEmpty()) {
+                        active.append(pending);
+                        written.add(active);
+                        pending.clear();
+                        pendingBytes = 0;
+                    }
+                    active = roll(size);
+                }
+                taskPlacements.add(new Placement(record, active, active.getWritePosition() + pendingBytes, size));
+                pending.add(frame);
+                pendingBytes += size;
+            }
+            placements.add(taskPlacements);
+        }
+        if (!pending.isEmpty()) {
+            active.append(pending);
+            written.add(active);
+        }
+        if (fsync) {
+            for (LogSegment segment : written) {
+                segment.force();
+            }
+        }
+
+        int[] results = new int[tasks.size()];
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                for (Placement placement : placements.get(i)) {
+                    results[i] += apply(state, placement);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).result().complete(results[i]);
+        }
+    }
+
+    private LogSegment roll(int recordSize) throws IOException {
+        long number = segments.get(segments.size() - 1).getNumber() + 1;
+        LogSegment segment = LogSegment.open(segmentFile(number), number, Math.max(segmentSize, recordSize));
+        lock.writeLock().lock();
+        try {
+            segments.add(segment);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return segment;
+    }
+
+    // Applies one record to the index; returns the number of messages it deleted
+    private int apply(State target, Placement placement) {
+        LogRecord record = placement.record();
+        if (record instanceof LogRecord.Message message) {
+            ConversationKey key = new ConversationKey(message.playerUUID(), message.npcName());
+            List<Entry> entries = target.index.computeIfAbsent(key, k -> new ArrayList<>());
+            Entry entry = new Entry(message.id(), message.timestamp(), placement.segment(), placement.position(), placement.size());
+            int insertAt = Collections.binarySearch(entries, entry, ENTRY_ORDER);
+            entries.add(insertAt >= 0 ? insertAt : -insertAt - 1, entry);
+            target.liveBytes += placement.size();
+            nextId.accumulateAndGet(message.id() + 1, Math::max);
+        } else if (record instanceof LogRecord.Summary summary) {
+            StoredSummary previous = target.summaries.put(new ConversationKey(summary.playerUUID(), summary.npcName()),
+                    new StoredSummary(summary.summary(), summary.updatedAt(), placement.size()));
+            target.liveBytes += placement.size() - (previous != null ? previous.size() : 0);
+        } else if (record instanceof LogRecord.Delete delete) {
+            return applyDelete(target, delete);
+        } else if (record instanceof LogRecord.Rename rename) {
+            applyRename(target, rename);
+        } else if (record instanceof LogRecord.Snapshot snapshot) {
+            target.index.clear();
+            target.summaries.clear();
+            target.liveBytes = 0;
+            nextId.accumulateAndGet(snapshot.nextId(), Math::max);
+        }
+        return 0;
+    }
+
+    private int applyDelete(State target, LogRecord.Delete delete) {
+        int deleted = 0;
+        if (delete.messages()) {
+            Iterator<Map.Entry<ConversationKey, List<Entry>>> conversations = target.index.entrySet().iterator();
+            while (conversations.hasNext()) {
+                Map.Entry<ConversationKey, List<Entry>> conversation = conversations.next();
+                if (!matches(delete, conversation.getKey())) continue;
+                List<Entry> entries = conversation.getValue();
+                int expired = 0;
+                while (expired < entries.size() && entries.get(expired).timestamp() < delete.before()) {
+                    target.liveBytes -= entries.get(expired).size();
+                    expired++;
+                }
+                if (expired == entries.size()) {
+                    conversations.remove();
+                } else {
+                    entries.subList(0, expired).clear();
+                }
+                deleted += expired;
+            }
+        }
+        if (delete.summaries()) {
+            Iterator<Map.Entry<ConversationKey, StoredSummary>> summaries = target.summaries.entrySet().iterator();
+            while (summaries.hasNext()) {
+                Map.Entry<ConversationKey, StoredSummary> summary = summaries.next();
+                if (matches(delete, summary.getKey()) && summary.getValue().updatedAt() < delete.before()) {
+                    target.liveBytes -= summary.getValue().size();
+                    summaries.remove();
+                }
+            }
+        }
+        return deleted;
+    }
+
+    // Merges into whatever the new name already has, in case messages for it were written after renameNpc checked
+    private static void applyRename(State target, LogRecord.Rename rename) {
+        Map<ConversationKey, List<Entry>> moved = new HashMap<>();
+        Iterator<Map.Entry<ConversationKey, List<Entry>>> conversations = target.index.entrySet().iterator();
+        while (conversations.hasNext()) {
+            Map.Entry<ConversationKey, List<Entry>> conversation = conversations.next();
+            if (!conversation.getKey().npcName().equals(rename.oldName())) continue;
+            moved.put(new ConversationKey(conversation.getKey().playerUUID(), rename.newName()), conversation.getValue());
+            conversations.remove();
+        }
+        for (Map.Entry<ConversationKey, List<Entry>> conversation : moved.entrySet()) {
+            List<Entry> entries = target.index.computeIfAbsent(conversation.getKey(), k -> new ArrayList<>());
+            entries.addAll(conversation.getValue());
+            entries.sort(ENTRY_ORDER);
+        }
+
+        Map<ConversationKey, StoredSummary> movedSummaries = new HashMap<>();
+        Iterator<Map.Entry<ConversationKey, StoredSummary>> summaries = target.summaries.entrySet().iterator();
+        while (summaries.hasNext()) {
+            Map.Entry<ConversationKey, StoredSummary> summary = summaries.next();
+            if (!summary.getKey().npcName().equals(rename.oldName())) continue;
+            movedSummaries.put(new ConversationKey(summary.getKey().playerUUID(), rename.newName()), summary.getValue());
+            summaries.remove();
+        }
+        for (Map.Entry<ConversationKey, StoredSummary> summary : movedSummaries.entrySet()) {
+            StoredSummary previous = target.summaries.get(summary.getKey());
+            if (previous == null || previous.updatedAt() < summary.getValue().updatedAt()) {
+                target.summaries.put(summary.getKey(), summary.getValue());
+                if (previous != null) target.liveBytes -= previous.size();
+            } else {
+                target.liveBytes -= summary.getValue().size();
+            }
+        }
+    }
+
+    private static boolean matches(LogRecord.Delete delete, ConversationKey key) {
+        return (delete.playerUUID() == null || delete.playerUUID().equals(key.playerUUID()))
+                && (delete.npcName() == null || delete.npcName().equals(key.npcName()));
+    }
+
+    /**
+     * Drops history older than the memory duration, then rewrites the log if most of it is dead:
+     * a snapshot record followed by the live summaries and messages goes into a temporary file,
+     * which replaces every existing segment once it is complete and on disk.
+     */
+    private void compact() throws IOException {
+        long cutoffTimestamp = Instant.now().toEpochMilli() - memoryDuration.get().toMillis();
+        if (hasMessagesBefore(null, cutoffTimestamp) || state.summaries.values().stream().anyMatch(s -> s.updatedAt() < cutoffTimestamp)) {
+            CompletableFuture<Integer> expired = new CompletableFuture<>();
+            appendGroup(List.of(new Task(List.of(new LogRecord.Delete(true, true, null, null, cutoffTimestamp)), expired)));
+        }
+
+        long totalBytes = getTotalBytes();
+        long deadBytes = totalBytes - state.liveBytes;
+        if (deadBytes * 2 < totalBytes || deadBytes < segmentSize / 4) return;
+
+        long number = segments.get(segments.size() - 1).getNumber() + 1;
+        File temp = new File(directory, number + SEGMENT_SUFFIX + TEMP_SUFFIX);
+        int written = 0;
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            written += writeFully(channel, LogRecord.encode(new LogRecord.Snapshot(nextId.get())));
+            for (Map.Entry<ConversationKey, StoredSummary> summary : state.summaries.entrySet()) {
+                written += writeFully(channel, LogRecord.encode(new LogRecord.Summary(summary.getKey().playerUUID(),
+                        summary.getKey().npcName(), summary.getValue().updatedAt(), summary.getValue().summary())));
+            }
+            // Message frames are copied as they are, unless their NPC was renamed since they were written
+            for (Map.Entry<ConversationKey, List<Entry>> conversation : state.index.entrySet()) {
+                ConversationKey key = conversation.getKey();
+                for (Entry entry : conversation.getValue()) {
+                    LogRecord.Decoded decoded = LogRecord.decode(entry.segment().view(), entry.position());
+                    if (decoded != null && decoded.record() instanceof LogRecord.Message message
+                            && !message.npcName().equals(key.npcName())) {
+                        written += writeFully(channel, LogRecord.encode(new LogRecord.Message(message.id(), message.playerUUID(),
+                                key.npcName(), message.timestamp(), message.fromNpc(), message.message()), codec));
+                        continue;
+                    }
+                    ByteBuffer frame = entry.segment().view();
+                    frame.limit(entry.position() + entry.size()).position(entry.position());
+                    written += writeFully(channel, frame);
+                }
+            }
+            channel.force(true);
+        }
+
+        File file = segmentFile(number);
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        LogSegment compacted = LogSegment.open(file, number, Math.max(segmentSize, written));
+        State replayed = new State();
+        compacted.setWritePosition(replay(compacted, replayed));
+
+        List<LogSegment> previous;
+        lock.writeLock().lock();
+        try {
+            previous = new ArrayList<>(segments);
+            segments.clear();
+            segments.add(compacted);
+            state = replayed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (LogSegment segment : previous) {
+            segment.close();
+            if (!segment.getFile().delete()) {
+                // Still mapped on some platforms; recovery removes it on the next start since it predates the snapshot
+                logger.fine("Could not delete old conversation log segment " + segment.getFile().getName());
+            }
+        }
+        compactions.incrementAndGet();
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int size = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return size;
+    }
+
+    // Startup
+
+    private void recover() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        File[] leftovers = directory.listFiles((dir, name) -> name.endsWith(TEMP_SUFFIX));
+        if (leftovers != null) {
+            for (File leftover : leftovers) {
+                Files.deleteIfExists(leftover.toPath());
+            }
+        }
+
+        List<Long> numbers = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                try {
+                    numbers.add(Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {}
+            }
+        }
+        Collections.sort(numbers);
+
+        for (int i = 0; i < numbers.size(); i++) {
+            long number = numbers.get(i);
+            boolean last = i == numbers.size() - 1;
+            LogSegment segment = LogSegment.open(segmentFile(number), number, last ? segmentSize : 0);
+            LogRecord.Decoded first = LogRecord.decode(segment.view(), 0);
+            if (first != null && first.record() instanceof LogRecord.Snapshot) {
+                // Everything before a snapshot was compacted into it
+                for (LogSegment superseded : segments) {
+                    superseded.close();
+                    Files.deleteIfExists(superseded.getFile().toPath());
+                }
+                segments.clear();
+            }
+            segments.add(segment);
+        }
+        for (LogSegment segment : segments) {
+            segment.setWritePosition(replay(segment, state));
+        }
+        if (segments.isEmpty()) {
+            segments.add(LogSegment.open(segmentFile(1), 1, segmentSize));
+        }
+    }
+
+    // Applies every intact record of the segment and returns where the next record goes
+    private int replay(LogSegment segment, State target) {
+        ByteBuffer view = segment.view();
+        int position = 0;
+        LogRecord.Decoded decoded;
+        while ((decoded = LogRecord.decode(view, position)) != null) {
+            apply(target, new Placement(decoded.record(), segment, position, decoded.size()));
+            position += decoded.size();
+        }
+        return position;
+    }
+
+    private File segmentFile(long number) {
+        return new File(directory, number + SEGMENT_SUFFIX);
+    }
+
+    // Waits for queued writes, then closes the segments
+    public void close(long timeoutMillis) {
+        running = false;
+        compactionScheduler.shutdownNow();
+        try {
+            writer.join(Math.max(1, timeoutMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.interrupt();
+        Task task;
+        while ((task = queue.poll()) != null) {
+            task.result().completeExceptionally(new IllegalStateException("conversation log is closed"));
+        }
+        lock.writeLock().lock();
+        try {
+            for (LogSegment segment : segments) {
+                segment.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public MessageCodec getCodec() {
+        return codec;
+    }
+
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getTotalBytes() {
+        lock.readLock().lock();
+        try {
+            long total = 0;
+            for (LogSegment segment : segments) {
+                total += segment.getWritePosition();
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getLiveBytes() {
+        return state.liveBytes;
+    }
+
+    public long getCompactions() {
+        return compactions.get();
+    }
+}
@@ -1,101 +1,221 @@
 package me.xidentified.archgpt.storage.dao;
 
+import me.xidentified.archgpt.storage.MessageCodec;
+import me.xidentified.archgpt.storage.migration.ConversationMigrations;
+import me.xidentified.archgpt.storage.migration.MigrationRunner;
 import me.xidentified.archgpt.storage.model.Conversation;
+import me.xidentified.archgpt.storage.model.ConversationKey;
+import me.xidentified.archgpt.storage.model.MemorySummary;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 public class MySQLConversationDAO implements ConversationDAO {
-    private final String url;
-    private final String username;
-    private final String password;
+    private static final int RECENT_SEARCH_WINDOW = 200;
+    // Newest first with ties broken by id ascending, which is exactly the order of idx_conversations_player_npc_time
+    private static final String RECENT_PAGE =
+            "SELECT id, message, timestamp, is_from_npc FROM conversations " +
+                    "WHERE player_id = ? AND npc_id = ? AND timestamp > ? " +
+                    "ORDER BY timestamp DESC, id LIMIT ?";
+    private static final String NEXT_PAGE =
+            "SELECT id, message, timestamp, is_from_npc FROM conversations " +
+                    "WHERE player_id = ? AND npc_id = ? AND timestamp > ? " +
+                    "AND timestamp <= ? AND (timestamp < ? OR id > ?) " +
+                    "ORDER BY timestamp DESC, id LIMIT ?";
+    private static final String INSERT_CONVERSATION =
+            "INSERT INTO conversations (player_id, npc_id, message, timestamp, is_from_npc) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPSERT_SUMMARY =
+            "INSERT INTO conversation_summaries (player_id, npc_id, summary, updated_at) VALUES (?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE summary = VALUES(summary), updated_at = VALUES(updated_at)";
+    // Resolves (player_id, npc_id) rows of the derived table k back into keys
+    private static final String KEY_COLUMNS =
+            "SELECT p.uuid, n.name FROM %s k JOIN players p ON p.id = k.player_id JOIN npcs n ON n.id = k.npc_id";
+    private final DataSource dataSource;
+    private final MessageCodec codec;
+    // Ids are only ever created outside of transactions here, so a rollback never leaves a stale one cached
+    private final IdCache ids = new IdCache("INSERT IGNORE");
 
-    public MySQLConversationDAO(String host, int port, String database, String username, String password) {
-        this.url = "jdbc:mysql://" + host + ":" + port + "/" + database;
-        this.username = username;
-        this.password = password;
-        initializeDatabase();
-        addIndexOnNPCName();
-    }
-
-    private void addIndexOnNPCName() {
-        try (Connection conn = DriverManager.getConnection(url, username, password);
-             Statement stmt = conn.createStatement()) {
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_npc_name ON conversations (npc_name);");
+    public MySQLConversationDAO(DataSource dataSource, MessageCodec codec, Logger logger) {
+        this.dataSource = dataSource;
+        this.codec = codec;
+        try (Connection conn = dataSource.getConnection()) {
+            MigrationRunner.migrate(conn, ConversationMigrations.MYSQL, logger);
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
-    private void initializeDatabase() {
-        try (Connection conn = DriverManager.getConnection(url, username, password);
-             PreparedStatement stmt = conn.prepareStatement(
-                     "CREATE TABLE IF NOT EXISTS conversations (" +
-                             "player_uuid VARCHAR(36), " +
-                             "npc_name VARCHAR(255), " +
-                             "message TEXT, " +
-                             "timestamp BIGINT, " +
-                             "is_from_npc BOOLEAN, " +
-                             "PRIMARY KEY (player_uuid, timestamp))")) {
+    @Override
+    public void saveConversation(Conversation conversation) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_CONVERSATION)) {
+            stmt.setInt(1, ids.playerId(conn, conversation.getPlayerUUID(), true));
+            stmt.setInt(2, ids.npcId(conn, conversation.getNpcName(), true));
+            stmt.setBytes(3, codec.encode(conversation.getMessage()));
+            stmt.setLong(4, conversation.getTimestamp());
+            stmt.setBoolean(5, conversation.isFromNPC());
             stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Error saving conversation: " + e.getMessage(), e);
+        }
+    }
+
+    // Inserts all rows in one transaction, so a failed batch leaves nothing behind and can be retried as a whole
+    @Override
+    public void saveConversations(List<Conversation> conversations) {
+        if (conversations.isEmpty()) return;
+        try (Connection conn = dataSource.getConnection()) {
+            // Resolve ids up front, outside the batch transaction
+            Map<UUID, Integer> playerIds = new HashMap<>();
+            Map<String, Integer> npcIds = new HashMap<>();
+            for (Conversation conversation : conversations) {
+                playerIds.put(conversation.getPlayerUUID(), ids.playerId(conn, conversation.getPlayerUUID(), true));
+                npcIds.put(conversation.getNpcName(), ids.npcId(conn, conversation.getNpcName(), true));
+            }
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT_CONVERSATION)) {
+                for (Conversation conversation : conversations) {
+                    stmt.setInt(1, playerIds.get(conversation.getPlayerUUID()));
+                    stmt.setInt(2, npcIds.get(conversation.getNpcName()));
+                    stmt.setBytes(3, codec.encode(conversation.getMessage()));
+                    stmt.setLong(4, conversation.getTimestamp());
+                    stmt.setBoolean(5, conversation.isFromNPC());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error saving conversations: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<Conversation> getRecentConversations(UUID playerUUID, String npcName, Duration memoryDuration, int limit) {
+        return getConversationPage(playerUUID, npcName, memoryDuration, null, limit);
+    }
+
+    @Override
+    public List<Conversation> getConversationPage(UUID playerUUID, String npcName, Duration memoryDuration, Conversation after, int limit) {
+        List<Conversation> conversations = new ArrayList<>();
+        long cutoffTimestamp = Instant.now().toEpochMilli() - memoryDuration.toMillis();
+
+        try (Connection conn = dataSource.getConnection()) {
+            int playerId = ids.playerId(conn, playerUUID, false);
+            int npcId = ids.npcId(conn, npcName, false);
+            if (playerId == 0 || npcId == 0) return conversations;
+
+            try (PreparedStatement stmt = conn.prepareStatement(after == null ? RECENT_PAGE : NEXT_PAGE)) {
+                int i = 1;
+                stmt.setInt(i++, playerId);
+                stmt.setInt(i++, npcId);
+                stmt.setLong(i++, cutoffTimestamp);
+                if (after != null) {
+                    stmt.setLong(i++, after.getTimestamp());
+                    stmt.setLong(i++, after.getTimestamp());
+                    stmt.setLong(i++, after.getId());
+                }
+                stmt.setInt(i, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        conversations.add(readConversation(rs, playerUUID, npcName));
+                    }
+                }
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        return conversations;
     }
 
+    // Relies on useCursorFetch (set by ConnectionPools) so the driver honours the fetch size instead of buffering everything
     @Override
-    public void saveConversation(Conversation conversation) {
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+    public void forEachConversation(long sinceTimestamp, int fetchSize, Consumer<Conversation> consumer) {
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                     "INSERT INTO conversations (player_uuid, npc_name, message, timestamp, is_from_npc) VALUES (?, ?, ?, ?, ?)")) {
-            stmt.setString(1, conversation.getPlayerUUID().toString());
-            stmt.setString(2, conversation.getNpcName());
-            stmt.setString(3, conversation.getMessage());
-            stmt.setLong(4, conversation.getTimestamp());
-            stmt.setBoolean(5, conversation.isFromNPC());
-            stmt.executeUpdate();
+                     "SELECT c.id, p.uuid, n.name, c.message, c.timestamp, c.is_from_npc FROM conversations c " +
+                             "JOIN players p ON p.id = c.player_id JOIN npcs n ON n.id = c.npc_id " +
+                             "WHERE c.timestamp >= ? ORDER BY c.id",
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(fetchSize);
+            stmt.setLong(1, sinceTimestamp);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(readConversation(rs, IdCache.fromBytes(rs.getBytes("uuid")), rs.getString("name")));
+                }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new RuntimeException("Error reading conversations: " + e.getMessage(), e);
         }
     }
 
     @Override
-    public List<Conversation> getConversations(UUID playerUUID, String npcName, Duration memoryDuration) {
-        List<Conversation> conversations = new ArrayList<>();
-        long durationMillis = memoryDuration.toMillis();
-        long cutoffTimestamp = Instant.now().toEpochMilli() - durationMillis;
-
-        String query = "SELECT * FROM conversations WHERE player_uuid = ? AND npc_name = ? AND timestamp > ? ORDER BY timestamp DESC";
-        try (Connection conn = DriverManager.getConnection(url, username, password);
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setString(1, playerUUID.toString());
-            stmt.setString(2, npcName);
-            stmt.setLong(3, cutoffTimestamp);
+    public void forEachMemorySummary(int fetchSize, BiConsumer<ConversationKey, MemorySummary> consumer) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT p.uuid, n.name, s.summary, s.updated_at FROM conversation_summaries s " +
+                             "JOIN players p ON p.id = s.player_id JOIN npcs n ON n.id = s.npc_id",
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(fetchSize);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    String message = rs.getString("message");
-                    long timestamp = rs.getLong("timestamp");
-                    boolean isFromNPC = rs.getBoolean("is_from_npc");
-                    conversations.add(new Conversation(playerUUID, npcName, message, timestamp, isFromNPC));
+                    consumer.accept(new ConversationKey(IdCache.fromBytes(rs.getBytes("uuid")), rs.getString("name")),
+                            new MemorySummary(rs.getString("summary"), rs.getLong("updated_at")));
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new RuntimeException("Error reading memory summaries: " + e.getMessage(), e);
         }
-        return conversations;
+    }
+
+    private Conversation readConversation(ResultSet rs, UUID playerUUID, String npcName) throws SQLException {
+        long id = rs.getLong("id");
+        return new Conversation(id, playerUUID, npcName, codec.decode(id, rs.getBytes("message")),
+                rs.getLong("timestamp"), rs.getBoolean("is_from_npc"));
+    }
+
+    @Override
+    public List<Conversation> searchConversations(UUID playerUUID, String npcName, Duration memoryDuration, List<String> terms, int limit) {
+        // No FTS here: rank a bounded window of the most recent messages in memory instead
+        if (terms.isEmpty()) {
+            return getRecentConversations(playerUUID, npcName, memoryDuration, limit);
+        }
+        List<Conversation> recent = getRecentConversations(playerUUID, npcName, memoryDuration, RECENT_SEARCH_WINDOW);
+
+        Map<Conversation, Integer> scores = new LinkedHashMap<>();
+        for (Conversation conversation : recent) {
+            String text = conversation.getMessage().toLowerCase();
+            int score = 0;
+            for (String term : terms) {
+                if (text.contains(term)) score++;
+            }
+            if (score > 0) scores.put(conversation, score);
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Conversation, Integer>comparingByValue().reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
     }
 
     @Override
     public void clearAllConversations() {
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection();
              Statement stmt = conn.createStatement()) {
             // Delete all records from the 'conversations' table
-            String sql = "DELETE FROM conversations";
-            stmt.executeUpdate(sql);
+            stmt.executeUpdate("DELETE FROM conversations");
+            stmt.executeUpdate("DELETE FROM conversation_summaries");
         } catch (SQLException e) {
             // Handle exceptions
             throw new RuntimeException("Error clearing conversations: " + e.getMessage(), e);
@@ -104,14 +224,243 @@ public class MySQLConversationDAO implements ConversationDAO {
 
     @Override
     public void clearConversationsForNpc(String npcName) {
-        try (Connection conn = DriverManager.getConnection(url, username, password);
+        try (Connection conn = dataSource.getConnection()) {
+            int npcId = ids.npcId(conn, npcName, false);
+            if (npcId == 0) return;
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM conversations WHERE npc_id = ?")) {
+                stmt.setInt(1, npcId);
+                stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM conversation_summaries WHERE npc_id = ?")) {
+                stmt.setInt(1, npcId);
+                stmt.executeUpdate();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public int deleteConversationsBefore(long cutoffTimestamp, int limit) {
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                     "DELETE FROM conversations WHERE npc_name = ?")) {
-            stmt.setString(1, npcName);
+                     "DELETE FROM conversations WHERE timestamp < ? ORDER BY timestamp LIMIT ?")) {
+            stmt.setLong(1, cutoffTimestamp);
+            stmt.setInt(2, limit);
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    @Override
+    public int deleteConversations(String npcName, int limit) {
+        String sql = npcName == null
+                ? "DELETE FROM conversations LIMIT ?"
+                : "DELETE FROM conversations WHERE npc_id = ? LIMIT ?";
+        try (Connection conn = dataSource.getConnection()) {
+            int npcId = npcName == null ? 0 : ids.npcId(conn, npcName, false);
+            if (npcName != null && npcId == 0) return 0;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int i = 1;
+                if (npcName != null) {
+                    stmt.setInt(i++, npcId);
+                }
+                stmt.setInt(i, limit);
+                return stmt.executeUpdate();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    @Override
+    public int deleteMemorySummariesBefore(long cutoffTimestamp) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM conversation_summaries WHERE updated_at < ?")) {
+            stmt.setLong(1, cutoffTimestamp);
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean renameNpc(String oldName, String newName, int citizensId) {
+        try (Connection conn = dataSource.getConnection()) {
+            return ids.renameNpc(conn, oldName, newName, citizensId);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    @Override
+    public MemorySummary getMemorySummary(UUID playerUUID, String npcName, Duration memoryDuration) {
+        long cutoffTimestamp = Instant.now().toEpochMilli() - memoryDuration.toMillis();
+        try (Connection conn = dataSource.getConnection()) {
+            int playerId = ids.playerId(conn, playerUUID, false);
+            int npcId = ids.npcId(conn, npcName, false);
+            if (playerId == 0 || npcId == 0) return null;
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT summary, updated_at FROM conversation_summaries WHERE player_id = ? AND npc_id = ? AND updated_at > ?")) {
+                stmt.setInt(1, playerId);
+                stmt.setInt(2, npcId);
+                stmt.setLong(3, cutoffTimestamp);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? new MemorySummary(rs.getString("summary"), rs.getLong("updated_at")) : null;
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    @Override
+    public List<ConversationKey> findConversationsToCompact(long cutoffTimestamp, long summaryDeadline, int limit) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(String.format(KEY_COLUMNS,
+                     "(SELECT c.player_id, c.npc_id, MIN(c.timestamp) AS oldest FROM conversations c " +
+                     "LEFT JOIN conversation_summaries s ON s.player_id = c.player_id AND s.npc_id = c.npc_id " +
+                     "WHERE c.timestamp < ? GROUP BY c.player_id, c.npc_id " +
+                     "HAVING MIN(c.timestamp) <= ? OR MAX(s.updated_at) >= MAX(c.timestamp) " +
+                     "ORDER BY oldest LIMIT ?)") + " ORDER BY k.oldest")) {
+            stmt.setLong(1, cutoffTimestamp);
+            stmt.setLong(2, summaryDeadline);
+            stmt.setInt(3, limit);
+            return readKeys(stmt);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<Conversation> getConversationsBetween(ConversationKey key, long fromTimestamp, long toTimestamp) {
+        List<Conversation> conversations = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection()) {
+            int playerId = ids.playerId(conn, key.playerUUID(), false);
+            int npcId = ids.npcId(conn, key.npcName(), false);
+            if (playerId == 0 || npcId == 0) return conversations;
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id, message, timestamp, is_from_npc FROM conversations " +
+                            "WHERE player_id = ? AND npc_id = ? AND timestamp BETWEEN ? AND ? ORDER BY timestamp")) {
+                stmt.setInt(1, playerId);
+                stmt.setInt(2, npcId);
+                stmt.setLong(3, fromTimestamp);
+                stmt.setLong(4, toTimestamp);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        conversations.add(readConversation(rs, key.playerUUID(), key.npcName()));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reading conversations: " + e.getMessage(), e);
+        }
+        return conversations;
+    }
+
+    @Override
+    public List<Conversation> getConversationsBefore(ConversationKey key, long cutoffTimestamp) {
+        List<Conversation> conversations = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection()) {
+            int playerId = ids.playerId(conn, key.playerUUID(), false);
+            int npcId = ids.npcId(conn, key.npcName(), false);
+            if (playerId == 0 || npcId == 0) return conversations;
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id, message, timestamp, is_from_npc FROM conversations " +
+                            "WHERE player_id = ? AND npc_id = ? AND timestamp < ? ORDER BY timestamp")) {
+                stmt.setInt(1, playerId);
+                stmt.setInt(2, npcId);
+                stmt.setLong(3, cutoffTimestamp);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        conversations.add(readConversation(rs, key.playerUUID(), key.npcName()));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return conversations;
+    }
+
+    @Override
+    public void replaceWithSummary(ConversationKey key, long cutoffTimestamp, MemorySummary summary) {
+        try (Connection conn = dataSource.getConnection()) {
+            int playerId = ids.playerId(conn, key.playerUUID(), true);
+            int npcId = ids.npcId(conn, key.npcName(), true);
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement upsert = conn.prepareStatement(UPSERT_SUMMARY);
+                 PreparedStatement delete = conn.prepareStatement(
+                         "DELETE FROM conversations WHERE player_id = ? AND npc_id = ? AND timestamp < ?")) {
+                upsert.setInt(1, playerId);
+                upsert.setInt(2, npcId);
+                upsert.setString(3, summary.summary());
+                upsert.setLong(4, summary.updatedAt());
+                upsert.executeUpdate();
+
+                delete.setInt(1, playerId);
+                delete.setInt(2, npcId);
+                delete.setLong(3, cutoffTimestamp);
+                delete.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public List<ConversationKey> findConversationsToSummarize(int limit) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(String.format(KEY_COLUMNS,
+                     "(SELECT c.player_id, c.npc_id, MAX(c.timestamp) AS newest FROM conversations c " +
+                             "LEFT JOIN conversation_summaries s ON s.player_id = c.player_id AND s.npc_id = c.npc_id " +
+                             "GROUP BY c.player_id, c.npc_id " +
+                             "HAVING MAX(c.timestamp) > COALESCE(MAX(s.updated_at), 0) " +
+                             "ORDER BY newest DESC LIMIT ?)") + " ORDER BY k.newest DESC")) {
+            stmt.setInt(1, limit);
+            return readKeys(stmt);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void saveMemorySummary(ConversationKey key, MemorySummary summary) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(UPSERT_SUMMARY)) {
+            stmt.setInt(1, ids.playerId(conn, key.playerUUID(), true));
+            stmt.setInt(2, ids.npcId(conn, key.npcName(), true));
+            stmt.setString(3, summary.summary());
+            stmt.setLong(4, summary.updatedAt());
             stmt.executeUpdate();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    private static List<ConversationKey> readKeys(PreparedStatement stmt) throws SQLException {
+        List<ConversationKey> keys = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                keys.add(new ConversationKey(IdCache.fromBytes(rs.getBytes("uuid")), rs.getString("name")));
+            }
+        }
+        return keys;
+    }
 }
@@ -1,24 +1,24 @@
 package me.xidentified.archgpt.storage.dao;
 
-import com.zaxxer.hikari.HikariConfig;
-import com.zaxxer.hikari.HikariDataSource;
+import me.xidentified.archgpt.storage.migration.MigrationRunner;
 import me.xidentified.archgpt.storage.model.Report;
+import me.xidentified.archgpt.storage.model.ReportFilter;
 import net.kyori.adventure.text.Component;
 
+import javax.sql.DataSource;
 import java.sql.*;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 
 public class MySQLReportDAO implements ReportDAO {
-    private final HikariDataSource dataSource;
-    public MySQLReportDAO(String host, int port, String database, String username, String password) {
-        HikariConfig config = new HikariConfig();
-        config.setJdbcUrl("jdbc:mysql://" + host + ":" + port + "/" + database + "?useSSL=false");
-        config.setUsername(username);
-        config.setPassword(password);
+    private final DataSource dataSource;
+    private final Logger logger;
 
-        this.dataSource = new HikariDataSource(config);
+    public MySQLReportDAO(DataSource dataSource, Logger logger) {
+        this.dataSource = dataSource;
+        this.logger = logger;
 
         // Initialize the database (create tables etc.)
         initialize();
@@ -36,8 +36,15 @@ public class MySQLReportDAO implements ReportDAO {
                     "timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
                     ");";
             stmt.execute(sql);
+            // The report GUI filters by NPC or type and pages by id, which both indexes cover
+            if (!MigrationRunner.indexExists(conn, "reports", "idx_reports_npc")) {
+                stmt.execute("CREATE INDEX idx_reports_npc ON reports (npcName)");
+            }
+            if (!MigrationRunner.indexExists(conn, "reports", "idx_reports_type")) {
+                stmt.execute("CREATE INDEX idx_reports_type ON reports (reportType)");
+            }
         } catch (SQLException e) {
-            System.out.println(e.getMessage());
+            logger.warning(e.getMessage());
         }
     }
 
@@ -45,7 +52,7 @@ public class MySQLReportDAO implements ReportDAO {
     public void saveReport(Report report) {
         if (report.getReportType() == null) {
             // Handle null reportType, e.g., log an error or set a default value
-            System.out.println("Error: reportType was null!");
+            logger.warning("Error: reportType was null!");
         }
 
         String sql = "INSERT INTO reports (playerName, npcName, reportType, feedback, npcResponse, timestamp) VALUES(?,?,?,?,?,?)";
@@ -60,7 +67,78 @@ public class MySQLReportDAO implements ReportDAO {
             pstmt.setTimestamp(6, Timestamp.valueOf(report.getTimestamp()));
             pstmt.executeUpdate();
         } catch (SQLException e) {
-            System.out.println(e.getMessage());
+            logger.warning(e.getMessage());
+        }
+    }
+
+    @Override
+    public void saveReports(List<Report> reports) {
+        String sql = "INSERT INTO reports (playerName, npcName, reportType, feedback, npcResponse, timestamp) VALUES(?,?,?,?,?,?)";
+
+        try (Connection conn = this.dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (Report report : reports) {
+                    pstmt.setString(1, report.getPlayerName());
+                    pstmt.setString(2, report.getNpcName());
+                    pstmt.setString(3, report.getReportType());
+                    pstmt.setString(4, report.getFeedback());
+                    pstmt.setString(5, report.getNpcResponse());
+                    pstmt.setTimestamp(6, Timestamp.valueOf(report.getTimestamp()));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.warning(e.getMessage());
+        }
+    }
+
+    // Missing feedback is exported as an empty string, so the two count as equal
+    @Override
+    public int importReports(List<Report> reports) {
+        String sql = "INSERT INTO reports (playerName, npcName, reportType, feedback, npcResponse, timestamp) SELECT ?,?,?,?,?,? FROM DUAL " +
+                "WHERE NOT EXISTS (SELECT 1 FROM reports WHERE npcName = ? AND playerName = ? AND reportType = ? " +
+                "AND timestamp = ? AND COALESCE(feedback, '') = COALESCE(?, ''))";
+
+        try (Connection conn = this.dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (Report report : reports) {
+                    Timestamp timestamp = Timestamp.valueOf(report.getTimestamp());
+                    pstmt.setString(1, report.getPlayerName());
+                    pstmt.setString(2, report.getNpcName());
+                    pstmt.setString(3, report.getReportType());
+                    pstmt.setString(4, report.getFeedback());
+                    pstmt.setString(5, report.getNpcResponse());
+                    pstmt.setTimestamp(6, timestamp);
+                    pstmt.setString(7, report.getNpcName());
+                    pstmt.setString(8, report.getPlayerName());
+                    pstmt.setString(9, report.getReportType());
+                    pstmt.setTimestamp(10, timestamp);
+                    pstmt.setString(11, report.getFeedback());
+                    pstmt.addBatch();
+                }
+                int inserted = 0;
+                for (int count : pstmt.executeBatch()) {
+                    inserted += Math.max(0, count);
+                }
+                conn.commit();
+                return inserted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error saving reports: " + e.getMessage(), e);
         }
     }
 
@@ -74,32 +152,107 @@ public class MySQLReportDAO implements ReportDAO {
              ResultSet rs    = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                int id = rs.getInt("id"); // Fetch the report ID
-                String playerName = rs.getString("playerName");
-                String npcName = rs.getString("npcName");
-                String reportType = rs.getString("reportType");
-                String feedback = rs.getString("feedback");
-                String npcResponse = rs.getString("npcResponse");
-                LocalDateTime timestamp = rs.getTimestamp("timestamp").toLocalDateTime();
-
-                // Pass the fetched ID to the Report constructor
-                Report report = new Report(
-                        id,
-                        playerName,
-                        npcName,
-                        reportType,
-                        Component.text(feedback),
-                        npcResponse,
-                        timestamp);
-
-                reports.add(report);
+                reports.add(readReport(rs));
+            }
+        } catch (SQLException e) {
+            logger.warning(e.getMessage());
+        }
+        return reports;
+    }
+
+    @Override
+    public List<Report> getReports(ReportFilter filter, Integer beforeId, int limit) {
+        List<Report> reports = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT id, playerName, npcName, reportType, feedback, npcResponse, timestamp FROM reports" +
+                buildWhere(filter, beforeId, params) + " ORDER BY id DESC LIMIT ?";
+        params.add(limit);
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    reports.add(readReport(rs));
+                }
             }
         } catch (SQLException e) {
-            System.out.println(e.getMessage());
+            logger.warning(e.getMessage());
         }
         return reports;
     }
 
+    @Override
+    public int countReports(ReportFilter filter) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM reports" + buildWhere(filter, null, params);
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            logger.warning(e.getMessage());
+        }
+        return 0;
+    }
+
+    // Relies on useCursorFetch (set by ConnectionPools) so the driver honours the fetch size
+    @Override
+    public void forEachReport(int fetchSize, Consumer<Report> consumer) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT id, playerName, npcName, reportType, feedback, npcResponse, timestamp FROM reports ORDER BY id",
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(fetchSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(readReport(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reading reports: " + e.getMessage(), e);
+        }
+    }
+
+    private static String buildWhere(ReportFilter filter, Integer beforeId, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.npcName() != null) {
+            conditions.add("npcName = ?");
+            params.add(filter.npcName());
+        }
+        if (filter.reportType() != null) {
+            conditions.add("reportType = ?");
+            params.add(filter.reportType());
+        }
+        if (filter.since() != null) {
+            conditions.add("timestamp >= ?");
+            params.add(Timestamp.valueOf(filter.since()));
+        }
+        if (beforeId != null) {
+            conditions.add("id < ?");
+            params.add(beforeId);
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static Report readReport(ResultSet rs) throws SQLException {
+        return new Report(
+                rs.getInt("id"),
+                rs.getString("playerName"),
+                rs.getString("npcName"),
+                rs.getString("reportType"),
+                Component.text(rs.getString("feedback")),
+                rs.getString("npcResponse"),
+                rs.getTimestamp("timestamp").toLocalDateTime());
+    }
+
     @Override
     public void deleteReport(int reportId) {
         String sql = "DELETE FROM reports WHERE id = ?";
@@ -111,7 +264,7 @@ public class MySQLReportDAO implements ReportDAO {
             pstmt.executeUpdate();
 
         } catch (SQLException e) {
-            System.out.println(e.getMessage());
+            logger.warning(e.getMessage());
         }
     }
 
@@ -119,10 +272,4 @@ public class MySQLReportDAO implements ReportDAO {
     public void loadReports() {
         // This method is not needed for MySQL as the getAllReports() method already handles loading.
     }
-
-    public void closeConnectionPool() {
-        if (dataSource != null && !dataSource.isClosed()) {
-            dataSource.close();
-        }
-    }
 }
@@ -0,0 +1,123 @@
+package me.xidentified.archgpt.storage.dao;
+
+import me.xidentified.archgpt.storage.model.SharedSession;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+// Plain SQL without MySQL-only syntax, so an embedded database in MySQL mode can stand in for it
+public class MySQLSessionDAO implements SessionDAO {
+    private final DataSource dataSource;
+    private final Logger logger;
+
+    public MySQLSessionDAO(DataSource dataSource, Logger logger) {
+        this.dataSource = dataSource;
+        this.logger = logger;
+        initialize();
+    }
+
+    private void initialize() {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS conversation_sessions (" +
+                    "player_uuid VARCHAR(36) NOT NULL PRIMARY KEY, " +
+                    "npc_id INT NOT NULL, " +
+                    "npc_name VARCHAR(255) NOT NULL, " +
+                    "state MEDIUMTEXT NOT NULL, " +
+                    "version BIGINT NOT NULL, " +
+                    "updated_at BIGINT NOT NULL, " +
+                    "server VARCHAR(64))");
+        } catch (SQLException e) {
+            logger.warning("Could not create the conversation_sessions table: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public SharedSession loadSession(UUID playerUUID) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT npc_id, npc_name, state, version, updated_at, server FROM conversation_sessions WHERE player_uuid = ?")) {
+            stmt.setString(1, playerUUID.toString());
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new SharedSession(playerUUID, rs.getInt("npc_id"), rs.getString("npc_name"), rs.getString("state"),
+                            rs.getLong("version"), rs.getLong("updated_at"), rs.getString("server"));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    @Override
+    public boolean insertSession(SharedSession session) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO conversation_sessions (player_uuid, npc_id, npc_name, state, version, updated_at, server) " +
+                             "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            stmt.setString(1, session.playerUUID().toString());
+            stmt.setInt(2, session.npcId());
+            stmt.setString(3, session.npcName());
+            stmt.setString(4, session.state());
+            stmt.setLong(5, session.version());
+            stmt.setLong(6, session.updatedAt());
+            stmt.setString(7, session.server());
+            stmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            // Integrity constraint violation: another server inserted first
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                return false;
+            }
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean updateSession(SharedSession session, long expectedVersion) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "UPDATE conversation_sessions SET npc_id = ?, npc_name = ?, state = ?, version = ?, updated_at = ?, server = ? " +
+                             "WHERE player_uuid = ? AND version = ?")) {
+            stmt.setInt(1, session.npcId());
+            stmt.setString(2, session.npcName());
+            stmt.setString(3, session.state());
+            stmt.setLong(4, expectedVersion + 1);
+            stmt.setLong(5, session.updatedAt());
+            stmt.setString(6, session.server());
+            stmt.setString(7, session.playerUUID().toString());
+            stmt.setLong(8, expectedVersion);
+            return stmt.executeUpdate() == 1;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    @Override
+    public void deleteSession(UUID playerUUID) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM conversation_sessions WHERE player_uuid = ?")) {
+            stmt.setString(1, playerUUID.toString());
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public int deleteSessionsBefore(long cutoffTimestamp) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM conversation_sessions WHERE updated_at < ?")) {
+            stmt.setLong(1, cutoffTimestamp);
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+}
@@ -2,12 +2,24 @@ package me.xidentified.archgpt.storage.dao;
 
 
 import me.xidentified.archgpt.storage.model.Report;
+import me.xidentified.archgpt.storage.model.ReportFilter;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ReportDAO {
     void saveReport(Report report);
+    // One transaction for the whole list; report ids are assigned anew
+    void saveReports(List<Report> reports);
+    // Like saveReports, but skips a report whose player, NPC, type, feedback and timestamp match a stored one,
+    // so importing the same reports twice adds nothing. Returns the number inserted; throws if none could be.
+    int importReports(List<Report> reports);
     List<Report> getAllReports();
+    // Newest first, at most limit reports with an id below beforeId (null for the first page)
+    List<Report> getReports(ReportFilter filter, Integer beforeId, int limit);
+    int countReports(ReportFilter filter);
+    // Streams every report oldest first, fetchSize rows at a time. Throws if the rows can't be read to the end.
+    void forEachReport(int fetchSize, Consumer<Report> consumer);
     void deleteReport(int reportId);
     void loadReports();
 }
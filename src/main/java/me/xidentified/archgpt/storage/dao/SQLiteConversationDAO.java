@@ -1,96 +1,255 @@
 package me.xidentified.archgpt.storage.dao;
 
+import me.xidentified.archgpt.storage.SQLiteEngine;
+import me.xidentified.archgpt.storage.migration.ConversationMigrations;
+import me.xidentified.archgpt.storage.migration.MigrationRunner;
 import me.xidentified.archgpt.storage.model.Conversation;
+import me.xidentified.archgpt.storage.model.ConversationKey;
+import me.xidentified.archgpt.storage.model.MemorySummary;
 
-import java.io.File;
 import java.sql.*;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 
 public class SQLiteConversationDAO implements ConversationDAO {
-    private final String url;
+    private static final String INSERT_CONVERSATION =
+            "INSERT INTO conversations (player_id, npc_id, message, timestamp, is_from_npc) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPSERT_SUMMARY =
+            "INSERT INTO conversation_summaries (player_id, npc_id, summary, updated_at) VALUES (?, ?, ?, ?) " +
+                    "ON CONFLICT(player_id, npc_id) DO UPDATE SET summary = excluded.summary, updated_at = excluded.updated_at";
+    // Newest first with ties broken by id ascending, which is exactly the order of idx_conversations_player_npc_time
+    private static final String RECENT_PAGE =
+            "SELECT id, message, timestamp, is_from_npc FROM conversations " +
+                    "WHERE player_id = ? AND npc_id = ? AND timestamp > ? " +
+                    "ORDER BY timestamp DESC, id LIMIT ?";
+    private static final String NEXT_PAGE =
+            "SELECT id, message, timestamp, is_from_npc FROM conversations " +
+                    "WHERE player_id = ? AND npc_id = ? AND timestamp > ? " +
+                    "AND timestamp <= ? AND (timestamp < ? OR id > ?) " +
+                    "ORDER BY timestamp DESC, id LIMIT ?";
+    // Resolves (player_id, npc_id) rows of the derived table k back into keys
+    private static final String KEY_COLUMNS =
+            "SELECT p.uuid, n.name FROM %s k JOIN players p ON p.id = k.player_id JOIN npcs n ON n.id = k.npc_id";
 
-    public SQLiteConversationDAO(File sqliteFile) {
-        this.url = "jdbc:sqlite:" + sqliteFile.getAbsolutePath();
-        initializeDatabase();
-        addIndices();
-    }
+    private final SQLiteEngine engine;
+    private final IdCache ids = new IdCache("INSERT OR IGNORE");
 
-    private void addIndices() {
-        try (Connection conn = DriverManager.getConnection(url);
-             Statement stmt = conn.createStatement()) {
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_player_uuid ON conversations (player_uuid);");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_npc_name ON conversations (npc_name);");
+    public SQLiteConversationDAO(SQLiteEngine engine, Logger logger) {
+        this.engine = engine;
+        try {
+            write(session -> MigrationRunner.migrate(session.getConnection(), ConversationMigrations.SQLITE, logger));
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
-    private void initializeDatabase() {
-        try (Connection conn = DriverManager.getConnection(url);
-             PreparedStatement stmt = conn.prepareStatement(
-                     "CREATE TABLE IF NOT EXISTS conversations (" +
-                             "player_uuid TEXT, " +
-                             "npc_name TEXT, " +
-                             "message TEXT, " +
-                             "is_from_npc BOOLEAN, " +
-                             "timestamp INTEGER)")) {
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
+    // Ids created by a transaction that rolls back must not stay cached
+    private <T> T write(SQLiteEngine.SqlWork<T> work) throws SQLException {
+        try {
+            return engine.write(work);
+        } catch (SQLException | RuntimeException e) {
+            ids.invalidate();
+            throw e;
         }
     }
 
     @Override
     public void saveConversation(Conversation conversation) {
-        try (Connection conn = DriverManager.getConnection(url);
-             PreparedStatement stmt = conn.prepareStatement(
-                     "INSERT INTO conversations (player_uuid, npc_name, message, timestamp, is_from_npc) VALUES (?, ?, ?, ?, ?)")) {
-            stmt.setString(1, conversation.getPlayerUUID().toString());
-            stmt.setString(2, conversation.getNpcName());
-            stmt.setString(3, conversation.getMessage());
-            stmt.setLong(4, conversation.getTimestamp());
-            stmt.setBoolean(5, conversation.isFromNPC());
-            stmt.executeUpdate();
+        try {
+            write(session -> {
+                PreparedStatement stmt = session.prepare(INSERT_CONVERSATION);
+                bindConversation(session, stmt, conversation);
+                return stmt.executeUpdate();
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Error saving conversation: " + e.getMessage(), e);
+        }
+    }
+
+    // Inserts all rows in one transaction, so a failed batch leaves nothing behind and can be retried as a whole
+    @Override
+    public void saveConversations(List<Conversation> conversations) {
+        if (conversations.isEmpty()) return;
+        try {
+            write(session -> {
+                PreparedStatement stmt = session.prepare(INSERT_CONVERSATION);
+                for (Conversation conversation : conversations) {
+                    bindConversation(session, stmt, conversation);
+                    stmt.addBatch();
+                }
+                return stmt.executeBatch();
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Error saving conversations: " + e.getMessage(), e);
+        }
+    }
+
+    private void bindConversation(SQLiteEngine.Session session, PreparedStatement stmt, Conversation conversation) throws SQLException {
+        stmt.setInt(1, ids.playerId(session.getConnection(), conversation.getPlayerUUID(), true));
+        stmt.setInt(2, ids.npcId(session.getConnection(), conversation.getNpcName(), true));
+        stmt.setString(3, conversation.getMessage());
+        stmt.setLong(4, conversation.getTimestamp());
+        stmt.setBoolean(5, conversation.isFromNPC());
+    }
+
+    @Override
+    public List<Conversation> getRecentConversations(UUID playerUUID, String npcName, Duration memoryDuration, int limit) {
+        return getConversationPage(playerUUID, npcName, memoryDuration, null, limit);
+    }
+
+    @Override
+    public List<Conversation> getConversationPage(UUID playerUUID, String npcName, Duration memoryDuration, Conversation after, int limit) {
+        long cutoffTimestamp = Instant.now().toEpochMilli() - memoryDuration.toMillis();
+        String query = after == null ? RECENT_PAGE : NEXT_PAGE;
+        try {
+            return engine.read(session -> {
+                List<Conversation> conversations = new ArrayList<>();
+                int playerId = ids.playerId(session.getConnection(), playerUUID, false);
+                int npcId = ids.npcId(session.getConnection(), npcName, false);
+                if (playerId == 0 || npcId == 0) return conversations;
+
+                PreparedStatement stmt = session.prepare(query);
+                int i = 1;
+                stmt.setInt(i++, playerId);
+                stmt.setInt(i++, npcId);
+                stmt.setLong(i++, cutoffTimestamp);
+                if (after != null) {
+                    stmt.setLong(i++, after.getTimestamp());
+                    stmt.setLong(i++, after.getTimestamp());
+                    stmt.setLong(i++, after.getId());
+                }
+                stmt.setInt(i, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        conversations.add(readConversation(rs, playerUUID, npcName));
+                    }
+                }
+                return conversations;
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        return new ArrayList<>();
     }
 
     @Override
-    public List<Conversation> getConversations(UUID playerUUID, String npcName, Duration memoryDuration) {
-        List<Conversation> conversations = new ArrayList<>();
-        long durationMillis = memoryDuration.toMillis();
-        long cutoffTimestamp = Instant.now().toEpochMilli() - durationMillis;
+    public void forEachConversation(long sinceTimestamp, int fetchSize, Consumer<Conversation> consumer) {
+        try {
+            engine.read(session -> {
+                try (PreparedStatement stmt = session.getConnection().prepareStatement(
+                        "SELECT c.id, p.uuid, n.name, c.message, c.timestamp, c.is_from_npc FROM conversations c " +
+                                "JOIN players p ON p.id = c.player_id JOIN npcs n ON n.id = c.npc_id " +
+                                "WHERE c.timestamp >= ? ORDER BY c.id")) {
+                    stmt.setFetchSize(fetchSize);
+                    stmt.setLong(1, sinceTimestamp);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            consumer.accept(readConversation(rs, IdCache.fromBytes(rs.getBytes("uuid")), rs.getString("name")));
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reading conversations: " + e.getMessage(), e);
+        }
+    }
 
-        String query = "SELECT * FROM conversations WHERE player_uuid = ? AND npc_name = ? AND timestamp > ? ORDER BY timestamp DESC";
-        try (Connection conn = DriverManager.getConnection(url);
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setString(1, playerUUID.toString());
-            stmt.setString(2, npcName);
-            stmt.setLong(3, cutoffTimestamp);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    String message = rs.getString("message");
-                    long timestamp = rs.getLong("timestamp");
-                    boolean isFromNPC = rs.getBoolean("is_from_npc");
-                    conversations.add(new Conversation(playerUUID, npcName, message, timestamp, isFromNPC));
+    @Override
+    public void forEachMemorySummary(int fetchSize, BiConsumer<ConversationKey, MemorySummary> consumer) {
+        try {
+            engine.read(session -> {
+                try (PreparedStatement stmt = session.getConnection().prepareStatement(
+                        "SELECT p.uuid, n.name, s.summary, s.updated_at FROM conversation_summaries s " +
+                                "JOIN players p ON p.id = s.player_id JOIN npcs n ON n.id = s.npc_id")) {
+                    stmt.setFetchSize(fetchSize);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            consumer.accept(new ConversationKey(IdCache.fromBytes(rs.getBytes("uuid")), rs.getString("name")),
+                                    new MemorySummary(rs.getString("summary"), rs.getLong("updated_at")));
+                        }
+                    }
                 }
-            }
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reading memory summaries: " + e.getMessage(), e);
+        }
+    }
+
+    private static Conversation readConversation(ResultSet rs, UUID playerUUID, String npcName) throws SQLException {
+        return new Conversation(rs.getLong("id"), playerUUID, npcName, rs.getString("message"),
+                rs.getLong("timestamp"), rs.getBoolean("is_from_npc"));
+    }
+
+    @Override
+    public List<Conversation> searchConversations(UUID playerUUID, String npcName, Duration memoryDuration, List<String> terms, int limit) {
+        if (terms.isEmpty()) {
+            return getRecentConversations(playerUUID, npcName, memoryDuration, limit);
+        }
+        long cutoffTimestamp = Instant.now().toEpochMilli() - memoryDuration.toMillis();
+
+        String query = "SELECT c.id, c.message, c.timestamp, c.is_from_npc FROM conversations_fts f " +
+                "JOIN conversations c ON c.id = f.rowid " +
+                "WHERE conversations_fts MATCH ? AND c.player_id = ? AND c.npc_id = ? AND c.timestamp > ? " +
+                "ORDER BY bm25(conversations_fts, 10.0, 0.0, 0.0) LIMIT ?";
+
+        try {
+            return engine.read(session -> {
+                List<Conversation> conversations = new ArrayList<>();
+                int playerId = ids.playerId(session.getConnection(), playerUUID, false);
+                int npcId = ids.npcId(session.getConnection(), npcName, false);
+                if (playerId == 0 || npcId == 0) return conversations;
+
+                PreparedStatement stmt = session.prepare(query);
+                stmt.setString(1, buildMatchExpression(playerId, npcId, terms));
+                stmt.setInt(2, playerId);
+                stmt.setInt(3, npcId);
+                stmt.setLong(4, cutoffTimestamp);
+                stmt.setInt(5, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        conversations.add(readConversation(rs, playerUUID, npcName));
+                    }
+                }
+                return conversations;
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return conversations;
+        return new ArrayList<>();
+    }
+
+    // e.g. player_id : "12" AND npc_id : "3" AND message : ("carrot" OR "farm")
+    private String buildMatchExpression(int playerId, int npcId, List<String> terms) {
+        StringBuilder match = new StringBuilder();
+        match.append("player_id : ").append(quote(Integer.toString(playerId)));
+        match.append(" AND npc_id : ").append(quote(Integer.toString(npcId)));
+        match.append(" AND message : (");
+        for (int i = 0; i < terms.size(); i++) {
+            if (i > 0) match.append(" OR ");
+            match.append(quote(terms.get(i)));
+        }
+        return match.append(')').toString();
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
     }
 
     @Override
     public void clearAllConversations() {
-        try (Connection conn = DriverManager.getConnection(url);
-             Statement stmt = conn.createStatement()) {
-            stmt.execute("DELETE FROM conversations");
+        try {
+            write(session -> {
+                session.prepare("DELETE FROM conversations").executeUpdate();
+                return session.prepare("DELETE FROM conversation_summaries").executeUpdate();
+            });
         } catch (SQLException e) {
             throw new RuntimeException("Error clearing conversations: " + e.getMessage(), e);
         }
@@ -98,14 +257,255 @@ public class SQLiteConversationDAO implements ConversationDAO {
 
     @Override
     public void clearConversationsForNpc(String npcName) {
-        try (Connection conn = DriverManager.getConnection(url);
-             PreparedStatement stmt = conn.prepareStatement(
-                     "DELETE FROM conversations WHERE npc_name = ?")) {
-            stmt.setString(1, npcName);
-            stmt.executeUpdate();
+        try {
+            write(session -> {
+                int npcId = ids.npcId(session.getConnection(), npcName, false);
+                if (npcId == 0) return 0;
+                PreparedStatement stmt = session.prepare("DELETE FROM conversations WHERE npc_id = ?");
+                stmt.setInt(1, npcId);
+                stmt.executeUpdate();
+                stmt = session.prepare("DELETE FROM conversation_summaries WHERE npc_id = ?");
+                stmt.setInt(1, npcId);
+                return stmt.executeUpdate();
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public int deleteConversationsBefore(long cutoffTimestamp, int limit) {
+        try {
+            return write(session -> {
+                PreparedStatement stmt = session.prepare("DELETE FROM conversations WHERE id IN " +
+                        "(SELECT id FROM conversations WHERE timestamp < ? ORDER BY timestamp LIMIT ?)");
+                stmt.setLong(1, cutoffTimestamp);
+                stmt.setInt(2, limit);
+                return stmt.executeUpdate();
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    @Override
+    public int deleteConversations(String npcName, int limit) {
+        try {
+            return write(session -> {
+                PreparedStatement stmt;
+                if (npcName == null) {
+                    stmt = session.prepare("DELETE FROM conversations WHERE id IN (SELECT id FROM conversations LIMIT ?)");
+                    stmt.setInt(1, limit);
+                } else {
+                    int npcId = ids.npcId(session.getConnection(), npcName, false);
+                    if (npcId == 0) return 0;
+                    stmt = session.prepare("DELETE FROM conversations WHERE id IN " +
+                            "(SELECT id FROM conversations WHERE npc_id = ? LIMIT ?)");
+                    stmt.setInt(1, npcId);
+                    stmt.setInt(2, limit);
+                }
+                return stmt.executeUpdate();
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    @Override
+    public int deleteMemorySummariesBefore(long cutoffTimestamp) {
+        try {
+            return write(session -> {
+                PreparedStatement stmt = session.prepare("DELETE FROM conversation_summaries WHERE updated_at < ?");
+                stmt.setLong(1, cutoffTimestamp);
+                return stmt.executeUpdate();
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean renameNpc(String oldName, String newName, int citizensId) {
+        try {
+            return write(session -> ids.renameNpc(session.getConnection(), oldName, newName, citizensId));
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        return false;
     }
 
+    @Override
+    public MemorySummary getMemorySummary(UUID playerUUID, String npcName, Duration memoryDuration) {
+        long cutoffTimestamp = Instant.now().toEpochMilli() - memoryDuration.toMillis();
+        try {
+            return engine.read(session -> {
+                int playerId = ids.playerId(session.getConnection(), playerUUID, false);
+                int npcId = ids.npcId(session.getConnection(), npcName, false);
+                if (playerId == 0 || npcId == 0) return null;
+
+                PreparedStatement stmt = session.prepare(
+                        "SELECT summary, updated_at FROM conversation_summaries WHERE player_id = ? AND npc_id = ? AND updated_at > ?");
+                stmt.setInt(1, playerId);
+                stmt.setInt(2, npcId);
+                stmt.setLong(3, cutoffTimestamp);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? new MemorySummary(rs.getString("summary"), rs.getLong("updated_at")) : null;
+                }
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    @Override
+    public List<ConversationKey> findConversationsToCompact(long cutoffTimestamp, long summaryDeadline, int limit) {
+        try {
+            return engine.read(session -> {
+                PreparedStatement stmt = session.prepare(String.format(KEY_COLUMNS,
+                        "(SELECT c.player_id, c.npc_id, MIN(c.timestamp) AS oldest FROM conversations c " +
+                        "LEFT JOIN conversation_summaries s ON s.player_id = c.player_id AND s.npc_id = c.npc_id " +
+                        "WHERE c.timestamp < ? GROUP BY c.player_id, c.npc_id " +
+                        "HAVING MIN(c.timestamp) <= ? OR MAX(s.updated_at) >= MAX(c.timestamp) " +
+                        "ORDER BY oldest LIMIT ?)") + " ORDER BY k.oldest");
+                stmt.setLong(1, cutoffTimestamp);
+                stmt.setLong(2, summaryDeadline);
+                stmt.setInt(3, limit);
+                return readKeys(stmt);
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<Conversation> getConversationsBetween(ConversationKey key, long fromTimestamp, long toTimestamp) {
+        try {
+            return engine.read(session -> {
+                List<Conversation> conversations = new ArrayList<>();
+                int playerId = ids.playerId(session.getConnection(), key.playerUUID(), false);
+                int npcId = ids.npcId(session.getConnection(), key.npcName(), false);
+                if (playerId == 0 || npcId == 0) return conversations;
+
+                PreparedStatement stmt = session.prepare(
+                        "SELECT id, message, timestamp, is_from_npc FROM conversations " +
+                                "WHERE player_id = ? AND npc_id = ? AND timestamp BETWEEN ? AND ? ORDER BY timestamp");
+                stmt.setInt(1, playerId);
+                stmt.setInt(2, npcId);
+                stmt.setLong(3, fromTimestamp);
+                stmt.setLong(4, toTimestamp);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        conversations.add(readConversation(rs, key.playerUUID(), key.npcName()));
+                    }
+                }
+                return conversations;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reading conversations: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<Conversation> getConversationsBefore(ConversationKey key, long cutoffTimestamp) {
+        try {
+            return engine.read(session -> {
+                List<Conversation> conversations = new ArrayList<>();
+                int playerId = ids.playerId(session.getConnection(), key.playerUUID(), false);
+                int npcId = ids.npcId(session.getConnection(), key.npcName(), false);
+                if (playerId == 0 || npcId == 0) return conversations;
+
+                PreparedStatement stmt = session.prepare(
+                        "SELECT id, message, timestamp, is_from_npc FROM conversations " +
+                                "WHERE player_id = ? AND npc_id = ? AND timestamp < ? ORDER BY timestamp");
+                stmt.setInt(1, playerId);
+                stmt.setInt(2, npcId);
+                stmt.setLong(3, cutoffTimestamp);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        conversations.add(readConversation(rs, key.playerUUID(), key.npcName()));
+                    }
+                }
+                return conversations;
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void replaceWithSummary(ConversationKey key, long cutoffTimestamp, MemorySummary summary) {
+        try {
+            write(session -> {
+                int playerId = ids.playerId(session.getConnection(), key.playerUUID(), true);
+                int npcId = ids.npcId(session.getConnection(), key.npcName(), true);
+
+                PreparedStatement upsert = session.prepare(UPSERT_SUMMARY);
+                upsert.setInt(1, playerId);
+                upsert.setInt(2, npcId);
+                upsert.setString(3, summary.summary());
+                upsert.setLong(4, summary.updatedAt());
+                upsert.executeUpdate();
+
+                PreparedStatement delete = session.prepare(
+                        "DELETE FROM conversations WHERE player_id = ? AND npc_id = ? AND timestamp < ?");
+                delete.setInt(1, playerId);
+                delete.setInt(2, npcId);
+                delete.setLong(3, cutoffTimestamp);
+                return delete.executeUpdate();
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public List<ConversationKey> findConversationsToSummarize(int limit) {
+        try {
+            return engine.read(session -> {
+                PreparedStatement stmt = session.prepare(String.format(KEY_COLUMNS,
+                        "(SELECT c.player_id, c.npc_id, MAX(c.timestamp) AS newest FROM conversations c " +
+                                "LEFT JOIN conversation_summaries s ON s.player_id = c.player_id AND s.npc_id = c.npc_id " +
+                                "GROUP BY c.player_id, c.npc_id " +
+                                "HAVING MAX(c.timestamp) > COALESCE(MAX(s.updated_at), 0) " +
+                                "ORDER BY newest DESC LIMIT ?)") + " ORDER BY k.newest DESC");
+                stmt.setInt(1, limit);
+                return readKeys(stmt);
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void saveMemorySummary(ConversationKey key, MemorySummary summary) {
+        try {
+            write(session -> {
+                PreparedStatement stmt = session.prepare(UPSERT_SUMMARY);
+                stmt.setInt(1, ids.playerId(session.getConnection(), key.playerUUID(), true));
+                stmt.setInt(2, ids.npcId(session.getConnection(), key.npcName(), true));
+                stmt.setString(3, summary.summary());
+                stmt.setLong(4, summary.updatedAt());
+                return stmt.executeUpdate();
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static List<ConversationKey> readKeys(PreparedStatement stmt) throws SQLException {
+        List<ConversationKey> keys = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                keys.add(new ConversationKey(IdCache.fromBytes(rs.getBytes("uuid")), rs.getString("name")));
+            }
+        }
+        return keys;
+    }
 }
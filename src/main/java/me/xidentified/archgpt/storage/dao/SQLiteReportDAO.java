@@ -1,8 +1,9 @@
 package me.xidentified.archgpt.storage.dao;
 
+import me.xidentified.archgpt.storage.SQLiteEngine;
 import me.xidentified.archgpt.storage.model.Report;
+import me.xidentified.archgpt.storage.model.ReportFilter;
 import net.kyori.adventure.text.Component;
-import org.bukkit.Bukkit;
 
 import java.io.File;
 import java.sql.*;
@@ -10,117 +11,311 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 
 public class SQLiteReportDAO implements ReportDAO {
-    private final String dbPath;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    public SQLiteReportDAO(File dataFolder) {
-        File storageFolder = new File(dataFolder, "storage");
-        if (!storageFolder.exists()) {
-            storageFolder.mkdirs();
-        }
-        this.dbPath = new File(storageFolder, "reports.db").getPath();
+    private final SQLiteEngine engine;
+    private final Logger logger;
+
+    public SQLiteReportDAO(SQLiteEngine engine, Logger logger) {
+        this.engine = engine;
+        this.logger = logger;
         initialize();
     }
 
     private void initialize() {
-        try (Connection conn = this.connect();
-             Statement stmt = conn.createStatement()) {
-            String sql = "CREATE TABLE IF NOT EXISTS reports (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "playerName TEXT NOT NULL," +
-                    "npcName TEXT NOT NULL," +
-                    "reportType TEXT NOT NULL," +
-                    "feedback TEXT," +
-                    "npcResponse TEXT," +
-                    "timestamp TEXT NOT NULL" +
-                    ");";
-            stmt.execute(sql);
+        try {
+            engine.write(session -> {
+                try (Statement stmt = session.createStatement()) {
+                    String sql = "CREATE TABLE IF NOT EXISTS reports (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                            "playerName TEXT NOT NULL," +
+                            "npcName TEXT NOT NULL," +
+                            "reportType TEXT NOT NULL," +
+                            "feedback TEXT," +
+                            "npcResponse TEXT," +
+                            "timestamp TEXT NOT NULL" +
+                            ");";
+                    stmt.execute(sql);
+                    // The report GUI filters by NPC or type and pages by id, which both indexes cover
+                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_reports_npc ON reports (npcName)");
+                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_reports_type ON reports (reportType)");
+                }
+                return null;
+            });
         } catch (SQLException e) {
-            Bukkit.getLogger().warning((e.getMessage()));
+            logger.warning(e.getMessage());
         }
     }
 
-    private Connection connect() {
-        String url = "jdbc:sqlite:" + this.dbPath;
-        Connection conn = null;
+    /**
+     * Copies reports from the old standalone reports.db into this database, then renames the old
+     * file so the import only happens once.
+     */
+    public void importLegacyDatabase(File legacyFile) {
+        if (!legacyFile.exists()) {
+            return;
+        }
         try {
-            conn = DriverManager.getConnection(url);
+            List<String[]> rows = new ArrayList<>();
+            try (Connection legacy = DriverManager.getConnection("jdbc:sqlite:" + legacyFile.getAbsolutePath());
+                 Statement stmt = legacy.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT playerName, npcName, reportType, feedback, npcResponse, timestamp FROM reports")) {
+                while (rs.next()) {
+                    rows.add(new String[]{rs.getString(1), rs.getString(2), rs.getString(3),
+                            rs.getString(4), rs.getString(5), rs.getString(6)});
+                }
+            }
+
+            int imported = rows.size();
+            engine.write(session -> {
+                PreparedStatement pstmt = session.prepare(
+                        "INSERT INTO reports (playerName, npcName, reportType, feedback, npcResponse, timestamp) VALUES(?,?,?,?,?,?)");
+                for (String[] row : rows) {
+                    for (int i = 0; i < row.length; i++) {
+                        pstmt.setString(i + 1, row[i]);
+                    }
+                    pstmt.addBatch();
+                }
+                return pstmt.executeBatch();
+            });
+            File migrated = new File(legacyFile.getParentFile(), legacyFile.getName() + ".migrated");
+            if (!legacyFile.renameTo(migrated)) {
+                logger.warning("Imported reports but could not rename " + legacyFile.getName() + ", please remove it manually");
+            }
+            logger.info("Imported " + imported + " report(s) from " + legacyFile.getName());
         } catch (SQLException e) {
-            Bukkit.getLogger().warning((e.getMessage()));
+            logger.warning("Could not import reports from " + legacyFile.getName() + ": " + e.getMessage());
         }
-        return conn;
     }
 
     @Override
     public void saveReport(Report report) {
         String sql = "INSERT INTO reports (playerName, npcName, reportType, feedback, npcResponse, timestamp) VALUES(?,?,?,?,?,?)";
 
-        try (Connection conn = this.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, report.getPlayerName());
-            pstmt.setString(2, report.getNpcName());
-            pstmt.setString(3, report.getReportType());
-            pstmt.setString(4, report.getFeedback());
-            pstmt.setString(5, report.getNpcResponse());
-            pstmt.setString(6, report.getFormattedTimestamp());
-            pstmt.executeUpdate();
+        try {
+            engine.write(session -> {
+                PreparedStatement pstmt = session.prepare(sql);
+                pstmt.setString(1, report.getPlayerName());
+                pstmt.setString(2, report.getNpcName());
+                pstmt.setString(3, report.getReportType());
+                pstmt.setString(4, report.getFeedback());
+                pstmt.setString(5, report.getNpcResponse());
+                pstmt.setString(6, report.getFormattedTimestamp());
+                return pstmt.executeUpdate();
+            });
         } catch (SQLException e) {
-            Bukkit.getLogger().warning((e.getMessage()));
+            logger.warning(e.getMessage());
+        }
+    }
+
+    @Override
+    public void saveReports(List<Report> reports) {
+        String sql = "INSERT INTO reports (playerName, npcName, reportType, feedback, npcResponse, timestamp) VALUES(?,?,?,?,?,?)";
+
+        try {
+            engine.write(session -> {
+                PreparedStatement pstmt = session.prepare(sql);
+                for (Report report : reports) {
+                    pstmt.setString(1, report.getPlayerName());
+                    pstmt.setString(2, report.getNpcName());
+                    pstmt.setString(3, report.getReportType());
+                    pstmt.setString(4, report.getFeedback());
+                    pstmt.setString(5, report.getNpcResponse());
+                    pstmt.setString(6, report.getFormattedTimestamp());
+                    pstmt.addBatch();
+                }
+                return pstmt.executeBatch();
+            });
+        } catch (SQLException e) {
+            logger.warning(e.getMessage());
+        }
+    }
+
+    // Missing feedback is exported as an empty string, so the two count as equal
+    @Override
+    public int importReports(List<Report> reports) {
+        String sql = "INSERT INTO reports (playerName, npcName, reportType, feedback, npcResponse, timestamp) SELECT ?,?,?,?,?,? " +
+                "WHERE NOT EXISTS (SELECT 1 FROM reports WHERE npcName = ? AND playerName = ? AND reportType = ? " +
+                "AND timestamp = ? AND COALESCE(feedback, '') = COALESCE(?, ''))";
+
+        try {
+            int[] counts = engine.write(session -> {
+                PreparedStatement pstmt = session.prepare(sql);
+                for (Report report : reports) {
+                    pstmt.setString(1, report.getPlayerName());
+                    pstmt.setString(2, report.getNpcName());
+                    pstmt.setString(3, report.getReportType());
+                    pstmt.setString(4, report.getFeedback());
+                    pstmt.setString(5, report.getNpcResponse());
+                    pstmt.setString(6, report.getFormattedTimestamp());
+                    pstmt.setString(7, report.getNpcName());
+                    pstmt.setString(8, report.getPlayerName());
+                    pstmt.setString(9, report.getReportType());
+                    pstmt.setString(10, report.getFormattedTimestamp());
+                    pstmt.setString(11, report.getFeedback());
+                    pstmt.addBatch();
+                }
+                return pstmt.executeBatch();
+            });
+            int inserted = 0;
+            for (int count : counts) {
+                inserted += Math.max(0, count);
+            }
+            return inserted;
+        } catch (SQLException e) {
+            throw new RuntimeException("Error saving reports: " + e.getMessage(), e);
         }
     }
 
     @Override
     public List<Report> getAllReports() {
-        List<Report> reports = new ArrayList<>();
         String sql = "SELECT * FROM reports";
 
-        try (Connection conn = this.connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-                LocalDateTime timestamp = LocalDateTime.parse(rs.getString("timestamp"), formatter);
-                reports.add(new Report(
-                        id, // Include the ID in the Report object
-                        rs.getString("playerName"),
-                        rs.getString("npcName"),
-                        rs.getString("reportType"),
-                        Component.text(rs.getString("feedback")),
-                        rs.getString("npcResponse"),
-                        timestamp
-                ));
-            }
+        try {
+            return engine.read(session -> {
+                List<Report> reports = new ArrayList<>();
+                try (ResultSet rs = session.prepare(sql).executeQuery()) {
+                    while (rs.next()) {
+                        reports.add(readReport(rs));
+                    }
+                }
+                return reports;
+            });
+        } catch (SQLException e) {
+            logger.warning(e.getMessage());
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<Report> getReports(ReportFilter filter, Integer beforeId, int limit) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT id, playerName, npcName, reportType, feedback, npcResponse, timestamp FROM reports" +
+                buildWhere(filter, beforeId, params) + " ORDER BY id DESC LIMIT ?";
+        params.add(limit);
+
+        try {
+            return engine.read(session -> {
+                List<Report> reports = new ArrayList<>();
+                PreparedStatement pstmt = session.prepare(sql);
+                for (int i = 0; i < params.size(); i++) {
+                    pstmt.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        reports.add(readReport(rs));
+                    }
+                }
+                return reports;
+            });
         } catch (SQLException e) {
-            Bukkit.getLogger().warning((e.getMessage()));
+            logger.warning(e.getMessage());
         }
-        return reports;
+        return new ArrayList<>();
+    }
+
+    @Override
+    public int countReports(ReportFilter filter) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM reports" + buildWhere(filter, null, params);
+
+        try {
+            return engine.read(session -> {
+                PreparedStatement pstmt = session.prepare(sql);
+                for (int i = 0; i < params.size(); i++) {
+                    pstmt.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
+        } catch (SQLException e) {
+            logger.warning(e.getMessage());
+        }
+        return 0;
+    }
+
+    @Override
+    public void forEachReport(int fetchSize, Consumer<Report> consumer) {
+        try {
+            engine.read(session -> {
+                try (PreparedStatement pstmt = session.getConnection().prepareStatement(
+                        "SELECT id, playerName, npcName, reportType, feedback, npcResponse, timestamp FROM reports ORDER BY id")) {
+                    pstmt.setFetchSize(fetchSize);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            consumer.accept(readReport(rs));
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reading reports: " + e.getMessage(), e);
+        }
+    }
+
+    // Timestamps are stored as yyyy-MM-dd HH:mm:ss text, which sorts and compares chronologically
+    private static String buildWhere(ReportFilter filter, Integer beforeId, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.npcName() != null) {
+            conditions.add("npcName = ?");
+            params.add(filter.npcName());
+        }
+        if (filter.reportType() != null) {
+            conditions.add("reportType = ?");
+            params.add(filter.reportType());
+        }
+        if (filter.since() != null) {
+            conditions.add("timestamp >= ?");
+            params.add(filter.since().format(TIMESTAMP_FORMAT));
+        }
+        if (beforeId != null) {
+            conditions.add("id < ?");
+            params.add(beforeId);
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static Report readReport(ResultSet rs) throws SQLException {
+        return new Report(
+                rs.getInt("id"),
+                rs.getString("playerName"),
+                rs.getString("npcName"),
+                rs.getString("reportType"),
+                Component.text(rs.getString("feedback")),
+                rs.getString("npcResponse"),
+                LocalDateTime.parse(rs.getString("timestamp"), TIMESTAMP_FORMAT)
+        );
     }
 
     @Override
     public void deleteReport(int reportId) {
         String sql = "DELETE FROM reports WHERE id = ?";
 
-        try (Connection conn = this.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setInt(1, reportId);
-            int affectedRows = pstmt.executeUpdate();
+        try {
+            int affectedRows = engine.write(session -> {
+                PreparedStatement pstmt = session.prepare(sql);
+                pstmt.setInt(1, reportId);
+                return pstmt.executeUpdate();
+            });
 
             if (affectedRows == 0) {
-                Bukkit.getLogger().info("No report found with id: " + reportId);
+                logger.info("No report found with id: " + reportId);
             } else {
-                Bukkit.getLogger().info("Report successfully deleted: " + reportId);
+                logger.info("Report successfully deleted: " + reportId);
             }
-
         } catch (SQLException e) {
-            Bukkit.getLogger().warning((e.getMessage()));
+            logger.warning(e.getMessage());
         }
     }
 
     @Override
     public void loadReports() {
         // This method is not needed for SQLite as the getAllReports() method already handles loading.
-    }}
+    }
+}
@@ -0,0 +1,15 @@
+package me.xidentified.archgpt.storage.dao;
+
+import me.xidentified.archgpt.storage.model.SharedSession;
+
+import java.util.UUID;
+
+public interface SessionDAO {
+    SharedSession loadSession(UUID playerUUID);
+    // Returns false if the player already has a session row
+    boolean insertSession(SharedSession session);
+    // Writes the session as expectedVersion + 1; returns false if the stored version is no longer expectedVersion
+    boolean updateSession(SharedSession session, long expectedVersion);
+    void deleteSession(UUID playerUUID);
+    int deleteSessionsBefore(long cutoffTimestamp);
+}
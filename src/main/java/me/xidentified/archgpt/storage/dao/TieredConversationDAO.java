@@ -0,0 +1,323 @@
+package me.xidentified.archgpt.storage.dao;
+
+import me.xidentified.archgpt.storage.model.Conversation;
+import me.xidentified.archgpt.storage.model.ConversationKey;
+import me.xidentified.archgpt.storage.model.MemorySummary;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Puts a bounded in-memory tier in front of a database DAO.
+ * <p>
+ * For each recently active (player, NPC) pair the last few turns and the compacted summary are
+ * kept in an LRU map, so the recent turns and summary recalled during a conversation are answered
+ * without touching the database. Keyword searches always go to the database, so they are ranked the
+ * same way whether or not the pair is cached.
+ * A pair is loaded from the database the first time it is read; writes go straight through and
+ * are appended to the pair's turns if it is already cached, or is being loaded.
+ */
+public class TieredConversationDAO implements ConversationDAO {
+    private final ConversationDAO delegate;
+    private final int hotTurns;
+    private final Map<ConversationKey, HotEntry> hot;
+
+    public TieredConversationDAO(ConversationDAO delegate, int hotTurns, int maxEntries) {
+        this.delegate = delegate;
+        this.hotTurns = hotTurns;
+        this.hot = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ConversationKey, HotEntry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    @Override
+    public void saveConversation(Conversation conversation) {
+        delegate.saveConversation(conversation);
+        HotEntry entry = hot.get(new ConversationKey(conversation.getPlayerUUID(), conversation.getNpcName()));
+        if (entry != null) {
+            entry.append(conversation, hotTurns);
+        }
+    }
+
+    @Override
+    public void saveConversations(List<Conversation> conversations) {
+        delegate.saveConversations(conversations);
+        for (Conversation conversation : conversations) {
+            HotEntry entry = hot.get(new ConversationKey(conversation.getPlayerUUID(), conversation.getNpcName()));
+            if (entry != null) {
+                entry.append(conversation, hotTurns);
+            }
+        }
+    }
+
+    @Override
+    public List<Conversation> getRecentConversations(UUID playerUUID, String npcName, Duration memoryDuration, int limit) {
+        return searchConversations(playerUUID, npcName, memoryDuration, List.of(), limit);
+    }
+
+    // Paging and bulk reads walk stored rows by id, which the hot tier doesn't have for unsaved turns
+    @Override
+    public List<Conversation> getConversationPage(UUID playerUUID, String npcName, Duration memoryDuration, Conversation after, int limit) {
+        return delegate.getConversationPage(playerUUID, npcName, memoryDuration, after, limit);
+    }
+
+    @Override
+    public void forEachConversation(long sinceTimestamp, int fetchSize, Consumer<Conversation> consumer) {
+        delegate.forEachConversation(sinceTimestamp, fetchSize, consumer);
+    }
+
+    @Override
+    public void forEachMemorySummary(int fetchSize, BiConsumer<ConversationKey, MemorySummary> consumer) {
+        delegate.forEachMemorySummary(fetchSize, consumer);
+    }
+
+    // The hot tier only answers for recent turns. Keyword searches need the whole history and its full-text
+    // ranking; the write-behind DAO below adds matching turns that are not written yet.
+    @Override
+    public List<Conversation> searchConversations(UUID playerUUID, String npcName, Duration memoryDuration, List<String> terms, int limit) {
+        if (!terms.isEmpty() || limit > hotTurns) {
+            return delegate.searchConversations(playerUUID, npcName, memoryDuration, terms, limit);
+        }
+
+        HotEntry entry = getOrLoad(new ConversationKey(playerUUID, npcName), memoryDuration);
+        long cutoffTimestamp = Instant.now().toEpochMilli() - memoryDuration.toMillis();
+        List<Conversation> turns = entry.turnsSince(cutoffTimestamp); // Oldest first
+        List<Conversation> recent = new ArrayList<>(turns.subList(Math.max(0, turns.size() - limit), turns.size()));
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    @Override
+    public void clearAllConversations() {
+        delegate.clearAllConversations();
+        hot.clear();
+    }
+
+    @Override
+    public void clearConversationsForNpc(String npcName) {
+        delegate.clearConversationsForNpc(npcName);
+        synchronized (hot) {
+            hot.keySet().removeIf(key -> key.npcName().equals(npcName));
+        }
+    }
+
+    // Cached turns under the old name are dropped and reloaded under the new one on next read
+    @Override
+    public boolean renameNpc(String oldName, String newName, int citizensId) {
+        boolean renamed = delegate.renameNpc(oldName, newName, citizensId);
+        if (renamed) {
+            synchronized (hot) {
+                hot.keySet().removeIf(key -> key.npcName().equals(oldName));
+            }
+        }
+        return renamed;
+    }
+
+    // Hot turns and summaries past the memory duration are already filtered out on read
+    @Override
+    public int deleteConversationsBefore(long cutoffTimestamp, int limit) {
+        return delegate.deleteConversationsBefore(cutoffTimestamp, limit);
+    }
+
+    @Override
+    public int deleteConversations(String npcName, int limit) {
+        int deleted = delegate.deleteConversations(npcName, limit);
+        synchronized (hot) {
+            hot.keySet().removeIf(key -> npcName == null || key.npcName().equals(npcName));
+        }
+        return deleted;
+    }
+
+    @Override
+    public int deleteMemorySummariesBefore(long cutoffTimestamp) {
+        return delegate.deleteMemorySummariesBefore(cutoffTimestamp);
+    }
+
+    @Override
+    public MemorySummary getMemorySummary(UUID playerUUID, String npcName, Duration memoryDuration) {
+        HotEntry entry = getOrLoad(new ConversationKey(playerUUID, npcName), memoryDuration);
+        MemorySummary summary = entry.summary;
+        long cutoffTimestamp = Instant.now().toEpochMilli() - memoryDuration.toMillis();
+        return summary != null && summary.updatedAt() > cutoffTimestamp ? summary : null;
+    }
+
+    @Override
+    public List<ConversationKey> findConversationsToCompact(long cutoffTimestamp, long summaryDeadline, int limit) {
+        return delegate.findConversationsToCompact(cutoffTimestamp, summaryDeadline, limit);
+    }
+
+    @Override
+    public List<Conversation> getConversationsBetween(ConversationKey key, long fromTimestamp, long toTimestamp) {
+        return delegate.getConversationsBetween(key, fromTimestamp, toTimestamp);
+    }
+
+    @Override
+    public List<Conversation> getConversationsBefore(ConversationKey key, long cutoffTimestamp) {
+        return delegate.getConversationsBefore(key, cutoffTimestamp);
+    }
+
+    @Override
+    public void replaceWithSummary(ConversationKey key, long cutoffTimestamp, MemorySummary summary) {
+        delegate.replaceWithSummary(key, cutoffTimestamp, summary);
+        HotEntry entry = hot.get(key);
+        if (entry != null) {
+            entry.compact(cutoffTimestamp, summary);
+        }
+    }
+
+    @Override
+    public List<ConversationKey> findConversationsToSummarize(int limit) {
+        return delegate.findConversationsToSummarize(limit);
+    }
+
+    @Override
+    public void saveMemorySummary(ConversationKey key, MemorySummary summary) {
+        delegate.saveMemorySummary(key, summary);
+        HotEntry entry = hot.get(key);
+        if (entry != null) {
+            entry.setSummary(summary);
+        }
+    }
+
+    public int getHotEntryCount() {
+        return hot.size();
+    }
+
+    /**
+     * Returns the pair's entry, loading it if it isn't cached. A placeholder goes into the map before
+     * the load starts, so saves, summaries and compactions landing during the load are recorded on it
+     * and replayed over the loaded turns instead of being missed. Other readers wait for the load.
+     */
+    private HotEntry getOrLoad(ConversationKey key, Duration memoryDuration) {
+        while (true) {
+            HotEntry entry;
+            boolean loader = false;
+            synchronized (hot) {
+                entry = hot.get(key);
+                if (entry == null) {
+                    entry = new HotEntry();
+                    hot.put(key, entry);
+                    loader = true;
+                }
+            }
+            if (!loader) {
+                if (entry.awaitLoaded()) {
+                    return entry;
+                }
+                continue; // That load failed; try again
+            }
+
+            try {
+                List<Conversation> recent = new ArrayList<>(delegate.searchConversations(
+                        key.playerUUID(), key.npcName(), memoryDuration, List.of(), hotTurns));
+                Collections.reverse(recent);
+                MemorySummary summary = delegate.getMemorySummary(key.playerUUID(), key.npcName(), memoryDuration);
+                entry.finishLoad(recent, summary, hotTurns);
+                return entry;
+            } catch (RuntimeException e) {
+                hot.remove(key, entry);
+                entry.failLoad();
+                throw e;
+            }
+        }
+    }
+
+    private static final class HotEntry {
+        private final ArrayDeque<Conversation> turns = new ArrayDeque<>(); // Oldest first
+        private volatile MemorySummary summary;
+        private boolean loading = true;
+        private boolean failed;
+        private List<Consumer<HotEntry>> pending = new ArrayList<>(); // Changes made while loading
+
+        private synchronized void finishLoad(List<Conversation> loaded, MemorySummary loadedSummary, int maxTurns) {
+            turns.addAll(loaded);
+            summary = loadedSummary;
+            loading = false;
+            // The load may or may not have seen these already, so appends skip turns it returned
+            for (Consumer<HotEntry> change : pending) {
+                change.accept(this);
+            }
+            pending = null;
+            while (turns.size() > maxTurns) {
+                turns.removeFirst();
+            }
+            notifyAll();
+        }
+
+        private synchronized void failLoad() {
+            loading = false;
+            failed = true;
+            pending = null;
+            notifyAll();
+        }
+
+        // False if the load failed and the entry was discarded
+        private synchronized boolean awaitLoaded() {
+            boolean interrupted = false;
+            while (loading) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return !failed;
+        }
+
+        private synchronized void append(Conversation conversation, int maxTurns) {
+            if (loading) {
+                pending.add(entry -> entry.appendIfMissing(conversation, maxTurns));
+                return;
+            }
+            turns.addLast(conversation);
+            while (turns.size() > maxTurns) {
+                turns.removeFirst();
+            }
+        }
+
+        private void appendIfMissing(Conversation conversation, int maxTurns) {
+            for (Conversation turn : turns) {
+                if (turn.isSameMessage(conversation)) {
+                    return;
+                }
+            }
+            append(conversation, maxTurns);
+        }
+
+        private synchronized void setSummary(MemorySummary summary) {
+            if (loading) {
+                pending.add(entry -> entry.summary = summary);
+                return;
+            }
+            this.summary = summary;
+        }
+
+        private synchronized List<Conversation> turnsSince(long cutoffTimestamp) {
+            List<Conversation> result = new ArrayList<>(turns.size());
+            for (Conversation turn : turns) {
+                if (turn.getTimestamp() > cutoffTimestamp) {
+                    result.add(turn);
+                }
+            }
+            return result;
+        }
+
+        private synchronized void compact(long cutoffTimestamp, MemorySummary summary) {
+            if (loading) {
+                pending.add(entry -> entry.compact(cutoffTimestamp, summary));
+                return;
+            }
+            turns.removeIf(turn -> turn.getTimestamp() < cutoffTimestamp);
+            this.summary = summary;
+        }
+    }
+}
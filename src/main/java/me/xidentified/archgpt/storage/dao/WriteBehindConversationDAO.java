@@ -0,0 +1,398 @@
+package me.xidentified.archgpt.storage.dao;
+
+import me.xidentified.archgpt.context.KeywordMatcher;
+import me.xidentified.archgpt.storage.model.Conversation;
+import me.xidentified.archgpt.storage.model.ConversationKey;
+import me.xidentified.archgpt.storage.model.MemorySummary;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Buffers conversation saves so callers never wait on the database.
+ * <p>
+ * {@link #saveConversation} only appends to a lock-free queue. A single writer thread flushes
+ * the queue in batches (one transaction each) whenever it reaches the batch size or the flush
+ * interval elapses. A message stays in the queue until its batch has been written, so recent reads
+ * and searches of a conversation can add the ones not yet written. A batch that fails stays
+ * at the head of the queue and is retried, waiting longer after each failure. Everything else is
+ * passed straight through to the wrapped DAO.
+ */
+public class WriteBehindConversationDAO implements ConversationDAO {
+    private static final long MAX_RETRY_DELAY_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final ConversationDAO delegate;
+    private final Logger logger;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final ConcurrentLinkedQueue<Conversation> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final Object flushLock = new Object(); // One flush at a time, whether the writer's or a caller's
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile boolean abandoned; // Set when shutdown stops waiting, so a failing final drain gives up
+
+    // Metrics
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile int maxBatchSize;
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+
+    public WriteBehindConversationDAO(ConversationDAO delegate, Logger logger, int batchSize, long flushIntervalMillis) {
+        this.delegate = delegate;
+        this.logger = logger;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.writer = new Thread(this::runWriter, "ArchGPT-ConversationWriter");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void saveConversation(Conversation conversation) {
+        // Counted before it is queued, so a flush that takes it can never drive the depth below zero
+        int depth = queueDepth.incrementAndGet();
+        queue.offer(conversation);
+        if (depth >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    @Override
+    public void saveConversations(List<Conversation> conversations) {
+        conversations.forEach(this::saveConversation);
+    }
+
+    // Writes in the caller's thread as one batch, for bulk loads that would otherwise pile up in the queue
+    public void saveConversationsDirectly(List<Conversation> conversations) {
+        delegate.saveConversations(conversations);
+    }
+
+    /**
+     * Stops the writer thread after it has flushed what is queued, giving up after the deadline.
+     *
+     * @return The number of saves that could not be written in time.
+     */
+    public int shutdown(long timeoutMillis) {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        abandoned = true;
+        LockSupport.unpark(writer);
+        int remaining = queueDepth.get();
+        if (remaining > 0) {
+            logger.warning("Conversation writer did not finish within " + timeoutMillis + "ms, " + remaining + " message(s) were not saved");
+        }
+        return remaining;
+    }
+
+    private void runWriter() {
+        long retryDelayNanos = 0;
+        long retryAt = 0;
+        while (running) {
+            LockSupport.parkNanos(this, retryDelayNanos == 0 ? flushIntervalNanos : Math.max(1, retryAt - System.nanoTime()));
+            if (retryDelayNanos != 0 && retryAt - System.nanoTime() > 0 && running) {
+                continue; // Woken by a full queue while waiting to retry
+            }
+            if (flushAll()) {
+                retryDelayNanos = 0;
+            } else {
+                retryDelayNanos = nextRetryDelay(retryDelayNanos);
+                retryAt = System.nanoTime() + retryDelayNanos;
+            }
+        }
+        // Final drain on shutdown, retried until it succeeds or shutdown stops waiting
+        retryDelayNanos = 0;
+        while (!flushAll() && !abandoned) {
+            retryDelayNanos = nextRetryDelay(retryDelayNanos);
+            LockSupport.parkNanos(this, retryDelayNanos);
+        }
+    }
+
+    private long nextRetryDelay(long previousNanos) {
+        return previousNanos == 0 ? flushIntervalNanos : Math.min(previousNanos * 2, MAX_RETRY_DELAY_NANOS);
+    }
+
+    /**
+     * Writes queued messages in batches until the queue is empty or a batch fails. Messages are only removed
+     * from the queue once written, so a reader always finds each one in the queue, the database, or both,
+     * and a failed batch is written again by the next flush.
+     *
+     * @return False if a batch could not be written.
+     */
+    private boolean flushAll() {
+        synchronized (flushLock) {
+            while (queueDepth.get() > 0) {
+                List<Conversation> batch = new ArrayList<>(Math.min(batchSize, queueDepth.get()));
+                Iterator<Conversation> iterator = queue.iterator();
+                while (batch.size() < batchSize && iterator.hasNext()) {
+                    batch.add(iterator.next());
+                }
+                if (batch.isEmpty()) {
+                    return true;
+                }
+
+                long start = System.nanoTime();
+                try {
+                    delegate.saveConversations(batch);
+                } catch (Exception e) {
+                    failedFlushes.incrementAndGet();
+                    logger.warning("Failed to write " + batch.size() + " conversation message(s), keeping them queued to retry: " + e.getMessage());
+                    return false;
+                }
+                // Only flushes remove from the queue, so its head is still this batch
+                for (int i = 0; i < batch.size(); i++) {
+                    queue.poll();
+                }
+                queueDepth.addAndGet(-batch.size());
+                recordFlush(batch.size(), System.nanoTime() - start);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Writes out everything queued, then runs the operation while still holding the flush lock, so no
+     * batch reaches the database between the two. Otherwise a message saved before a clear or rename
+     * could be written after it, bringing cleared rows back or storing them under the old NPC name. For the
+     * same reason the operation is refused while queued messages can't be written.
+     */
+    private <T> T afterQueued(Supplier<T> operation) {
+        synchronized (flushLock) {
+            if (!flushAll()) {
+                throw new IllegalStateException("Queued conversation messages could not be written; try again later");
+            }
+            return operation.get();
+        }
+    }
+
+    // Queued messages of one conversation newer than the cutoff, newest first
+    private List<Conversation> queuedFor(UUID playerUUID, String npcName, long cutoffTimestamp) {
+        List<Conversation> queued = new ArrayList<>();
+        for (Conversation conversation : queue) {
+            if (conversation.getTimestamp() > cutoffTimestamp
+                    && Objects.equals(conversation.getPlayerUUID(), playerUUID)
+                    && Objects.equals(conversation.getNpcName(), npcName)) {
+                queued.add(conversation);
+            }
+        }
+        Collections.reverse(queued);
+        return queued;
+    }
+
+    // Stored rows are read after the queue, so a message written in between shows up in both and is kept once
+    private static List<Conversation> withQueued(List<Conversation> stored, List<Conversation> queued, int limit) {
+        if (queued.isEmpty()) {
+            return stored;
+        }
+        List<Conversation> merged = new ArrayList<>(stored);
+        for (Conversation conversation : queued) {
+            if (merged.stream().noneMatch(conversation::isSameMessage)) {
+                merged.add(conversation);
+            }
+        }
+        merged.sort(Comparator.comparingLong(Conversation::getTimestamp).reversed());
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /**
+     * Adds the queued messages that mention a term to stored search results. They lead, most hits first, since
+     * they are the latest turns of the conversation; the stored matches keep their ranking after them.
+     */
+    private static List<Conversation> withQueuedMatches(List<Conversation> stored, List<Conversation> queued,
+                                                        List<String> terms, int limit) {
+        if (queued.isEmpty()) {
+            return stored;
+        }
+        KeywordMatcher matcher = new KeywordMatcher(terms);
+        List<Conversation> matches = new ArrayList<>();
+        List<Integer> hits = new ArrayList<>();
+        for (Conversation conversation : queued) { // Newest first
+            int count = matcher.count(conversation.getMessage());
+            if (count > 0 && stored.stream().noneMatch(conversation::isSameMessage)) {
+                int at = 0;
+                while (at < hits.size() && hits.get(at) >= count) at++;
+                matches.add(at, conversation);
+                hits.add(at, count);
+            }
+        }
+        if (matches.isEmpty()) {
+            return stored;
+        }
+        matches.addAll(stored);
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    private void recordFlush(int size, long elapsedNanos) {
+        flushes.incrementAndGet();
+        written.addAndGet(size);
+        totalFlushNanos.addAndGet(elapsedNanos);
+        lastBatchSize = size;
+        lastFlushNanos = elapsedNanos;
+        if (size > maxBatchSize) maxBatchSize = size;
+        if (elapsedNanos > maxFlushNanos) maxFlushNanos = elapsedNanos;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public long getFailedFlushes() {
+        return failedFlushes.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public double getLastFlushMillis() {
+        return lastFlushNanos / 1_000_000.0;
+    }
+
+    public double getMaxFlushMillis() {
+        return maxFlushNanos / 1_000_000.0;
+    }
+
+    public double getAverageFlushMillis() {
+        long count = flushes.get();
+        return count == 0 ? 0 : totalFlushNanos.get() / (double) count / 1_000_000.0;
+    }
+
+    @Override
+    public List<Conversation> getRecentConversations(UUID playerUUID, String npcName, Duration memoryDuration, int limit) {
+        List<Conversation> queued = queuedFor(playerUUID, npcName, Instant.now().toEpochMilli() - memoryDuration.toMillis());
+        return withQueued(delegate.getRecentConversations(playerUUID, npcName, memoryDuration, limit), queued, limit);
+    }
+
+    @Override
+    public List<Conversation> getConversationPage(UUID playerUUID, String npcName, Duration memoryDuration, Conversation after, int limit) {
+        return delegate.getConversationPage(playerUUID, npcName, memoryDuration, after, limit);
+    }
+
+    @Override
+    public void forEachConversation(long sinceTimestamp, int fetchSize, Consumer<Conversation> consumer) {
+        // Bulk readers expect everything written so far
+        flushAll();
+        delegate.forEachConversation(sinceTimestamp, fetchSize, consumer);
+    }
+
+    @Override
+    public void forEachMemorySummary(int fetchSize, BiConsumer<ConversationKey, MemorySummary> consumer) {
+        delegate.forEachMemorySummary(fetchSize, consumer);
+    }
+
+    // Queued messages are added to both recent and keyword results
+    @Override
+    public List<Conversation> searchConversations(UUID playerUUID, String npcName, Duration memoryDuration, List<String> terms, int limit) {
+        List<Conversation> queued = queuedFor(playerUUID, npcName, Instant.now().toEpochMilli() - memoryDuration.toMillis());
+        List<Conversation> stored = delegate.searchConversations(playerUUID, npcName, memoryDuration, terms, limit);
+        return terms.isEmpty() ? withQueued(stored, queued, limit) : withQueuedMatches(stored, queued, terms, limit);
+    }
+
+    @Override
+    public void clearAllConversations() {
+        afterQueued(() -> {
+            delegate.clearAllConversations();
+            return null;
+        });
+    }
+
+    @Override
+    public void clearConversationsForNpc(String npcName) {
+        afterQueued(() -> {
+            delegate.clearConversationsForNpc(npcName);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean renameNpc(String oldName, String newName, int citizensId) {
+        return afterQueued(() -> delegate.renameNpc(oldName, newName, citizensId));
+    }
+
+    @Override
+    public int deleteConversationsBefore(long cutoffTimestamp, int limit) {
+        return delegate.deleteConversationsBefore(cutoffTimestamp, limit);
+    }
+
+    @Override
+    public int deleteConversations(String npcName, int limit) {
+        return afterQueued(() -> delegate.deleteConversations(npcName, limit));
+    }
+
+    @Override
+    public int deleteMemorySummariesBefore(long cutoffTimestamp) {
+        return delegate.deleteMemorySummariesBefore(cutoffTimestamp);
+    }
+
+    @Override
+    public MemorySummary getMemorySummary(UUID playerUUID, String npcName, Duration memoryDuration) {
+        return delegate.getMemorySummary(playerUUID, npcName, memoryDuration);
+    }
+
+    @Override
+    public List<ConversationKey> findConversationsToCompact(long cutoffTimestamp, long summaryDeadline, int limit) {
+        return delegate.findConversationsToCompact(cutoffTimestamp, summaryDeadline, limit);
+    }
+
+    @Override
+    public List<Conversation> getConversationsBetween(ConversationKey key, long fromTimestamp, long toTimestamp) {
+        return delegate.getConversationsBetween(key, fromTimestamp, toTimestamp);
+    }
+
+    @Override
+    public List<Conversation> getConversationsBefore(ConversationKey key, long cutoffTimestamp) {
+        return delegate.getConversationsBefore(key, cutoffTimestamp);
+    }
+
+    @Override
+    public void replaceWithSummary(ConversationKey key, long cutoffTimestamp, MemorySummary summary) {
+        delegate.replaceWithSummary(key, cutoffTimestamp, summary);
+    }
+
+    @Override
+    public List<ConversationKey> findConversationsToSummarize(int limit) {
+        return delegate.findConversationsToSummarize(limit);
+    }
+
+    @Override
+    public void saveMemorySummary(ConversationKey key, MemorySummary summary) {
+        delegate.saveMemorySummary(key, summary);
+    }
+}
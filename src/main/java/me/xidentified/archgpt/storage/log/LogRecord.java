@@ -0,0 +1,170 @@
+package me.xidentified.archgpt.storage.log;
+
+import me.xidentified.archgpt.storage.MessageCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * One entry of the conversation log. On disk every record is framed as
+ * [payload length][CRC32 of payload][payload], and the payload starts with a type byte.
+ * A zero length or a checksum mismatch marks the end of the written data, which is how a
+ * record torn by a crash is detected and ignored. Message bodies are stored in {@link MessageCodec}'s
+ * format, so they may be compressed.
+ */
+public interface LogRecord {
+    int HEADER_SIZE = 8;
+
+    byte TYPE_MESSAGE = 1;
+    byte TYPE_SUMMARY = 2;
+    byte TYPE_DELETE = 3;
+    byte TYPE_SNAPSHOT = 4;
+    byte TYPE_RENAME = 5;
+
+    record Message(long id, UUID playerUUID, String npcName, long timestamp, boolean fromNpc, String message) implements LogRecord {}
+
+    record Summary(UUID playerUUID, String npcName, long updatedAt, String summary) implements LogRecord {}
+
+    // Removes messages older than before and/or summaries updated before it; a null player or NPC matches all
+    record Delete(boolean messages, boolean summaries, UUID playerUUID, String npcName, long before) implements LogRecord {}
+
+    // Starts a compacted copy of the whole store, so everything replayed before it is discarded
+    record Snapshot(long nextId) implements LogRecord {}
+
+    // Moves every message and summary of an NPC to its new name; records written earlier keep the old one
+    record Rename(String oldName, String newName) implements LogRecord {}
+
+    record Decoded(LogRecord record, int size) {}
+
+    static ByteBuffer encode(LogRecord record) {
+        return encode(record, null);
+    }
+
+    // Without a codec, message bodies are written uncompressed
+    static ByteBuffer encode(LogRecord record, MessageCodec codec) {
+        byte[] npc;
+        byte[] text;
+        ByteBuffer payload;
+        if (record instanceof Message m) {
+            npc = utf8(m.npcName());
+            text = codec != null ? codec.encode(m.message()) : utf8(m.message());
+            payload = ByteBuffer.allocate(1 + 8 + 16 + 8 + 1 + 4 + npc.length + 4 + text.length);
+            payload.put(TYPE_MESSAGE).putLong(m.id());
+            putUUID(payload, m.playerUUID());
+            payload.putLong(m.timestamp()).put((byte) (m.fromNpc() ? 1 : 0));
+            putBytes(payload, npc);
+            putBytes(payload, text);
+        } else if (record instanceof Summary s) {
+            npc = utf8(s.npcName());
+            text = utf8(s.summary());
+            payload = ByteBuffer.allocate(1 + 16 + 8 + 4 + npc.length + 4 + text.length);
+            payload.put(TYPE_SUMMARY);
+            putUUID(payload, s.playerUUID());
+            payload.putLong(s.updatedAt());
+            putBytes(payload, npc);
+            putBytes(payload, text);
+        } else if (record instanceof Delete d) {
+            npc = d.npcName() != null ? utf8(d.npcName()) : new byte[0];
+            int flags = (d.messages() ? 1 : 0) | (d.summaries() ? 2 : 0)
+                    | (d.playerUUID() != null ? 4 : 0) | (d.npcName() != null ? 8 : 0);
+            payload = ByteBuffer.allocate(1 + 1 + 16 + 4 + npc.length + 8);
+            payload.put(TYPE_DELETE).put((byte) flags);
+            putUUID(payload, d.playerUUID() != null ? d.playerUUID() : new UUID(0, 0));
+            putBytes(payload, npc);
+            payload.putLong(d.before());
+        } else if (record instanceof Snapshot s) {
+            payload = ByteBuffer.allocate(1 + 8);
+            payload.put(TYPE_SNAPSHOT).putLong(s.nextId());
+        } else if (record instanceof Rename r) {
+            npc = utf8(r.oldName());
+            text = utf8(r.newName());
+            payload = ByteBuffer.allocate(1 + 4 + npc.length + 4 + text.length);
+            payload.put(TYPE_RENAME);
+            putBytes(payload, npc);
+            putBytes(payload, text);
+        } else {
+            throw new IllegalArgumentException("Unknown log record " + record);
+        }
+        payload.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.remaining());
+        frame.putInt(payload.remaining()).putInt((int) crc.getValue()).put(payload);
+        return frame.flip();
+    }
+
+    // Returns null at the end of the written data
+    static Decoded decode(ByteBuffer buffer, int position) {
+        return decode(buffer, position, null);
+    }
+
+    // A codec caches the decompressed message bodies
+    static Decoded decode(ByteBuffer buffer, int position, MessageCodec codec) {
+        if (position + HEADER_SIZE > buffer.limit()) return null;
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + HEADER_SIZE + length > buffer.limit()) return null;
+
+        ByteBuffer payload = buffer.duplicate();
+        payload.limit(position + HEADER_SIZE + length).position(position + HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(position + 4)) return null;
+
+        LogRecord record = switch (payload.get()) {
+            case TYPE_MESSAGE -> {
+                long id = payload.getLong();
+                UUID player = getUUID(payload);
+                long timestamp = payload.getLong();
+                boolean fromNpc = payload.get() != 0;
+                String npc = getString(payload);
+                byte[] body = getBytes(payload);
+                yield new Message(id, player, npc, timestamp, fromNpc, codec != null ? codec.decode(id, body) : MessageCodec.decode(body));
+            }
+            case TYPE_SUMMARY -> {
+                UUID player = getUUID(payload);
+                long updatedAt = payload.getLong();
+                yield new Summary(player, getString(payload), updatedAt, getString(payload));
+            }
+            case TYPE_DELETE -> {
+                int flags = payload.get();
+                UUID player = getUUID(payload);
+                String npc = getString(payload);
+                yield new Delete((flags & 1) != 0, (flags & 2) != 0,
+                        (flags & 4) != 0 ? player : null, (flags & 8) != 0 ? npc : null, payload.getLong());
+            }
+            case TYPE_SNAPSHOT -> new Snapshot(payload.getLong());
+            case TYPE_RENAME -> new Rename(getString(payload), getString(payload));
+            default -> null;
+        };
+        return record == null ? null : new Decoded(record, HEADER_SIZE + length);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static void putUUID(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUUID(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        return new String(getBytes(buffer), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
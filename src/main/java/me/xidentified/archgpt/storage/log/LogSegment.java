@@ -0,0 +1,89 @@
+package me.xidentified.archgpt.storage.log;
+
+import lombok.Getter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * One file of the conversation log. Files are preallocated to their full capacity so the whole
+ * file can be memory-mapped once for reads while new records are written through the channel
+ * behind the last one. Only the log's writer thread appends; any thread may read.
+ */
+public class LogSegment {
+    @Getter private final long number;
+    @Getter private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    @Getter private volatile int writePosition;
+
+    private LogSegment(long number, File file, FileChannel channel, MappedByteBuffer mapped, int writePosition) {
+        this.number = number;
+        this.file = file;
+        this.channel = channel;
+        this.mapped = mapped;
+        this.writePosition = writePosition;
+    }
+
+    // Opens an existing file, growing it to at least capacity bytes; the caller sets the write position after replay
+    public static LogSegment open(File file, long number, int capacity) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() < capacity) {
+                raf.setLength(capacity);
+            }
+        }
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        return new LogSegment(number, file, channel, mapped, 0);
+    }
+
+    public int getCapacity() {
+        return mapped.capacity();
+    }
+
+    public boolean hasRoom(int bytes) {
+        return writePosition + bytes <= mapped.capacity();
+    }
+
+    public void setWritePosition(int writePosition) {
+        this.writePosition = writePosition;
+    }
+
+    // Writes the frames back to back after the last record and returns where the first one starts
+    public int append(List<ByteBuffer> frames) throws IOException {
+        int start = writePosition;
+        ByteBuffer[] buffers = frames.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        channel.position(start);
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+        writePosition = (int) channel.position();
+        return start;
+    }
+
+    // Independent view for one reader; the mapping sees writes made through the channel
+    public ByteBuffer view() {
+        return mapped.duplicate();
+    }
+
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    // The mapping stays readable after close, so readers still holding old positions are safe
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+    }
+}
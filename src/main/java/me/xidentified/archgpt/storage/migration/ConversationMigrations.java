@@ -0,0 +1,348 @@
+package me.xidentified.archgpt.storage.migration;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static me.xidentified.archgpt.storage.migration.MigrationRunner.columnExists;
+import static me.xidentified.archgpt.storage.migration.MigrationRunner.hasPrimaryKey;
+import static me.xidentified.archgpt.storage.migration.MigrationRunner.indexExists;
+
+/**
+ * Schema history of the conversation tables. Append new migrations to the end of each list
+ * with the next version number; never edit one that has shipped.
+ */
+public final class ConversationMigrations {
+
+    // Serves getConversations/searchConversations: equality on player and NPC, then a range on time, newest first
+    private static final String CONVERSATION_INDEX = "idx_conversations_player_npc_time";
+    // Lets the retention job find the oldest rows across all conversations without a table scan
+    private static final String RETENTION_INDEX = "idx_conversations_timestamp";
+
+    public static final List<Migration> SQLITE = List.of(
+            new Migration(1, "Create conversation tables", ConversationMigrations::createSQLiteTables),
+            new Migration(2, "Add surrogate key and conversation index", ConversationMigrations::addSQLiteKeyAndIndex),
+            new Migration(3, "Create full-text index", ConversationMigrations::createSQLiteFullTextIndex),
+            new Migration(4, "Add retention index", ConversationMigrations::addRetentionIndex),
+            new Migration(5, "Key conversations by player and NPC ids", ConversationMigrations::normalizeSQLiteTables)
+    );
+
+    public static final List<Migration> MYSQL = List.of(
+            new Migration(1, "Create conversation tables", ConversationMigrations::createMySQLTables),
+            new Migration(2, "Add surrogate key and conversation index", ConversationMigrations::addMySQLKeyAndIndex),
+            new Migration(3, "Add retention index", ConversationMigrations::addRetentionIndex),
+            new Migration(4, "Key conversations by player and NPC ids", ConversationMigrations::normalizeMySQLTables),
+            new Migration(5, "Store message bodies as bytes", ConversationMigrations::storeMySQLMessagesAsBytes)
+    );
+
+    private ConversationMigrations() {}
+
+    private static void createSQLiteTables(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS conversations (" +
+                    "player_uuid TEXT, " +
+                    "npc_name TEXT, " +
+                    "message TEXT, " +
+                    "is_from_npc BOOLEAN, " +
+                    "timestamp INTEGER)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS conversation_summaries (" +
+                    "player_uuid TEXT NOT NULL, " +
+                    "npc_name TEXT NOT NULL, " +
+                    "summary TEXT, " +
+                    "updated_at INTEGER, " +
+                    "PRIMARY KEY (player_uuid, npc_name))");
+        }
+    }
+
+    // SQLite can't add a primary key in place, so the table is rebuilt. Existing rowids become ids,
+    // which keeps any full-text index rows pointing at the same messages.
+    private static void addSQLiteKeyAndIndex(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            if (!columnExists(connection, "conversations", "id")) {
+                stmt.execute("DROP TRIGGER IF EXISTS conversations_fts_ai");
+                stmt.execute("DROP TRIGGER IF EXISTS conversations_fts_ad");
+                stmt.execute("DROP TRIGGER IF EXISTS conversations_fts_au");
+                stmt.execute("CREATE TABLE conversations_new (" +
+                        "id INTEGER PRIMARY KEY, " +
+                        "player_uuid TEXT, " +
+                        "npc_name TEXT, " +
+                        "message TEXT, " +
+                        "is_from_npc BOOLEAN, " +
+                        "timestamp INTEGER)");
+                stmt.execute("INSERT INTO conversations_new (id, player_uuid, npc_name, message, is_from_npc, timestamp) " +
+                        "SELECT rowid, player_uuid, npc_name, message, is_from_npc, timestamp FROM conversations");
+                stmt.execute("DROP TABLE conversations");
+                stmt.execute("ALTER TABLE conversations_new RENAME TO conversations");
+            }
+            stmt.execute("CREATE INDEX IF NOT EXISTS " + CONVERSATION_INDEX +
+                    " ON conversations (player_uuid, npc_name, timestamp DESC)");
+            // Clearing an NPC's memory deletes by name alone
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_npc_name ON conversations (npc_name)");
+            // Covered by the leading column of the composite index
+            stmt.execute("DROP INDEX IF EXISTS idx_player_uuid");
+        }
+    }
+
+    // FTS5 index mirroring the conversations table, kept in sync by triggers.
+    // player_uuid and npc_name are indexed too so MATCH can narrow to one conversation before ranking.
+    // Recreated from scratch so databases indexed before the key change end up identical to new ones.
+    private static void createSQLiteFullTextIndex(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS conversations_fts");
+            stmt.execute("CREATE VIRTUAL TABLE conversations_fts USING fts5(" +
+                    "message, player_uuid, npc_name, " +
+                    "content='conversations', content_rowid='id', tokenize='porter unicode61')");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS conversations_fts_ai AFTER INSERT ON conversations BEGIN " +
+                    "INSERT INTO conversations_fts(rowid, message, player_uuid, npc_name) " +
+                    "VALUES (new.id, new.message, new.player_uuid, new.npc_name); END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS conversations_fts_ad AFTER DELETE ON conversations BEGIN " +
+                    "INSERT INTO conversations_fts(conversations_fts, rowid, message, player_uuid, npc_name) " +
+                    "VALUES ('delete', old.id, old.message, old.player_uuid, old.npc_name); END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS conversations_fts_au AFTER UPDATE ON conversations BEGIN " +
+                    "INSERT INTO conversations_fts(conversations_fts, rowid, message, player_uuid, npc_name) " +
+                    "VALUES ('delete', old.id, old.message, old.player_uuid, old.npc_name); " +
+                    "INSERT INTO conversations_fts(rowid, message, player_uuid, npc_name) " +
+                    "VALUES (new.id, new.message, new.player_uuid, new.npc_name); END");
+            // Index rows written before the FTS table existed
+            stmt.execute("INSERT INTO conversations_fts(conversations_fts) VALUES ('rebuild')");
+        }
+    }
+
+    private static void createMySQLTables(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS conversations (" +
+                    "player_uuid VARCHAR(36), " +
+                    "npc_name VARCHAR(255), " +
+                    "message TEXT, " +
+                    "timestamp BIGINT, " +
+                    "is_from_npc BOOLEAN, " +
+                    "PRIMARY KEY (player_uuid, timestamp))");
+            stmt.execute("CREATE TABLE IF NOT EXISTS conversation_summaries (" +
+                    "player_uuid VARCHAR(36) NOT NULL, " +
+                    "npc_name VARCHAR(255) NOT NULL, " +
+                    "summary TEXT, " +
+                    "updated_at BIGINT, " +
+                    "PRIMARY KEY (player_uuid, npc_name))");
+        }
+    }
+
+    // The old (player_uuid, timestamp) key rejected a second message in the same millisecond.
+    // MySQL DDL commits implicitly, so each step checks whether it already ran.
+    private static void addMySQLKeyAndIndex(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            if (!columnExists(connection, "conversations", "id")) {
+                String dropKey = hasPrimaryKey(connection, "conversations") ? "DROP PRIMARY KEY, " : "";
+                stmt.execute("ALTER TABLE conversations " + dropKey +
+                        "ADD COLUMN id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY FIRST");
+            }
+            if (!indexExists(connection, "conversations", CONVERSATION_INDEX)) {
+                stmt.execute("CREATE INDEX " + CONVERSATION_INDEX +
+                        " ON conversations (player_uuid, npc_name, timestamp DESC)");
+            }
+            if (!indexExists(connection, "conversations", "idx_npc_name")) {
+                stmt.execute("CREATE INDEX idx_npc_name ON conversations (npc_name)");
+            }
+        }
+    }
+
+    private static void addRetentionIndex(Connection connection) throws SQLException {
+        if (!indexExists(connection, "conversations", RETENTION_INDEX)) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("CREATE INDEX " + RETENTION_INDEX + " ON conversations (timestamp)");
+            }
+        }
+    }
+
+    // Players and NPCs move to dictionary tables and the conversation tables keep their 4-byte ids instead of
+    // 36-character UUID strings and NPC names, so rows and indexes shrink several times over.
+    // UUIDs are converted in Java because older SQLite versions have no unhex().
+    // Each table is only converted while it still has its old columns, and everything else is created if missing
+    // or rebuilt, so the step can be re-run over its own result.
+    private static void normalizeSQLiteTables(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS players (id INTEGER PRIMARY KEY, uuid BLOB NOT NULL UNIQUE)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS npcs (id INTEGER PRIMARY KEY, citizens_id INTEGER, name TEXT NOT NULL UNIQUE)");
+
+            boolean convertConversations = columnExists(connection, "conversations", "player_uuid");
+            boolean convertSummaries = columnExists(connection, "conversation_summaries", "player_uuid");
+            List<String> players = new ArrayList<>();
+            List<String> npcs = new ArrayList<>();
+            if (convertConversations) {
+                players.add("SELECT player_uuid FROM conversations WHERE player_uuid IS NOT NULL");
+                npcs.add("SELECT npc_name FROM conversations WHERE npc_name IS NOT NULL");
+            }
+            if (convertSummaries) {
+                players.add("SELECT player_uuid FROM conversation_summaries");
+                npcs.add("SELECT npc_name FROM conversation_summaries");
+            }
+
+            stmt.execute("DROP TABLE IF EXISTS temp.player_ids");
+            stmt.execute("CREATE TEMP TABLE player_ids (player_uuid TEXT PRIMARY KEY, id INTEGER NOT NULL)");
+            if (!players.isEmpty()) {
+                List<String> uuids = new ArrayList<>();
+                try (ResultSet rs = stmt.executeQuery(String.join(" UNION ", players))) {
+                    while (rs.next()) {
+                        uuids.add(rs.getString(1));
+                    }
+                }
+                try (PreparedStatement insertPlayer = connection.prepareStatement("INSERT OR IGNORE INTO players (uuid) VALUES (?)");
+                     PreparedStatement mapPlayer = connection.prepareStatement(
+                             "INSERT OR REPLACE INTO player_ids (player_uuid, id) SELECT ?, id FROM players WHERE uuid = ?")) {
+                    for (String uuid : uuids) {
+                        byte[] bytes;
+                        try {
+                            bytes = uuidToBytes(UUID.fromString(uuid));
+                        } catch (IllegalArgumentException e) {
+                            continue; // Unreadable rows are dropped with the old table
+                        }
+                        insertPlayer.setBytes(1, bytes);
+                        insertPlayer.executeUpdate();
+                        mapPlayer.setString(1, uuid);
+                        mapPlayer.setBytes(2, bytes);
+                        mapPlayer.executeUpdate();
+                    }
+                }
+                stmt.execute("INSERT OR IGNORE INTO npcs (name) " + String.join(" UNION ", npcs));
+            }
+
+            // The full-text index and its triggers refer to the old columns; they are rebuilt below
+            stmt.execute("DROP TRIGGER IF EXISTS conversations_fts_ai");
+            stmt.execute("DROP TRIGGER IF EXISTS conversations_fts_ad");
+            stmt.execute("DROP TRIGGER IF EXISTS conversations_fts_au");
+            stmt.execute("DROP TABLE IF EXISTS conversations_fts");
+
+            if (convertConversations) {
+                stmt.execute("DROP TABLE IF EXISTS conversations_new");
+                stmt.execute("CREATE TABLE conversations_new (" +
+                        "id INTEGER PRIMARY KEY, " +
+                        "player_id INTEGER NOT NULL, " +
+                        "npc_id INTEGER NOT NULL, " +
+                        "message TEXT, " +
+                        "is_from_npc BOOLEAN, " +
+                        "timestamp INTEGER)");
+                stmt.execute("INSERT INTO conversations_new (id, player_id, npc_id, message, is_from_npc, timestamp) " +
+                        "SELECT c.id, p.id, n.id, c.message, c.is_from_npc, c.timestamp FROM conversations c " +
+                        "JOIN player_ids p ON p.player_uuid = c.player_uuid JOIN npcs n ON n.name = c.npc_name");
+                stmt.execute("DROP TABLE conversations");
+                stmt.execute("ALTER TABLE conversations_new RENAME TO conversations");
+            }
+
+            if (convertSummaries) {
+                stmt.execute("DROP TABLE IF EXISTS conversation_summaries_new");
+                stmt.execute("CREATE TABLE conversation_summaries_new (" +
+                        "player_id INTEGER NOT NULL, " +
+                        "npc_id INTEGER NOT NULL, " +
+                        "summary TEXT, " +
+                        "updated_at INTEGER, " +
+                        "PRIMARY KEY (player_id, npc_id))");
+                stmt.execute("INSERT INTO conversation_summaries_new (player_id, npc_id, summary, updated_at) " +
+                        "SELECT p.id, n.id, s.summary, s.updated_at FROM conversation_summaries s " +
+                        "JOIN player_ids p ON p.player_uuid = s.player_uuid JOIN npcs n ON n.name = s.npc_name");
+                stmt.execute("DROP TABLE conversation_summaries");
+                stmt.execute("ALTER TABLE conversation_summaries_new RENAME TO conversation_summaries");
+            }
+            stmt.execute("DROP TABLE temp.player_ids");
+
+            stmt.execute("CREATE INDEX IF NOT EXISTS " + CONVERSATION_INDEX + " ON conversations (player_id, npc_id, timestamp DESC)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_conversations_npc ON conversations (npc_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS " + RETENTION_INDEX + " ON conversations (timestamp)");
+
+            // Same full-text setup as before, narrowed by the id columns; their values are single numeric tokens
+            stmt.execute("CREATE VIRTUAL TABLE conversations_fts USING fts5(" +
+                    "message, player_id, npc_id, " +
+                    "content='conversations', content_rowid='id', tokenize='porter unicode61')");
+            stmt.execute("CREATE TRIGGER conversations_fts_ai AFTER INSERT ON conversations BEGIN " +
+                    "INSERT INTO conversations_fts(rowid, message, player_id, npc_id) " +
+                    "VALUES (new.id, new.message, new.player_id, new.npc_id); END");
+            stmt.execute("CREATE TRIGGER conversations_fts_ad AFTER DELETE ON conversations BEGIN " +
+                    "INSERT INTO conversations_fts(conversations_fts, rowid, message, player_id, npc_id) " +
+                    "VALUES ('delete', old.id, old.message, old.player_id, old.npc_id); END");
+            stmt.execute("CREATE TRIGGER conversations_fts_au AFTER UPDATE ON conversations BEGIN " +
+                    "INSERT INTO conversations_fts(conversations_fts, rowid, message, player_id, npc_id) " +
+                    "VALUES ('delete', old.id, old.message, old.player_id, old.npc_id); " +
+                    "INSERT INTO conversations_fts(rowid, message, player_id, npc_id) " +
+                    "VALUES (new.id, new.message, new.player_id, new.npc_id); END");
+            stmt.execute("INSERT INTO conversations_fts(conversations_fts) VALUES ('rebuild')");
+        }
+    }
+
+    // Converted in place, which also works on a partitioned table. DDL commits implicitly, so every step checks
+    // whether it already ran and the migration can be retried after a failure.
+    private static void normalizeMySQLTables(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS players (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "uuid BINARY(16) NOT NULL, " +
+                    "UNIQUE KEY uq_players_uuid (uuid))");
+            stmt.execute("CREATE TABLE IF NOT EXISTS npcs (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "citizens_id INT NULL, " +
+                    "name VARCHAR(255) NOT NULL, " +
+                    "UNIQUE KEY uq_npcs_name (name))");
+
+            if (columnExists(connection, "conversations", "player_uuid")) {
+                stmt.execute("INSERT IGNORE INTO players (uuid) SELECT DISTINCT UNHEX(REPLACE(player_uuid, '-', '')) " +
+                        "FROM conversations WHERE player_uuid IS NOT NULL");
+                stmt.execute("INSERT IGNORE INTO npcs (name) SELECT DISTINCT npc_name FROM conversations WHERE npc_name IS NOT NULL");
+                if (!columnExists(connection, "conversations", "player_id")) {
+                    stmt.execute("ALTER TABLE conversations ADD COLUMN player_id INT NULL AFTER id, ADD COLUMN npc_id INT NULL AFTER player_id");
+                }
+                stmt.execute("UPDATE conversations c " +
+                        "JOIN players p ON p.uuid = UNHEX(REPLACE(c.player_uuid, '-', '')) " +
+                        "JOIN npcs n ON n.name = c.npc_name " +
+                        "SET c.player_id = p.id, c.npc_id = n.id WHERE c.player_id IS NULL");
+                connection.commit();
+                stmt.execute("DELETE FROM conversations WHERE player_id IS NULL OR npc_id IS NULL");
+                connection.commit();
+                if (indexExists(connection, "conversations", CONVERSATION_INDEX)) {
+                    stmt.execute("DROP INDEX " + CONVERSATION_INDEX + " ON conversations");
+                }
+                if (indexExists(connection, "conversations", "idx_npc_name")) {
+                    stmt.execute("DROP INDEX idx_npc_name ON conversations");
+                }
+                stmt.execute("ALTER TABLE conversations " +
+                        "MODIFY player_id INT NOT NULL, MODIFY npc_id INT NOT NULL, " +
+                        "DROP COLUMN player_uuid, DROP COLUMN npc_name, " +
+                        "ADD INDEX " + CONVERSATION_INDEX + " (player_id, npc_id, timestamp DESC), " +
+                        "ADD INDEX idx_conversations_npc (npc_id)");
+            }
+
+            if (columnExists(connection, "conversation_summaries", "player_uuid")) {
+                stmt.execute("INSERT IGNORE INTO players (uuid) SELECT DISTINCT UNHEX(REPLACE(player_uuid, '-', '')) FROM conversation_summaries");
+                stmt.execute("INSERT IGNORE INTO npcs (name) SELECT DISTINCT npc_name FROM conversation_summaries");
+                stmt.execute("DROP TABLE IF EXISTS conversation_summaries_new");
+                stmt.execute("CREATE TABLE conversation_summaries_new (" +
+                        "player_id INT NOT NULL, " +
+                        "npc_id INT NOT NULL, " +
+                        "summary TEXT, " +
+                        "updated_at BIGINT, " +
+                        "PRIMARY KEY (player_id, npc_id))");
+                stmt.execute("INSERT INTO conversation_summaries_new (player_id, npc_id, summary, updated_at) " +
+                        "SELECT p.id, n.id, s.summary, s.updated_at FROM conversation_summaries s " +
+                        "JOIN players p ON p.uuid = UNHEX(REPLACE(s.player_uuid, '-', '')) " +
+                        "JOIN npcs n ON n.name = s.npc_name");
+                connection.commit();
+                stmt.execute("RENAME TABLE conversation_summaries TO conversation_summaries_old, " +
+                        "conversation_summaries_new TO conversation_summaries");
+                stmt.execute("DROP TABLE conversation_summaries_old");
+            }
+        }
+    }
+
+    // Compressed bodies are binary. Existing text keeps its UTF-8 bytes, which MessageCodec reads as uncompressed.
+    private static void storeMySQLMessagesAsBytes(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE conversations MODIFY message BLOB");
+        }
+    }
+
+    private static byte[] uuidToBytes(UUID uuid) {
+        return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }
+}
@@ -0,0 +1,17 @@
+package me.xidentified.archgpt.storage.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * One schema change, identified by a version number that only ever grows.
+ * Steps must be safe to re-run against a schema that already has the change,
+ * since databases created before versioning existed start from version 0.
+ */
+public record Migration(int version, String description, Step step) {
+
+    @FunctionalInterface
+    public interface Step {
+        void apply(Connection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,91 @@
+package me.xidentified.archgpt.storage.migration;
+
+import java.sql.*;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Applies pending {@link Migration}s in version order and records each one in the
+ * {@code schema_version} table. Every migration is committed on its own, so a failure leaves
+ * the schema at the last version that completed. The caller must have the connection to itself.
+ */
+public final class MigrationRunner {
+    private static final String CREATE_VERSION_TABLE = "CREATE TABLE IF NOT EXISTS schema_version (" +
+            "version INTEGER PRIMARY KEY, " +
+            "description VARCHAR(255) NOT NULL, " +
+            "applied_at BIGINT NOT NULL)";
+
+    private MigrationRunner() {}
+
+    // Returns the number of migrations applied
+    public static int migrate(Connection connection, List<Migration> migrations, Logger logger) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute(CREATE_VERSION_TABLE);
+            }
+            connection.commit();
+
+            int current = getCurrentVersion(connection);
+            int applied = 0;
+            List<Migration> ordered = migrations.stream()
+                    .sorted(Comparator.comparingInt(Migration::version))
+                    .toList();
+
+            for (Migration migration : ordered) {
+                if (migration.version() <= current) continue;
+                try {
+                    migration.step().apply(connection);
+                    try (PreparedStatement stmt = connection.prepareStatement(
+                            "INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)")) {
+                        stmt.setInt(1, migration.version());
+                        stmt.setString(2, migration.description());
+                        stmt.setLong(3, System.currentTimeMillis());
+                        stmt.executeUpdate();
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw new SQLException("Schema migration " + migration.version() + " (" + migration.description() + ") failed", e);
+                }
+                logger.info("Applied schema migration " + migration.version() + ": " + migration.description());
+                applied++;
+            }
+            return applied;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    public static int getCurrentVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    public static boolean columnExists(Connection connection, String table, String column) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getColumns(connection.getCatalog(), null, table, column)) {
+            return rs.next();
+        }
+    }
+
+    public static boolean indexExists(Connection connection, String table, String index) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getIndexInfo(connection.getCatalog(), null, table, false, true)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public static boolean hasPrimaryKey(Connection connection, String table) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getPrimaryKeys(connection.getCatalog(), null, table)) {
+            return rs.next();
+        }
+    }
+}
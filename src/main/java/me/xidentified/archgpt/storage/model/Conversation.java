@@ -2,10 +2,12 @@ package me.xidentified.archgpt.storage.model;
 
 import lombok.Getter;
 
+import java.util.Objects;
 import java.util.UUID;
 
 @Getter
 public class Conversation {
+    private final long id; // 0 until the message has been stored
     private final UUID playerUUID;
     private final String npcName;
     private final String message;
@@ -13,10 +15,24 @@ public class Conversation {
     private final boolean isFromNPC;
 
     public Conversation(UUID playerUUID, String npcName, String message, long timestamp, boolean isFromNPC) {
+        this(0L, playerUUID, npcName, message, timestamp, isFromNPC);
+    }
+
+    public Conversation(long id, UUID playerUUID, String npcName, String message, long timestamp, boolean isFromNPC) {
+        this.id = id;
         this.playerUUID = playerUUID;
         this.npcName = npcName;
         this.message = message;
         this.timestamp = timestamp;
         this.isFromNPC = isFromNPC;
     }
+
+    // True for two copies of one message, e.g. one still queued and the stored one with its id
+    public boolean isSameMessage(Conversation other) {
+        return timestamp == other.timestamp
+                && isFromNPC == other.isFromNPC
+                && Objects.equals(playerUUID, other.playerUUID)
+                && Objects.equals(npcName, other.npcName)
+                && Objects.equals(message, other.message);
+    }
 }
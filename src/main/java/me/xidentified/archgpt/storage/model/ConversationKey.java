@@ -0,0 +1,7 @@
+package me.xidentified.archgpt.storage.model;
+
+import java.util.UUID;
+
+// Identifies the conversation history between one player and one NPC
+public record ConversationKey(UUID playerUUID, String npcName) {
+}
@@ -0,0 +1,5 @@
+package me.xidentified.archgpt.storage.model;
+
+// What an NPC remembers about a player beyond the recent messages, and when it was last written
+public record MemorySummary(String summary, long updatedAt) {
+}
@@ -0,0 +1,8 @@
+package me.xidentified.archgpt.storage.model;
+
+import java.time.LocalDateTime;
+
+// Criteria for listing reports; null fields don't filter
+public record ReportFilter(String npcName, String reportType, LocalDateTime since) {
+    public static final ReportFilter ALL = new ReportFilter(null, null, null);
+}
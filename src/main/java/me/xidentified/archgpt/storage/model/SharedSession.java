@@ -0,0 +1,8 @@
+package me.xidentified.archgpt.storage.model;
+
+import java.util.UUID;
+
+// A live conversation as stored for the other servers of a network. state is the chat request history as a JSON array;
+// version goes up by one on every write, so a server only overwrites the row it last read.
+public record SharedSession(UUID playerUUID, int npcId, String npcName, String state, long version, long updatedAt, String server) {
+}
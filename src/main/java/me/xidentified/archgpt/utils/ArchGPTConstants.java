@@ -2,8 +2,6 @@ package me.xidentified.archgpt.utils;
 
 public class ArchGPTConstants {
 
-    public static final int CACHE_EXPIRATION_MINUTES = 30;
-
     public static final long MAX_HOLOGRAM_LIFETIME = 1200L;  // 60 seconds in ticks
 
     public static final double MAX_DISTANCE_FROM_NPC = 14.0;
@@ -14,7 +12,7 @@ public class ArchGPTConstants {
 
     public static final long GREETING_COOLDOWN_MS = 300000; // 5 min default
 
-    public static final long CHAT_COOLDOWN_MS = 3000;
-
     public static final int MINIMUM_SAVED_SENTENCE_LENGTH = 30;
+
+    public static final int MEMORY_RECALL_LIMIT = 3; // Past messages recalled when a player asks about earlier conversations
 }
\ No newline at end of file
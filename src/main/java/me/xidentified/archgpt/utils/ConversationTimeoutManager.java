@@ -1,82 +1,69 @@
 package me.xidentified.archgpt.utils;
 
 import me.xidentified.archgpt.ArchGPT;
+import me.xidentified.archgpt.ConversationSession;
+import me.xidentified.archgpt.NPCConversationManager;
 import org.bukkit.entity.Player;
 
 import java.util.UUID;
 import java.util.concurrent.*;
 
+// Ends conversations nobody has spoken in for response_timeout. The pending task is kept on the session.
 public class ConversationTimeoutManager {
     private final ArchGPT plugin;
-    private final ConcurrentHashMap<UUID, ScheduledFuture<?>> conversationTimeoutTasks;
+    private final NPCConversationManager manager;
     private final ScheduledExecutorService executorService;
 
-    public ConversationTimeoutManager(ArchGPT plugin) {
+    public ConversationTimeoutManager(ArchGPT plugin, NPCConversationManager manager) {
         this.plugin = plugin;
-        this.conversationTimeoutTasks = new ConcurrentHashMap<>();
-        this.executorService = Executors.newSingleThreadScheduledExecutor();
+        this.manager = manager;
+        this.executorService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ArchGPT-Timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
-    public void startConversationTimeout(UUID playerUUID) {
-        String playerName = null;
-        try {
-            org.bukkit.entity.Player p = plugin.getServer().getPlayer(playerUUID);
-            if (p != null) playerName = p.getName();
-        } catch (Throwable ignored) {}
-        plugin.debugLog("Conversation timeout started for " + (playerName != null ? playerName : playerUUID));
+    public void startConversationTimeout(ConversationSession session) {
+        plugin.debugLog("Conversation timeout started for " + playerName(session.getPlayerUUID()));
 
         // Get the timeout duration from the configuration
         long conversationTimeoutMillis = plugin.getConfigHandler().getNpcChatTimeoutMillis();
 
-        // Schedule the timeout task
-        ScheduledFuture<?> timeoutTask = executorService.schedule(() -> {
-            synchronized (plugin.getNpcChatStatesCache()) {
-                Player player = plugin.getServer().getPlayer(playerUUID);
-                if (player != null) {
-                    plugin.sendMessage(player, Messages.CONVERSATION_ENDED_INACTIVITY);
-                    // Clean up the conversation caches
-                    plugin.getNpcChatStatesCache().invalidate(playerUUID);
-                    plugin.getActiveConversations().remove(playerUUID);
-                    plugin.getPlayerCooldowns().remove(playerUUID);
-                    plugin.getConversationTokenCounters().remove(playerUUID);
+        // Schedule the timeout task, replacing any earlier one
+        ScheduledFuture<?> timeoutTask = executorService.schedule(() -> manager.expireConversation(session),
+                conversationTimeoutMillis, TimeUnit.MILLISECONDS);
+        cancel(session.swapTimeoutTask(timeoutTask));
 
-                    plugin.getHologramManager().removePlayerHologram(playerUUID);
-                }
-            }
-        }, conversationTimeoutMillis, TimeUnit.MILLISECONDS);
-
-        // Store the timeout task in the map
-        conversationTimeoutTasks.put(playerUUID, timeoutTask);
+        // The session may have ended while this was being scheduled
+        if (session.isClosed()) {
+            cancel(session.swapTimeoutTask(null));
+        }
     }
 
-    public void resetConversationTimeout(UUID playerUUID) {
-        String playerName = null;
-        try {
-            org.bukkit.entity.Player p = plugin.getServer().getPlayer(playerUUID);
-            if (p != null) playerName = p.getName();
-        } catch (Throwable ignored) {}
-        plugin.debugLog("Conversation Timer reset for " + (playerName != null ? playerName : playerUUID));
-        cancelConversationTimeout(playerUUID);
-        startConversationTimeout(playerUUID);
+    public void resetConversationTimeout(ConversationSession session) {
+        plugin.debugLog("Conversation Timer reset for " + playerName(session.getPlayerUUID()));
+        startConversationTimeout(session);
     }
 
-    public void cancelConversationTimeout(UUID playerUUID) {
-        String playerName = null;
-        try {
-            org.bukkit.entity.Player p = plugin.getServer().getPlayer(playerUUID);
-            if (p != null) playerName = p.getName();
-        } catch (Throwable ignored) {}
-        plugin.debugLog("Player " + (playerName != null ? playerName : playerUUID) + " canceled the conversation");
+    public void cancelConversationTimeout(ConversationSession session) {
+        cancel(session.swapTimeoutTask(null));
+    }
 
-        // Get the existing conversation timeout task for the player
-        synchronized (plugin.getNpcChatStatesCache()) {
-            ScheduledFuture<?> timeoutTask = conversationTimeoutTasks.remove(playerUUID);
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
 
-            // Cancel the task if it exists and is not yet executed
-            if (timeoutTask != null && !timeoutTask.isDone()) {
-                timeoutTask.cancel(true);
-            }
+    private static void cancel(ScheduledFuture<?> timeoutTask) {
+        // Cancel the task if it exists and is not yet executed
+        if (timeoutTask != null && !timeoutTask.isDone()) {
+            timeoutTask.cancel(false);
         }
     }
 
+    private String playerName(UUID playerUUID) {
+        Player player = plugin.getServer().getPlayer(playerUUID);
+        return player != null ? player.getName() : playerUUID.toString();
+    }
+
 }
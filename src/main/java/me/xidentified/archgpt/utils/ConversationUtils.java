@@ -2,6 +2,7 @@ package me.xidentified.archgpt.utils;
 
 import me.xidentified.archgpt.ArchGPT;
 import me.xidentified.archgpt.ArchGPTConfig;
+import me.xidentified.archgpt.ConversationSession;
 import me.xidentified.archgpt.NPCConversationManager;
 import me.xidentified.archgpt.events.NPCToPlayerMessageEvent;
 import me.xidentified.archgpt.context.EnvironmentalContextProvider;
@@ -83,7 +84,7 @@ public class ConversationUtils {
         return System.currentTimeMillis() - lastCommentTime > commentCooldown;
     }
 
-    public boolean handleReportingState(Player player, AsyncPlayerChatEvent event) {
+    public boolean handleReportingState(Player player, ConversationSession session, AsyncPlayerChatEvent event) {
         UUID playerUUID = player.getUniqueId();
 
         if (plugin.getReportManager().selectingReportTypePlayers.contains(playerUUID)) {
@@ -97,14 +98,18 @@ public class ConversationUtils {
             Component feedback = Component.text(msg);
 
             String reportType = plugin.getReportManager().getSelectedReportType(playerUUID);
-            NPC npc = manager.playerNPCMap.get(playerUUID);
+            NPC npc = session.getNpc();
             String npcLastMessage = npc.data().get("last_message");
             if (npcLastMessage == null) {
                 npcLastMessage = "Unknown NPC Message";
             }
             int newReportId = -1;
             Report report = new Report(newReportId, player.getName(), npc.getName(), reportType, feedback, npcLastMessage, LocalDateTime.now());
-            plugin.getReportManager().addReport(report);
+            // The insert runs on the database executor, outside the caller's player lock
+            plugin.getReportManager().addReport(report).exceptionally(e -> {
+                plugin.getLogger().warning("Failed to save report from " + player.getName() + ": " + e.getMessage());
+                return null;
+            });
             plugin.getReportManager().exitReportingState(playerUUID);
             plugin.sendMessage(player, Messages.REPORT_SUBMITTED.formatted(
                     Placeholder.unparsed("cancel", Objects.requireNonNull(plugin.getConfig().getString("conversation_end_phrase")))
@@ -104,12 +104,53 @@ public class Messages {
             .withPlaceholder("plugin-ver")
             .withPlaceholder("java-ver")
             .build();
+    public static final Message STATS_HEADER = new MessageBuilder("archgpt.stats.header")
+            .withDefault("<prefix>ArchGPT runtime statistics:")
+            .build();
     public static final Message CLEAR_STORAGE_SUCCESS = new MessageBuilder("archgpt.clearconversations.success")
             .withDefault("<prefix>All conversation history successfully deleted.")
             .build();
     public static final Message CLEAR_STORAGE_ERROR = new MessageBuilder("archgpt.clearconversations.error")
             .withDefault("<prefix_negative>There was an error clearing conversation history.")
             .build();
+    public static final Message IMPORT_CMD_USAGE = new MessageBuilder("archgpt.import.usage")
+            .withDefault("<prefix_warning>Usage: <cmd_syntax>/archgpt import <arg>file</arg></cmd_syntax>")
+            .build();
+    public static final Message IMPORT_FILE_NOT_FOUND = new MessageBuilder("archgpt.import.not-found")
+            .withDefault("<prefix_negative>No export named '{file}' in the exports folder.")
+            .withPlaceholder("file")
+            .build();
+    public static final Message TRANSFER_BUSY = new MessageBuilder("archgpt.transfer.busy")
+            .withDefault("<prefix_negative>An export or import is already running.")
+            .build();
+    public static final Message TRANSFER_STARTED = new MessageBuilder("archgpt.transfer.started")
+            .withDefault("<prefix>{action} <gray>{file}</gray> started, progress follows every few seconds.")
+            .withPlaceholder("action")
+            .withPlaceholder("file")
+            .build();
+    public static final Message TRANSFER_PROGRESS = new MessageBuilder("archgpt.transfer.progress")
+            .withDefault("<prefix>{action}: <gray>{rows}</gray> rows, <gray>{size}</gray> so far.")
+            .withPlaceholder("action")
+            .withPlaceholder("rows")
+            .withPlaceholder("size")
+            .build();
+    public static final Message TRANSFER_DONE = new MessageBuilder("archgpt.transfer.done")
+            .withDefault("<prefix>{action} <gray>{file}</gray> finished in {time}: <gray>{conversations}</gray> messages, <gray>{summaries}</gray> summaries, <gray>{reports}</gray> reports, <gray>{skipped}</gray> lines skipped, <gray>{duplicates}</gray> already stored.")
+            .withPlaceholder("action")
+            .withPlaceholder("file")
+            .withPlaceholder("time")
+            .withPlaceholder("conversations")
+            .withPlaceholder("summaries")
+            .withPlaceholder("reports")
+            .withPlaceholder("skipped")
+            .withPlaceholder("duplicates")
+            .build();
+    public static final Message TRANSFER_FAILED = new MessageBuilder("archgpt.transfer.failed")
+            .withDefault("<prefix_negative>{action} <yellow>{file}</yellow> failed: <gray>{error}</gray>")
+            .withPlaceholder("action")
+            .withPlaceholder("file")
+            .withPlaceholder("error")
+            .build();
 
     // NPC stuff
     public static final Message NPC_NOT_FOUND = new MessageBuilder("npc.not-found")
@@ -2,17 +2,23 @@ package me.xidentified.archgpt.utils;
 
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import me.xidentified.archgpt.ArchGPT;
-import me.xidentified.archgpt.storage.model.Conversation;
-import net.citizensnpcs.api.npc.NPC;
+import me.xidentified.archgpt.ConversationSession;
 import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
 
 import java.time.Duration;
-import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Placeholders extends PlaceholderExpansion {
+    private static final String NO_RECENT_MESSAGES = "No recent messages";
+    private static final long REFRESH_INTERVAL_MS = 5000;
+
     private final ArchGPT plugin;
+    private final Map<UUID, CachedMessage> recentMessages = new ConcurrentHashMap<>();
+    private final Set<UUID> refreshing = ConcurrentHashMap.newKeySet();
 
     public Placeholders(ArchGPT plugin) {
         this.plugin = plugin;
@@ -51,29 +57,56 @@ public class Placeholders extends PlaceholderExpansion {
         };
     }
 
+    // Drops what is cached for a player who left; called on quit
+    public void forgetPlayer(UUID playerUUID) {
+        recentMessages.remove(playerUUID);
+        refreshing.remove(playerUUID);
+    }
+
+    // PlaceholderAPI asks synchronously (often every tick for scoreboards), so answer from a cache
+    // and refresh it in the background when it gets stale. Only players in a conversation are cached.
     private String getMostRecentMessage(OfflinePlayer player) {
         UUID playerUUID = player.getUniqueId();
-        String npcName = getCurrentNPCName(player);
-        Duration memoryDuration = Duration.ofHours(1);
+        ConversationSession session = plugin.getConversationManager().getSession(playerUUID);
+        if (session == null) {
+            recentMessages.remove(playerUUID);
+            return NO_RECENT_MESSAGES;
+        }
+        String npcName = session.getNpc().getName();
 
-        List<Conversation> conversations = plugin.getConversationDAO().getConversations(playerUUID, npcName, memoryDuration);
-        if (conversations.isEmpty()) {
-            return "No recent messages";
+        CachedMessage cached = recentMessages.get(playerUUID);
+        boolean stale = cached == null || !cached.npcName().equals(npcName)
+                || System.currentTimeMillis() - cached.fetchedAt() > REFRESH_INTERVAL_MS;
+        if (stale && refreshing.add(playerUUID)) {
+            plugin.getAsyncConversationDAO()
+                    .getLatestConversation(playerUUID, npcName, Duration.ofHours(1))
+                    .thenAccept(latest -> {
+                        // Not cached again if the player quit while it was loading
+                        if (refreshing.contains(playerUUID)) {
+                            recentMessages.put(playerUUID, new CachedMessage(npcName,
+                                    latest == null ? NO_RECENT_MESSAGES : latest.getMessage(),
+                                    System.currentTimeMillis()));
+                        }
+                    })
+                    .whenComplete((ignored, ex) -> refreshing.remove(playerUUID));
         }
 
-        // Get the last message from the first conversation in the list
-        Conversation mostRecentConversation = conversations.get(0);
-        return mostRecentConversation.getMessage();
+        if (cached == null || !cached.npcName().equals(npcName)) {
+            return NO_RECENT_MESSAGES;
+        }
+        return cached.message();
     }
 
+    private record CachedMessage(String npcName, String message, long fetchedAt) {}
+
     private boolean isInConversation(OfflinePlayer player) {
         return plugin.getConversationManager().playerInConversation(player.getUniqueId());
     }
 
     private String getCurrentNPCName(OfflinePlayer player) {
-        if (isInConversation(player)) {
-            NPC npc = plugin.getConversationManager().playerNPCMap.get(player.getUniqueId());
-            if (npc != null) return npc.getName();
+        ConversationSession session = plugin.getConversationManager().getSession(player.getUniqueId());
+        if (session != null) {
+            return session.getNpc().getName();
         }
         return "None";
     }
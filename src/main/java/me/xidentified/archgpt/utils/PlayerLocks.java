@@ -0,0 +1,90 @@
+package me.xidentified.archgpt.utils;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped locks guarding each player's conversation state.
+ * <p>
+ * A player always maps to the same stripe, so everything touching one conversation is serialised,
+ * while chat events from other players take other stripes and almost never wait. Two players can
+ * share a stripe; with {@link #DEFAULT_STRIPES} that is rare enough not to matter. The locks are
+ * reentrant, so a guarded section may call into another that locks the same player.
+ */
+public class PlayerLocks {
+    public static final int DEFAULT_STRIPES = 64;
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    // Metrics
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+
+    public PlayerLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public PlayerLocks(int stripeCount) {
+        // Round up to a power of two so a stripe is picked with a mask
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public void withLock(UUID playerUUID, Runnable action) {
+        ReentrantLock lock = lock(playerUUID);
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public <T> T withLock(UUID playerUUID, Supplier<T> action) {
+        ReentrantLock lock = lock(playerUUID);
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lock(UUID playerUUID) {
+        ReentrantLock lock = stripeFor(playerUUID);
+        acquisitions.increment();
+        if (!lock.tryLock()) {
+            contended.increment();
+            lock.lock();
+        }
+        return lock;
+    }
+
+    private ReentrantLock stripeFor(UUID playerUUID) {
+        // Spread the UUID's bits; version 4 UUIDs are random, offline-mode ones are name hashes
+        int hash = playerUUID.hashCode();
+        hash ^= hash >>> 16;
+        return stripes[hash & mask];
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    // Acquisitions that found the stripe held and had to wait
+    public long getContended() {
+        return contended.sum();
+    }
+}
@@ -0,0 +1,141 @@
+package me.xidentified.archgpt.scheduler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderSchedulerTest {
+    private ProviderScheduler scheduler;
+
+    @AfterEach
+    void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void busyNpcsAreServedInProportionToTheirWeights() throws Exception {
+        // One request at a time, so the start order is the scheduling order
+        scheduler = new ProviderScheduler(new ProviderScheduler.Limits(1, new ProviderScheduler.Share(1, 8),
+                Map.of("Guide", new ProviderScheduler.Share(2, 8))));
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> blocker = scheduler.submit("Blocker", 1, waitFor(release));
+
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> jobs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            jobs.add(scheduler.submit("Guide", ProviderScheduler.QUANTUM, record(started, "Guide")));
+        }
+        for (int i = 0; i < 6; i++) {
+            jobs.add(scheduler.submit("Smith", ProviderScheduler.QUANTUM, record(started, "Smith")));
+        }
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        CompletableFuture.allOf(jobs.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        // While both had requests waiting, Guide (weight 2) started two for each of Smith's
+        assertEquals(List.of("Guide", "Guide", "Smith", "Guide", "Guide", "Smith", "Guide", "Guide", "Smith",
+                "Smith", "Smith", "Smith"), started);
+    }
+
+    @Test
+    void npcIsHeldToItsOwnCap() throws Exception {
+        scheduler = new ProviderScheduler(new ProviderScheduler.Limits(8, new ProviderScheduler.Share(1, 2), Map.of()));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch twoStarted = new CountDownLatch(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Void>> jobs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            jobs.add(scheduler.submit("Guide", 1, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                twoStarted.countDown();
+                try {
+                    waitFor(release).get();
+                } finally {
+                    running.decrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        ProviderScheduler.NpcStats guide = scheduler.getNpcStats().get(0);
+        assertEquals(2, guide.running());
+        assertEquals(3, guide.queued());
+
+        // Another NPC still gets a slot while Guide is at its cap
+        scheduler.submit("Smith", 1, () -> "hello").get(5, TimeUnit.SECONDS);
+
+        assertTrue(twoStarted.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        CompletableFuture.allOf(jobs.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        assertEquals(2, maxRunning.get());
+        assertEquals(5, scheduler.getNpcStats().get(0).started());
+    }
+
+    @Test
+    void shutdownFailsQueuedAndLaterRequests() throws Exception {
+        scheduler = new ProviderScheduler(new ProviderScheduler.Limits(1, new ProviderScheduler.Share(1, 1), Map.of()));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch never = new CountDownLatch(1);
+        CompletableFuture<Void> inFlight = scheduler.submit("Guide", 1, () -> {
+            started.countDown();
+            return waitFor(never).get();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = scheduler.submit("Guide", 1, () -> "too late");
+        CompletableFuture<String> otherNpc = scheduler.submit("Smith", 1, () -> "too late");
+
+        scheduler.shutdown();
+
+        assertRejected(queued);
+        assertRejected(otherNpc);
+        assertRejected(scheduler.submit("Guide", 1, () -> "after shutdown"));
+        // The request in flight was interrupted
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> inFlight.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+    }
+
+    private static void assertRejected(CompletableFuture<?> future) {
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+    }
+
+    private static Supplier<Void> record(List<String> started, String npcName) {
+        return () -> {
+            started.add(npcName);
+            return null;
+        };
+    }
+
+    private static Supplier<Void> waitFor(CountDownLatch latch) {
+        return () -> {
+            try {
+                if (!latch.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Timed out waiting for the test");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted", e);
+            }
+            return null;
+        };
+    }
+}
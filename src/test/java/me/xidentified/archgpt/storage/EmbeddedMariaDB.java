@@ -0,0 +1,66 @@
+package me.xidentified.archgpt.storage;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An embedded MariaDB server standing in for MySQL, so the MySQL tests need no database server.
+ * Start one per test class; every test then asks for a database of its own.
+ */
+public final class EmbeddedMariaDB {
+    private final DB db;
+    private final AtomicInteger databases = new AtomicInteger();
+
+    private EmbeddedMariaDB(DB db) {
+        this.db = db;
+    }
+
+    public static EmbeddedMariaDB start() throws Exception {
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+        config.setPort(0); // Any free port
+        config.setDataDir(Files.createTempDirectory("archgpt-mariadb").toAbsolutePath().toString());
+        DB db = DB.newEmbeddedDB(config.build());
+        db.start();
+        return new EmbeddedMariaDB(db);
+    }
+
+    // An empty database no other test uses
+    public String newDatabase() throws Exception {
+        String name = "archgpt_test_" + databases.incrementAndGet();
+        db.createDB(name);
+        return name;
+    }
+
+    public Connection connect(String database) throws SQLException {
+        return DriverManager.getConnection(jdbcUrl(database), "root", "");
+    }
+
+    // Same pool settings as ConnectionPools
+    public HikariDataSource dataSource(String database) {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName("archgpt-test-" + database);
+        hikariConfig.setJdbcUrl(jdbcUrl(database));
+        hikariConfig.setUsername("root");
+        hikariConfig.setMaximumPoolSize(4);
+        hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
+        hikariConfig.addDataSourceProperty("useServerPrepStmts", "true");
+        hikariConfig.addDataSourceProperty("rewriteBatchedStatements", "true");
+        return new HikariDataSource(hikariConfig);
+    }
+
+    public void stop() throws Exception {
+        db.stop();
+    }
+
+    private String jdbcUrl(String database) {
+        return "jdbc:mysql://localhost:" + db.getConfiguration().getPort() + "/" + database + "?useSSL=false";
+    }
+}
@@ -0,0 +1,141 @@
+package me.xidentified.archgpt.storage;
+
+import com.zaxxer.hikari.HikariDataSource;
+import me.xidentified.archgpt.ArchGPT;
+import me.xidentified.archgpt.ArchGPTConfig;
+import me.xidentified.archgpt.storage.dao.MySQLSessionDAO;
+import me.xidentified.archgpt.storage.model.SharedSession;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Two stores on one database play two servers of a network handing a conversation back and forth.
+ */
+class SharedSessionStoreTest {
+    private static final Logger LOGGER = Logger.getLogger("ArchGPT-Tests");
+    private static final long CHAT_TIMEOUT_MILLIS = 60_000;
+    private static final UUID PLAYER = UUID.fromString("8667ba71-b85a-4004-af54-457a9734eed7");
+
+    private static EmbeddedMariaDB mariaDB;
+
+    private HikariDataSource dataSource;
+    private MySQLSessionDAO dao;
+    private SharedSessionStore lobby;
+    private SharedSessionStore survival;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        mariaDB = EmbeddedMariaDB.start();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        mariaDB.stop();
+    }
+
+    @BeforeEach
+    void createStores() throws Exception {
+        ArchGPT plugin = mock(ArchGPT.class);
+        ArchGPTConfig config = mock(ArchGPTConfig.class);
+        when(plugin.getConfigHandler()).thenReturn(config);
+        when(config.getNpcChatTimeoutMillis()).thenReturn(CHAT_TIMEOUT_MILLIS);
+
+        dataSource = mariaDB.dataSource(mariaDB.newDatabase());
+        dao = new MySQLSessionDAO(dataSource, LOGGER);
+        lobby = new SharedSessionStore(plugin, dao, "lobby");
+        survival = new SharedSessionStore(plugin, new MySQLSessionDAO(dataSource, LOGGER), "survival");
+    }
+
+    @AfterEach
+    void shutdown() {
+        lobby.shutdown(5000);
+        survival.shutdown(5000);
+        dataSource.close();
+    }
+
+    @Test
+    void saveInsertsThenUpdates() {
+        assertTrue(lobby.save(PLAYER, 7, "Guide", "[1]").join());
+        assertTrue(lobby.save(PLAYER, 7, "Guide", "[1,2]").join());
+
+        SharedSession stored = dao.loadSession(PLAYER);
+        assertEquals(2, stored.version());
+        assertEquals("[1,2]", stored.state());
+        assertEquals("lobby", stored.server());
+    }
+
+    @Test
+    void sessionFollowsPlayerToAnotherServer() {
+        lobby.save(PLAYER, 7, "Guide", "[1]").join();
+        lobby.evict(PLAYER);
+
+        SharedSession loaded = survival.load(PLAYER).join();
+        assertEquals("[1]", loaded.state());
+        assertTrue(survival.save(PLAYER, 7, "Guide", "[1,2]").join());
+        assertEquals("survival", dao.loadSession(PLAYER).server());
+    }
+
+    // Both servers hold version 1; the slower write is dropped and that server reloads the winner's row
+    @Test
+    void conflictingSaveReloadsStoredSession() {
+        lobby.save(PLAYER, 7, "Guide", "[1]").join();
+        survival.load(PLAYER).join();
+        assertTrue(lobby.save(PLAYER, 7, "Guide", "[1,\"lobby\"]").join());
+
+        assertFalse(survival.save(PLAYER, 7, "Guide", "[1,\"survival\"]").join());
+        assertEquals(1, survival.getConflicts());
+        assertEquals("[1,\"lobby\"]", dao.loadSession(PLAYER).state());
+        assertEquals("[1,\"lobby\"]", survival.load(PLAYER).join().state());
+
+        // Having reloaded, the next write builds on the stored version
+        assertTrue(survival.save(PLAYER, 7, "Guide", "[1,\"lobby\",\"survival\"]").join());
+        assertEquals(3, dao.loadSession(PLAYER).version());
+    }
+
+    // A row left from an earlier conversation is taken over rather than treated as a conflict
+    @Test
+    void saveReplacesLeftoverRow() {
+        dao.insertSession(new SharedSession(PLAYER, 3, "Smith", "[]", 5, System.currentTimeMillis(), "survival"));
+
+        assertTrue(lobby.save(PLAYER, 7, "Guide", "[1]").join());
+        SharedSession stored = dao.loadSession(PLAYER);
+        assertEquals(6, stored.version());
+        assertEquals("Guide", stored.npcName());
+        assertEquals(0, lobby.getConflicts());
+    }
+
+    @Test
+    void expiredSessionIsNotLoaded() {
+        dao.insertSession(new SharedSession(PLAYER, 7, "Guide", "[1]", 1,
+                System.currentTimeMillis() - CHAT_TIMEOUT_MILLIS - 1000, "lobby"));
+
+        assertNull(survival.load(PLAYER).join());
+        assertNull(dao.loadSession(PLAYER));
+        assertEquals(0, survival.getCachedSessions());
+    }
+
+    @Test
+    void purgeExpiredRemovesOnlyStaleRows() {
+        UUID active = UUID.randomUUID();
+        dao.insertSession(new SharedSession(PLAYER, 7, "Guide", "[]", 1,
+                System.currentTimeMillis() - CHAT_TIMEOUT_MILLIS - 1000, "lobby"));
+        lobby.save(active, 7, "Guide", "[]").join();
+
+        assertEquals(1, lobby.purgeExpired());
+        assertNull(dao.loadSession(PLAYER));
+        assertEquals(1, dao.loadSession(active).version());
+    }
+}
@@ -0,0 +1,226 @@
+package me.xidentified.archgpt.storage.dao;
+
+import me.xidentified.archgpt.storage.MessageCodec;
+import me.xidentified.archgpt.storage.log.LogRecord;
+import me.xidentified.archgpt.storage.model.Conversation;
+import me.xidentified.archgpt.storage.model.ConversationKey;
+import me.xidentified.archgpt.storage.model.MemorySummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes through the DAO, damages or reshapes the files on disk, then reopens the directory to
+ * check what recovery makes of it.
+ */
+class LogConversationDAOTest {
+    private static final Logger LOGGER = Logger.getLogger("ArchGPT-Tests");
+    private static final UUID ALEX = UUID.fromString("8667ba71-b85a-4004-af54-457a9734eed7");
+    private static final UUID STEVE = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+    private static final Duration MEMORY = Duration.ofDays(1);
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    File directory;
+
+    private LogConversationDAO dao;
+    private final long now = System.currentTimeMillis();
+
+    @AfterEach
+    void close() {
+        if (dao != null) {
+            dao.close(1000);
+        }
+    }
+
+    @Test
+    void messagesSurviveRestart() throws IOException {
+        dao = open(SEGMENT_SIZE);
+        dao.saveConversations(List.of(message(ALEX, "Guide", "I really like carrots", 1),
+                message(ALEX, "Guide", "Carrots grow well near spawn", 2)));
+        dao.saveConversation(message(STEVE, "Guide", "Hello there", 3));
+
+        reopen(SEGMENT_SIZE);
+
+        assertEquals(List.of("I really like carrots", "Carrots grow well near spawn"), messages(ALEX, "Guide"));
+        assertEquals(List.of("Hello there"), messages(STEVE, "Guide"));
+    }
+
+    // A crash mid-write leaves the last frame cut short; the preallocated space behind it reads as zeros
+    @Test
+    void truncatedLastFrameIsDroppedOnReplay() throws IOException {
+        dao = open(SEGMENT_SIZE);
+        dao.saveConversation(message(ALEX, "Guide", "one", 1));
+        dao.saveConversation(message(ALEX, "Guide", "two", 2));
+        long intact = dao.getTotalBytes();
+        dao.saveConversation(message(ALEX, "Guide", "three", 3));
+        long written = dao.getTotalBytes();
+        dao.close(1000);
+
+        try (RandomAccessFile file = new RandomAccessFile(onlySegment(), "rw")) {
+            file.setLength(written - 3);
+        }
+        dao = open(SEGMENT_SIZE);
+
+        assertEquals(List.of("one", "two"), messages(ALEX, "Guide"));
+        assertEquals(intact, dao.getTotalBytes());
+
+        // The next write goes where the torn frame was, and is read back after another restart
+        dao.saveConversation(message(ALEX, "Guide", "four", 4));
+        reopen(SEGMENT_SIZE);
+        assertEquals(List.of("one", "two", "four"), messages(ALEX, "Guide"));
+    }
+
+    @Test
+    void frameFailingItsChecksumEndsReplay() throws IOException {
+        dao = open(SEGMENT_SIZE);
+        dao.saveConversation(message(ALEX, "Guide", "one", 1));
+        dao.saveConversation(message(ALEX, "Guide", "two", 2));
+        long written = dao.getTotalBytes();
+        dao.close(1000);
+
+        try (RandomAccessFile file = new RandomAccessFile(onlySegment(), "rw")) {
+            file.seek(written - 1);
+            int last = file.read();
+            file.seek(written - 1);
+            file.write(last ^ 1);
+        }
+        dao = open(SEGMENT_SIZE);
+
+        assertEquals(List.of("one"), messages(ALEX, "Guide"));
+    }
+
+    @Test
+    void recordLargerThanASegmentGetsOneOfItsOwn() throws IOException {
+        dao = open(256);
+        String longMessage = "carrots ".repeat(100);
+        dao.saveConversation(message(ALEX, "Guide", "short", 1));
+        dao.saveConversation(message(ALEX, "Guide", longMessage, 2));
+        dao.saveConversation(message(ALEX, "Guide", "after", 3));
+
+        // The long message doesn't fit the first segment and gets one sized to it; the next message rolls again
+        assertEquals(3, dao.getSegmentCount());
+
+        reopen(256);
+        assertEquals(3, dao.getSegmentCount());
+        assertEquals(List.of("short", longMessage, "after"), messages(ALEX, "Guide"));
+    }
+
+    @Test
+    void compactionKeepsLiveRecordsAcrossRestart() throws IOException {
+        dao = open(SEGMENT_SIZE);
+        List<Conversation> guide = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            guide.add(message(ALEX, "Guide", "Message number " + i + " about carrots", i));
+        }
+        dao.saveConversations(guide);
+        dao.saveConversation(message(ALEX, "Smith", "Can you make me a sword", 50));
+        dao.saveConversation(message(ALEX, "Smith", "Bring me three iron ingots", 51));
+        dao.saveMemorySummary(new ConversationKey(ALEX, "Smith"), new MemorySummary("Wants a sword", now));
+        long lastId = dao.getRecentConversations(ALEX, "Smith", MEMORY, 1).get(0).getId();
+        assertEquals(40, dao.deleteConversations("Guide", Integer.MAX_VALUE));
+        long before = dao.getTotalBytes();
+
+        dao.compactNow();
+
+        assertEquals(1, dao.getCompactions());
+        assertEquals(1, dao.getSegmentCount());
+        assertTrue(dao.getTotalBytes() < before);
+        assertEquals(dao.getLiveBytes() + snapshotSize(), dao.getTotalBytes());
+
+        reopen(SEGMENT_SIZE);
+        assertEquals(1, segmentFiles().length);
+        assertEquals(List.of(), messages(ALEX, "Guide"));
+        assertEquals(List.of("Can you make me a sword", "Bring me three iron ingots"), messages(ALEX, "Smith"));
+        assertEquals("Wants a sword", dao.getMemorySummary(ALEX, "Smith", MEMORY).summary());
+
+        // Ids keep counting from where they were before compaction
+        dao.saveConversation(message(ALEX, "Smith", "Here you go", 52));
+        assertTrue(dao.getRecentConversations(ALEX, "Smith", MEMORY, 1).get(0).getId() > lastId);
+    }
+
+    @Test
+    void deletesAndRenamesAreReplayed() throws IOException {
+        dao = open(SEGMENT_SIZE);
+        dao.saveConversation(message(ALEX, "Guide", "old", -7200));
+        dao.saveConversation(message(ALEX, "Guide", "recent", 1));
+        dao.saveConversation(message(STEVE, "Guide", "hello", 2));
+        dao.saveConversation(message(ALEX, "Smith", "a sword please", 3));
+        dao.saveConversation(message(STEVE, "Baker", "bread please", 4));
+        dao.saveMemorySummary(new ConversationKey(ALEX, "Guide"), new MemorySummary("Likes carrots", now));
+
+        assertEquals(1, dao.deleteConversationsBefore(now - 3600_000, Integer.MAX_VALUE));
+        dao.clearConversationsForNpc("Baker");
+        assertFalse(dao.renameNpc("Guide", "Smith", 1));
+        assertTrue(dao.renameNpc("Guide", "Sage", 1));
+        assertFalse(dao.renameNpc("Guide", "Sage", 1));
+        assertState();
+
+        reopen(SEGMENT_SIZE);
+        assertState();
+    }
+
+    private void assertState() {
+        assertEquals(List.of(), messages(ALEX, "Guide"));
+        assertEquals(List.of("recent"), messages(ALEX, "Sage"));
+        assertEquals(List.of("hello"), messages(STEVE, "Sage"));
+        assertEquals(List.of("a sword please"), messages(ALEX, "Smith"));
+        assertEquals(List.of(), messages(STEVE, "Baker"));
+        assertNull(dao.getMemorySummary(ALEX, "Guide", MEMORY));
+        assertEquals("Likes carrots", dao.getMemorySummary(ALEX, "Sage", MEMORY).summary());
+    }
+
+    private LogConversationDAO open(int segmentSize) throws IOException {
+        return new LogConversationDAO(directory, segmentSize, true, 60, () -> MEMORY,
+                new MessageCodec(MessageCodec.Mode.NONE, 0, 16), LOGGER);
+    }
+
+    private void reopen(int segmentSize) throws IOException {
+        dao.close(1000);
+        dao = open(segmentSize);
+    }
+
+    // Oldest first
+    private List<String> messages(UUID player, String npc) {
+        List<String> messages = new ArrayList<>();
+        for (Conversation conversation : dao.getRecentConversations(player, npc, MEMORY, 100)) {
+            messages.add(conversation.getMessage());
+        }
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    // Seconds after a minute before the test started, so the order is fixed and every message is within memory
+    private Conversation message(UUID player, String npc, String text, int second) {
+        return new Conversation(player, npc, text, now - 60_000 + second * 1000L, false);
+    }
+
+    private File[] segmentFiles() {
+        return directory.listFiles((dir, name) -> name.endsWith(".seg"));
+    }
+
+    private File onlySegment() {
+        File[] files = segmentFiles();
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    private static int snapshotSize() {
+        return LogRecord.encode(new LogRecord.Snapshot(0)).limit();
+    }
+}
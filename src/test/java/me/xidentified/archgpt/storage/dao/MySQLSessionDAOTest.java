@@ -0,0 +1,107 @@
+package me.xidentified.archgpt.storage.dao;
+
+import com.zaxxer.hikari.HikariDataSource;
+import me.xidentified.archgpt.storage.EmbeddedMariaDB;
+import me.xidentified.archgpt.storage.model.SharedSession;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MySQLSessionDAOTest {
+    private static final Logger LOGGER = Logger.getLogger("ArchGPT-Tests");
+    private static final UUID PLAYER = UUID.fromString("8667ba71-b85a-4004-af54-457a9734eed7");
+
+    private static EmbeddedMariaDB mariaDB;
+
+    private HikariDataSource dataSource;
+    private MySQLSessionDAO dao;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        mariaDB = EmbeddedMariaDB.start();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        mariaDB.stop();
+    }
+
+    @BeforeEach
+    void createDao() throws Exception {
+        dataSource = mariaDB.dataSource(mariaDB.newDatabase());
+        dao = new MySQLSessionDAO(dataSource, LOGGER);
+    }
+
+    @AfterEach
+    void closePool() {
+        dataSource.close();
+    }
+
+    @Test
+    void insertedSessionLoadsBack() {
+        SharedSession session = new SharedSession(PLAYER, 7, "Guide", "[{\"role\":\"user\"}]", 1, 1000, "lobby");
+
+        assertTrue(dao.insertSession(session));
+        assertEquals(session, dao.loadSession(PLAYER));
+        assertNull(dao.loadSession(UUID.randomUUID()));
+    }
+
+    @Test
+    void secondInsertForSamePlayerIsRejected() {
+        assertTrue(dao.insertSession(new SharedSession(PLAYER, 7, "Guide", "[]", 1, 1000, "lobby")));
+
+        assertFalse(dao.insertSession(new SharedSession(PLAYER, 8, "Smith", "[]", 1, 2000, "survival")));
+        assertEquals("lobby", dao.loadSession(PLAYER).server());
+    }
+
+    @Test
+    void updateBumpsVersion() {
+        dao.insertSession(new SharedSession(PLAYER, 7, "Guide", "[]", 1, 1000, "lobby"));
+
+        assertTrue(dao.updateSession(new SharedSession(PLAYER, 7, "Guide", "[1]", 2, 2000, "survival"), 1));
+        SharedSession stored = dao.loadSession(PLAYER);
+        assertEquals(2, stored.version());
+        assertEquals("[1]", stored.state());
+        assertEquals("survival", stored.server());
+    }
+
+    // Two servers read version 1; only the first write lands
+    @Test
+    void updateFromStaleVersionIsRejected() {
+        MySQLSessionDAO otherServer = new MySQLSessionDAO(dataSource, LOGGER);
+        dao.insertSession(new SharedSession(PLAYER, 7, "Guide", "[]", 1, 1000, "lobby"));
+
+        assertTrue(dao.updateSession(new SharedSession(PLAYER, 7, "Guide", "[\"lobby\"]", 2, 2000, "lobby"), 1));
+        assertFalse(otherServer.updateSession(new SharedSession(PLAYER, 7, "Guide", "[\"survival\"]", 2, 2001, "survival"), 1));
+
+        SharedSession stored = dao.loadSession(PLAYER);
+        assertEquals(2, stored.version());
+        assertEquals("[\"lobby\"]", stored.state());
+    }
+
+    @Test
+    void updateWithoutRowIsRejected() {
+        assertFalse(dao.updateSession(new SharedSession(PLAYER, 7, "Guide", "[]", 2, 2000, "lobby"), 1));
+    }
+
+    @Test
+    void deleteSessionsBeforeKeepsRecentOnes() {
+        UUID recent = UUID.randomUUID();
+        dao.insertSession(new SharedSession(PLAYER, 7, "Guide", "[]", 1, 1000, "lobby"));
+        dao.insertSession(new SharedSession(recent, 7, "Guide", "[]", 1, 5000, "lobby"));
+
+        assertEquals(1, dao.deleteSessionsBefore(5000));
+        assertNull(dao.loadSession(PLAYER));
+        assertEquals(5000, dao.loadSession(recent).updatedAt());
+    }
+}
@@ -0,0 +1,108 @@
+package me.xidentified.archgpt.storage.dao;
+
+import me.xidentified.archgpt.storage.model.Conversation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WriteBehindConversationDAOTest {
+    private static final Logger LOGGER = Logger.getLogger("ArchGPT-Tests");
+    private static final UUID PLAYER = UUID.fromString("8667ba71-b85a-4004-af54-457a9734eed7");
+
+    private final ConversationDAO delegate = mock(ConversationDAO.class);
+    private WriteBehindConversationDAO writer;
+
+    @AfterEach
+    void shutdown() {
+        if (writer != null) {
+            writer.shutdown(1000);
+        }
+    }
+
+    @Test
+    void failedBatchIsRetriedUntilWritten() {
+        doThrow(new RuntimeException("database is down")).doNothing().when(delegate).saveConversations(any());
+        writer = new WriteBehindConversationDAO(delegate, LOGGER, 10, 20);
+        List<Conversation> batch = List.of(message("one", 1000), message("two", 2000), message("three", 3000));
+
+        writer.saveConversations(batch);
+
+        verify(delegate, timeout(5000).times(2)).saveConversations(batch);
+        assertEquals(0, writer.getQueueDepth());
+        assertEquals(3, writer.getWritten());
+        assertEquals(1, writer.getFailedFlushes());
+    }
+
+    // Until the batch is written, recent reads still find its messages
+    @Test
+    void unwrittenMessagesStayReadable() {
+        doThrow(new RuntimeException("database is down")).when(delegate).saveConversations(any());
+        when(delegate.getRecentConversations(eq(PLAYER), eq("Guide"), any(), anyInt())).thenReturn(List.of());
+        writer = new WriteBehindConversationDAO(delegate, LOGGER, 10, 20);
+
+        writer.saveConversation(message("one", System.currentTimeMillis()));
+        verify(delegate, timeout(5000).atLeastOnce()).saveConversations(any());
+
+        assertEquals(1, writer.getQueueDepth());
+        assertEquals(0, writer.getWritten());
+        assertEquals(List.of("one"), writer.getRecentConversations(PLAYER, "Guide", Duration.ofHours(1), 10).stream()
+                .map(Conversation::getMessage).toList());
+    }
+
+    // Stored matches keep the database's ranking; unwritten matches lead and nothing appears twice
+    @Test
+    void keywordSearchAddsUnwrittenMatches() {
+        long now = System.currentTimeMillis();
+        Conversation stored = message("carrots grow near spawn", now - 60_000);
+        doThrow(new RuntimeException("database is down")).when(delegate).saveConversations(any());
+        when(delegate.searchConversations(eq(PLAYER), eq("Guide"), any(), eq(List.of("carrots")), eq(2)))
+                .thenReturn(List.of(stored));
+        writer = new WriteBehindConversationDAO(delegate, LOGGER, 10, 60_000);
+
+        writer.saveConversation(message("where are the carrots", now - 1000));
+        writer.saveConversation(message("hello there", now - 500));
+        writer.saveConversation(message("carrots grow near spawn", now - 60_000));
+
+        assertEquals(List.of("where are the carrots", "carrots grow near spawn"),
+                writer.searchConversations(PLAYER, "Guide", Duration.ofHours(1), List.of("carrots"), 2).stream()
+                        .map(Conversation::getMessage).toList());
+    }
+
+    // A clear must not run while queued messages could still be written after it
+    @Test
+    void clearIsRefusedWhileQueueCannotBeWritten() {
+        doThrow(new RuntimeException("database is down")).when(delegate).saveConversations(any());
+        writer = new WriteBehindConversationDAO(delegate, LOGGER, 10, 60_000);
+        writer.saveConversation(message("one", 1000));
+
+        assertThrows(IllegalStateException.class, () -> writer.clearConversationsForNpc("Guide"));
+        verify(delegate, never()).clearConversationsForNpc("Guide");
+
+        doNothing().when(delegate).saveConversations(any());
+        writer.clearConversationsForNpc("Guide");
+        verify(delegate, times(1)).clearConversationsForNpc("Guide");
+        assertEquals(0, writer.getQueueDepth());
+    }
+
+    private static Conversation message(String text, long timestamp) {
+        return new Conversation(PLAYER, "Guide", text, timestamp, false);
+    }
+}
@@ -0,0 +1,77 @@
+package me.xidentified.archgpt.storage.log;
+
+import me.xidentified.archgpt.storage.MessageCodec;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LogRecordTest {
+    private static final UUID PLAYER = UUID.fromString("8667ba71-b85a-4004-af54-457a9734eed7");
+
+    @Test
+    void everyRecordTypeSurvivesEncoding() {
+        List<LogRecord> records = List.of(
+                new LogRecord.Message(7, PLAYER, "Guide", 1000, true, "Carrots grow well near spawn"),
+                new LogRecord.Summary(PLAYER, "Guide", 2000, "Likes carrots"),
+                new LogRecord.Delete(true, false, PLAYER, "Guide", 3000),
+                new LogRecord.Delete(false, true, null, null, Long.MAX_VALUE),
+                new LogRecord.Snapshot(42),
+                new LogRecord.Rename("Guide", "Sage"));
+        for (LogRecord record : records) {
+            ByteBuffer frame = LogRecord.encode(record);
+            LogRecord.Decoded decoded = LogRecord.decode(frame, 0);
+            assertEquals(record, decoded.record());
+            assertEquals(frame.limit(), decoded.size());
+        }
+    }
+
+    @Test
+    void compressedMessageBodiesDecodeWithOrWithoutTheCodec() {
+        MessageCodec codec = new MessageCodec(MessageCodec.Mode.DICTIONARY, 0, 16);
+        LogRecord.Message message = new LogRecord.Message(7, PLAYER, "Guide", 1000, true,
+                "Greetings, traveler! Welcome to our village. How can I help you today?");
+        ByteBuffer frame = LogRecord.encode(message, codec);
+
+        assertEquals(message, LogRecord.decode(frame, 0, codec).record());
+        assertEquals(message, LogRecord.decode(frame, 0).record());
+    }
+
+    @Test
+    void framesAreReadBackToBack() {
+        ByteBuffer first = LogRecord.encode(new LogRecord.Snapshot(1));
+        ByteBuffer second = LogRecord.encode(new LogRecord.Rename("Guide", "Sage"));
+        ByteBuffer log = ByteBuffer.allocate(first.limit() + second.limit() + 64).put(first).put(second);
+
+        LogRecord.Decoded decoded = LogRecord.decode(log, 0);
+        assertEquals(new LogRecord.Snapshot(1), decoded.record());
+        assertEquals(new LogRecord.Rename("Guide", "Sage"), LogRecord.decode(log, decoded.size()).record());
+        // Zeroed space after the last record is the end of the data
+        assertNull(LogRecord.decode(log, decoded.size() + second.limit()));
+    }
+
+    @Test
+    void damagedPayloadFailsTheChecksum() {
+        ByteBuffer frame = LogRecord.encode(new LogRecord.Message(7, PLAYER, "Guide", 1000, false, "I really like carrots"));
+        int last = frame.limit() - 1;
+        frame.put(last, (byte) (frame.get(last) ^ 1));
+
+        assertNull(LogRecord.decode(frame, 0));
+    }
+
+    @Test
+    void tornFrameIsNotRead() {
+        ByteBuffer frame = LogRecord.encode(new LogRecord.Message(7, PLAYER, "Guide", 1000, false, "I really like carrots"));
+
+        // Cut short, and with the missing bytes still zero as in a preallocated segment
+        assertNull(LogRecord.decode(frame.duplicate().limit(frame.limit() - 4), 0));
+        ByteBuffer zeroed = ByteBuffer.allocate(frame.limit());
+        zeroed.put(frame.duplicate().limit(frame.limit() - 4));
+        assertNull(LogRecord.decode(zeroed, 0));
+        assertNull(LogRecord.decode(frame, frame.limit() - 3));
+    }
+}
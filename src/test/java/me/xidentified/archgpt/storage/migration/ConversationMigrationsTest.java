@@ -0,0 +1,174 @@
+package me.xidentified.archgpt.storage.migration;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the whole migration chain against a real database: a fresh one, one still on the schema the
+ * plugin created before migrations existed, and again on an up-to-date one. Subclasses supply the
+ * database and its dialect.
+ */
+abstract class ConversationMigrationsTest {
+    protected static final Logger LOGGER = Logger.getLogger("ArchGPT-Tests");
+
+    private static final UUID ALEX = UUID.fromString("8667ba71-b85a-4004-af54-457a9734eed7");
+    private static final UUID STEVE = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+
+    // A new, empty database for each call
+    protected abstract Connection openEmptyDatabase() throws Exception;
+
+    protected abstract List<Migration> migrations();
+
+    // The conversations table and indexes as the plugin created them before schema versioning
+    protected abstract void createBaselineSchema(Statement stmt) throws SQLException;
+
+    // Dialect-specific checks on a migrated database holding the baseline rows
+    protected void assertMigratedExtras(Connection connection) throws SQLException {
+    }
+
+    @Test
+    void migratesFreshDatabase() throws Exception {
+        try (Connection connection = openEmptyDatabase()) {
+            assertEquals(migrations().size(), MigrationRunner.migrate(connection, migrations(), LOGGER));
+            assertEquals(latestVersion(), MigrationRunner.getCurrentVersion(connection));
+            assertMigratedSchema(connection);
+            assertEquals(0, count(connection, "conversations"));
+        }
+    }
+
+    @Test
+    void migratesBaselineDatabaseKeepingItsMessages() throws Exception {
+        try (Connection connection = openBaselineDatabase()) {
+            assertEquals(migrations().size(), MigrationRunner.migrate(connection, migrations(), LOGGER));
+            assertEquals(latestVersion(), MigrationRunner.getCurrentVersion(connection));
+            assertMigratedSchema(connection);
+            assertBaselineMessages(connection);
+            assertMigratedExtras(connection);
+        }
+    }
+
+    @Test
+    void secondRunIsNoOp() throws Exception {
+        try (Connection connection = openBaselineDatabase()) {
+            MigrationRunner.migrate(connection, migrations(), LOGGER);
+            int versionRows = count(connection, "schema_version");
+
+            assertEquals(0, MigrationRunner.migrate(connection, migrations(), LOGGER));
+            assertEquals(versionRows, count(connection, "schema_version"));
+            assertEquals(latestVersion(), MigrationRunner.getCurrentVersion(connection));
+            assertBaselineMessages(connection);
+        }
+    }
+
+    // A run interrupted after a step's changes but before its version was recorded repeats the step
+    @Test
+    void everyStepCanBeRerunOverItsOwnResult() throws Exception {
+        List<Migration> migrations = migrations();
+        for (int i = 0; i < migrations.size(); i++) {
+            List<Migration> upToStep = migrations.subList(0, i + 1);
+            int version = upToStep.get(i).version();
+            try (Connection connection = openBaselineDatabase()) {
+                MigrationRunner.migrate(connection, upToStep, LOGGER);
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.executeUpdate("DELETE FROM schema_version WHERE version = " + version);
+                }
+
+                assertEquals(1, MigrationRunner.migrate(connection, upToStep, LOGGER), "Re-running migration " + version);
+                assertEquals(version, MigrationRunner.getCurrentVersion(connection));
+                assertEquals(4, count(connection, "conversations"), "Messages after re-running migration " + version);
+
+                MigrationRunner.migrate(connection, migrations, LOGGER);
+                assertMigratedSchema(connection);
+                assertBaselineMessages(connection);
+            }
+        }
+    }
+
+    private Connection openBaselineDatabase() throws Exception {
+        Connection connection = openEmptyDatabase();
+        try (Statement stmt = connection.createStatement()) {
+            createBaselineSchema(stmt);
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO conversations (player_uuid, npc_name, message, is_from_npc, timestamp) VALUES (?, ?, ?, ?, ?)")) {
+            insertMessage(insert, ALEX, "Guide", "I really like carrots", false, 1000);
+            insertMessage(insert, ALEX, "Guide", "Carrots grow well near spawn", true, 2000);
+            insertMessage(insert, ALEX, "Smith", "Can you make me a sword", false, 3000);
+            insertMessage(insert, STEVE, "Guide", "Hello there", false, 1500);
+        }
+        return connection;
+    }
+
+    private static void insertMessage(PreparedStatement insert, UUID player, String npc, String message,
+                                      boolean fromNpc, long timestamp) throws SQLException {
+        insert.setString(1, player.toString());
+        insert.setString(2, npc);
+        insert.setString(3, message);
+        insert.setBoolean(4, fromNpc);
+        insert.setLong(5, timestamp);
+        insert.executeUpdate();
+    }
+
+    private static void assertMigratedSchema(Connection connection) throws SQLException {
+        assertTrue(MigrationRunner.columnExists(connection, "conversations", "id"));
+        assertTrue(MigrationRunner.columnExists(connection, "conversations", "player_id"));
+        assertTrue(MigrationRunner.columnExists(connection, "conversations", "npc_id"));
+        assertFalse(MigrationRunner.columnExists(connection, "conversations", "player_uuid"));
+        assertFalse(MigrationRunner.columnExists(connection, "conversation_summaries", "player_uuid"));
+        assertTrue(MigrationRunner.indexExists(connection, "conversations", "idx_conversations_player_npc_time"));
+        assertTrue(MigrationRunner.indexExists(connection, "conversations", "idx_conversations_timestamp"));
+    }
+
+    private static void assertBaselineMessages(Connection connection) throws SQLException {
+        assertEquals(4, count(connection, "conversations"));
+        assertEquals(2, count(connection, "players"));
+        assertEquals(2, count(connection, "npcs"));
+        assertEquals(List.of("I really like carrots", "Carrots grow well near spawn"), messages(connection, ALEX, "Guide"));
+        assertEquals(List.of("Can you make me a sword"), messages(connection, ALEX, "Smith"));
+        assertEquals(List.of("Hello there"), messages(connection, STEVE, "Guide"));
+    }
+
+    // Oldest first. Bodies are read as bytes, since MySQL stores them as BLOB after the last migration.
+    private static List<String> messages(Connection connection, UUID player, String npc) throws SQLException {
+        List<String> messages = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT c.message FROM conversations c JOIN players p ON p.id = c.player_id JOIN npcs n ON n.id = c.npc_id " +
+                        "WHERE p.uuid = ? AND n.name = ? ORDER BY c.timestamp")) {
+            stmt.setBytes(1, ByteBuffer.allocate(16).putLong(player.getMostSignificantBits()).putLong(player.getLeastSignificantBits()).array());
+            stmt.setString(2, npc);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(new String(rs.getBytes(1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return messages;
+    }
+
+    protected static int count(Connection connection, String table) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private int latestVersion() {
+        return migrations().stream().mapToInt(Migration::version).max().orElse(0);
+    }
+}
@@ -0,0 +1,46 @@
+package me.xidentified.archgpt.storage.migration;
+
+import me.xidentified.archgpt.storage.EmbeddedMariaDB;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+class MySQLConversationMigrationsTest extends ConversationMigrationsTest {
+    private static EmbeddedMariaDB mariaDB;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        mariaDB = EmbeddedMariaDB.start();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        mariaDB.stop();
+    }
+
+    @Override
+    protected Connection openEmptyDatabase() throws Exception {
+        return mariaDB.connect(mariaDB.newDatabase());
+    }
+
+    @Override
+    protected List<Migration> migrations() {
+        return ConversationMigrations.MYSQL;
+    }
+
+    @Override
+    protected void createBaselineSchema(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE conversations (" +
+                "player_uuid VARCHAR(36), " +
+                "npc_name VARCHAR(255), " +
+                "message TEXT, " +
+                "timestamp BIGINT, " +
+                "is_from_npc BOOLEAN, " +
+                "PRIMARY KEY (player_uuid, timestamp))");
+        stmt.execute("CREATE INDEX idx_npc_name ON conversations (npc_name)");
+    }
+}
@@ -0,0 +1,48 @@
+package me.xidentified.archgpt.storage.migration;
+
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SQLiteConversationMigrationsTest extends ConversationMigrationsTest {
+    @TempDir
+    Path dataFolder;
+
+    private int databases;
+
+    @Override
+    protected Connection openEmptyDatabase() throws SQLException {
+        Path file = dataFolder.resolve("conversations-" + (++databases) + ".db");
+        return DriverManager.getConnection("jdbc:sqlite:" + file);
+    }
+
+    @Override
+    protected List<Migration> migrations() {
+        return ConversationMigrations.SQLITE;
+    }
+
+    @Override
+    protected void createBaselineSchema(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE conversations (player_uuid TEXT, npc_name TEXT, message TEXT, is_from_npc BOOLEAN, timestamp INTEGER)");
+        stmt.execute("CREATE INDEX idx_player_uuid ON conversations (player_uuid)");
+        stmt.execute("CREATE INDEX idx_npc_name ON conversations (npc_name)");
+    }
+
+    // The rebuilt full-text index covers messages written before the migration
+    @Override
+    protected void assertMigratedExtras(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM conversations_fts WHERE conversations_fts MATCH 'carrots'")) {
+            rs.next();
+            assertEquals(2, rs.getInt(1));
+        }
+    }
+}